@@ -40,6 +40,6 @@ class ProjectSyncAction() : BaseBuildAction() {
   }
 
   override fun execAction(data: ActionData): Any {
-    return getActivity(data)!!.initializeProject()
+    return getActivity(data)!!.initializeProject(forceSync = true)
   }
 }
@@ -179,7 +179,7 @@ abstract class ProjectHandlerActivity : BaseEditorActivity(), IProjectHandler {
   }
 
   override fun notifySyncNeeded() {
-    notifySyncNeeded { initializeProject() }
+    notifySyncNeeded { initializeProject(forceSync = true) }
   }
 
   override fun startServices() {
@@ -209,7 +209,7 @@ abstract class ProjectHandlerActivity : BaseEditorActivity(), IProjectHandler {
     initLspClient()
   }
 
-  override fun initializeProject() {
+  override fun initializeProject(forceSync: Boolean) {
     val projectDir = File(projectPath)
     if (!projectDir.exists()) {
       log.error("Project directory does not exist. Cannot initialize project")
@@ -220,7 +220,7 @@ abstract class ProjectHandlerActivity : BaseEditorActivity(), IProjectHandler {
     log.debug("Is project initialized: $initialized")
     // When returning after a configuration change between the initialization process,
     // we do not want to start another project initialization
-    if (isFromSavedInstance && initialized && !shouldInitialize) {
+    if (!forceSync && isFromSavedInstance && initialized && !shouldInitialize) {
       log.debug("Skipping init process because initialized && !wasInitializing")
       return
     }
@@ -235,9 +235,9 @@ abstract class ProjectHandlerActivity : BaseEditorActivity(), IProjectHandler {
     }
 
     this.initializingFuture =
-      if (shouldInitialize || (!isFromSavedInstance && !initialized)) {
+      if (forceSync || shouldInitialize || (!isFromSavedInstance && !initialized)) {
         log.debug("Sending init request to tooling server..")
-        buildService.initializeProject(projectDir.absolutePath)
+        buildService.initializeProject(projectDir.absolutePath, forceSync)
       } else {
         // The project initialization was in progress before the configuration change
         // In this case, we should not start another project initialization
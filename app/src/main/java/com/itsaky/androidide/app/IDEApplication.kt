@@ -29,6 +29,7 @@ import com.itsaky.androidide.events.AppEventsIndex
 import com.itsaky.androidide.events.LspApiEventsIndex
 import com.itsaky.androidide.events.LspJavaEventsIndex
 import com.itsaky.androidide.events.ProjectsApiEventsIndex
+import com.itsaky.androidide.javac.services.abi.AbiStubCache
 import com.itsaky.androidide.preferences.internal.enableMaterialYou
 import com.itsaky.androidide.preferences.internal.uiMode
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE
@@ -36,7 +37,10 @@ import com.itsaky.androidide.tasks.executeAsync
 import com.itsaky.androidide.utils.ILogger
 import com.itsaky.androidide.utils.VMUtils
 import com.itsaky.androidide.utils.flashError
+import com.itsaky.androidide.xml.resources.ResourceTableRegistry
+import com.itsaky.androidide.xml.versions.ApiVersionsRegistry
 import io.github.rosemoe.sora.widget.schemes.EditorColorScheme
+import java.io.File
 import java.lang.Thread.UncaughtExceptionHandler
 import kotlin.system.exitProcess
 import org.greenrobot.eventbus.EventBus
@@ -75,6 +79,10 @@ class IDEApplication : BaseApplication() {
 
     EditorColorScheme.setDefault(SchemeAndroidIDE.newInstance(null))
 
+    ResourceTableRegistry.getInstance().snapshotsDir = File(cacheDir, "resource-tables")
+    ApiVersionsRegistry.getInstance().indexDir = File(cacheDir, "api-versions")
+    AbiStubCache.directory = File(cacheDir, "abi-stubs")
+
     executeAsync { IDEColorSchemeProvider.init() }
   }
 
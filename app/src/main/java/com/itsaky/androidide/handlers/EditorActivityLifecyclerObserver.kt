@@ -90,6 +90,8 @@ class EditorActivityLifecyclerObserver : DefaultLifecycleObserver {
   }
 
   private fun initBootclasspathProvider() {
+    // android.jar is listed before the project is set up, read its listing from the cache
+    ProjectManager.loadClasspathCache()
     BootClasspathProvider.update(listOf(Environment.ANDROID_JAR.absolutePath))
   }
 }
@@ -22,6 +22,7 @@ import com.itsaky.androidide.preferences.internal.isFirstBuild
 import com.itsaky.androidide.resources.R.string
 import com.itsaky.androidide.services.builder.GradleBuildService
 import com.itsaky.androidide.tooling.events.ProgressEvent
+import com.itsaky.androidide.tooling.events.ProgressSummaryEvent
 import com.itsaky.androidide.tooling.events.configuration.ProjectConfigurationStartEvent
 import com.itsaky.androidide.tooling.events.task.TaskStartEvent
 import java.lang.ref.WeakReference
@@ -33,6 +34,7 @@ import java.lang.ref.WeakReference
 class EditorBuildEventListener : GradleBuildService.EventListener {
 
   private var activityReference: WeakReference<EditorHandlerActivity> = WeakReference(null)
+  private var receivedStartEvent = false
 
   fun setActivity(activity: EditorHandlerActivity) {
     this.activityReference = WeakReference(activity)
@@ -66,6 +68,13 @@ class EditorBuildEventListener : GradleBuildService.EventListener {
   override fun onProgressEvent(event: ProgressEvent) {
     if (event is ProjectConfigurationStartEvent || event is TaskStartEvent) {
       activity().setStatus(event.descriptor.displayName)
+      receivedStartEvent = true
+    } else if (event is ProgressSummaryEvent) {
+      // The summary is shown only if the status is not being updated by the start events
+      if (!receivedStartEvent) {
+        activity().setStatus(event.displayName)
+      }
+      receivedStartEvent = false
     }
   }
 
@@ -89,6 +98,18 @@ class EditorBuildEventListener : GradleBuildService.EventListener {
     }
   }
 
+  override fun onProjectModelChanged() {
+    activity().notifySyncNeeded()
+  }
+
+  override fun onOutputBatch(lines: List<String>) {
+    // append the whole batch at once instead of line by line
+    activity().appendBuildOutput(lines.joinToString(separator = ""))
+    lines
+      .lastOrNull { it.contains("BUILD SUCCESSFUL") || it.contains("BUILD FAILED") }
+      ?.let { activity().setStatus(it) }
+  }
+
   private fun analyzeCurrentFile() {
     val editorView = activity().getCurrentEditor()
     if (editorView != null) {
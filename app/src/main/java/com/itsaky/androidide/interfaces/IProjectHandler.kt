@@ -33,6 +33,14 @@ interface IProjectHandler {
   fun notifySyncNeeded()
   
   fun startServices()
-  fun initializeProject()
+  fun initializeProject() = initializeProject(false)
+
+  /**
+   * Initializes the project.
+   *
+   * @param forceSync Whether the project must be synced even if a cached project model is
+   * available.
+   */
+  fun initializeProject(forceSync: Boolean)
   fun stopLanguageServers()
 }
\ No newline at end of file
@@ -24,11 +24,14 @@ import androidx.preference.Preference
 import com.google.android.material.dialog.MaterialAlertDialogBuilder
 import com.google.android.material.textfield.TextInputLayout
 import com.itsaky.androidide.app.BaseApplication
+import com.itsaky.androidide.preferences.internal.BINARY_MODELS
 import com.itsaky.androidide.preferences.internal.CUSTOM_GRADLE_INSTALLATION
 import com.itsaky.androidide.preferences.internal.GRADLE_CLEAR_CACHE
 import com.itsaky.androidide.preferences.internal.GRADLE_COMMANDS
+import com.itsaky.androidide.preferences.internal.PROGRESS_VERBOSITY
 import com.itsaky.androidide.preferences.internal.TP_FIX
 import com.itsaky.androidide.preferences.internal.gradleInstallationDir
+import com.itsaky.androidide.preferences.internal.isBinaryModelsEnabled
 import com.itsaky.androidide.preferences.internal.isBuildCacheEnabled
 import com.itsaky.androidide.preferences.internal.isDebugEnabled
 import com.itsaky.androidide.preferences.internal.isInfoEnabled
@@ -36,14 +39,17 @@ import com.itsaky.androidide.preferences.internal.isOfflineEnabled
 import com.itsaky.androidide.preferences.internal.isScanEnabled
 import com.itsaky.androidide.preferences.internal.isStacktraceEnabled
 import com.itsaky.androidide.preferences.internal.isWarningModeAllEnabled
+import com.itsaky.androidide.preferences.internal.progressVerbosity
 import com.itsaky.androidide.preferences.internal.tpFix
 import com.itsaky.androidide.resources.R.drawable
 import com.itsaky.androidide.resources.R.string
 import com.itsaky.androidide.tasks.executeAsync
+import com.itsaky.androidide.tooling.events.ProgressVerbosity
 import com.itsaky.androidide.utils.Environment.GRADLE_USER_HOME
 import com.itsaky.androidide.utils.flashError
 import com.itsaky.androidide.utils.flashSuccess
 import java.io.File
+import kotlinx.parcelize.IgnoredOnParcel
 import kotlinx.parcelize.Parcelize
 
 @Parcelize
@@ -68,6 +74,8 @@ private class GradleOptions(
     addPreference(GradleCommands())
     addPreference(GradleDistrubution())
     addPreference(GradleClearCache())
+    addPreference(BinaryModels())
+    addPreference(BuildProgressVerbosity())
     if (BaseApplication.isAarch64() && VERSION.SDK_INT == VERSION_CODES.R) {
       addPreference(TagPointersFix())
     }
@@ -161,6 +169,55 @@ private class TagPointersFix(
   }
 }
 
+@Parcelize
+private class BinaryModels(
+  override val key: String = BINARY_MODELS,
+  override val title: Int = string.idepref_title_binaryModels,
+  override val summary: Int? = string.idepref_msg_binaryModels,
+  override val icon: Int? = drawable.ic_gradle,
+) : SwitchPreference() {
+
+  override fun onCreatePreference(context: Context): Preference {
+    val preference = super.onCreatePreference(context) as androidx.preference.SwitchPreference
+    preference.isChecked = isBinaryModelsEnabled
+    return preference
+  }
+
+  override fun onPreferenceChanged(preferece: Preference, newValue: Any?): Boolean {
+    isBinaryModelsEnabled = newValue as Boolean? ?: false
+    return true
+  }
+}
+
+@Parcelize
+private class BuildProgressVerbosity(
+  override val key: String = PROGRESS_VERBOSITY,
+  override val title: Int = string.idepref_title_progressVerbosity,
+  override val summary: Int? = string.idepref_msg_progressVerbosity,
+  override val icon: Int? = drawable.ic_gradle,
+) : SingleChoicePreference() {
+
+  @IgnoredOnParcel private val levels = ProgressVerbosity.values()
+
+  override fun getChoices(context: Context): Array<String> {
+    return arrayOf(
+      context.getString(string.progress_verbosity_summary),
+      context.getString(string.progress_verbosity_normal),
+      context.getString(string.progress_verbosity_verbose)
+    )
+  }
+
+  override fun getSelectedItem(): Int {
+    return levels.indexOfFirst { it.name == progressVerbosity }
+  }
+
+  override fun onItemSelected(position: Int, isSelected: Boolean) {
+    if (isSelected) {
+      progressVerbosity = levels[position].name
+    }
+  }
+}
+
 @Parcelize
 private class GradleClearCache(
   override val key: String = GRADLE_CLEAR_CACHE,
@@ -19,6 +19,8 @@ package com.itsaky.androidide.services.builder;
 
 import static com.itsaky.androidide.managers.ToolsManager.getCommonAsset;
 import static com.itsaky.androidide.preferences.internal.BuildPreferencesKt.getGradleInstallationDir;
+import static com.itsaky.androidide.preferences.internal.BuildPreferencesKt.getProgressVerbosity;
+import static com.itsaky.androidide.preferences.internal.BuildPreferencesKt.isBinaryModelsEnabled;
 import static com.itsaky.androidide.preferences.internal.BuildPreferencesKt.isBuildCacheEnabled;
 import static com.itsaky.androidide.preferences.internal.BuildPreferencesKt.isDebugEnabled;
 import static com.itsaky.androidide.preferences.internal.BuildPreferencesKt.isInfoEnabled;
@@ -64,6 +66,7 @@ import com.itsaky.androidide.tooling.api.messages.result.GradleWrapperCheckResul
 import com.itsaky.androidide.tooling.api.messages.result.InitializeResult;
 import com.itsaky.androidide.tooling.api.messages.result.TaskExecutionResult;
 import com.itsaky.androidide.tooling.events.ProgressEvent;
+import com.itsaky.androidide.tooling.events.ProgressVerbosity;
 import com.itsaky.androidide.utils.Environment;
 import com.itsaky.androidide.utils.ILogger;
 
@@ -237,6 +240,30 @@ public class GradleBuildService extends Service implements BuildService, IToolin
     }
   }
 
+  @NonNull
+  @Override
+  public CompletableFuture<Void> logOutputBatch(@NonNull List<String> lines) {
+    final var listener = eventListener;
+    if (listener == null || lines.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    listener.onOutputBatch(lines);
+
+    // The listener handles the output on the UI thread. Acknowledge the batch once it has been
+    // handled so that the server does not send the output faster than it can be shown.
+    final var future = new CompletableFuture<Void>();
+    ThreadUtils.runOnUiThread(() -> future.complete(null));
+    return future;
+  }
+
+  @Override
+  public void onProjectModelChanged() {
+    if (eventListener != null) {
+      eventListener.onProjectModelChanged();
+    }
+  }
+
   @Override
   public void prepareBuild() {
     updateNotification(getString(R.string.build_status_in_progress), true);
@@ -382,11 +409,27 @@ public class GradleBuildService extends Service implements BuildService, IToolin
 
   @NonNull
   @Override
-  public CompletableFuture<InitializeResult> initializeProject(@NonNull String rootDir) {
-    final var message = new InitializeProjectMessage(rootDir, getGradleInstallationDir());
+  public CompletableFuture<InitializeResult> initializeProject(
+      @NonNull String rootDir, boolean forceSync) {
+    final var message =
+        new InitializeProjectMessage(
+            rootDir,
+            getGradleInstallationDir(),
+            isBinaryModelsEnabled(),
+            getBuildProgressVerbosity(),
+            forceSync);
     return performBuildTasks(server.initialize(message));
   }
 
+  private ProgressVerbosity getBuildProgressVerbosity() {
+    try {
+      return ProgressVerbosity.valueOf(getProgressVerbosity());
+    } catch (IllegalArgumentException err) {
+      LOG.warn("Invalid progress verbosity:", getProgressVerbosity());
+      return ProgressVerbosity.NORMAL;
+    }
+  }
+
   @NonNull
   @Override
   public CompletableFuture<TaskExecutionResult> executeTasks(@NonNull String... tasks) {
@@ -514,6 +557,18 @@ public class GradleBuildService extends Service implements BuildService, IToolin
       public void onOutput(String line) {
         ThreadUtils.runOnUiThread(() -> listener.onOutput(line));
       }
+
+      @SuppressWarnings("ConstantConditions")
+      @Override
+      public void onProjectModelChanged() {
+        ThreadUtils.runOnUiThread(listener::onProjectModelChanged);
+      }
+
+      @SuppressWarnings("ConstantConditions")
+      @Override
+      public void onOutputBatch(@NonNull List<String> lines) {
+        ThreadUtils.runOnUiThread(() -> listener.onOutputBatch(lines));
+      }
     };
   }
 
@@ -566,5 +621,24 @@ public class GradleBuildService extends Service implements BuildService, IToolin
      * @param line The line of the build output.
      */
     void onOutput(String line);
+
+    /**
+     * Called when a batch of output lines is received.
+     *
+     * @param lines The lines of the build output, in order.
+     */
+    default void onOutputBatch(@NonNull List<String> lines) {
+      for (final var line : lines) {
+        onOutput(line);
+      }
+    }
+
+    /**
+     * Called when the project model has changed after the project was initialized with a cached
+     * model.
+     *
+     * @see IToolingApiClient#onProjectModelChanged()
+     */
+    default void onProjectModelChanged() {}
   }
 }
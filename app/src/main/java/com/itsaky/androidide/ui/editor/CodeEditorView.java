@@ -62,6 +62,7 @@ import com.itsaky.androidide.editor.schemes.IDEColorScheme;
 import com.itsaky.androidide.editor.schemes.IDEColorSchemeProvider;
 import com.itsaky.androidide.editor.ui.EditorSearchLayout;
 import com.itsaky.androidide.editor.ui.IDEEditor;
+import com.itsaky.androidide.eventbus.events.editor.DocumentResyncRequestEvent;
 import com.itsaky.androidide.eventbus.events.preferences.PreferenceChangeEvent;
 import com.itsaky.androidide.lsp.IDELanguageClientImpl;
 import com.itsaky.androidide.lsp.api.ILanguageServer;
@@ -389,6 +390,19 @@ public class CodeEditorView extends LinearLayout {
     }
   }
 
+  @Subscribe(threadMode = ThreadMode.MAIN)
+  @SuppressWarnings("unused")
+  public void onDocumentResyncRequested(DocumentResyncRequestEvent event) {
+    final var file = getFile();
+    if (binding == null
+        || file == null
+        || !file.toPath().normalize().equals(event.getOutdatedFile().normalize())) {
+      return;
+    }
+
+    binding.editor.resyncDocument();
+  }
+
   public boolean save() {
     final var file = getFile();
     if (file == null) {
@@ -21,6 +21,7 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 
 import com.itsaky.androidide.editor.api.IEditor;
+import com.itsaky.androidide.editor.ui.DocumentEditQueue;
 import com.itsaky.androidide.lookup.Lookup;
 import com.itsaky.androidide.lsp.api.ICompletionCancelChecker;
 import com.itsaky.androidide.lsp.api.ILanguageServer;
@@ -45,6 +46,9 @@ import io.github.rosemoe.sora.text.ContentReference;
 public abstract class IDELanguage implements Language {
   
   private static final ILogger LOG = ILogger.newInstance("IDELanguage");
+
+  /** The maximum time (in milliseconds) to wait for the queued edits to be dispatched. */
+  private static final long EDIT_DISPATCH_TIMEOUT = 500;
   private Formatter formatter;
 
   @Override
@@ -80,6 +84,9 @@ public abstract class IDELanguage implements Language {
       return;
     }
 
+    // Complete against the latest version of the document
+    DocumentEditQueue.awaitDispatched(EDIT_DISPATCH_TIMEOUT);
+
     final var completionProvider = new CommonCompletionProvider(server);
     final var file = Paths.get(path);
 
@@ -26,9 +26,8 @@ import static com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forKeyw
 import static com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forString;
 import static io.github.rosemoe.sora.lang.styling.TextStyle.makeStyle;
 
-import com.itsaky.androidide.editor.language.incremental.IncrementalToken;
 import com.itsaky.androidide.editor.language.incremental.BaseIncrementalAnalyzeManager;
-import com.itsaky.androidide.editor.language.incremental.LineState;
+import com.itsaky.androidide.editor.language.incremental.LineTokens;
 import com.itsaky.androidide.lexers.cpp.CPP14Lexer;
 import com.itsaky.androidide.utils.ILogger;
 
@@ -54,13 +53,12 @@ public class CppAnalyzer extends BaseIncrementalAnalyzeManager {
   }
 
   @Override
-  protected List<Span> generateSpans(final LineTokenizeResult<LineState, IncrementalToken> tokens) {
+  protected List<Span> generateSpans(final LineTokens tokens) {
     final var spans = new ArrayList<Span>();
     spans.add(Span.obtain(0, makeStyle(TEXT_NORMAL)));
-    for (int i = 0; i < tokens.tokens.size(); i++) {
-      final var token = tokens.tokens.get(i);
-      final var type = token.getType();
-      final var offset = token.getStartIndex();
+    for (int i = 0; i < tokens.size(); i++) {
+      final var type = tokens.getType(i);
+      final var offset = tokens.getStartIndex(i);
 
       switch (type) {
         case CPP14Lexer.Alignas:
@@ -211,7 +209,7 @@ public class CppAnalyzer extends BaseIncrementalAnalyzeManager {
           spans.add(Span.obtain(offset, forComment()));
           break;
         case CPP14Lexer.LineComment:
-          handleLineCommentSpan(token, spans, offset);
+          handleLineCommentSpan(tokens, i, spans, offset);
           break;
         default:
           spans.add(Span.obtain(offset, makeStyle(TEXT_NORMAL)));
@@ -222,8 +220,8 @@ public class CppAnalyzer extends BaseIncrementalAnalyzeManager {
   }
 
   @Override
-  protected void handleIncompleteToken(final IncrementalToken token) {
-    token.type = CPP14Lexer.BlockComment;
+  protected void handleIncompleteToken(final LineTokens tokens, final int index) {
+    tokens.setType(index, CPP14Lexer.BlockComment);
   }
 
   @Override
@@ -18,11 +18,9 @@
 package com.itsaky.androidide.editor.language.groovy
 
 import com.itsaky.androidide.editor.language.incremental.BaseIncrementalAnalyzeManager
-import com.itsaky.androidide.editor.language.incremental.IncrementalToken
-import com.itsaky.androidide.editor.language.incremental.LineState
+import com.itsaky.androidide.editor.language.incremental.LineTokens
 import com.itsaky.androidide.lexers.groovy.GroovyLexer
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE
-import io.github.rosemoe.sora.lang.analysis.IncrementalAnalyzeManager.LineTokenizeResult
 import io.github.rosemoe.sora.lang.styling.Span
 import io.github.rosemoe.sora.lang.styling.TextStyle
 
@@ -32,14 +30,14 @@ class GroovyAnalyzer : BaseIncrementalAnalyzeManager(GroovyLexer::class.java) {
   override fun getCodeBlockTokens() = intArrayOf(GroovyLexer.LBRACE, GroovyLexer.RBRACE)
 
   override fun generateSpans(
-    tokens: LineTokenizeResult<LineState, IncrementalToken>,
+    tokens: LineTokens,
   ): List<Span> {
     val spans = mutableListOf<Span>()
     var previous = GroovyLexer.WS
     var first = true
-    for (token in tokens.tokens) {
-      val type = token.type
-      val offset = token.startIndex
+    for (i in 0 until tokens.size) {
+      val type = tokens.getType(i)
+      val offset = tokens.getStartIndex(i)
       when (type) {
         GroovyLexer.WS -> {
           if (first) {
@@ -158,7 +156,7 @@ class GroovyAnalyzer : BaseIncrementalAnalyzeManager(GroovyLexer::class.java) {
         GroovyLexer.SHORT, ->
           spans.add(Span.obtain(offset, TextStyle.makeStyle(SchemeAndroidIDE.TYPE_NAME)))
         GroovyLexer.COMMENT -> spans.add(Span.obtain(offset, SchemeAndroidIDE.forComment()))
-        GroovyLexer.LINE_COMMENT -> handleLineCommentSpan(token, spans, offset)
+        GroovyLexer.LINE_COMMENT -> handleLineCommentSpan(tokens, i, spans, offset)
         GroovyLexer.AT ->
           spans.add(Span.obtain(offset, TextStyle.makeStyle(SchemeAndroidIDE.ANNOTATION)))
         GroovyLexer.IDENTIFIER -> {
@@ -182,7 +180,7 @@ class GroovyAnalyzer : BaseIncrementalAnalyzeManager(GroovyLexer::class.java) {
     return arrayOf(start, end)
   }
 
-  override fun handleIncompleteToken(token: IncrementalToken) {
-    token.type = GroovyLexer.COMMENT
+  override fun handleIncompleteToken(tokens: LineTokens, index: Int) {
+    tokens.setType(index, GroovyLexer.COMMENT)
   }
 }
@@ -14,7 +14,6 @@
  *  You should have received a copy of the GNU General Public License
  *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
  */
-
 package com.itsaky.androidide.editor.language.incremental;
 
 import static com.itsaky.androidide.editor.language.incremental.LineState.INCOMPLETE;
@@ -25,25 +24,18 @@ import static com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.without
 
 import androidx.annotation.NonNull;
 
-import com.blankj.utilcode.util.ArrayUtils;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.EvictingQueue;
 import com.itsaky.androidide.editor.language.java.JavaAnalyzer;
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE;
-import com.itsaky.androidide.utils.CharSequenceReader;
 import com.itsaky.androidide.utils.ILogger;
 
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.Token;
 
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.Stack;
-import java.util.stream.Collectors;
 
 import io.github.rosemoe.sora.lang.analysis.AsyncIncrementalAnalyzeManager;
 import io.github.rosemoe.sora.lang.styling.CodeBlock;
@@ -51,11 +43,18 @@ import io.github.rosemoe.sora.lang.styling.Span;
 import io.github.rosemoe.sora.lang.styling.TextStyle;
 import io.github.rosemoe.sora.text.Content;
 import io.github.rosemoe.sora.util.IntPair;
-import kotlin.Pair;
 
 /**
  * Base class for implementing an {@link AsyncIncrementalAnalyzeManager} in AndroidIDE.
  *
+ * <p>The lexer reads the lines directly through a reusable {@link LineCharStream} and the same
+ * {@link Token} instance is reused for every token (see {@link ReusableTokenFactory}). The tokens
+ * of a line are stored in a {@link LineTokens}, so tokenizing a line does not allocate an object
+ * per token.
+ *
+ * <p>The unmatched block tokens of each line are stored in its {@link LineState}, the code blocks
+ * are computed from them incrementally by a {@link CodeBlockTreeBuilder}.
+ *
  * @author Akash Yadav
  */
 public abstract class BaseIncrementalAnalyzeManager
@@ -67,9 +66,20 @@ public abstract class BaseIncrementalAnalyzeManager
   private final int[] multilineEndTypes;
   private final int[] blockTokens;
 
+  // Reused for every line. Lines are tokenized on the analyzer thread only.
+  private final LineCharStream stream = new LineCharStream();
+  private final LineTokens scratchTokens = new LineTokens();
+  private final TokenWindow startWindow;
+  private final TokenWindow endWindow;
+  private int[] blockStartColumns = new int[8];
+  private int[] blockEndColumns = new int[8];
+
+  private final CodeBlockTreeBuilder blockTreeBuilder = new CodeBlockTreeBuilder();
+
   public BaseIncrementalAnalyzeManager(final Class<? extends Lexer> lexer) {
     Objects.requireNonNull(lexer, "Cannot create analyzer manager for null lexer");
     this.lexer = createLexerInstance(lexer);
+    this.lexer.setTokenFactory(new ReusableTokenFactory());
 
     var multilineTokenTypes = getMultilineTokenStartEndTypes();
     verifyMultilineTypes(multilineTokenTypes);
@@ -77,6 +87,8 @@ public abstract class BaseIncrementalAnalyzeManager
     this.multilineStartTypes = multilineTokenTypes[0];
     this.multilineEndTypes = multilineTokenTypes[1];
     this.blockTokens = Objects.requireNonNullElseGet(getCodeBlockTokens(), () -> new int[] {});
+    this.startWindow = new TokenWindow(multilineStartTypes.length);
+    this.endWindow = new TokenWindow(multilineEndTypes.length);
   }
 
   @NonNull
@@ -95,11 +107,7 @@ public abstract class BaseIncrementalAnalyzeManager
   @NonNull
   protected CharStream createStream(@NonNull CharSequence source) {
     Objects.requireNonNull(source);
-    try {
-      return CharStreams.fromReader(new CharSequenceReader(source));
-    } catch (IOException e) {
-      throw new RuntimeException("Cannot create CharStream for source", e);
-    }
+    return new LineCharStream(source);
   }
 
   private void verifyMultilineTypes(@NonNull final int[][] types) {
@@ -143,7 +151,9 @@ public abstract class BaseIncrementalAnalyzeManager
   @Override
   public LineTokenizeResult<LineState, IncrementalToken> tokenizeLine(
       final CharSequence lineText, final LineState state, final int line) {
-    final var tokens = new ArrayList<IncrementalToken>();
+    final var tokens = scratchTokens;
+    tokens.clear();
+    tokens.setLine(lineText);
     var newState = 0;
     var stateObj = new LineState();
     if (state.state == LineState.NORMAL) {
@@ -160,13 +170,48 @@ public abstract class BaseIncrementalAnalyzeManager
     }
     stateObj.state = newState;
     stateObj.lexerMode = lexer._mode;
-    return new LineTokenizeResult<>(stateObj, tokens);
+    computeBlockColumns(tokens, stateObj);
+    return new LineTokenizeResult<>(stateObj, tokens.copy());
+  }
+
+  /**
+   * Finds the block tokens in the given tokens which are not matched in the same line, and stores
+   * their columns in the given state.
+   */
+  private void computeBlockColumns(@NonNull LineTokens tokens, @NonNull LineState state) {
+    var starts = 0;
+    var ends = 0;
+    for (int i = 0; i < tokens.size(); i++) {
+      final var type = tokens.getType(i);
+      if (isCodeBlockStart(type)) {
+        if (starts == blockStartColumns.length) {
+          blockStartColumns = Arrays.copyOf(blockStartColumns, starts * 2);
+        }
+        blockStartColumns[starts++] = tokens.getStartIndex(i);
+      } else if (isCodeBlockEnd(type)) {
+        if (starts > 0) {
+          --starts;
+        } else {
+          if (ends == blockEndColumns.length) {
+            blockEndColumns = Arrays.copyOf(blockEndColumns, ends * 2);
+          }
+          blockEndColumns[ends++] = tokens.getStartIndex(i);
+        }
+      }
+    }
+
+    if (starts > 0) {
+      state.blockStarts = Arrays.copyOf(blockStartColumns, starts);
+    }
+    if (ends > 0) {
+      state.blockEnds = Arrays.copyOf(blockEndColumns, ends);
+    }
   }
 
   @Override
   public List<Span> generateSpansForLine(
       final LineTokenizeResult<LineState, IncrementalToken> tokens) {
-    var result = generateSpans(tokens);
+    var result = generateSpans((LineTokens) tokens.tokens);
 
     Objects.requireNonNull(result);
 
@@ -178,100 +223,62 @@ public abstract class BaseIncrementalAnalyzeManager
   }
 
   /**
-   * Generate spans for the given {@link LineTokenizeResult}.
+   * Generate spans for the given tokens of a line.
    *
-   * @param tokens The tokenization result.
+   * @param tokens The tokens of the line.
    * @return The spans for the tokens.
    */
-  protected abstract List<Span> generateSpans(
-      final LineTokenizeResult<LineState, IncrementalToken> tokens);
+  protected abstract List<Span> generateSpans(@NonNull final LineTokens tokens);
 
   @Override
   public List<CodeBlock> computeBlocks(
       final Content text,
       final AsyncIncrementalAnalyzeManager<LineState, IncrementalToken>.CodeBlockAnalyzeDelegate
           delegate) {
-    final var stack = new Stack<CodeBlock>();
-    final var blocks = new ArrayList<CodeBlock>();
-    var line = 0;
-    var maxSwitch = 0;
-    var currSwitch = 0;
-    while (delegate.isNotCancelled() && line < text.getLineCount()) {
-      final var tokens = getState(line);
-      final var checkForIdentifiers =
-          tokens.state.state == LineState.NORMAL
-              || (tokens.state.state == LineState.INCOMPLETE && tokens.tokens.size() > 1);
-      if (!tokens.state.hasBraces && !checkForIdentifiers) {
-        line++;
-        continue;
-      }
-
-      for (int i = 0; i < tokens.tokens.size(); i++) {
-        final var token = tokens.tokens.get(i);
-        final var type = token.getType();
-        var offset = token.getStartIndex();
-        if (isCodeBlockStart(token)) {
-          if (stack.isEmpty()) {
-            if (currSwitch > maxSwitch) {
-              maxSwitch = currSwitch;
-            }
-            currSwitch = 0;
-          }
-          currSwitch++;
-          CodeBlock block = new CodeBlock();
-          block.startLine = line;
-          block.startColumn = offset;
-          stack.push(block);
-        } else if (isCodeBlockEnd(token)) {
-          if (!stack.isEmpty()) {
-            CodeBlock block = stack.pop();
-            block.endLine = line;
-            block.endColumn = offset;
-            if (block.startLine != block.endLine) {
-              blocks.add(block);
-            }
-          }
-        }
-      }
-
-      line++;
+    final var tree =
+        blockTreeBuilder.update(
+            text.getLineCount(), line -> getState(line).state, delegate::isNotCancelled);
+    if (tree == null) {
+      // cancelled, the blocks will be computed again
+      return blockTreeBuilder.getTree().toCodeBlocks();
     }
-    return blocks;
+    return tree.toCodeBlocks();
+  }
+
+  /**
+   * Get the code blocks which were computed last. The blocks which were not affected by an edit are
+   * the same instances in the trees before and after the edit.
+   *
+   * @return The code block tree.
+   */
+  @NonNull
+  public CodeBlockTree getBlockTree() {
+    return blockTreeBuilder.getTree();
   }
 
-  protected boolean isCodeBlockStart(IncrementalToken token) {
-    return blockTokens.length == 2 && token.getType() == blockTokens[0];
+  protected boolean isCodeBlockStart(int type) {
+    return blockTokens.length == 2 && type == blockTokens[0];
   }
 
-  protected boolean isCodeBlockEnd(IncrementalToken token) {
-    return blockTokens.length == 2 && token.getType() == blockTokens[1];
+  protected boolean isCodeBlockEnd(int type) {
+    return blockTokens.length == 2 && type == blockTokens[1];
   }
 
-  @SuppressWarnings("UnstableApiUsage")
-  protected boolean isIncompleteTokenStart(EvictingQueue<IncrementalToken> q) {
-    return matchTokenTypes(this.multilineStartTypes, q);
+  protected boolean isIncompleteTokenStart(@NonNull TokenWindow window) {
+    return window.matches(this.multilineStartTypes);
   }
 
-  @SuppressWarnings("UnstableApiUsage")
-  protected boolean isIncompleteTokenEnd(EvictingQueue<IncrementalToken> q) {
-    return matchTokenTypes(this.multilineEndTypes, q);
+  protected boolean isIncompleteTokenEnd(@NonNull TokenWindow window) {
+    return window.matches(this.multilineEndTypes);
   }
 
   /**
    * Called when the analyzer finds an incomplete token in a lne.
    *
-   * @param token The incomplete token.
-   */
-  protected abstract void handleIncompleteToken(IncrementalToken token);
-
-  /**
-   * Gets the next token from lexer and return an {@link IncrementalToken}.
-   *
-   * @return The next {@link IncrementalToken}.
+   * @param tokens The tokens of the line.
+   * @param index The index of the incomplete token in <code>tokens</code>.
    */
-  protected IncrementalToken nextToken() {
-    return new IncrementalToken(lexer.nextToken());
-  }
+  protected abstract void handleIncompleteToken(@NonNull LineTokens tokens, int index);
 
   /**
    * Pop (remove) required number of tokens after an incomplete token has been encountered. <br>
@@ -282,26 +289,25 @@ public abstract class BaseIncrementalAnalyzeManager
    *
    * <p>By default, this method removes only the last token.
    *
-   * @param incompleteToken The token which is the start of the incomplete token.
+   * @param incompleteToken The index of the token which is the start of the incomplete token.
    * @param tokens The list of tokens from which extra tokens must be removed.
    */
-  protected void popTokensAfterIncomplete(
-      @NonNull IncrementalToken incompleteToken, @NonNull List<IncrementalToken> tokens) {
-    tokens.remove(tokens.size() - 1);
+  protected void popTokensAfterIncomplete(int incompleteToken, @NonNull LineTokens tokens) {
+    tokens.removeLast();
   }
 
   protected void handleLineCommentSpan(
-      @NonNull IncrementalToken token, @NonNull List<Span> spans, int offset) {
+      @NonNull LineTokens tokens, int index, @NonNull List<Span> spans, int offset) {
     var commentType = SchemeAndroidIDE.COMMENT;
 
     // highlight special line comments
-    var commentText = token.getText();
+    var commentText = tokens.getText(index);
     if (commentText.length() > 2) {
       commentText = commentText.substring(2);
       commentText = commentText.trim();
-      if ("todo".equalsIgnoreCase(commentText.substring(0, 4))) {
+      if (commentText.regionMatches(true, 0, "todo", 0, 4)) {
         commentType = TODO_COMMENT;
-      } else if ("fixme".equalsIgnoreCase(commentText.substring(0, 5))) {
+      } else if (commentText.regionMatches(true, 0, "fixme", 0, 5)) {
         commentType = FIXME_COMMENT;
       }
     }
@@ -309,71 +315,69 @@ public abstract class BaseIncrementalAnalyzeManager
   }
 
   /**
-   * Called when the <code>state</code> in {@link #tokenizeLine(CharSequence, LineState)} is {@link
-   * LineState#NORMAL}.
+   * Called when the <code>state</code> in {@link #tokenizeLine(CharSequence, LineState, int)} is
+   * {@link LineState#NORMAL}.
    *
    * @param line The line source.
    * @param column The column in <code>line</code>.
-   * @param tokens The list of tokens that must be updated as the <code>line</code> is scanned.
+   * @param tokens The tokens that must be updated as the <code>line</code> is scanned.
    * @param st The state object whose state must be after after the <code>line</code> has been
    *     scanned.
    * @return The new state.
    */
-  @SuppressWarnings("UnstableApiUsage")
   protected int tokenizeNormal(
       final CharSequence line,
       final int column,
-      final List<IncrementalToken> tokens,
+      final LineTokens tokens,
       final LineState st,
       final int lexerMode) {
-    lexer.setInputStream(createStream(line));
-    if (lexer._mode != lexerMode) {
-      lexer.pushMode(lexerMode);
-    }
-    final var queues = createEvictingQueueForTokens();
-    final var start = queues.getFirst();
-    final var end = queues.getSecond();
+    resetLexer(line, lexerMode);
+    final var start = startWindow;
+    final var end = endWindow;
+    start.clear();
+    end.clear();
     var isInIncompleteToken = false;
     var state = LineState.NORMAL;
-    IncrementalToken token;
-    IncrementalToken incompleteToken = null;
+    var incompleteToken = -1;
+    Token token;
 
-    while ((token = nextToken()) != null) {
-      if (token.getType() == IncrementalToken.EOF) {
-        break;
-      }
+    while ((token = lexer.nextToken()).getType() != Token.EOF) {
+      final var startIndex = token.getStartIndex();
 
       // Skip to the token just after 'column'
-      if (token.getStartIndex() < column) {
+      if (startIndex < column) {
         continue;
       }
 
+      var type = token.getType();
+      var index = -1;
       if (!isInIncompleteToken) {
-        if (token.getStartIndex() == column && !tokens.isEmpty()) {
-          token.type = tokens.get(tokens.size() - 1).getType();
+        if (startIndex == column && !tokens.isEmpty()) {
+          type = tokens.getType(tokens.size() - 1);
         }
 
-        tokens.add(token);
+        index = tokens.size();
+        tokens.add(type, startIndex, token.getStopIndex());
       }
-      start.add(token);
-      end.add(token);
-      final var type = token.getType();
-      if (ArrayUtils.contains(getCodeBlockTokens(), type)) {
+      start.add(type, index);
+      end.add(type, index);
+      if (isBlockToken(type)) {
         st.hasBraces = true;
       }
 
-      if (start.remainingCapacity() == 0 && isIncompleteTokenStart(start)) {
+      if (!isInIncompleteToken && start.isFull() && isIncompleteTokenStart(start)) {
         isInIncompleteToken = true;
-        incompleteToken = start.poll();
+        incompleteToken = start.getIndex(0);
+        start.removeFirst();
 
         // Pop extra tokens from the list.
-        popTokensAfterIncomplete(Objects.requireNonNull(incompleteToken), tokens);
-      } else if (end.remainingCapacity() == 0 && isIncompleteTokenEnd(end)) {
+        popTokensAfterIncomplete(incompleteToken, tokens);
+      } else if (isInIncompleteToken && end.isFull() && isIncompleteTokenEnd(end)) {
         // This should most probably not happen because, if a comment starts and ends on the same
         // line, the lexer will create a token for the whole comment
         // But still we handle this case...
         isInIncompleteToken = false;
-        incompleteToken = null;
+        incompleteToken = -1;
       }
 
       if (isInIncompleteToken) {
@@ -381,56 +385,57 @@ public abstract class BaseIncrementalAnalyzeManager
       }
     }
 
-    if (incompleteToken != null) {
-      incompleteToken.incomplete = true;
-      handleIncompleteToken(incompleteToken);
+    if (incompleteToken >= 0 && incompleteToken < tokens.size()) {
+      tokens.setIncomplete(incompleteToken, true);
+      handleIncompleteToken(tokens, incompleteToken);
     }
 
     return state;
   }
 
   /**
-   * Called when the <code>state</code> in {@link #tokenizeLine(CharSequence, LineState)} is {@link
-   * LineState#INCOMPLETE}.
+   * Called when the <code>state</code> in {@link #tokenizeLine(CharSequence, LineState, int)} is
+   * {@link LineState#INCOMPLETE}.
    *
    * @param line The line source.
-   * @param tokens The list of tokens that must be updated as the <code>line</code> is scanned.
+   * @param tokens The tokens that must be updated as the <code>line</code> is scanned.
    * @return The state and offset.
    */
-  @SuppressWarnings("UnstableApiUsage")
   protected long fillIncomplete(
-      CharSequence line, final List<IncrementalToken> tokens, final int lexerMode) {
-    lexer.setInputStream(createStream(line));
-    if (lexer._mode != lexerMode) {
-      lexer.pushMode(lexerMode);
-    }
-    final var queue = createEvictingQueueForTokens();
-    final var end = queue.getSecond();
-    final var allTokens =
-        lexer.getAllTokens().stream().map(IncrementalToken::new).collect(Collectors.toList());
-    if (allTokens.isEmpty()) {
-      return IntPair.pack(LineState.INCOMPLETE, 0);
-    }
+      CharSequence line, final LineTokens tokens, final int lexerMode) {
+    resetLexer(line, lexerMode);
+    final var end = endWindow;
+    end.clear();
+
+    var count = 0;
+    var firstType = Token.INVALID_TYPE;
+    var firstStop = -1;
+    var lastStart = 0;
     var completed = false;
-    var index = 0;
-    for (index = 0; index < allTokens.size(); index++) {
-      final IncrementalToken token = allTokens.get(index);
-      if (token.getType() == Token.EOF) {
-        break;
+    Token token;
+    while ((token = lexer.nextToken()).getType() != Token.EOF) {
+      if (count++ == 0) {
+        firstType = token.getType();
+        firstStop = token.getStopIndex();
       }
 
-      end.add(token);
-      if (end.remainingCapacity() == 0 && isIncompleteTokenEnd(end)) {
+      lastStart = token.getStartIndex();
+      end.add(token.getType(), -1);
+      if (end.isFull() && isIncompleteTokenEnd(end)) {
         completed = true;
         break;
       }
     }
 
-    final var first = allTokens.get(0);
-    final int offset = allTokens.get(completed ? index : index - 1).getStartIndex();
-    first.startIndex = 0;
-    handleIncompleteToken(first);
-    tokens.add(first);
+    if (count == 0) {
+      return IntPair.pack(LineState.INCOMPLETE, 0);
+    }
+
+    // The offset is the start of the token which completes the incomplete token, or the start of
+    // the last token in the line
+    final int offset = lastStart;
+    tokens.add(firstType, 0, firstStop);
+    handleIncompleteToken(tokens, tokens.size() - 1);
     if (completed) {
       return IntPair.pack(LineState.NORMAL, offset);
     } else {
@@ -438,24 +443,19 @@ public abstract class BaseIncrementalAnalyzeManager
     }
   }
 
-  @SuppressWarnings("UnstableApiUsage")
-  @NonNull
-  private Pair<EvictingQueue<IncrementalToken>, EvictingQueue<IncrementalToken>>
-      createEvictingQueueForTokens() {
-    return new Pair<>(
-        EvictingQueue.create(multilineStartTypes.length),
-        EvictingQueue.create(multilineEndTypes.length));
+  private void resetLexer(@NonNull CharSequence line, int lexerMode) {
+    lexer.setInputStream(stream.reset(line));
+    if (lexer._mode != lexerMode) {
+      lexer.pushMode(lexerMode);
+    }
   }
 
-  @SuppressWarnings("UnstableApiUsage")
-  private boolean matchTokenTypes(
-      @NonNull int[] types, @NonNull EvictingQueue<IncrementalToken> tokens) {
-    final var arr = tokens.toArray(new IncrementalToken[0]);
-    for (int i = 0; i < types.length; i++) {
-      if (types[i] != arr[i].getType()) {
-        return false;
+  private boolean isBlockToken(int type) {
+    for (final var blockToken : blockTokens) {
+      if (blockToken == type) {
+        return true;
       }
     }
-    return true;
+    return false;
   }
 }
@@ -0,0 +1,114 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.language.incremental
+
+import io.github.rosemoe.sora.lang.styling.CodeBlock
+import java.util.Collections
+
+/**
+ * The code blocks of a document, as computed by [CodeBlockTreeBuilder].
+ *
+ * The blocks are ordered by their end positions, so a block comes after all the blocks nested in
+ * it. The trees are immutable. A block which is not affected by an edit is the same [Block]
+ * instance in the tree before and after the edit, so two trees can be diffed by identity.
+ *
+ * @param blocks The blocks, ordered by their end positions.
+ * @param changedFromLine The first line from which the blocks were computed again. Blocks which end
+ *   before this line are the same as in the previous tree.
+ * @author Akash Yadav
+ */
+class CodeBlockTree internal constructor(
+  blocks: List<Block>,
+  val changedFromLine: Int
+) {
+
+  companion object {
+    @JvmField val EMPTY = CodeBlockTree(emptyList(), 0)
+  }
+
+  /** The blocks, ordered by their end positions. */
+  val blocks: List<Block> = Collections.unmodifiableList(blocks)
+
+  private val parents = computeParents(blocks)
+
+  val size: Int
+    get() = blocks.size
+
+  operator fun get(index: Int): Block = blocks[index]
+
+  /**
+   * Get the parent of the block at the given index.
+   *
+   * @return The index of the block which encloses the block at the given index, or `-1` if the
+   *   block is not nested in another block.
+   */
+  fun getParent(index: Int): Int = parents[index]
+
+  /** Creates the [CodeBlock] instances for the editor. */
+  fun toCodeBlocks(): MutableList<CodeBlock> {
+    val result = ArrayList<CodeBlock>(blocks.size)
+    for (block in blocks) {
+      result.add(block.toCodeBlock())
+    }
+    return result
+  }
+
+  private fun computeParents(blocks: List<Block>): IntArray {
+    val parents = IntArray(blocks.size) { -1 }
+
+    // the blocks are in post-order, so the blocks waiting for their parent are always the deepest
+    val pending = IntArray(blocks.size)
+    var pendingCount = 0
+    for (i in blocks.indices) {
+      val depth = blocks[i].depth
+      while (pendingCount > 0 && blocks[pending[pendingCount - 1]].depth > depth) {
+        parents[pending[--pendingCount]] = i
+      }
+      pending[pendingCount++] = i
+    }
+    return parents
+  }
+
+  /**
+   * A code block, from the block start token to the block end token. Only blocks which span more
+   * than one line are part of the tree.
+   *
+   * @property depth The number of blocks which enclose this block.
+   */
+  class Block(
+    @JvmField val startLine: Int,
+    @JvmField val startColumn: Int,
+    @JvmField val endLine: Int,
+    @JvmField val endColumn: Int,
+    @JvmField val depth: Int
+  ) {
+
+    fun toCodeBlock(): CodeBlock {
+      val block = CodeBlock()
+      block.startLine = startLine
+      block.startColumn = startColumn
+      block.endLine = endLine
+      block.endColumn = endColumn
+      return block
+    }
+
+    override fun toString(): String {
+      return "Block($startLine:$startColumn - $endLine:$endColumn, depth=$depth)"
+    }
+  }
+}
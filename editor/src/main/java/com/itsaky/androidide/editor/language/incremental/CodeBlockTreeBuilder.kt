@@ -0,0 +1,200 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.language.incremental
+
+import com.itsaky.androidide.editor.language.incremental.CodeBlockTree.Block
+import java.util.function.BooleanSupplier
+import java.util.function.IntFunction
+
+/**
+ * Computes the [CodeBlockTree] of a document from the unmatched block tokens of its lines
+ * ([LineState.blockEnds] and [LineState.blockStarts]), which are computed when the lines are
+ * tokenized.
+ *
+ * The builder remembers the line states and the blocks which are open at the start of each line.
+ * A line whose [LineState] instance is the same as in the previous computation has not been
+ * tokenized again, so it has not changed. When the blocks are computed again:
+ * - the lines before the first changed line are not scanned, the blocks which end before it are
+ *   reused.
+ * - if the number of lines has not changed, the scan stops at the first line after the changed
+ *   lines where the open blocks are the same as before, the blocks after it are reused.
+ *
+ * This class is not thread safe. It must be used on the analyzer thread.
+ *
+ * @author Akash Yadav
+ */
+class CodeBlockTreeBuilder {
+
+  private var states = emptyArray<LineState?>()
+
+  /** The blocks which are open at the start of each line, plus one for the end of the document. */
+  private var checkpoints = arrayOfNulls<OpenBlock>(1)
+
+  /** The tree which was computed last. */
+  @Volatile
+  var tree = CodeBlockTree.EMPTY
+    private set
+
+  /**
+   * Computes the blocks of the document.
+   *
+   * @param lineCount The number of lines in the document.
+   * @param lineStates Provides the state of each line.
+   * @param isActive Whether the computation should continue.
+   * @return The new tree, or `null` if the computation was cancelled.
+   */
+  fun update(
+    lineCount: Int,
+    lineStates: IntFunction<LineState>,
+    isActive: BooleanSupplier
+  ): CodeBlockTree? {
+    val oldStates = this.states
+    val oldCount = oldStates.size
+    val newStates = arrayOfNulls<LineState>(lineCount)
+    for (line in 0 until lineCount) {
+      newStates[line] = lineStates.apply(line)
+    }
+
+    val common = minOf(lineCount, oldCount)
+    var from = 0
+    while (from < common && newStates[from] === oldStates[from]) {
+      from++
+    }
+
+    if (from == lineCount && lineCount == oldCount) {
+      return tree
+    }
+
+    var suffix = 0
+    while (
+      suffix < common - from &&
+        newStates[lineCount - suffix - 1] === oldStates[oldCount - suffix - 1]
+    ) {
+      suffix++
+    }
+
+    val to = lineCount - suffix
+    val sameLineCount = lineCount == oldCount
+    val old = tree
+    val oldCheckpoints = checkpoints
+    val newCheckpoints = arrayOfNulls<OpenBlock>(lineCount + 1)
+    val blocks = ArrayList<Block>(old.size + 16)
+
+    // the blocks which end before the first changed line
+    var oldIndex = 0
+    while (oldIndex < old.size && old[oldIndex].endLine < from) {
+      blocks.add(old[oldIndex++])
+    }
+
+    System.arraycopy(oldCheckpoints, 0, newCheckpoints, 0, from + 1)
+    var open = oldCheckpoints[from]
+    var line = from
+    while (line < lineCount) {
+      if (!isActive.asBoolean) {
+        return null
+      }
+
+      if (sameLineCount && line >= to && isSame(open, oldCheckpoints[line])) {
+        // the rest of the document has not changed
+        System.arraycopy(oldCheckpoints, line, newCheckpoints, line, lineCount + 1 - line)
+        while (oldIndex < old.size && old[oldIndex].endLine < line) {
+          oldIndex++
+        }
+        while (oldIndex < old.size) {
+          blocks.add(old[oldIndex++])
+        }
+        break
+      }
+
+      newCheckpoints[line] = open
+      val state = newStates[line]!!
+      for (column in state.blockEnds) {
+        val start = open ?: break
+        open = start.parent
+
+        // reuse the block from the old tree if it has not changed
+        while (oldIndex < old.size && old[oldIndex].isBefore(line, column)) {
+          oldIndex++
+        }
+        val candidate = if (oldIndex < old.size) old[oldIndex] else null
+        if (candidate != null && candidate.isSame(start, line, column)) {
+          blocks.add(candidate)
+          oldIndex++
+        } else {
+          blocks.add(Block(start.line, start.column, line, column, start.depth))
+        }
+      }
+      for (column in state.blockStarts) {
+        open = OpenBlock(line, column, open)
+      }
+      line++
+    }
+
+    if (line == lineCount) {
+      newCheckpoints[lineCount] = open
+    }
+
+    this.states = newStates
+    this.checkpoints = newCheckpoints
+    return CodeBlockTree(blocks, from).also { tree = it }
+  }
+
+  /** Forgets the previously computed blocks. */
+  fun reset() {
+    states = emptyArray()
+    checkpoints = arrayOfNulls(1)
+    tree = CodeBlockTree.EMPTY
+  }
+
+  private fun Block.isBefore(line: Int, column: Int): Boolean {
+    return endLine < line || (endLine == line && endColumn < column)
+  }
+
+  private fun Block.isSame(start: OpenBlock, line: Int, column: Int): Boolean {
+    return endLine == line &&
+      endColumn == column &&
+      startLine == start.line &&
+      startColumn == start.column &&
+      depth == start.depth
+  }
+
+  private fun isSame(first: OpenBlock?, second: OpenBlock?): Boolean {
+    var a = first
+    var b = second
+    while (a !== b) {
+      if (a == null || b == null || a.line != b.line || a.column != b.column) {
+        return false
+      }
+      a = a.parent
+      b = b.parent
+    }
+    return true
+  }
+
+  /**
+   * A block whose end has not been found yet. The open blocks at a line form an immutable stack,
+   * which is shared by the following lines.
+   */
+  private class OpenBlock(
+    @JvmField val line: Int,
+    @JvmField val column: Int,
+    @JvmField val parent: OpenBlock?
+  ) {
+    @JvmField val depth: Int = if (parent == null) 0 else parent.depth + 1
+  }
+}
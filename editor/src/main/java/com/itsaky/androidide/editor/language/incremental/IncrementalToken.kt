@@ -17,32 +17,21 @@
 
 package com.itsaky.androidide.editor.language.incremental
 
-import org.antlr.v4.runtime.CharStream
-import org.antlr.v4.runtime.Token
-import org.antlr.v4.runtime.TokenSource
-
 /**
- * Token used for incremental lexing tasks. Allows us to store other information to tokens.
+ * A token of a line, as returned by [LineTokens.get]. The analyzers read the tokens directly from
+ * [LineTokens], this class exists for the users of the [List] interface.
  *
  * @author Akash Yadav
  */
-class IncrementalToken(val token: Token) : Token {
-
-  @JvmField var type = token.type
-  @JvmField var startIndex = token.startIndex
-  @JvmField var incomplete = false
+class IncrementalToken(
+  @JvmField var type: Int,
+  @JvmField var startIndex: Int,
+  @JvmField var stopIndex: Int,
+  @JvmField var incomplete: Boolean = false
+) {
 
-  override fun getText(): String = token.text
-  override fun getType() = type
-  override fun getLine() = token.line
-  override fun getCharPositionInLine() = token.charPositionInLine
-  override fun getChannel() = token.channel
-  override fun getTokenIndex() = token.tokenIndex
-  override fun getStartIndex() = startIndex
-  override fun getStopIndex() = token.stopIndex
-  override fun getTokenSource(): TokenSource = token.tokenSource
-  override fun getInputStream(): CharStream = token.inputStream
-  override fun equals(other: Any?) = token == other
-  override fun hashCode() = token.hashCode()
-  override fun toString() = token.toString()
+  override fun toString(): String {
+    return "IncrementalToken(type=$type, startIndex=$startIndex, stopIndex=$stopIndex, " +
+      "incomplete=$incomplete)"
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.language.incremental;
+
+import androidx.annotation.NonNull;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A {@link CharStream} which reads the characters directly from a {@link CharSequence} (usually a
+ * line of the editor's content), without copying them. The stream can be reused for another line
+ * with {@link #reset(CharSequence)}.
+ *
+ * <p>Unlike the streams created by {@link org.antlr.v4.runtime.CharStreams}, the stream is indexed
+ * by UTF-16 chars, so the indices of the tokens are the columns in the editor.
+ *
+ * @author Akash Yadav
+ */
+public class LineCharStream implements CharStream {
+
+  private CharSequence source;
+  private int index;
+
+  public LineCharStream() {
+    this("");
+  }
+
+  public LineCharStream(@NonNull CharSequence source) {
+    this.source = source;
+  }
+
+  /**
+   * Resets this stream to read the given source.
+   *
+   * @param source The source to read.
+   * @return This stream.
+   */
+  @NonNull
+  public LineCharStream reset(@NonNull CharSequence source) {
+    this.source = source;
+    this.index = 0;
+    return this;
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    final var start = Math.max(0, interval.a);
+    final var stop = Math.min(interval.b, source.length() - 1);
+    if (start > stop) {
+      return "";
+    }
+    return source.subSequence(start, stop + 1).toString();
+  }
+
+  @Override
+  public void consume() {
+    if (index >= source.length()) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    index++;
+  }
+
+  @Override
+  public int LA(int i) {
+    if (i == 0) {
+      return 0;
+    }
+
+    // LA(1) is the current char, LA(-1) is the previous char
+    final var position = i > 0 ? index + i - 1 : index + i;
+    if (position < 0 || position >= source.length()) {
+      return IntStream.EOF;
+    }
+    return source.charAt(position);
+  }
+
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {}
+
+  @Override
+  public int index() {
+    return index;
+  }
+
+  @Override
+  public void seek(int index) {
+    this.index = Math.max(0, Math.min(index, source.length()));
+  }
+
+  @Override
+  public int size() {
+    return source.length();
+  }
+
+  @Override
+  public String getSourceName() {
+    return IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return source.toString();
+  }
+}
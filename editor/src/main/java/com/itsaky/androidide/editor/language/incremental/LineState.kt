@@ -33,8 +33,27 @@ data class LineState(
   @JvmField var hasBraces: Boolean = false,
   @JvmField var lexerMode: Int = Lexer.DEFAULT_MODE
 ) {
+
+  /**
+   * The columns of the block end tokens in the line which do not end a block started in the same
+   * line. Not part of [equals] as it does not affect the tokenization of the next line.
+   */
+  @JvmField var blockEnds: IntArray = NO_COLUMNS
+
+  /**
+   * The columns of the block start tokens in the line whose blocks do not end in the same line. Not
+   * part of [equals] as it does not affect the tokenization of the next line.
+   */
+  @JvmField var blockStarts: IntArray = NO_COLUMNS
+
+  /** The change in the number of open blocks after this line. */
+  val blockDelta: Int
+    get() = blockStarts.size - blockEnds.size
+
   companion object {
     const val NORMAL = 0
     const val INCOMPLETE = 1
+
+    @JvmField val NO_COLUMNS = IntArray(0)
   }
 }
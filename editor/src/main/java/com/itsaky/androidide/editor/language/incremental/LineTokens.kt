@@ -0,0 +1,155 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.language.incremental
+
+/**
+ * The tokens of a line. The tokens are stored in parallel arrays instead of an object per token, so
+ * tokenizing a line allocates only when the arrays need to grow.
+ *
+ * This class implements [List] for compatibility. [get] creates a new [IncrementalToken] on each
+ * call and should be avoided in hot paths, the index based accessors should be used instead.
+ *
+ * @author Akash Yadav
+ */
+class LineTokens @JvmOverloads constructor(capacity: Int = DEFAULT_CAPACITY) :
+  AbstractList<IncrementalToken>(), RandomAccess {
+
+  companion object {
+    private const val DEFAULT_CAPACITY = 16
+    private const val FLAG_INCOMPLETE = 1
+  }
+
+  private var types = IntArray(capacity)
+  private var starts = IntArray(capacity)
+  private var stops = IntArray(capacity)
+  private var flags = IntArray(capacity)
+  private var count = 0
+
+  /**
+   * The text of the line. The text is not copied, so [getText] returns the text of the tokens only
+   * until the line is modified.
+   */
+  var line: CharSequence = ""
+
+  override val size: Int
+    get() = count
+
+  /** Adds a token with the given type and the given (inclusive) start and stop indices. */
+  fun add(type: Int, startIndex: Int, stopIndex: Int) {
+    if (count == types.size) {
+      grow()
+    }
+    types[count] = type
+    starts[count] = startIndex
+    stops[count] = stopIndex
+    flags[count] = 0
+    count++
+  }
+
+  /** Removes the last token. */
+  fun removeLast() {
+    if (count == 0) {
+      throw NoSuchElementException()
+    }
+    count--
+  }
+
+  fun getType(index: Int): Int = types[checkIndex(index)]
+
+  fun setType(index: Int, type: Int) {
+    types[checkIndex(index)] = type
+  }
+
+  fun getStartIndex(index: Int): Int = starts[checkIndex(index)]
+
+  fun setStartIndex(index: Int, startIndex: Int) {
+    starts[checkIndex(index)] = startIndex
+  }
+
+  fun getStopIndex(index: Int): Int = stops[checkIndex(index)]
+
+  fun isIncomplete(index: Int): Boolean = flags[checkIndex(index)] and FLAG_INCOMPLETE != 0
+
+  fun setIncomplete(index: Int, incomplete: Boolean) {
+    val i = checkIndex(index)
+    flags[i] = if (incomplete) flags[i] or FLAG_INCOMPLETE else flags[i] and FLAG_INCOMPLETE.inv()
+  }
+
+  /** Get the text of the token at the given index. */
+  fun getText(index: Int): String {
+    val line = this.line
+    val start = getStartIndex(index).coerceIn(0, line.length)
+    val end = (stops[index] + 1).coerceIn(start, line.length)
+    return line.subSequence(start, end).toString()
+  }
+
+  /**
+   * Get the index of the given character in the text of the token at the given index, without
+   * creating the text of the token.
+   *
+   * @return The index relative to the start of the token, or `-1` if the token does not contain the
+   *   character.
+   */
+  fun indexOf(index: Int, ch: Char): Int {
+    val line = this.line
+    val start = getStartIndex(index).coerceIn(0, line.length)
+    val end = (stops[index] + 1).coerceIn(start, line.length)
+    for (i in start until end) {
+      if (line[i] == ch) {
+        return i - start
+      }
+    }
+    return -1
+  }
+
+  /** Removes all the tokens. */
+  fun clear() {
+    count = 0
+  }
+
+  /** Creates a copy of these tokens whose arrays are no larger than the number of tokens. */
+  fun copy(): LineTokens {
+    val copy = LineTokens(0)
+    copy.types = types.copyOf(count)
+    copy.starts = starts.copyOf(count)
+    copy.stops = stops.copyOf(count)
+    copy.flags = flags.copyOf(count)
+    copy.count = count
+    copy.line = line
+    return copy
+  }
+
+  override fun get(index: Int): IncrementalToken {
+    return IncrementalToken(getType(index), starts[index], stops[index], isIncomplete(index))
+  }
+
+  private fun grow() {
+    val capacity = maxOf(DEFAULT_CAPACITY, types.size + (types.size shr 1))
+    types = types.copyOf(capacity)
+    starts = starts.copyOf(capacity)
+    stops = stops.copyOf(capacity)
+    flags = flags.copyOf(capacity)
+  }
+
+  private fun checkIndex(index: Int): Int {
+    if (index < 0 || index >= count) {
+      throw IndexOutOfBoundsException("index=$index, size=$count")
+    }
+    return index
+  }
+}
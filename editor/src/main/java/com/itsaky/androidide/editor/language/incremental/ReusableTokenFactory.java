@@ -0,0 +1,90 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.language.incremental;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * A {@link TokenFactory} which returns the same token instance for every token created by the
+ * lexer. The analyzers copy the type and the indices of a token to {@link LineTokens} before asking
+ * the lexer for the next token, so the token does not have to be allocated again.
+ *
+ * <p><b>The tokens created by this factory must not be stored.</b> For example, {@link
+ * org.antlr.v4.runtime.Lexer#getAllTokens()} cannot be used with this factory.
+ *
+ * @author Akash Yadav
+ */
+class ReusableTokenFactory implements TokenFactory<CommonToken> {
+
+  private final ReusableToken token = new ReusableToken();
+
+  @Override
+  public CommonToken create(
+      Pair<TokenSource, CharStream> source,
+      int type,
+      String text,
+      int channel,
+      int start,
+      int stop,
+      int line,
+      int charPositionInLine) {
+    token.reset(source, type, text, channel, start, stop, line, charPositionInLine);
+    return token;
+  }
+
+  @Override
+  public CommonToken create(int type, String text) {
+    token.reset(type, text);
+    return token;
+  }
+
+  private static final class ReusableToken extends CommonToken {
+
+    ReusableToken() {
+      super(INVALID_TYPE);
+    }
+
+    void reset(
+        Pair<TokenSource, CharStream> source,
+        int type,
+        String text,
+        int channel,
+        int start,
+        int stop,
+        int line,
+        int charPositionInLine) {
+      this.source = source;
+      this.type = type;
+      this.text = text;
+      this.channel = channel;
+      this.start = start;
+      this.stop = stop;
+      this.line = line;
+      this.charPositionInLine = charPositionInLine;
+      this.index = -1;
+    }
+
+    void reset(int type, String text) {
+      reset(EMPTY_SOURCE, type, text, DEFAULT_CHANNEL, -1, -1, 0, -1);
+    }
+  }
+}
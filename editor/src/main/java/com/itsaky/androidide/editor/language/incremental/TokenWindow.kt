@@ -0,0 +1,99 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.language.incremental
+
+/**
+ * A fixed size window over the last tokens scanned in a line. Used to find the tokens which start
+ * or end a multiline token. Once the window is full, adding a token evicts the eldest token.
+ *
+ * @param capacity The maximum number of tokens in the window.
+ * @author Akash Yadav
+ */
+class TokenWindow(val capacity: Int) {
+
+  private val types = IntArray(capacity)
+  private val indices = IntArray(capacity)
+  private var head = 0
+
+  /** The number of tokens in the window. */
+  var size = 0
+    private set
+
+  /** Whether the window has [capacity] tokens. */
+  val isFull: Boolean
+    get() = size == capacity
+
+  /**
+   * Adds a token to this window.
+   *
+   * @param type The type of the token.
+   * @param index The index of the token in the [LineTokens] of the line, or `-1` if the token was
+   *   not added to the line tokens.
+   */
+  fun add(type: Int, index: Int) {
+    if (size == capacity) {
+      head = (head + 1) % capacity
+      size--
+    }
+    val slot = (head + size) % capacity
+    types[slot] = type
+    indices[slot] = index
+    size++
+  }
+
+  /** Get the type of the token at the given position. The eldest token is at position `0`. */
+  fun getType(position: Int): Int = types[slot(position)]
+
+  /** Get the index of the token at the given position in the [LineTokens] of the line. */
+  fun getIndex(position: Int): Int = indices[slot(position)]
+
+  /** Removes the eldest token from this window. */
+  fun removeFirst() {
+    if (size == 0) {
+      throw NoSuchElementException()
+    }
+    head = (head + 1) % capacity
+    size--
+  }
+
+  /** Removes all the tokens from this window. */
+  fun clear() {
+    head = 0
+    size = 0
+  }
+
+  /** Whether the types of the tokens in this window are the given types, in order. */
+  fun matches(types: IntArray): Boolean {
+    if (types.size != size) {
+      return false
+    }
+    for (i in types.indices) {
+      if (types[i] != getType(i)) {
+        return false
+      }
+    }
+    return true
+  }
+
+  private fun slot(position: Int): Int {
+    if (position < 0 || position >= size) {
+      throw IndexOutOfBoundsException("position=$position, size=$size")
+    }
+    return (head + position) % capacity
+  }
+}
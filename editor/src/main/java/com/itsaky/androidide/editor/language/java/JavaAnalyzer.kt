@@ -17,8 +17,7 @@
 package com.itsaky.androidide.editor.language.java
 
 import com.itsaky.androidide.editor.language.incremental.BaseIncrementalAnalyzeManager
-import com.itsaky.androidide.editor.language.incremental.IncrementalToken
-import com.itsaky.androidide.editor.language.incremental.LineState
+import com.itsaky.androidide.editor.language.incremental.LineTokens
 import com.itsaky.androidide.lexers.java.JavaLexer
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.ANNOTATION
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.LITERAL
@@ -29,7 +28,6 @@ import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forComment
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forKeyword
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forString
 import com.itsaky.androidide.utils.ILogger
-import io.github.rosemoe.sora.lang.analysis.IncrementalAnalyzeManager.LineTokenizeResult
 import io.github.rosemoe.sora.lang.styling.Span
 import io.github.rosemoe.sora.lang.styling.TextStyle.makeStyle
 
@@ -41,14 +39,14 @@ class JavaAnalyzer : BaseIncrementalAnalyzeManager(JavaLexer::class.java) {
   override fun getCodeBlockTokens(): IntArray = intArrayOf(JavaLexer.LBRACE, JavaLexer.RBRACE)
 
   override fun generateSpans(
-    tokens: LineTokenizeResult<LineState, IncrementalToken>,
+    tokens: LineTokens,
   ): List<Span> {
     val spans = mutableListOf<Span>()
     var previous = JavaLexer.WS
     var first = true
-    for (token in tokens.tokens) {
-      val type = token.type
-      val offset = token.startIndex
+    for (i in 0 until tokens.size) {
+      val type = tokens.getType(i)
+      val offset = tokens.getStartIndex(i)
       when (type) {
         JavaLexer.WS -> {
           if (first) {
@@ -164,7 +162,7 @@ class JavaAnalyzer : BaseIncrementalAnalyzeManager(JavaLexer::class.java) {
         JavaLexer.LONG,
         JavaLexer.SHORT, -> spans.add(Span.obtain(offset, makeStyle(TYPE_NAME)))
         JavaLexer.BLOCK_COMMENT -> spans.add(Span.obtain(offset, forComment()))
-        JavaLexer.LINE_COMMENT -> handleLineCommentSpan(token, spans, offset)
+        JavaLexer.LINE_COMMENT -> handleLineCommentSpan(tokens, i, spans, offset)
         JavaLexer.AT -> spans.add(Span.obtain(offset, makeStyle(ANNOTATION)))
         JavaLexer.IDENTIFIER -> {
           var colorId = TEXT_NORMAL
@@ -187,7 +185,7 @@ class JavaAnalyzer : BaseIncrementalAnalyzeManager(JavaLexer::class.java) {
     return arrayOf(start, end)
   }
 
-  override fun handleIncompleteToken(token: IncrementalToken) {
-    token.type = JavaLexer.BLOCK_COMMENT
+  override fun handleIncompleteToken(tokens: LineTokens, index: Int) {
+    tokens.setType(index, JavaLexer.BLOCK_COMMENT)
   }
 }
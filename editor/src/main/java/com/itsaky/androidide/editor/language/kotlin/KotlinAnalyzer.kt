@@ -18,8 +18,7 @@
 package com.itsaky.androidide.editor.language.kotlin
 
 import com.itsaky.androidide.editor.language.incremental.BaseIncrementalAnalyzeManager
-import com.itsaky.androidide.editor.language.incremental.IncrementalToken
-import com.itsaky.androidide.editor.language.incremental.LineState
+import com.itsaky.androidide.editor.language.incremental.LineTokens
 import com.itsaky.androidide.lexers.kotlin.KotlinLexer
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.ANNOTATION
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.LITERAL
@@ -28,7 +27,6 @@ import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.TEXT_NORMAL
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forComment
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forKeyword
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forString
-import io.github.rosemoe.sora.lang.analysis.IncrementalAnalyzeManager.LineTokenizeResult
 import io.github.rosemoe.sora.lang.styling.Span
 import io.github.rosemoe.sora.lang.styling.TextStyle.makeStyle
 
@@ -48,13 +46,13 @@ class KotlinAnalyzer : BaseIncrementalAnalyzeManager(KotlinLexer::class.java) {
   }
 
   override fun generateSpans(
-    tokens: LineTokenizeResult<LineState, IncrementalToken>,
+    tokens: LineTokens,
   ): MutableList<Span> {
     val spans = mutableListOf<Span>()
     var first = true
-    for (token in tokens.tokens) {
-      val type = token.type
-      val offset = token.startIndex
+    for (i in 0 until tokens.size) {
+      val type = tokens.getType(i)
+      val offset = tokens.getStartIndex(i)
 
       when (type) {
         KotlinLexer.WS ->
@@ -199,7 +197,7 @@ class KotlinAnalyzer : BaseIncrementalAnalyzeManager(KotlinLexer::class.java) {
         KotlinLexer.EQEQ,
         KotlinLexer.EQEQEQ,
         KotlinLexer.SINGLE_QUOTE -> spans.add(Span.obtain(offset, makeStyle(OPERATOR)))
-        KotlinLexer.LineComment -> handleLineCommentSpan(token, spans, offset)
+        KotlinLexer.LineComment -> handleLineCommentSpan(tokens, i, spans, offset)
         KotlinLexer.ShebangLine,
         KotlinLexer.DelimitedComment,
         KotlinLexer.Inside_Comment -> spans.add(Span.obtain(offset, forComment()))
@@ -209,7 +207,7 @@ class KotlinAnalyzer : BaseIncrementalAnalyzeManager(KotlinLexer::class.java) {
     return spans
   }
 
-  override fun handleIncompleteToken(token: IncrementalToken) {
-    token.type = KotlinLexer.DelimitedComment
+  override fun handleIncompleteToken(tokens: LineTokens, index: Int) {
+    tokens.setType(index, KotlinLexer.DelimitedComment)
   }
 }
@@ -19,10 +19,9 @@ package com.itsaky.androidide.editor.language.xml
 
 import android.graphics.Color
 import android.graphics.Color.parseColor
-import com.google.common.collect.EvictingQueue
 import com.itsaky.androidide.editor.language.incremental.BaseIncrementalAnalyzeManager
-import com.itsaky.androidide.editor.language.incremental.IncrementalToken
-import com.itsaky.androidide.editor.language.incremental.LineState
+import com.itsaky.androidide.editor.language.incremental.LineTokens
+import com.itsaky.androidide.editor.language.incremental.TokenWindow
 import com.itsaky.androidide.lexers.xml.XMLLexer
 import com.itsaky.androidide.lexers.xml.XMLLexer.CLOSE
 import com.itsaky.androidide.lexers.xml.XMLLexer.COLON
@@ -48,7 +47,6 @@ import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.OPERATOR
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.TEXT_NORMAL
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.XML_TAG
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE.forComment
-import io.github.rosemoe.sora.lang.analysis.IncrementalAnalyzeManager.LineTokenizeResult
 import io.github.rosemoe.sora.lang.styling.Span
 import io.github.rosemoe.sora.lang.styling.TextStyle.makeStyle
 import java.util.regex.Pattern
@@ -68,39 +66,33 @@ class XMLAnalyzer : BaseIncrementalAnalyzeManager(XMLLexer::class.java) {
     return arrayOf(start, end)
   }
 
-  @Suppress("UnstableApiUsage")
-  override fun isIncompleteTokenEnd(q: EvictingQueue<IncrementalToken>): Boolean {
-    return super.isIncompleteTokenEnd(q) || q.peek()!!.getType() == COMMENT_END
+  override fun isIncompleteTokenEnd(window: TokenWindow): Boolean {
+    return super.isIncompleteTokenEnd(window) || window.getType(0) == COMMENT_END
   }
 
-  override fun isCodeBlockStart(token: IncrementalToken): Boolean {
-    val type = token.getType()
+  override fun isCodeBlockStart(type: Int): Boolean {
     return type == OPEN || type == XMLDeclOpen
   }
 
-  override fun isCodeBlockEnd(token: IncrementalToken): Boolean {
-    val type = token.getType()
+  override fun isCodeBlockEnd(type: Int): Boolean {
     return type == OPEN_SLASH || type == SPECIAL_CLOSE || type == SLASH_CLOSE
   }
 
-  override fun popTokensAfterIncomplete(
-    incompleteToken: IncrementalToken,
-    tokens: MutableList<IncrementalToken>,
-  ) {
+  override fun popTokensAfterIncomplete(incompleteToken: Int, tokens: LineTokens) {
     // Do nothing
   }
 
   override fun generateSpans(
-    tokens: LineTokenizeResult<LineState, IncrementalToken>,
+    tokens: LineTokens,
   ): MutableList<Span> {
     val spans = mutableListOf<Span>()
     var previous = XMLLexer.SEA_WS
 
     spans.add(Span.obtain(0, makeStyle(TEXT_NORMAL)))
 
-    for (token in tokens.tokens) {
-      val type = token.type
-      val offset = token.startIndex
+    for (i in 0 until tokens.size) {
+      val type = tokens.getType(i)
+      val offset = tokens.getStartIndex(i)
 
       when (type) {
         XMLLexer.COMMENT,
@@ -121,7 +113,7 @@ class XMLAnalyzer : BaseIncrementalAnalyzeManager(XMLLexer::class.java) {
         XMLDeclOpen, -> spans.add(Span.obtain(offset, makeStyle(OPERATOR)))
         STRING -> // highlight hex color line
         try {
-            val text: String = token.text
+            val text: String = tokens.getText(i)
             val textVar = text.replace("\"", "")
             if (isColorValue(textVar)) {
               val color: Int = parseColor(textVar)
@@ -148,17 +140,17 @@ class XMLAnalyzer : BaseIncrementalAnalyzeManager(XMLLexer::class.java) {
           } else if (previous == OPEN_SLASH) {
             colorId = XML_TAG
           }
-          val attribute: String = token.text
-          if (attribute.contains(":")) {
+          val colon = tokens.indexOf(i, ':')
+          if (colon != -1) {
             spans.add(Span.obtain(offset, makeStyle(FIELD)))
-            spans.add(Span.obtain(offset + attribute.indexOf(":"), makeStyle(TEXT_NORMAL)))
+            spans.add(Span.obtain(offset + colon, makeStyle(TEXT_NORMAL)))
           } else {
             spans.add(Span.obtain(offset, makeStyle(colorId)))
           }
         }
         TEXT -> // highlight hex color line
         try {
-            val textVar: String = token.text
+            val textVar: String = tokens.getText(i)
             if (isColorValue(textVar)) {
               val color: Int = parseColor(textVar)
               val span = Span.obtain(offset, makeStyle(TEXT_NORMAL))
@@ -173,14 +165,14 @@ class XMLAnalyzer : BaseIncrementalAnalyzeManager(XMLLexer::class.java) {
           }
         else -> spans.add(Span.obtain(offset, makeStyle(TEXT_NORMAL)))
       }
-      if (token.getType() != XMLLexer.SEA_WS) {
-        previous = token.getType()
+      if (type != XMLLexer.SEA_WS) {
+        previous = type
       }
     }
     return spans
   }
 
-  override fun handleIncompleteToken(token: IncrementalToken) {}
+  override fun handleIncompleteToken(tokens: LineTokens, index: Int) {}
 
   private fun isColorValue(value: String): Boolean {
     return hexColorMatcher.matcher(value).matches()
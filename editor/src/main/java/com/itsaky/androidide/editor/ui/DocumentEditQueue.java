@@ -0,0 +1,379 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.ui;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import com.itsaky.androidide.eventbus.events.editor.ChangeType;
+import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent;
+import com.itsaky.androidide.eventbus.events.editor.DocumentOpenEvent;
+import com.itsaky.androidide.lsp.models.DiagnosticResult;
+import com.itsaky.androidide.models.Position;
+import com.itsaky.androidide.models.Range;
+import com.itsaky.androidide.utils.ILogger;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.greenrobot.eventbus.EventBus;
+
+/**
+ * Queues the edits of a document and dispatches them to the language servers in order.
+ *
+ * <p>Edits are queued on the UI thread and are dispatched on a single dispatcher thread which is
+ * shared by all the documents. When edits pile up while the dispatcher is busy (for example, when
+ * the user types fast), consecutive edits which can be merged (typing or deleting characters one
+ * after another) are dispatched as a single {@link DocumentChangeEvent} i.e. a single version of
+ * the document. An edit which carries the complete text of the document supersedes the edits queued
+ * before it.
+ *
+ * <p>The document is analyzed after the edits stop for {@link #getAnalyzeDelay()} milliseconds. A
+ * scheduled analysis is cancelled when a new edit is queued, and the result of an analysis is not
+ * published if the document was edited while it was being analyzed.
+ *
+ * @author Akash Yadav
+ */
+public class DocumentEditQueue {
+
+  public static final long DEFAULT_ANALYZE_DELAY = 400;
+
+  private static final ILogger LOG = ILogger.newInstance("DocumentEditQueue");
+
+  /**
+   * Posts the document events in the order in which they occur. The document change events carry
+   * only the changed text, so the receivers must see them in order.
+   */
+  private static final ExecutorService dispatcher =
+      Executors.newSingleThreadExecutor(r -> newDaemonThread(r, "DocumentEventDispatcher"));
+
+  private static final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(r -> newDaemonThread(r, "DocumentEditScheduler"));
+
+  private final Path file;
+  private final Function<Path, DiagnosticResult> analyzer;
+  private final Consumer<DiagnosticResult> publisher;
+  private final Deque<Edit> pending = new ArrayDeque<>();
+
+  /** The version of the document which was last dispatched. Accessed on the dispatcher thread. */
+  private int version;
+
+  /** The number of edits queued so far. Used to find out if an analysis result is stale. */
+  private volatile int editCount;
+
+  private long analyzeDelay = DEFAULT_ANALYZE_DELAY;
+  private ScheduledFuture<?> scheduledAnalysis;
+
+  /**
+   * Creates a new edit queue.
+   *
+   * @param file The file of the document.
+   * @param analyzer Analyzes the document. Called on a background thread.
+   * @param publisher Publishes the result of the analysis. Called on a background thread.
+   */
+  public DocumentEditQueue(
+      @NonNull Path file,
+      @NonNull Function<Path, DiagnosticResult> analyzer,
+      @NonNull Consumer<DiagnosticResult> publisher) {
+    this.file = file;
+    this.analyzer = analyzer;
+    this.publisher = publisher;
+  }
+
+  /**
+   * Waits until the document events which have been queued so far are dispatched.
+   *
+   * @param timeout The maximum time to wait, in milliseconds.
+   */
+  public static void awaitDispatched(long timeout) {
+    try {
+      dispatcher.submit(() -> {}).get(timeout, TimeUnit.MILLISECONDS);
+    } catch (Throwable err) {
+      LOG.warn("Document events were not dispatched in", timeout, "ms", err);
+    }
+  }
+
+  /**
+   * Get the time (in milliseconds) after the last edit when the document is analyzed.
+   *
+   * @return The delay.
+   */
+  public long getAnalyzeDelay() {
+    return analyzeDelay;
+  }
+
+  /**
+   * Set the time (in milliseconds) after the last edit when the document is analyzed.
+   *
+   * @param analyzeDelay The delay.
+   */
+  public void setAnalyzeDelay(long analyzeDelay) {
+    if (analyzeDelay < 0) {
+      throw new IllegalArgumentException("Invalid analyze delay: " + analyzeDelay);
+    }
+    this.analyzeDelay = analyzeDelay;
+  }
+
+  /**
+   * Dispatches the {@link DocumentOpenEvent} for the document. Any queued edits are discarded.
+   *
+   * @param text The text of the document.
+   */
+  @UiThread
+  public void open(@NonNull String text) {
+    synchronized (pending) {
+      pending.clear();
+    }
+
+    ++editCount;
+    final var openEvent = new DocumentOpenEvent(file, text, 0);
+    dispatcher.execute(
+        () -> {
+          version = 0;
+          EventBus.getDefault().post(openEvent);
+        });
+  }
+
+  /**
+   * Queues an edit of the document and schedules the analysis.
+   *
+   * @param type The type of the change.
+   * @param range The range of the change.
+   * @param changedText The inserted or the deleted text.
+   * @param text The complete text of the document, or <code>null</code> if the edit can be applied
+   *     to the previous version of the document.
+   */
+  @UiThread
+  public void enqueue(
+      @NonNull ChangeType type,
+      @NonNull Range range,
+      @NonNull String changedText,
+      @Nullable String text) {
+    final var edit = new Edit(type, range.getStart(), range.getEnd(), changedText, text);
+    synchronized (pending) {
+      if (text != null) {
+        // the complete text supersedes the previous edits
+        pending.clear();
+      }
+
+      pending.add(edit);
+      if (pending.size() == 1) {
+        dispatcher.execute(this::dispatchPending);
+      }
+    }
+
+    ++editCount;
+    scheduleAnalysis(analyzeDelay);
+  }
+
+  /**
+   * Schedules the analysis of the document. A scheduled analysis which has not started yet is
+   * cancelled.
+   *
+   * @param delay The delay in milliseconds.
+   */
+  public synchronized void scheduleAnalysis(long delay) {
+    if (scheduledAnalysis != null) {
+      scheduledAnalysis.cancel(false);
+    }
+
+    // The analysis is started from the dispatcher so that the edits queued before it are
+    // dispatched first
+    scheduledAnalysis =
+        scheduler.schedule(
+            () -> dispatcher.execute(this::analyze), delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Posts the given document event on the dispatcher thread, after the edits which have been queued
+   * so far.
+   *
+   * @param event The event to post.
+   */
+  public void post(@NonNull Object event) {
+    dispatcher.execute(() -> EventBus.getDefault().post(event));
+  }
+
+  /** Cancels the scheduled analysis and discards the queued edits. */
+  public synchronized void close() {
+    if (scheduledAnalysis != null) {
+      scheduledAnalysis.cancel(false);
+      scheduledAnalysis = null;
+    }
+
+    synchronized (pending) {
+      pending.clear();
+    }
+  }
+
+  private void analyze() {
+    final var edits = editCount;
+    CompletableFuture.supplyAsync(() -> analyzer.apply(file))
+        .whenComplete(
+            (diagnostics, throwable) -> {
+              if (throwable != null) {
+                LOG.error("Unable to analyze file", file, throwable);
+                return;
+              }
+
+              if (edits != editCount) {
+                // another analysis has been scheduled for the new edits
+                LOG.debug("Discarding stale analysis result for", file);
+                return;
+              }
+
+              publisher.accept(diagnostics);
+            });
+  }
+
+  private void dispatchPending() {
+    final List<Edit> edits;
+    synchronized (pending) {
+      edits = new ArrayList<>(pending);
+      pending.clear();
+    }
+
+    if (edits.isEmpty()) {
+      return;
+    }
+
+    final var coalesced = coalesce(edits);
+    for (final var edit : coalesced) {
+      dispatch(edit);
+    }
+
+    if (edits.size() > coalesced.size()) {
+      LOG.debug("Coalesced", edits.size(), "edits of", file, "into", coalesced.size());
+    }
+  }
+
+  /**
+   * Merges the consecutive edits which can be merged. The edits before the last edit which carries
+   * the complete text of the document are dropped.
+   *
+   * @param edits The edits, in the order in which they were performed.
+   * @return The edits to dispatch.
+   */
+  @NonNull
+  static List<Edit> coalesce(@NonNull List<Edit> edits) {
+    var first = 0;
+    for (int i = edits.size() - 1; i > 0; i--) {
+      if (edits.get(i).text != null) {
+        first = i;
+        break;
+      }
+    }
+
+    final var result = new ArrayList<Edit>();
+    Edit current = null;
+    for (int i = first; i < edits.size(); i++) {
+      final var next = edits.get(i);
+      if (current != null) {
+        final var merged = current.mergeWith(next);
+        if (merged != null) {
+          current = merged;
+          continue;
+        }
+        result.add(current);
+      }
+      current = next;
+    }
+
+    if (current != null) {
+      result.add(current);
+    }
+    return result;
+  }
+
+  private void dispatch(Edit edit) {
+    var delta = edit.changedText.length();
+    if (edit.type == ChangeType.DELETE) {
+      delta = -delta;
+    } else if (edit.type == ChangeType.NEW_TEXT) {
+      delta = 0;
+    }
+
+    final var event =
+        new DocumentChangeEvent(
+            file,
+            edit.text,
+            ++version,
+            edit.type,
+            delta,
+            new Range(edit.start, edit.end),
+            edit.changedText);
+    EventBus.getDefault().post(event);
+  }
+
+  private static Thread newDaemonThread(Runnable r, String name) {
+    final var thread = new Thread(r, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /** An edit of the document. */
+  static final class Edit {
+
+    final ChangeType type;
+    final Position start;
+    final Position end;
+    final String changedText;
+    final String text;
+
+    Edit(ChangeType type, Position start, Position end, String changedText, String text) {
+      this.type = type;
+      this.start = start;
+      this.end = end;
+      this.changedText = changedText;
+      this.text = text;
+    }
+
+    /**
+     * Merges the given edit, which was performed after this edit, with this edit.
+     *
+     * @return The merged edit, or <code>null</code> if the edits cannot be merged.
+     */
+    @Nullable
+    Edit mergeWith(@NonNull Edit next) {
+      if (text != null || next.text != null || type != next.type) {
+        return null;
+      }
+
+      // text typed right after the previously inserted text
+      if (type == ChangeType.INSERT && next.start.getIndex() == end.getIndex()) {
+        return new Edit(type, start, next.end, changedText + next.changedText, null);
+      }
+
+      // text deleted right before the previously deleted text (backspace)
+      if (type == ChangeType.DELETE && next.end.getIndex() == start.getIndex()) {
+        return new Edit(type, next.start, end, next.changedText + changedText, null);
+      }
+
+      return null;
+    }
+  }
+}
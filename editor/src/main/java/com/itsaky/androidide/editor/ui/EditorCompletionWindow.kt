@@ -37,6 +37,22 @@ import kotlin.math.min
  * @author Akash Yadav
  */
 class EditorCompletionWindow(val editor: IDEEditor) : EditorAutoCompletion(editor) {
+
+  companion object {
+    const val DEFAULT_COMPLETION_DELAY = 50L
+  }
+
+  /**
+   * The time (in milliseconds) to wait for further edits before the completions are computed. A
+   * completion request which is superseded during this time is never started.
+   */
+  var completionDelay = DEFAULT_COMPLETION_DELAY
+    set(value) {
+      require(value >= 0) { "Invalid completion delay: $value" }
+      field = value
+    }
+
+  private var pendingCompletion: Runnable? = null
   private var mListView: ListView? = null
   private var mAdapter: EditorCompletionAdapter? = null
   private val mItems: MutableList<CompletionItem> = mutableListOf()
@@ -98,6 +114,8 @@ class EditorCompletionWindow(val editor: IDEEditor) : EditorAutoCompletion(edito
   }
   
   override fun cancelCompletion() {
+    pendingCompletion?.let { editor.removeCallbacks(it) }
+    pendingCompletion = null
     if (completionThread != null) {
       ProgressManager.instance.cancel(completionThread)
     }
@@ -150,8 +168,21 @@ class EditorCompletionWindow(val editor: IDEEditor) : EditorAutoCompletion(edito
     completionThread.name = "CompletionThread-$requestTime"
     
     setLoading(true)
-    
-    completionThread.start()
+
+    if (completionDelay == 0L) {
+      completionThread.start()
+      return
+    }
+
+    val thread = completionThread
+    pendingCompletion =
+      Runnable {
+          pendingCompletion = null
+          if (completionThread === thread) {
+            thread.start()
+          }
+        }
+        .also { editor.postDelayed(it, completionDelay) }
   }
   
 }
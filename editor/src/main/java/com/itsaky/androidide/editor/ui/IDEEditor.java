@@ -42,13 +42,13 @@ import com.itsaky.androidide.editor.language.IDELanguage;
 import com.itsaky.androidide.eventbus.events.editor.ChangeType;
 import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent;
 import com.itsaky.androidide.eventbus.events.editor.DocumentCloseEvent;
-import com.itsaky.androidide.eventbus.events.editor.DocumentOpenEvent;
 import com.itsaky.androidide.eventbus.events.editor.DocumentSaveEvent;
 import com.itsaky.androidide.eventbus.events.editor.DocumentSelectedEvent;
 import com.itsaky.androidide.lsp.api.ILanguageClient;
 import com.itsaky.androidide.lsp.api.ILanguageServer;
 import com.itsaky.androidide.lsp.models.Command;
 import com.itsaky.androidide.lsp.models.DefinitionResult;
+import com.itsaky.androidide.lsp.models.DiagnosticResult;
 import com.itsaky.androidide.lsp.models.ExpandSelectionParams;
 import com.itsaky.androidide.lsp.models.ReferenceParams;
 import com.itsaky.androidide.lsp.models.ReferenceResult;
@@ -65,6 +65,7 @@ import com.itsaky.androidide.utils.ILogger;
 import org.greenrobot.eventbus.EventBus;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
 
 import io.github.rosemoe.sora.event.ContentChangeEvent;
@@ -78,9 +79,12 @@ import io.github.rosemoe.sora.widget.component.EditorTextActionWindow;
 public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
 
   private static final ILogger LOG = ILogger.newInstance("IDEEditor");
+
   private final EditorActionsMenu actionsMenu;
   private IDEEditorSearcher searcher;
-  private int fileVersion;
+  private DocumentEditQueue editQueue;
+  private long analyzeDelay = DocumentEditQueue.DEFAULT_ANALYZE_DELAY;
+  private boolean editsMissed;
   private File file;
   private boolean isModified;
   private ILanguageServer languageServer;
@@ -160,10 +164,39 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
   public void setFile(File file) {
     this.file = file;
 
+    if (editQueue != null) {
+      editQueue.close();
+      editQueue = null;
+    }
+
     if (file != null) {
+      editQueue =
+          new DocumentEditQueue(file.toPath(), this::analyzeDocument, this::publishDiagnostics);
+      editQueue.setAnalyzeDelay(analyzeDelay);
       dispatchDocumentOpenEvent();
     }
   }
+
+  /**
+   * Get the time (in milliseconds) after the last edit when the document is analyzed.
+   *
+   * @return The delay.
+   */
+  public long getAnalyzeDelay() {
+    return analyzeDelay;
+  }
+
+  /**
+   * Set the time (in milliseconds) after the last edit when the document is analyzed.
+   *
+   * @param analyzeDelay The delay.
+   */
+  public void setAnalyzeDelay(long analyzeDelay) {
+    this.analyzeDelay = analyzeDelay;
+    if (editQueue != null) {
+      editQueue.setAnalyzeDelay(analyzeDelay);
+    }
+  }
   
   @NonNull
   @Override
@@ -179,9 +212,8 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
       return;
     }
 
-    final var openEvent =
-        new DocumentOpenEvent(getFile().toPath(), getText().toString(), fileVersion = 0);
-    EventBus.getDefault().post(openEvent);
+    editsMissed = false;
+    editQueue.open(getText().toString());
   }
 
   @Override
@@ -687,14 +719,14 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
     if (event.getAction() != ContentChangeEvent.ACTION_SET_NEW_TEXT) {
       isModified = true;
     }
+
     if (getFile() == null || languageServer == null) {
+      editsMissed = true;
       return;
     }
-    CompletableFuture.runAsync(
-        () -> {
-          dispatchDocumentChangeEvent(event);
-          checkForSignatureHelp(event);
-        });
+
+    dispatchDocumentChangeEvent(event);
+    CompletableFuture.runAsync(() -> checkForSignatureHelp(event));
   }
 
   /**
@@ -720,12 +752,19 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
     }
   }
 
+  /**
+   * Queues the {@link DocumentChangeEvent} for the given content change. The event carries only the
+   * changed text, unless the whole text was replaced or the previous changes were not dispatched.
+   * Must be called on the UI thread, for every content change.
+   *
+   * @param event The content change event.
+   */
+  @UiThread
   protected void dispatchDocumentChangeEvent(final ContentChangeEvent event) {
     if (getFile() == null) {
       return;
     }
 
-    final var file = getFile().toPath();
     var type = ChangeType.INSERT;
     if (event.getAction() == ContentChangeEvent.ACTION_DELETE) {
       type = ChangeType.DELETE;
@@ -733,11 +772,6 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
       type = ChangeType.NEW_TEXT;
     }
 
-    var changeDelta = type == ChangeType.NEW_TEXT ? 0 : event.getChangedText().length();
-    if (type == ChangeType.DELETE) {
-      changeDelta = -changeDelta;
-    }
-
     final var start = event.getChangeStart();
     final var end = event.getChangeEnd();
     final var changeRange =
@@ -745,10 +779,29 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
             new Position(start.line, start.column, start.index),
             new Position(end.line, end.column, end.index));
 
-    final var changeEvent =
-        new DocumentChangeEvent(
-            file, getText().toString(), fileVersion + 1, type, changeDelta, changeRange);
-    EventBus.getDefault().post(changeEvent);
+    // The receivers cannot apply the change if they have missed the previous changes
+    final var sendText = type == ChangeType.NEW_TEXT || editsMissed;
+    editsMissed = false;
+
+    editQueue.enqueue(
+        type,
+        changeRange,
+        type == ChangeType.NEW_TEXT ? "" : event.getChangedText().toString(),
+        sendText ? getText().toString() : null);
+  }
+
+  /**
+   * Queues a {@link DocumentChangeEvent} which carries the complete text of the document, for the
+   * receivers which could not apply the previous changes.
+   */
+  @UiThread
+  public void resyncDocument() {
+    if (getFile() == null || editQueue == null) {
+      return;
+    }
+
+    editsMissed = false;
+    editQueue.enqueue(ChangeType.NEW_TEXT, Range.NONE, "", getText().toString());
   }
 
   public static int createInputFlags() {
@@ -771,15 +824,29 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
     this.isModified = true;
   }
 
+  /**
+   * Analyzes the file in this editor, after the edits queued so far have been dispatched. An
+   * analysis which has been scheduled but not started yet is cancelled.
+   */
   public void analyze() {
     if (languageServer != null && getFile() != null && getEditorLanguage() instanceof IDELanguage) {
-      CompletableFuture.supplyAsync(() -> languageServer.analyze(getFile().toPath()))
-          .whenComplete(
-              (diagnostics, throwable) -> {
-                if (languageClient != null) {
-                  languageClient.publishDiagnostics(diagnostics);
-                }
-              });
+      editQueue.scheduleAnalysis(0);
+    }
+  }
+
+  private DiagnosticResult analyzeDocument(Path file) {
+    final var server = languageServer;
+    if (server == null || !(getEditorLanguage() instanceof IDELanguage)) {
+      return DiagnosticResult.NO_UPDATE;
+    }
+
+    return server.analyze(file);
+  }
+
+  private void publishDiagnostics(DiagnosticResult diagnostics) {
+    final var client = languageClient;
+    if (client != null) {
+      client.publishDiagnostics(diagnostics);
     }
   }
 
@@ -790,6 +857,10 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
       return;
     }
 
+    if (editQueue != null) {
+      editQueue.close();
+    }
+
     dispatchDocumentCloseEvent();
 
     actionsMenu.unsubscribeEvents();
@@ -802,7 +873,7 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
     }
 
     final var closeEvent = new DocumentCloseEvent(getFile().toPath(), getCursorLSPRange());
-    EventBus.getDefault().post(closeEvent);
+    postDocumentEvent(closeEvent);
   }
 
   public void onEditorSelected() {
@@ -867,6 +938,18 @@ public class IDEEditor extends CodeEditor implements IEditor, ILspEditor {
 
     isModified = false;
     final var saveEvent = new DocumentSaveEvent(getFile().toPath());
-    EventBus.getDefault().post(saveEvent);
+    postDocumentEvent(saveEvent);
+  }
+
+  /**
+   * Posts the given document event. The event is posted through the edit queue of this editor, if
+   * any, so that the receivers see it after the edits which were made before it.
+   */
+  private void postDocumentEvent(Object event) {
+    if (editQueue != null) {
+      editQueue.post(event);
+    } else {
+      EventBus.getDefault().post(event);
+    }
   }
 }
@@ -20,6 +20,7 @@ package com.itsaky.androidide.editor.language.incremental
 import com.google.common.truth.Truth.assertThat
 import com.itsaky.androidide.editor.language.incremental.IncrementalToken
 import com.itsaky.androidide.editor.language.incremental.LineState
+import com.itsaky.androidide.editor.language.incremental.LineTokens
 import com.itsaky.androidide.editor.language.java.JavaAnalyzer
 import com.itsaky.androidide.lexers.java.JavaLexer
 import io.github.rosemoe.sora.lang.analysis.IncrementalAnalyzeManager.LineTokenizeResult
@@ -133,6 +134,43 @@ internal class BaseIncrementalAnalyzeManagerTest {
     }
   }
 
+  @Test
+  fun testTokenOffsetsAreColumns() {
+    val analyzer = JavaAnalyzer()
+    val line = StringBuilder("String s = \"\uD83D\uDE00\"; int b; // todo")
+    val result = analyzer.tokenizeLine(line, analyzer.initialState, 0)
+    val tokens = result.tokens as LineTokens
+
+    val intIndex = (0 until tokens.size).first { tokens.getType(it) == JavaLexer.INT }
+    assertThat(tokens.getStartIndex(intIndex)).isEqualTo(line.indexOf("int b"))
+    assertThat(tokens.getText(intIndex)).isEqualTo("int")
+    assertThat(tokens.last().type).isEqualTo(JavaLexer.LINE_COMMENT)
+    assertThat(tokens.getText(tokens.lastIndex)).isEqualTo("// todo")
+  }
+
+  @Test
+  fun testLinesAreTokenizedIndependently() {
+    val analyzer = JavaAnalyzer()
+    val first = analyzer.tokenizeLine("public class Main {", analyzer.initialState, 0)
+    val second = analyzer.tokenizeLine("}", first.state, 1)
+
+    assertThat(first.tokens.size).isEqualTo(7)
+    assertThat(first.state.hasBraces).isTrue()
+    assertThat(second.tokens.size).isEqualTo(1)
+    assertThat(second.tokens.first().type).isEqualTo(JavaLexer.RBRACE)
+    assertThat(first.tokens.last().type).isEqualTo(JavaLexer.LBRACE)
+  }
+
+  @Test
+  fun testNestedIncompleteCommentStart() {
+    val analyzer = JavaAnalyzer()
+    val result = analyzer.tokenizeLine("int a; /* first /* second", analyzer.initialState, 0)
+    assertThat(result.state.state).isEqualTo(LineState.INCOMPLETE)
+    assertThat(result.tokens.last().type).isEqualTo(JavaLexer.BLOCK_COMMENT)
+    assertThat(result.tokens.last().startIndex).isEqualTo(7)
+    assertThat(result.tokens.last().incomplete).isTrue()
+  }
+
   private fun ensureTokenSequence(
     result: LineTokenizeResult<LineState, IncrementalToken>,
     types: List<Int>
@@ -0,0 +1,128 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itsaky.androidide.editor.language.incremental
+
+import com.google.common.truth.Truth.assertThat
+import java.util.function.IntFunction
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class CodeBlockTreeBuilderTest {
+
+  private val source =
+    listOf(
+      "class Main {",
+      "  void first() {",
+      "  }",
+      "  void second() {",
+      "    if (true) { return; }",
+      "  }",
+      "}"
+    )
+
+  @Test
+  fun testBlocks() {
+    val tree = CodeBlockTreeBuilder().update(source.map(::summarize))
+
+    assertThat(tree.blocks.map { it.toString() })
+      .containsExactly(
+        "Block(1:15 - 2:2, depth=1)",
+        "Block(3:16 - 5:2, depth=1)",
+        "Block(0:11 - 6:0, depth=0)"
+      )
+      .inOrder()
+    assertThat(tree.getParent(0)).isEqualTo(2)
+    assertThat(tree.getParent(1)).isEqualTo(2)
+    assertThat(tree.getParent(2)).isEqualTo(-1)
+  }
+
+  @Test
+  fun testUnchangedBlocksAreReused() {
+    val builder = CodeBlockTreeBuilder()
+    val states = source.map(::summarize).toMutableList()
+    val old = builder.update(states)
+
+    states[4] = summarize("    return;")
+    val tree = builder.update(states)
+
+    assertThat(tree.changedFromLine).isEqualTo(4)
+    assertThat(tree.size).isEqualTo(3)
+    for (i in 0 until tree.size) {
+      assertThat(tree[i]).isSameInstanceAs(old[i])
+    }
+  }
+
+  @Test
+  fun testInsertedLines() {
+    val builder = CodeBlockTreeBuilder()
+    val lines = source.toMutableList()
+    val states = lines.map(::summarize).toMutableList()
+    val old = builder.update(states)
+
+    lines.add(3, "  void third() {")
+    lines.add(4, "  }")
+    states.add(3, summarize(lines[3]))
+    states.add(4, summarize(lines[4]))
+    val tree = builder.update(states)
+
+    assertThat(tree.blocks.map { it.toString() })
+      .isEqualTo(CodeBlockTreeBuilder().update(lines.map(::summarize)).blocks.map { it.toString() })
+    assertThat(tree.size).isEqualTo(4)
+    assertThat(tree[0]).isSameInstanceAs(old[0])
+  }
+
+  @Test
+  fun testUnmatchedBlockStart() {
+    val builder = CodeBlockTreeBuilder()
+    val states = source.map(::summarize).toMutableList()
+    builder.update(states)
+
+    states[2] = summarize("")
+    val tree = builder.update(states)
+
+    assertThat(tree.blocks.map { it.toString() })
+      .containsExactly("Block(3:16 - 5:2, depth=2)", "Block(1:15 - 6:0, depth=1)")
+      .inOrder()
+    assertThat(tree.getParent(0)).isEqualTo(1)
+    assertThat(tree.getParent(1)).isEqualTo(-1)
+  }
+
+  private fun CodeBlockTreeBuilder.update(states: List<LineState>): CodeBlockTree {
+    return update(states.size, IntFunction { states[it] }) { true }!!
+  }
+
+  private fun summarize(line: String): LineState {
+    val state = LineState()
+    val starts = mutableListOf<Int>()
+    val ends = mutableListOf<Int>()
+    line.forEachIndexed { column, ch ->
+      if (ch == '{') {
+        starts.add(column)
+      } else if (ch == '}') {
+        if (starts.isNotEmpty()) starts.removeAt(starts.lastIndex) else ends.add(column)
+      }
+    }
+    state.blockStarts = starts.toIntArray()
+    state.blockEnds = ends.toIntArray()
+    return state
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.editor.ui
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.editor.ui.DocumentEditQueue.Edit
+import com.itsaky.androidide.eventbus.events.editor.ChangeType
+import com.itsaky.androidide.models.Position
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class DocumentEditQueueTest {
+
+  @Test
+  fun testTypedCharactersAreMerged() {
+    val edits = coalesce(insert(10, "a"), insert(11, "b"), insert(12, "c"))
+
+    assertThat(edits.map(::describe)).containsExactly("INSERT 10-13 abc")
+  }
+
+  @Test
+  fun testBackspacedCharactersAreMerged() {
+    val edits = coalesce(delete(12, "c"), delete(11, "b"), delete(10, "a"))
+
+    assertThat(edits.map(::describe)).containsExactly("DELETE 10-13 abc")
+  }
+
+  @Test
+  fun testEditsAtOtherPositionsAreNotMerged() {
+    // typing at another position, and deleting forwards (the delete key)
+    val edits = coalesce(insert(10, "a"), insert(20, "b"), delete(30, "c"), delete(30, "d"))
+
+    assertThat(edits.map(::describe))
+      .containsExactly("INSERT 10-11 a", "INSERT 20-21 b", "DELETE 30-31 c", "DELETE 30-31 d")
+      .inOrder()
+  }
+
+  @Test
+  fun testMixedEdits() {
+    val edits =
+      coalesce(
+        insert(10, "a"),
+        insert(11, "b"),
+        delete(11, "b"),
+        delete(10, "a"),
+        insert(10, "c"),
+        insert(11, "d")
+      )
+
+    assertThat(edits.map(::describe))
+      .containsExactly("INSERT 10-12 ab", "DELETE 10-12 ab", "INSERT 10-12 cd")
+      .inOrder()
+  }
+
+  @Test
+  fun testNewTextSupersedesEarlierEdits() {
+    val edits =
+      coalesce(
+        insert(10, "a"),
+        delete(10, "a"),
+        newText("class Main {}"),
+        insert(12, "b"),
+        insert(13, "c")
+      )
+
+    assertThat(edits.map(::describe)).containsExactly("NEW_TEXT 0-0 ", "INSERT 12-14 bc").inOrder()
+    assertThat(edits[0].text).isEqualTo("class Main {}")
+  }
+
+  @Test
+  fun testEditsWithTextAreNotMerged() {
+    val typed = insert(10, "a")
+    val withText = Edit(ChangeType.INSERT, pos(11), pos(12), "b", "text")
+
+    assertThat(typed.mergeWith(withText)).isNull()
+    assertThat(withText.mergeWith(insert(12, "c"))).isNull()
+  }
+
+  private fun coalesce(vararg edits: Edit): List<Edit> {
+    return DocumentEditQueue.coalesce(edits.toList())
+  }
+
+  private fun insert(index: Int, text: String): Edit {
+    return Edit(ChangeType.INSERT, pos(index), pos(index + text.length), text, null)
+  }
+
+  private fun delete(index: Int, text: String): Edit {
+    return Edit(ChangeType.DELETE, pos(index), pos(index + text.length), text, null)
+  }
+
+  private fun newText(text: String): Edit {
+    return Edit(ChangeType.NEW_TEXT, pos(0), pos(0), "", text)
+  }
+
+  private fun pos(index: Int) = Position(0, index, index)
+
+  private fun describe(edit: Edit): String {
+    return "${edit.type} ${edit.start.index}-${edit.end.index} ${edit.changedText}"
+  }
+}
@@ -41,16 +41,33 @@ constructor(var closedFile: Path, val selectionRange: Range = Range.NONE) :
 /**
  * Dispatched when the content of the given opened document changes. The change can be either
  * performed by the user or the IDE itself.
+ *
+ * The event usually carries only the change : [changedText] is the inserted text for
+ * [ChangeType.INSERT] and the deleted text for [ChangeType.DELETE], and the indices of
+ * [changeRange] locate the change in the document. [newText] is the complete text of the document
+ * and is provided only when the receivers cannot apply the change to their previous version of the
+ * document (for example, for [ChangeType.NEW_TEXT]). The events for a document are dispatched in
+ * the order of their [version].
  */
-data class DocumentChangeEvent(
+data class DocumentChangeEvent
+@JvmOverloads
+constructor(
   var changedFile: Path,
-  var newText: String,
+  var newText: String?,
   var version: Int,
   var changeType: ChangeType,
   var changeDelta: Int,
-  var changeRange: Range
+  var changeRange: Range,
+  var changedText: String = ""
 ) : DocumentEvent(changedFile)
 
+/**
+ * Dispatched when a receiver of the [DocumentChangeEvent]s of the given document could not apply a
+ * change, for example because it missed a previous version. The editor of the document responds
+ * with a [DocumentChangeEvent] which carries the complete text of the document.
+ */
+data class DocumentResyncRequestEvent(var outdatedFile: Path) : DocumentEvent(outdatedFile)
+
 /** Dispatched when the given document is saved to disk. */
 data class DocumentSaveEvent(var savedFile: Path) : DocumentEvent(savedFile)
 
@@ -0,0 +1,223 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.lsp.internal.model
+
+import com.itsaky.androidide.lsp.models.CompletionParams
+import com.itsaky.androidide.lsp.models.CompletionResult
+import com.itsaky.androidide.models.Range
+import com.itsaky.androidide.utils.ILogger
+import java.nio.file.Path
+
+/**
+ * Keeps the results of the last few completion requests. Entries are keyed by the file, the
+ * enclosing scope of the cursor and the receiver expression of a member select (e.g. `foo` in
+ * `foo.ba`).
+ *
+ * A cached result can be used in two ways :
+ * - If the user continues typing the same identifier, the cached result is refined (see
+ *   [CachedCompletion.canUseCache]).
+ * - If the user requests a member select completion for the same receiver in the same scope, the
+ *   cached result is used even if the cursor is at a different position. This avoids recompiling
+ *   the file when, for example, `foo.` is deleted and typed again.
+ *
+ * @author Akash Yadav
+ */
+class CompletionCache
+@JvmOverloads
+constructor(private val maxEntries: Int = DEFAULT_MAX_ENTRIES) {
+
+  companion object {
+    const val DEFAULT_MAX_ENTRIES = 16
+
+    private val log = ILogger.newInstance("CompletionCache")
+
+    /**
+     * Returns the receiver expression in the given completion prefix, or an empty string if the
+     * prefix is not a member select.
+     */
+    @JvmStatic
+    fun receiverOf(prefix: String): String {
+      val dot = prefix.lastIndexOf('.')
+      return if (dot <= 0) "" else prefix.substring(0, dot)
+    }
+  }
+
+  private val entries = object : LinkedHashMap<Key, CachedCompletion>(maxEntries, 0.75f, true) {
+    override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, CachedCompletion>?) =
+      size > maxEntries
+  }
+
+  /** The number of requests which were served from this cache. */
+  var hitCount = 0L
+    @Synchronized get
+    private set
+
+  /** The number of requests which could not be served from this cache. */
+  var missCount = 0L
+    @Synchronized get
+    private set
+
+  /**
+   * Incremented whenever cached completions are removed. A result computed by a request which
+   * started before an invalidation is not cached, as it may have been computed from the previous
+   * contents of the files.
+   */
+  var generation = 0L
+    @Synchronized get
+    private set
+
+  /** The fraction of requests which were served from this cache. */
+  val hitRate: Double
+    @Synchronized
+    get() {
+      val total = hitCount + missCount
+      return if (total == 0L) 0.0 else hitCount.toDouble() / total
+    }
+
+  /**
+   * Finds a cached completion which can be refined for the given params i.e. the user is still
+   * typing the identifier for which the completion was cached.
+   */
+  @Synchronized
+  fun findRefinable(params: CompletionParams): CachedCompletion? {
+    val file = keyOf(params.file)
+    return entries.entries
+      .lastOrNull { it.key.file == file && it.value.canUseCache(params) }
+      ?.value
+  }
+
+  /**
+   * Finds a cached member select completion for the receiver in the given params.
+   *
+   * @param params The completion params.
+   * @param scope The key of the scope enclosing the cursor.
+   */
+  @Synchronized
+  fun findForReceiver(params: CompletionParams, scope: String): CachedCompletion? {
+    val receiver = receiverOf(params.requirePrefix())
+    if (receiver.isEmpty()) {
+      return null
+    }
+
+    val cached = entries[Key(keyOf(params.file), scope, receiver)] ?: return null
+    val partial = params.requirePrefix().substring(receiver.length + 1)
+    val cachedPartial = cached.params.requirePrefix().substring(receiver.length + 1)
+
+    // The cached result must contain all the items that can match the new partial identifier
+    if (cached.result.isIncomplete || !partial.startsWith(cachedPartial)) {
+      return null
+    }
+
+    return cached
+  }
+
+  /**
+   * Caches the result of a completion request.
+   *
+   * @param params The completion params.
+   * @param scope The key of the scope enclosing the cursor.
+   * @param result The completion result.
+   * @param generation The [generation] of this cache when the completion request started.
+   */
+  @Synchronized
+  fun put(params: CompletionParams, scope: String, result: CompletionResult, generation: Long) {
+    if (generation != this.generation) {
+      return
+    }
+
+    val key = Key(keyOf(params.file), scope, receiverOf(params.requirePrefix()))
+    entries[key] = CachedCompletion.cache(params, result)
+  }
+
+  /** Records whether a completion request was served from this cache. */
+  @Synchronized
+  fun record(hit: Boolean) {
+    if (hit) {
+      ++hitCount
+    } else {
+      ++missCount
+    }
+
+    log.debug(
+      "Completion cache hit rate:",
+      "%.2f".format(hitRate),
+      "($hitCount hits, $missCount misses)"
+    )
+  }
+
+  /**
+   * Removes the cached completions which may be invalidated by a change in the given document. The
+   * completions of the other files are always removed, as the change may add, remove or change the
+   * declarations they refer to. In the changed file, a change keeps a cached completion only if it edits the expression that was completed
+   * (e.g. typing or deleting the characters of `foo.ba`) i.e. it is a change on the line of the
+   * completion, it starts at or after the start of the completed expression and it inserts or
+   * deletes only identifier characters and dots. Any other change (e.g. changing the declared type
+   * of `foo`) may change the result of the completion.
+   *
+   * @param file The changed file.
+   * @param range The range of the change.
+   * @param changedText The inserted or deleted text.
+   */
+  @Synchronized
+  fun invalidate(file: Path, range: Range, changedText: String) {
+    val key = keyOf(file)
+    val line = range.start.line
+    val isExpressionEdit =
+      line == range.end.line && changedText.all { it == '.' || Character.isJavaIdentifierPart(it) }
+    ++generation
+    entries.entries.removeIf { (entryKey, cached) ->
+      if (entryKey.file != key) {
+        return@removeIf true
+      }
+
+      val position = cached.params.position
+      val start = position.column - cached.params.requirePrefix().length
+      !isExpressionEdit || position.line != line || range.start.column < start
+    }
+  }
+
+  /** Removes all the cached completions for the given file. */
+  @Synchronized
+  fun invalidate(file: Path) {
+    val key = keyOf(file)
+    ++generation
+    entries.keys.removeIf { it.file == key }
+  }
+
+  /**
+   * Removes the cached completions of all the files other than the given file e.g. when the file is
+   * saved.
+   */
+  @Synchronized
+  fun invalidateOthers(file: Path) {
+    val key = keyOf(file)
+    ++generation
+    entries.keys.removeIf { it.file != key }
+  }
+
+  /** Removes all the cached completions. */
+  @Synchronized
+  fun clear() {
+    ++generation
+    entries.clear()
+  }
+
+  private fun keyOf(file: Path): String = file.toAbsolutePath().normalize().toString()
+
+  private data class Key(val file: String, val scope: String, val receiver: String)
+}
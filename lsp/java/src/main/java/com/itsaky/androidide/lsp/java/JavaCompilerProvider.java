@@ -19,27 +19,52 @@ package com.itsaky.androidide.lsp.java;
 
 import com.itsaky.androidide.lsp.java.compiler.JavaCompilerService;
 import com.itsaky.androidide.projects.api.ModuleProject;
+import com.itsaky.androidide.utils.ILogger;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Provides {@link JavaCompilerService} instances for different {@link ModuleProject}s.
  *
+ * <p>The compilers are kept warm for as long as possible so that the javac context (symbol
+ * tables, class reader caches, completed packages) can be reused between the requests. The
+ * number of warm compilers is bounded by the memory available to the VM. When the limit is
+ * reached, the least recently used compiler is destroyed.
+ *
  * @author Akash Yadav
  */
 public class JavaCompilerProvider {
 
+  /** Approximate amount of heap retained by a single warmed up compilation context. */
+  private static final long MEMORY_PER_CONTEXT = 48L * 1024 * 1024;
+
+  private static final int MIN_COMPILERS = 2;
+  private static final int MAX_COMPILERS = 8;
+
+  private static final ILogger LOG = ILogger.newInstance("JavaCompilerProvider");
   private static JavaCompilerProvider sInstance;
-  private final Map<ModuleProject, JavaCompilerService> mCompilers = new ConcurrentHashMap<>();
 
-  private JavaCompilerProvider() {}
+  // access-ordered so that the eldest entry is always the least recently used compiler
+  private final Map<ModuleProject, JavaCompilerService> mCompilers =
+      new LinkedHashMap<>(MAX_COMPILERS, 0.75f, true);
+  private final int mMaxCompilers;
+
+  private JavaCompilerProvider() {
+    this.mMaxCompilers =
+        computeMaxCompilers(
+            Runtime.getRuntime().maxMemory(), JavaCompilerService.MAX_CONTEXTS_PER_MODULE);
+  }
 
   public static JavaCompilerService get(ModuleProject module) {
     return JavaCompilerProvider.getInstance().forModule(module);
   }
 
-  public static JavaCompilerProvider getInstance() {
+  public static synchronized JavaCompilerProvider getInstance() {
     if (sInstance == null) {
       sInstance = new JavaCompilerProvider();
     }
@@ -47,27 +72,78 @@ public class JavaCompilerProvider {
     return sInstance;
   }
 
-  public synchronized JavaCompilerService forModule(ModuleProject module) {
-    // A module instance is set to the compiler only in case the project is initialized or
-    // this method was called with other mdoule instance.
-    final JavaCompilerService cached = mCompilers.get(module);
-    if (cached != null && cached.getModule() != null) {
-      return cached;
+  /**
+   * Computes the number of compilers which can be kept warm.
+   *
+   * @param maxMemory The maximum memory available to the VM.
+   * @param contextsPerCompiler The number of compilation contexts a compiler may hold.
+   */
+  static int computeMaxCompilers(long maxMemory, int contextsPerCompiler) {
+    final long count = maxMemory / (MEMORY_PER_CONTEXT * contextsPerCompiler);
+    return (int) Math.max(MIN_COMPILERS, Math.min(MAX_COMPILERS, count));
+  }
+
+  public JavaCompilerService forModule(ModuleProject module) {
+    final List<JavaCompilerService> evicted = new ArrayList<>();
+    final JavaCompilerService compiler;
+    synchronized (this) {
+      // A module instance is set to the compiler only in case the project is initialized or
+      // this method was called with other mdoule instance.
+      final JavaCompilerService cached = mCompilers.get(module);
+      if (cached != null && cached.getModule() != null) {
+        return cached;
+      }
+
+      compiler = new JavaCompilerService(module);
+      mCompilers.put(module, compiler);
+
+      final Iterator<JavaCompilerService> iterator = mCompilers.values().iterator();
+      while (mCompilers.size() > mMaxCompilers && iterator.hasNext()) {
+        evicted.add(iterator.next());
+        iterator.remove();
+      }
     }
 
-    final JavaCompilerService newInstance = new JavaCompilerService(module);
-    mCompilers.put(module, newInstance);
+    if (!evicted.isEmpty()) {
+      LOG.info("Evicting", evicted.size(), "least recently used compiler(s)");
 
-    return newInstance;
+      // The evicted compilers might be in use (e.g. an analysis is in progress). Destroying a
+      // compiler waits for its compilation task, do that asynchronously so that the caller is not
+      // blocked
+      CompletableFuture.runAsync(() -> evicted.forEach(JavaCompilerService::destroy));
+    }
+
+    return compiler;
+  }
+
+  /**
+   * Destroys the compiler instance for the given module, if any.
+   *
+   * @param module The module to destroy the compiler for.
+   */
+  public void destroy(ModuleProject module) {
+    final JavaCompilerService compiler;
+    synchronized (this) {
+      compiler = mCompilers.remove(module);
+    }
+
+    if (compiler != null) {
+      compiler.destroy();
+    }
   }
 
   // TODO This currently destroys all the compiler instances
-  //  We must have a method to destroy only the required instance in
-  //  JavaLanguageServer.handleFailure(LSPFailure)
-  public synchronized void destroy() {
-    for (final JavaCompilerService compiler : mCompilers.values()) {
+  //  JavaLanguageServer.handleFailure(LSPFailure) should use destroy(ModuleProject) once
+  //  LSPFailure provides the file for which the request failed
+  public void destroy() {
+    final List<JavaCompilerService> compilers;
+    synchronized (this) {
+      compilers = new ArrayList<>(mCompilers.values());
+      mCompilers.clear();
+    }
+
+    for (final JavaCompilerService compiler : compilers) {
       compiler.destroy();
     }
-    mCompilers.clear();
   }
 }
@@ -21,16 +21,19 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
+import com.itsaky.androidide.eventbus.events.editor.ChangeType;
 import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent;
 import com.itsaky.androidide.eventbus.events.editor.DocumentCloseEvent;
 import com.itsaky.androidide.eventbus.events.editor.DocumentOpenEvent;
+import com.itsaky.androidide.eventbus.events.editor.DocumentSaveEvent;
 import com.itsaky.androidide.eventbus.events.editor.DocumentSelectedEvent;
+import com.itsaky.androidide.eventbus.events.file.FileEvent;
 import com.itsaky.androidide.javac.services.fs.CacheFSInfoSingleton;
 import com.itsaky.androidide.javac.services.fs.CachingJarFileSystemProvider;
 import com.itsaky.androidide.lsp.api.ILanguageClient;
 import com.itsaky.androidide.lsp.api.ILanguageServer;
 import com.itsaky.androidide.lsp.api.IServerSettings;
-import com.itsaky.androidide.lsp.internal.model.CachedCompletion;
+import com.itsaky.androidide.lsp.internal.model.CompletionCache;
 import com.itsaky.androidide.lsp.java.actions.JavaCodeActionsMenu;
 import com.itsaky.androidide.lsp.java.compiler.JavaCompilerService;
 import com.itsaky.androidide.lsp.java.compiler.SourceFileManager;
@@ -70,9 +73,9 @@ import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
 
+import java.io.File;
 import java.nio.file.Path;
 import java.util.Collections;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
 public class JavaLanguageServer implements ILanguageServer {
@@ -84,15 +87,18 @@ public class JavaLanguageServer implements ILanguageServer {
   private IServerSettings settings;
   private Path selectedFile;
   private final AnalyzeTimer timer = new AnalyzeTimer(this::analyzeSelected);
-  private CachedCompletion cachedCompletion;
+  private final CompletionCache completionCache = new CompletionCache();
+  private final FileManager.DocumentChangeListener changeListener = this::onContentChange;
 
   public JavaLanguageServer() {
     this.completionProvider = new CompletionProvider();
     this.diagnosticProvider = new JavaDiagnosticProvider();
-    this.cachedCompletion = CachedCompletion.EMPTY;
 
     applySettings(getSettings());
 
+    // The cached completions are invalidated before the changed contents can be compiled
+    FileManager.INSTANCE.addDocumentChangeListener(this.changeListener);
+
     if (!EventBus.getDefault().isRegistered(this)) {
       EventBus.getDefault().register(this);
     }
@@ -113,10 +119,12 @@ public class JavaLanguageServer implements ILanguageServer {
 
   @Override
   public void shutdown() {
+    diagnosticProvider.cancel();
     JavaCompilerProvider.getInstance().destroy();
     SourceFileManager.clearCache();
     CacheFSInfoSingleton.INSTANCE.clearCache();
     CachingJarFileSystemProvider.INSTANCE.clearCache();
+    FileManager.INSTANCE.removeDocumentChangeListener(this.changeListener);
     EventBus.getDefault().unregister(this);
 
     timer.cancel();
@@ -159,6 +167,9 @@ public class JavaLanguageServer implements ILanguageServer {
     // Clear cached module-specific compilers
     JavaCompilerProvider.getInstance().destroy();
 
+    // The classpaths of the modules may have changed
+    this.completionCache.clear();
+
     // Cache classpath locations
     for (final Project subModule : project.getSubModules()) {
       if (!(subModule instanceof ModuleProject)) {
@@ -181,8 +192,7 @@ public class JavaLanguageServer implements ILanguageServer {
       return CompletionResult.EMPTY;
     }
 
-    this.completionProvider.reset(
-        compiler, this.settings, this.cachedCompletion, this::updateCachedCompletion);
+    this.completionProvider.reset(compiler, this.settings, this.completionCache);
     return this.completionProvider.complete(params);
   }
 
@@ -261,6 +271,7 @@ public class JavaLanguageServer implements ILanguageServer {
         }
 
         JavaCompilerProvider.getInstance().destroy();
+        this.completionCache.clear();
         return true;
     }
 
@@ -286,11 +297,6 @@ public class JavaLanguageServer implements ILanguageServer {
     return JavaCompilerProvider.get(module);
   }
 
-  private void updateCachedCompletion(CachedCompletion cachedCompletion) {
-    Objects.requireNonNull(cachedCompletion);
-    this.cachedCompletion = cachedCompletion;
-  }
-
   private void startOrRestartAnalyzeTimer() {
 
     if (VMUtils.isJvm()) {
@@ -304,23 +310,39 @@ public class JavaLanguageServer implements ILanguageServer {
     }
   }
 
-  @Subscribe(threadMode = ThreadMode.ASYNC)
-  @SuppressWarnings("unused")
-  public void onContentChange(@NonNull DocumentChangeEvent event) {
+  private void onContentChange(@NonNull DocumentChangeEvent event) {
     if (!DocumentUtils.isJavaFile(event.getChangedFile())) {
       return;
     }
 
-    // TODO Find an alternative to efficiently update changeDelta in JavaCompilerService instance
-    JavaCompilerService.NO_MODULE_COMPILER.onDocumentChange(event);
+    // Edits of the completed expression (e.g. typing an identifier) keep the cached completions
+    if (event.getChangeType() == ChangeType.NEW_TEXT) {
+      this.completionCache.clear();
+    } else {
+      this.completionCache.invalidate(
+          event.getChangedFile(), event.getChangeRange(), event.getChangedText());
+    }
+
+    // The editor schedules the analysis once the edits have been dispatched
+  }
 
-    final ModuleProject module = ProjectManager.INSTANCE.findModuleForFile(event.getChangedFile());
-    if (module != null) {
-      final JavaCompilerService compiler = JavaCompilerProvider.get(module);
-      compiler.onDocumentChange(event);
+  @Subscribe(threadMode = ThreadMode.POSTING)
+  @SuppressWarnings("unused")
+  public void onFileSaved(@NonNull DocumentSaveEvent event) {
+    if (DocumentUtils.isJavaFile(event.getSavedFile())) {
+      this.completionCache.invalidateOthers(event.getSavedFile());
     }
+  }
 
-    startOrRestartAnalyzeTimer();
+  @Subscribe(threadMode = ThreadMode.POSTING)
+  @SuppressWarnings("unused")
+  public void onFileEvent(@NonNull FileEvent event) {
+    // Created, deleted or renamed source files change the classes which can be completed. A deleted
+    // file may have been a directory of source files.
+    final File file = event.getFile();
+    if (DocumentUtils.isJavaFile(file.toPath()) || !file.isFile()) {
+      this.completionCache.clear();
+    }
   }
 
   @Subscribe(threadMode = ThreadMode.ASYNC)
@@ -339,6 +361,8 @@ public class JavaLanguageServer implements ILanguageServer {
   @Subscribe(threadMode = ThreadMode.ASYNC)
   @SuppressWarnings("unused")
   public void onFileClosed(@NonNull DocumentCloseEvent event) {
+    this.completionCache.invalidate(event.getClosedFile());
+
     if (this.diagnosticProvider != null) {
       this.diagnosticProvider.clearTimestamp(event.getClosedFile());
     }
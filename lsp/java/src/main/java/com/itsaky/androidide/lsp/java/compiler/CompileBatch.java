@@ -28,6 +28,7 @@ import androidx.annotation.NonNull;
 import androidx.core.util.Pair;
 
 import com.itsaky.androidide.builder.model.IJavaCompilerSettings;
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority;
 import com.itsaky.androidide.javac.services.compiler.ReusableBorrow;
 import com.itsaky.androidide.javac.services.partial.DiagnosticListenerImpl;
 import com.itsaky.androidide.lsp.java.visitors.MethodRangeScanner;
@@ -78,9 +79,10 @@ public class CompileBatch implements AutoCloseable {
   CompileBatch(
       JavaCompilerService parent,
       Collection<? extends JavaFileObject> files,
-      CompilationTaskProcessor taskProcessor) {
+      CompilationTaskProcessor taskProcessor,
+      CompilerPriority priority) {
     this.parent = parent;
-    this.borrow = batchTask(parent, files);
+    this.borrow = batchTask(parent, files, priority);
     this.task = borrow.task;
     this.roots = new ArrayList<>();
 
@@ -95,7 +97,7 @@ public class CompileBatch implements AutoCloseable {
 
   private void processCompilationUnit(final CompilationUnitTree root) {
     roots.add(root);
-//    updatePositions(root, false);
+    updatePositions(root, false);
   }
 
   void updatePositions(CompilationUnitTree tree, boolean allowDuplicate) {
@@ -113,7 +115,9 @@ public class CompileBatch implements AutoCloseable {
   }
 
   private ReusableBorrow batchTask(
-      @NonNull JavaCompilerService parent, @NonNull Collection<? extends JavaFileObject> sources) {
+      @NonNull JavaCompilerService parent,
+      @NonNull Collection<? extends JavaFileObject> sources,
+      @NonNull CompilerPriority priority) {
 
     parent.diagnostics.clear();
     final Iterable<String> options = options();
@@ -123,7 +127,12 @@ public class CompileBatch implements AutoCloseable {
 
     final ReusableBorrow borrow =
         parent.compiler.getTask(
-            parent.fileManager, diagnosticListener, options, Collections.emptyList(), sources);
+            parent.fileManager,
+            diagnosticListener,
+            options,
+            Collections.emptyList(),
+            sources,
+            priority);
 
     if (parent.fileManager != null) {
       parent.fileManager.setContext(borrow.task.getContext());
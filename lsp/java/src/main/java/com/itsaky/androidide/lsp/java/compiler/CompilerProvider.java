@@ -17,6 +17,7 @@
 
 package com.itsaky.androidide.lsp.java.compiler;
 
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority;
 import com.itsaky.androidide.lsp.java.models.CompilationRequest;
 import com.itsaky.androidide.lsp.java.parser.ParseTask;
 
@@ -50,11 +51,22 @@ public interface CompilerProvider {
   ParseTask parse(JavaFileObject file);
 
   default SynchronizedTask compile(Path... files) {
-    return compile(Arrays.stream(files).map(SourceFileObject::new).collect(Collectors.toList()));
+    return compile(CompilerPriority.NORMAL, files);
+  }
+
+  default SynchronizedTask compile(CompilerPriority priority, Path... files) {
+    return compile(
+        Arrays.stream(files).map(SourceFileObject::new).collect(Collectors.toList()), priority);
   }
 
   default SynchronizedTask compile(Collection<? extends JavaFileObject> sources) {
-    return compile(new CompilationRequest(sources));
+    return compile(sources, CompilerPriority.NORMAL);
+  }
+
+  default SynchronizedTask compile(
+      Collection<? extends JavaFileObject> sources, CompilerPriority priority) {
+    return compile(
+        new CompilationRequest(sources, null, new DefaultCompilationTaskProcessor(), priority));
   }
 
   SynchronizedTask compile(CompilationRequest request);
@@ -21,18 +21,20 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 
-import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent;
+import com.blankj.utilcode.util.CloseUtils;
 import com.itsaky.androidide.javac.services.compiler.ReusableCompiler;
+import com.itsaky.androidide.javac.services.compiler.ReusableCompilerMetrics;
 import com.itsaky.androidide.javac.services.partial.CompilationInfo;
 import com.itsaky.androidide.javac.services.partial.PartialReparser;
 import com.itsaky.androidide.javac.services.partial.PartialReparserImpl;
+import com.itsaky.androidide.javac.services.util.ReparserUtils;
 import com.itsaky.androidide.lsp.java.models.CompilationRequest;
 import com.itsaky.androidide.lsp.java.models.PartialReparseRequest;
+import com.itsaky.androidide.lsp.java.models.ReparseFallbackReason;
 import com.itsaky.androidide.lsp.java.parser.ParseTask;
 import com.itsaky.androidide.lsp.java.parser.Parser;
 import com.itsaky.androidide.lsp.java.utils.Extractors;
 import com.itsaky.androidide.lsp.java.visitors.FindTypeDeclarations;
-import com.itsaky.androidide.models.Position;
 import com.itsaky.androidide.models.Range;
 import com.itsaky.androidide.projects.FileManager;
 import com.itsaky.androidide.projects.api.AndroidModule;
@@ -55,7 +57,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -76,30 +80,62 @@ import jdkx.tools.StandardLocation;
 public class JavaCompilerService implements CompilerProvider {
 
   public static final JavaCompilerService NO_MODULE_COMPILER = new JavaCompilerService(null);
-  private static final Cache<String, Boolean> cacheContainsWord = new Cache<>();
-  private static final Cache<Void, List<String>> cacheContainsType = new Cache<>();
+  private static final Cache<Void, List<String>> cacheContainsType =
+      new Cache<>(50_000, (k, types) -> types.size() + 1);
   private static final ILogger LOG = ILogger.newInstance("JavaCompilerService");
+
+  /**
+   * Whether the requests with a background priority (diagnostics, references) are compiled in a
+   * separate lane with its own compilation context, so that they do not block the completions.
+   * Every context retains a lot of memory, so the lane is used only if there are enough processors
+   * and memory.
+   */
+  private static final boolean BACKGROUND_LANE_ENABLED =
+      Runtime.getRuntime().availableProcessors() >= 4
+          && Runtime.getRuntime().maxMemory() >= 512L * 1024 * 1024;
+
+  /** The maximum number of compilation contexts held by the compiler of a module. */
+  public static final int MAX_CONTEXTS_PER_MODULE = BACKGROUND_LANE_ENABLED ? 2 : 1;
   protected final Set<String> classPathClasses;
   protected final List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
   protected final Map<JavaFileObject, Long> cachedModified = new HashMap<>();
-  protected final Cache<Void, List<String>> cacheFileImports = new Cache<>();
+  protected final Cache<Void, List<String>> cacheFileImports =
+      new Cache<>(50_000, (k, imports) -> imports.size() + 1);
   protected final SynchronizedTask synchronizedTask = new SynchronizedTask();
   protected final SourceFileManager fileManager;
   protected final ModuleProject module;
-  public ReusableCompiler compiler = new ReusableCompiler();
+  public ReusableCompiler compiler;
   protected Set<String> bootClasspathClasses =
       BootClasspathProvider.getTopLevelClasses(
           Collections.singleton(Environment.ANDROID_JAR.getAbsolutePath()));
+  private final PartialReparseStats reparseStats = new PartialReparseStats();
   private CompileBatch cachedCompile;
-  private int changeDelta = 0;
 
-  private Position lastReparsePosition = Position.NONE;
-  private Position newCursorPosition = Position.NONE;
+  /**
+   * The contents of the source file in {@link #cachedCompile}, if known. This is used to find the
+   * region which has been modified since the last compilation.
+   */
+  private String cachedContents;
+
+  /** Whether the method bodies of {@link #cachedCompile} have been reparsed. */
+  private boolean cachedCompileReparsed;
+
+  /**
+   * Compiles the requests with a background priority. It shares the contexts of {@link #compiler}
+   * but has its own compilation task and file manager.
+   */
+  private JavaCompilerService backgroundLane;
+
+  private final Object backgroundLaneLock = new Object();
+
+  /** Whether this compiler has been destroyed. A destroyed compiler does not create a new lane. */
+  private volatile boolean destroyed;
 
   // The module project must not be null
   // It is marked as nullable just for some special cases like tests
   public JavaCompilerService(@Nullable ModuleProject module) {
     this.module = module;
+    this.compiler = new ReusableCompiler(module != null ? MAX_CONTEXTS_PER_MODULE : 1);
     if (module == null) {
       this.fileManager = SourceFileManager.NO_MODULE;
       this.classPathClasses = Collections.emptySet();
@@ -132,6 +168,7 @@ public class JavaCompilerService implements CompilerProvider {
     this.fileManager = fileManager;
     this.bootClasspathClasses = bootClasspathClasses;
     this.classPathClasses = classPathClasses;
+    this.compiler = new ReusableCompiler();
   }
 
   public ModuleProject getModule() {
@@ -178,9 +215,12 @@ public class JavaCompilerService implements CompilerProvider {
     String simpleName = Extractors.simpleName(className);
     List<SourceClassTrie.SourceNode> classes =
         module != null ? module.listClassesFromSourceDirs(packageName) : Collections.emptyList();
+    List<Path> files = new ArrayList<>(classes.size());
     for (SourceClassTrie.SourceNode node : classes) {
-      final Path path = node.getFile();
-      if (containsWord(path, simpleName) && containsType(path, className)) {
+      files.add(node.getFile());
+    }
+    for (Path path : StringSearch.findFilesContainingWord(files, simpleName)) {
+      if (containsType(path, className)) {
         return path;
       }
     }
@@ -189,35 +229,34 @@ public class JavaCompilerService implements CompilerProvider {
 
   @Override
   public Path[] findTypeReferences(String className) {
+    if (module == null) {
+      return new Path[0];
+    }
+
     String packageName = Extractors.packageName(className);
     String simpleName = Extractors.simpleName(className);
     List<Path> candidates = new ArrayList<>();
-    List<SourceClassTrie.SourceNode> sourceNodes =
-        module != null ? module.compileJavaSourceClasses.allSources() : Collections.emptyList();
-    for (SourceClassTrie.SourceNode node : sourceNodes) {
-      final Path path = node.getFile();
-      if (containsWord(path, packageName)
-          && containsImport(path, className)
-          && containsWord(path, simpleName)) {
+
+    // The word index only gives the files which might contain the simple name of the class
+    for (Path path : module.findSourceFilesContaining(simpleName)) {
+      if (containsImport(path, className)) {
         candidates.add(path);
       }
     }
 
-    return candidates.toArray(new Path[0]);
+    return StringSearch.findFilesContainingAllWords(
+            candidates, Arrays.asList(packageName, simpleName))
+        .toArray(new Path[0]);
   }
 
   @Override
   public Path[] findMemberReferences(String className, String memberName) {
-    List<Path> candidates = new ArrayList<>();
-    List<SourceClassTrie.SourceNode> sourceNodes =
-        module != null ? module.compileJavaSourceClasses.allSources() : Collections.emptyList();
-    for (SourceClassTrie.SourceNode node : sourceNodes) {
-      final Path path = node.getFile();
-      if (containsWord(path, memberName)) {
-        candidates.add(path);
-      }
+    if (module == null) {
+      return new Path[0];
     }
-    return candidates.toArray(new Path[0]);
+
+    List<Path> candidates = module.findSourceFilesContaining(memberName);
+    return StringSearch.findFilesContainingWord(candidates, memberName).toArray(new Path[0]);
   }
 
   @Override
@@ -234,13 +273,45 @@ public class JavaCompilerService implements CompilerProvider {
 
   @Override
   public SynchronizedTask compile(final CompilationRequest request) {
+    if (request.priority.isBackground()) {
+      final JavaCompilerService lane = getBackgroundLane();
+      if (lane != null) {
+        return lane.compileBatch(request);
+      }
+    }
     return compileBatch(request);
   }
 
+  @Nullable
+  private JavaCompilerService getBackgroundLane() {
+    // Each lane holds a context borrowed for its cached compile, so a lane is only created if the
+    // compiler can lend a context to both the lanes
+    if (module == null || destroyed || compiler.getMaxContexts() < 2) {
+      return null;
+    }
+
+    synchronized (backgroundLaneLock) {
+      if (backgroundLane == null) {
+        backgroundLane =
+            new JavaCompilerService(
+                module,
+                SourceFileManager.createForModule(module),
+                bootClasspathClasses,
+                classPathClasses);
+        backgroundLane.compiler = compiler;
+      }
+      return backgroundLane;
+    }
+  }
+
   private SynchronizedTask compileBatch(CompilationRequest request) {
+    final SynchronizedTask synchronizedTask = this.synchronizedTask.withPriority(request.priority);
     synchronizedTask.post(
         () -> {
-          if (needsCompilation(request.sources)) {
+          if (needsCompilation(request.sources)
+              || (cachedCompileReparsed && request.partialRequest == null)) {
+            // Diagnostics reported for reparsed compilations are not translated, always
+            // perform a full compilation if the request does not support a partial reparse
             reparseOrRecompile(request);
           } else {
             LOG.info("...using cached compile");
@@ -269,28 +340,45 @@ public class JavaCompilerService implements CompilerProvider {
   }
 
   private synchronized void reparseOrRecompile(CompilationRequest request) {
-//    if (needsRecompilation(request)) {
-//      LOG.warn("Cannot reparse. Recompilation is required");
-      recompile(request);
-//    } else {
-//      LOG.debug("Trying to perform a reparse...");
-//      tryReparse(request);
-//    }
+    final ReparseFallbackReason reason = checkCanReparse(request);
+    if (reason != null) {
+      fallbackToRecompile(request, reason);
+      return;
+    }
+
+    tryReparse(request);
   }
 
-  private boolean needsRecompilation(final CompilationRequest request) {
-    return this.cachedCompile == null
-        || this.cachedCompile.closed;
-//        || request.partialRequest == null
-//        || request.partialRequest.cursor < 0
-//        || !isChangeValidForReparse()
-//        || request.sources.size() != 1; // Cannot perform a reparse if there are multiple files
+  @Nullable
+  private ReparseFallbackReason checkCanReparse(@NonNull final CompilationRequest request) {
+    if (this.cachedCompile == null || this.cachedCompile.closed) {
+      return ReparseFallbackReason.NO_CACHED_COMPILE;
+    }
+
+    if (request.partialRequest == null) {
+      return ReparseFallbackReason.NOT_REQUESTED;
+    }
+
+    if (!ReparserUtils.canReparse()) {
+      return ReparseFallbackReason.REPARSE_DISABLED;
+    }
+
+    // Cannot perform a reparse if there are multiple files
+    if (this.cachedContents == null
+        || request.sources.size() != 1
+        || this.cachedCompile.roots.size() != 1
+        || !cachedModified.containsKey(request.sources.iterator().next())) {
+      return ReparseFallbackReason.SOURCES_CHANGED;
+    }
+
+    return null;
   }
 
-  private boolean isChangeValidForReparse() {
-    return this.lastReparsePosition == Position.NONE
-        || (this.newCursorPosition != Position.NONE
-            && this.lastReparsePosition.getLine() == this.newCursorPosition.getLine());
+  private void fallbackToRecompile(
+      @NonNull final CompilationRequest request, @NonNull final ReparseFallbackReason reason) {
+    LOG.debug("Cannot reparse. Recompilation is required. reason:", reason, reparseStats);
+    reparseStats.onFallback(reason);
+    recompile(request);
   }
 
   private void tryReparse(@NonNull final CompilationRequest request) {
@@ -300,67 +388,113 @@ public class JavaCompilerService implements CompilerProvider {
     Objects.requireNonNull(partialRequest);
 
     final StopWatch watch = new StopWatch("Method reparse");
-    final File file = new File(request.sources.iterator().next().toUri());
-    final String path = file.getAbsolutePath();
-    final List<Pair<Range, TreePath>> positions = this.cachedCompile.methodPositions.get(path);
+    final String oldContents = this.cachedContents;
+    final String newContents = partialRequest.contents;
+
+    // Find the region which has been modified since the last compilation
+    final int oldLength = oldContents.length();
+    final int newLength = newContents.length();
+    final int maxCommon = Math.min(oldLength, newLength);
+    int changeStart = 0;
+    while (changeStart < maxCommon
+        && oldContents.charAt(changeStart) == newContents.charAt(changeStart)) {
+      ++changeStart;
+    }
+
+    if (changeStart == oldLength && oldLength == newLength) {
+      LOG.info("...contents unchanged since last compilation");
+      reparseStats.onUnchanged();
+      updateModificationCache(request);
+      return;
+    }
+
+    int commonSuffix = 0;
+    while (commonSuffix < maxCommon - changeStart
+        && oldContents.charAt(oldLength - commonSuffix - 1)
+            == newContents.charAt(newLength - commonSuffix - 1)) {
+      ++commonSuffix;
+    }
+
+    // The end of the changed region, in the old contents
+    final int changeEnd = oldLength - commonSuffix;
+    final int delta = newLength - oldLength;
+    watch.lapFromLast("Found changed region");
+
+    final File file = new File(cachedCompile.roots.get(0).getSourceFile().toUri());
+    final List<Pair<Range, TreePath>> positions =
+        this.cachedCompile.methodPositions.get(file.getAbsolutePath());
     if (positions == null) {
-      LOG.warn("Cannot perform reparse. No method positions found.");
-      recompile(request);
+      fallbackToRecompile(request, ReparseFallbackReason.NO_METHOD_POSITIONS);
       return;
     }
 
-    final Pair<Range, TreePath> currentMethod =
-        binarySearchCurrentMethod(positions, partialRequest.cursor);
+    final Pair<Range, TreePath> currentMethod = binarySearchCurrentMethod(positions, changeStart);
     if (currentMethod == null) {
-      LOG.warn("Cannot perform reparse. Unable to find current method");
-      recompile(request);
+      fallbackToRecompile(request, ReparseFallbackReason.NOT_IN_METHOD);
       return;
-    } else {
-      watch.lapFromLast("Found method at cursor position");
     }
 
     final MethodTree methodTree = (MethodTree) currentMethod.second.getLeaf();
-    LOG.debug("Trying to reparse method:", methodTree.getName());
+    if (methodTree.getBody() == null) {
+      // abstract or native method
+      fallbackToRecompile(request, ReparseFallbackReason.SIGNATURE_CHANGED);
+      return;
+    }
 
     final CompilationInfo info =
         new CompilationInfo(
             cachedCompile.task, cachedCompile.diagnosticListener, cachedCompile.roots.get(0));
-    watch.setLastLap(System.currentTimeMillis());
     final SourcePositions sourcePositions = Trees.instance(cachedCompile.task).getSourcePositions();
     final int start = (int) sourcePositions.getStartPosition(info.cu, methodTree.getBody());
-    final int end =
-        (int) sourcePositions.getEndPosition(info.cu, methodTree.getBody()) + this.changeDelta;
-
-    if (start < 0 || end < 0 || start > end || end >= partialRequest.contents.length()) {
-      LOG.warn(
-          "Cannot reparse. Invalid change delta. end:",
-          end,
-          "changeDelta:",
-          this.changeDelta,
-          "content.length:",
-          partialRequest.contents.length());
-      recompile(request);
+    final int oldEnd = (int) sourcePositions.getEndPosition(info.cu, methodTree.getBody());
+
+    // The change must be strictly inside the braces of the method body
+    if (start < 0 || changeStart <= start) {
+      fallbackToRecompile(request, ReparseFallbackReason.SIGNATURE_CHANGED);
       return;
     }
 
-    watch.lapFromLast("Found start and end positions of current method");
-    final PartialReparser reparser = new PartialReparserImpl();
+    if (oldEnd < 0 || changeEnd >= oldEnd) {
+      fallbackToRecompile(request, ReparseFallbackReason.MULTIPLE_MEMBERS);
+      return;
+    }
+
+    final int end = oldEnd + delta;
+    if (end > newLength
+        || newContents.charAt(start) != '{'
+        || newContents.charAt(end - 1) != '}') {
+      LOG.warn("Cannot reparse. Invalid method body range. start:", start, "end:", end);
+      fallbackToRecompile(request, ReparseFallbackReason.REPARSE_FAILED);
+      return;
+    }
 
-    final String newBody = partialRequest.contents.substring(start, end);
+    watch.lapFromLast("Found method containing the changed region");
+    LOG.debug("Trying to reparse method:", methodTree.getName());
+
+    final PartialReparser reparser = new PartialReparserImpl();
+    final String newBody = newContents.substring(start, end);
     final boolean reparsed =
-        reparser.reparseMethod(info, currentMethod.second, newBody, partialRequest.contents);
+        reparser.reparseMethod(info, currentMethod.second, newBody, newContents);
     if (!reparsed) {
       LOG.error("Failed to reparse");
-      recompile(request);
+      fallbackToRecompile(request, ReparseFallbackReason.REPARSE_FAILED);
       return;
     }
 
+    // Tree positions now refer to the new contents
+    final JavaFileObject source = info.cu.getSourceFile();
+    if (source instanceof SourceFileObject) {
+      ((SourceFileObject) source).contents = newContents;
+      ((SourceFileObject) source).modified = Instant.now();
+    }
+
     watch.log();
     LOG.info("Successfully reparsed method", methodTree.getName());
+    reparseStats.onReparsed();
     updateModificationCache(request);
     cachedCompile.updatePositions(info.cu, true);
-    this.changeDelta = 0;
-    this.lastReparsePosition = this.newCursorPosition;
+    this.cachedContents = newContents;
+    this.cachedCompileReparsed = true;
   }
 
   @Nullable
@@ -389,7 +523,11 @@ public class JavaCompilerService implements CompilerProvider {
   private synchronized void recompile(CompilationRequest request) {
     close();
     this.cachedCompile = performCompilation(request);
-    this.changeDelta = 0;
+    this.cachedCompileReparsed = false;
+    this.cachedContents =
+        request.partialRequest != null && cachedCompile.roots.size() == 1
+            ? request.partialRequest.contents
+            : null;
     updateModificationCache(request);
   }
 
@@ -413,7 +551,8 @@ public class JavaCompilerService implements CompilerProvider {
       throw new RuntimeException("empty sources");
     }
 
-    CompileBatch firstAttempt = new CompileBatch(this, sources, request.compilationTaskProcessor);
+    CompileBatch firstAttempt =
+        new CompileBatch(this, sources, request.compilationTaskProcessor, request.priority);
     Set<Path> addFiles = firstAttempt.needsAdditionalSources();
 
     if (addFiles.isEmpty()) {
@@ -430,14 +569,8 @@ public class JavaCompilerService implements CompilerProvider {
       moreSources.add(new SourceFileObject(add));
     }
 
-    return new CompileBatch(this, moreSources, request.compilationTaskProcessor);
-  }
-
-  private boolean containsWord(Path file, String word) {
-    if (cacheContainsWord.needs(file, word)) {
-      cacheContainsWord.load(file, word, StringSearch.containsWord(file, word));
-    }
-    return cacheContainsWord.get(file, word);
+    return new CompileBatch(
+        this, moreSources, request.compilationTaskProcessor, request.priority);
   }
 
   private boolean containsImport(Path file, String className) {
@@ -455,13 +588,14 @@ public class JavaCompilerService implements CompilerProvider {
   }
 
   private List<String> readImports(Path file) {
-    if (cacheFileImports.needs(file, null)) {
-      loadImports(file);
+    final List<String> indexed = module != null ? module.getSourceFileImports(file) : null;
+    if (indexed != null) {
+      return indexed;
     }
-    return cacheFileImports.get(file, null);
+    return cacheFileImports.get(file, null, (f, k) -> loadImports(f));
   }
 
-  private void loadImports(Path file) {
+  private List<String> loadImports(Path file) {
     List<String> list = new ArrayList<>();
     Pattern importClass = Pattern.compile("^import +([\\w.]+\\.\\w+);");
     Pattern importStar = Pattern.compile("^import +([\\w.]+\\.\\*);");
@@ -486,20 +620,43 @@ public class JavaCompilerService implements CompilerProvider {
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    cacheFileImports.load(file, null, list);
+    return list;
   }
 
   private String packageNameOrEmpty(Path file) {
     return module != null ? module.packageNameOrEmpty(file) : "";
   }
 
+  /**
+   * Destroys the cached compilation of this compiler and its background lane. The compilation task
+   * is acquired first, so a request which is compiling with this compiler is not disturbed.
+   */
   public void destroy() {
     synchronizedTask.post(
         () -> {
+          destroyed = true;
+
+          final JavaCompilerService lane;
+          synchronized (backgroundLaneLock) {
+            lane = backgroundLane;
+            backgroundLane = null;
+          }
+
+          if (lane != null) {
+            // waits for the requests in the lane
+            lane.destroy();
+            CloseUtils.closeIO(lane.fileManager);
+          }
+
           close();
           cachedCompile = null;
+          cachedContents = null;
+          cachedCompileReparsed = false;
           cachedModified.clear();
-          compiler = new ReusableCompiler();
+
+          // the metrics are discarded along with the compiler
+          LOG.info("Destroying compiler.", compiler.metrics, reparseStats);
+          compiler = new ReusableCompiler(compiler.getMaxContexts());
         });
   }
 
@@ -507,9 +664,22 @@ public class JavaCompilerService implements CompilerProvider {
     return synchronizedTask;
   }
 
-  public void onDocumentChange(@NonNull DocumentChangeEvent event) {
-    this.changeDelta += event.getChangeDelta();
-    this.newCursorPosition = event.getChangeRange().getEnd();
+  /**
+   * Get the statistics about the partial reparses performed by this compiler.
+   *
+   * @return The partial reparse statistics.
+   */
+  public PartialReparseStats getReparseStats() {
+    return reparseStats;
+  }
+
+  /**
+   * Get the metrics about the contexts borrowed from the compiler since it was last destroyed.
+   *
+   * @return The compiler metrics.
+   */
+  public ReusableCompilerMetrics getCompilerMetrics() {
+    return compiler.metrics;
   }
 
   public JavaCompilerService copy() {
@@ -517,23 +687,25 @@ public class JavaCompilerService implements CompilerProvider {
         new JavaCompilerService(
             this.module, this.fileManager, this.bootClasspathClasses, this.classPathClasses);
     compiler.cachedCompile = null;
-    compiler.newCursorPosition = Position.NONE;
-    compiler.lastReparsePosition = Position.NONE;
-    compiler.changeDelta = 0;
-    compiler.compiler = new ReusableCompiler();
+    compiler.cachedContents = null;
+    compiler.cachedCompileReparsed = false;
+    compiler.compiler = new ReusableCompiler(this.compiler.getMaxContexts());
     compiler.diagnostics.clear();
     compiler.cachedModified.clear();
     return compiler;
   }
 
   private boolean containsType(Path file, String className) {
-    if (cacheContainsType.needs(file, null)) {
-      CompilationUnitTree root = parse(file).root;
-      List<String> types = new ArrayList<>();
-      new FindTypeDeclarations().scan(root, types);
-      cacheContainsType.load(file, null, types);
-    }
-    return cacheContainsType.get(file, null).contains(className);
+    return cacheContainsType
+        .get(file, null, (f, k) -> findTypeDeclarations(f))
+        .contains(className);
+  }
+
+  private List<String> findTypeDeclarations(Path file) {
+    CompilationUnitTree root = parse(file).root;
+    List<String> types = new ArrayList<>();
+    new FindTypeDeclarations().scan(root, types);
+    return types;
   }
 
   private Path findPublicTypeDeclaration(String className) {
@@ -0,0 +1,82 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.lsp.java.compiler
+
+import com.itsaky.androidide.lsp.java.models.ReparseFallbackReason
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Counts the partial reparses performed by a [JavaCompilerService] and the full compilations it had
+ * to fall back to, grouped by [ReparseFallbackReason].
+ *
+ * @author Akash Yadav
+ */
+class PartialReparseStats {
+
+  private val reparsed = AtomicLong()
+  private val unchanged = AtomicLong()
+  private val fallbacks = AtomicLongArray(ReparseFallbackReason.values().size)
+
+  /** The number of requests which were served by reparsing a method body. */
+  val reparseCount: Long
+    get() = reparsed.get()
+
+  /** The number of requests which did not change the previously compiled contents. */
+  val unchangedCount: Long
+    get() = unchanged.get()
+
+  /** The total number of requests which required a full compilation. */
+  val fallbackCount: Long
+    get() = ReparseFallbackReason.values().sumOf { fallbackCount(it) }
+
+  internal fun onReparsed() {
+    reparsed.incrementAndGet()
+  }
+
+  internal fun onUnchanged() {
+    unchanged.incrementAndGet()
+  }
+
+  internal fun onFallback(reason: ReparseFallbackReason) {
+    fallbacks.incrementAndGet(reason.ordinal)
+  }
+
+  /** The number of full compilations which were performed for the given [reason]. */
+  fun fallbackCount(reason: ReparseFallbackReason): Long {
+    return fallbacks.get(reason.ordinal)
+  }
+
+  /** Resets all the counters. */
+  fun reset() {
+    reparsed.set(0)
+    unchanged.set(0)
+    for (i in 0 until fallbacks.length()) {
+      fallbacks.set(i, 0)
+    }
+  }
+
+  override fun toString(): String {
+    val reasons =
+      ReparseFallbackReason.values()
+        .filter { fallbackCount(it) > 0 }
+        .joinToString(separator = ", ") { "$it=${fallbackCount(it)}" }
+    return "PartialReparseStats(reparsed=$reparseCount, unchanged=$unchangedCount, " +
+      "fallbacks=$fallbackCount [$reasons])"
+  }
+}
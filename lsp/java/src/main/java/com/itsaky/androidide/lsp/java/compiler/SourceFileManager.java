@@ -24,9 +24,12 @@ import androidx.annotation.NonNull;
 
 import com.blankj.utilcode.util.CloseUtils;
 import com.itsaky.androidide.config.JavacConfigProvider;
+import com.itsaky.androidide.javac.services.abi.AbiStubCache;
 import com.itsaky.androidide.javac.services.fs.AndroidFsProviderImpl;
+import com.itsaky.androidide.projects.ProjectManager;
 import com.itsaky.androidide.projects.api.AndroidModule;
 import com.itsaky.androidide.projects.api.ModuleProject;
+import com.itsaky.androidide.projects.api.Project;
 import com.itsaky.androidide.projects.util.StringSearch;
 import com.itsaky.androidide.tooling.api.IProject;
 import com.itsaky.androidide.utils.ClassTrie;
@@ -41,6 +44,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -87,7 +91,7 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavacFileManage
     System.setProperty(JavacConfigProvider.PROP_ANDROIDIDE_JAVA_HOME, Environment.JAVA_HOME.getAbsolutePath());
     
     setLocationLogError(StandardLocation.SOURCE_PATH, module.getCompileSourceDirectories());
-    setLocationLogError(StandardLocation.CLASS_PATH, configureClasspaths(module));
+    setLocationLogError(StandardLocation.CLASS_PATH, withAbiStubs(configureClasspaths(module)));
     listLocations(EnumSet.of(StandardLocation.CLASS_PATH, StandardLocation.PLATFORM_CLASS_PATH));
   }
 
@@ -99,12 +103,25 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavacFileManage
   
     if (module instanceof AndroidModule) {
       final AndroidModule androidModule = (AndroidModule) module;
-      setLocationLogError(StandardLocation.PLATFORM_CLASS_PATH, androidModule.getBootClassPaths());
+      setLocationLogError(
+          StandardLocation.PLATFORM_CLASS_PATH, withAbiStubs(androidModule.getBootClassPaths()));
     }
   
     return module.getCompileClasspaths();
   }
 
+  /**
+   * Replaces the JAR files on the given classpath with their ABI stubs, if available. The JARs in
+   * the project directory are modified by every build, so their stubs are not used.
+   */
+  @NonNull
+  private static List<File> withAbiStubs(@NonNull Collection<File> classpath) {
+    final Project root = ProjectManager.INSTANCE.getRootProject();
+    final Path rootDir = root != null ? root.getProjectDir().toPath() : null;
+    return AbiStubCache.stubsOrOriginals(
+        classpath, file -> rootDir == null || !file.toPath().startsWith(rootDir));
+  }
+
   private static JavacFileManager createDelegateFileManager() {
     return JavacTool.create()
         .getStandardFileManager(LOG::debug, Locale.getDefault(), StandardCharsets.UTF_8);
@@ -245,7 +262,7 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavacFileManage
     return cachedFileManagers.computeIfAbsent(project, SourceFileManager::createForModule);
   }
 
-  private static SourceFileManager createForModule(@NonNull ModuleProject project) {
+  static SourceFileManager createForModule(@NonNull ModuleProject project) {
     LOG.info("Creating source file manager instance for module:", project);
     return new SourceFileManager(project);
   }
@@ -36,71 +36,90 @@ package com.itsaky.androidide.lsp.java.compiler;
 
 import androidx.annotation.NonNull;
 
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority;
+import com.itsaky.androidide.javac.services.compiler.PrioritySemaphore;
 import com.itsaky.androidide.lsp.java.CompilationCancellationException;
 import com.itsaky.androidide.lsp.java.utils.CancelChecker;
 import com.itsaky.androidide.utils.ILogger;
 
-import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
 
 import kotlin.jvm.functions.Function1;
 
+/**
+ * Serializes the access to the compilation task of a {@link JavaCompilerService}. Callers waiting
+ * for the task are served in the order of their {@link CompilerPriority}, so that a completion
+ * request does not have to wait behind queued diagnostic or reference requests.
+ */
 public class SynchronizedTask {
 
   private static final ILogger LOG = ILogger.newInstance("SynchronizedTask");
-  private volatile boolean isCompiling = false;
-  private final Semaphore semaphore = new Semaphore(1);
-  private CompileTask task;
+  private final State state;
+  private final CompilerPriority priority;
 
-  public void run(@NonNull Consumer<CompileTask> taskConsumer) {
-    try {
-      semaphore.acquire();
-    } catch (InterruptedException e) {
-      throw new CompilationCancellationException(e);
+  public SynchronizedTask() {
+    this(new State(), CompilerPriority.NORMAL);
+  }
+
+  private SynchronizedTask(State state, CompilerPriority priority) {
+    this.state = state;
+    this.priority = priority;
+  }
+
+  /**
+   * Get a view of this task which waits for the compilation task with the given priority.
+   *
+   * @param priority The priority.
+   * @return The view. The view shares the compilation task with this instance.
+   */
+  @NonNull
+  public SynchronizedTask withPriority(@NonNull CompilerPriority priority) {
+    if (priority == this.priority) {
+      return this;
     }
+    return new SynchronizedTask(state, priority);
+  }
+
+  @NonNull
+  public CompilerPriority getPriority() {
+    return priority;
+  }
+
+  public void run(@NonNull Consumer<CompileTask> taskConsumer) {
+    acquire();
     try {
-      taskConsumer.accept(this.task);
+      taskConsumer.accept(state.task);
     } catch (Throwable err) {
       if (!CancelChecker.isCancelled(err)) {
         LOG.error("An error occurred while working with compilation task", err);
       }
       throw err;
     } finally {
-      semaphore.release();
+      state.semaphore.release();
     }
   }
 
   public <T> T get(@NonNull Function1<CompileTask, T> function) {
+    acquire();
     try {
-      semaphore.acquire();
-    } catch (InterruptedException e) {
-      throw new CompilationCancellationException(e);
-    }
-
-    try {
-      return function.invoke(this.task);
+      return function.invoke(state.task);
     } catch (Throwable err) {
       if (!CancelChecker.isCancelled(err)) {
         LOG.error("An error occurred while working with compilation task", err);
       }
       throw err;
     } finally {
-      semaphore.release();
+      state.semaphore.release();
     }
   }
 
   void post(@NonNull Runnable run) {
-    try {
-      semaphore.acquire();
-    } catch (InterruptedException e) {
-      throw new CompilationCancellationException(e);
-    }
-
-    isCompiling = true;
+    acquire();
+    state.isCompiling = true;
 
     try {
-      if (this.task != null) {
-        this.task.close();
+      if (state.task != null) {
+        state.task.close();
       }
       run.run();
     } catch (Throwable err) {
@@ -109,16 +128,31 @@ public class SynchronizedTask {
       }
       throw err;
     } finally {
-      semaphore.release();
-      isCompiling = false;
+      state.semaphore.release();
+      state.isCompiling = false;
+    }
+  }
+
+  private void acquire() {
+    try {
+      state.semaphore.acquire(priority);
+    } catch (InterruptedException e) {
+      throw new CompilationCancellationException(e);
     }
   }
 
   void setTask(CompileTask task) {
-    this.task = task;
+    state.task = task;
+  }
+
+  public boolean isCompiling() {
+    return state.isCompiling || state.semaphore.hasQueuedThreads();
   }
 
-  public synchronized boolean isCompiling() {
-    return isCompiling || semaphore.hasQueuedThreads();
+  /** The state shared by a task and its views with other priorities. */
+  private static final class State {
+    final PrioritySemaphore semaphore = new PrioritySemaphore(1);
+    volatile boolean isCompiling = false;
+    CompileTask task;
   }
 }
@@ -17,6 +17,7 @@
 
 package com.itsaky.androidide.lsp.java.models
 
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority
 import com.itsaky.androidide.lsp.java.compiler.CompilationTaskProcessor
 import com.itsaky.androidide.lsp.java.compiler.DefaultCompilationTaskProcessor
 import jdkx.tools.JavaFileObject
@@ -27,6 +28,7 @@ import jdkx.tools.JavaFileObject
  * @author Akash Yadav
  * @param sources The source files to compile.
  * @param partialRequest Data that will be used to a partial reparse.
+ * @param priority The priority of the request when it has to wait for the compiler.
  */
 data class CompilationRequest
 @JvmOverloads
@@ -34,5 +36,6 @@ constructor(
   @JvmField val sources: Collection<JavaFileObject>,
   @JvmField val partialRequest: PartialReparseRequest? = null,
   @JvmField
-  val compilationTaskProcessor: CompilationTaskProcessor = DefaultCompilationTaskProcessor()
+  val compilationTaskProcessor: CompilationTaskProcessor = DefaultCompilationTaskProcessor(),
+  @JvmField val priority: CompilerPriority = CompilerPriority.NORMAL
 )
@@ -0,0 +1,54 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.lsp.java.models
+
+/**
+ * The reason why a compilation request could not be served with a partial (method body) reparse
+ * and a full compilation was performed instead.
+ *
+ * @author Akash Yadav
+ */
+enum class ReparseFallbackReason {
+
+  /** There is no previous compilation which can be reparsed. */
+  NO_CACHED_COMPILE,
+
+  /** The compilation request did not contain any data for a partial reparse. */
+  NOT_REQUESTED,
+
+  /** The previous compilation was for another file or for multiple files. */
+  SOURCES_CHANGED,
+
+  /** The positions of methods in the previous compilation are not known. */
+  NO_METHOD_POSITIONS,
+
+  /** The change is not inside a method (e.g. a field, an import or a class declaration). */
+  NOT_IN_METHOD,
+
+  /** The change modifies the signature (or the braces) of the method. */
+  SIGNATURE_CHANGED,
+
+  /** The change spans multiple members of the class. */
+  MULTIPLE_MEMBERS,
+
+  /** Partial reparse is not supported in the current environment. */
+  REPARSE_DISABLED,
+
+  /** The partial reparser was unable to reparse the method body. */
+  REPARSE_FAILED
+}
@@ -21,13 +21,17 @@ import static com.itsaky.androidide.lsp.api.HelpersKt.describeSnippet;
 import static com.itsaky.androidide.progress.ProgressManager.abortIfCancelled;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.blankj.utilcode.util.ReflectUtils;
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority;
 import com.itsaky.androidide.lsp.api.AbstractServiceProvider;
 import com.itsaky.androidide.lsp.api.ICompletionProvider;
 import com.itsaky.androidide.lsp.api.IServerSettings;
 import com.itsaky.androidide.lsp.internal.model.CachedCompletion;
+import com.itsaky.androidide.lsp.internal.model.CompletionCache;
 import com.itsaky.androidide.lsp.java.compiler.CompileTask;
+import com.itsaky.androidide.lsp.java.compiler.DefaultCompilationTaskProcessor;
 import com.itsaky.androidide.lsp.java.compiler.JavaCompilerService;
 import com.itsaky.androidide.lsp.java.compiler.SourceFileObject;
 import com.itsaky.androidide.lsp.java.compiler.SynchronizedTask;
@@ -44,15 +48,23 @@ import com.itsaky.androidide.lsp.java.providers.completion.SwitchConstantComplet
 import com.itsaky.androidide.lsp.java.providers.completion.TopLevelSnippetsProvider;
 import com.itsaky.androidide.lsp.java.utils.ASTFixer;
 import com.itsaky.androidide.lsp.java.utils.CancelChecker;
+import com.itsaky.androidide.lsp.java.visitors.FindBlocksAt;
 import com.itsaky.androidide.lsp.java.visitors.FindCompletionsAt;
+import com.itsaky.androidide.lsp.java.visitors.FindMethodDeclarationAt;
+import com.itsaky.androidide.lsp.java.visitors.FindTypeDeclarationAt;
 import com.itsaky.androidide.lsp.java.visitors.PruneMethodBodies;
 import com.itsaky.androidide.lsp.models.CompletionParams;
 import com.itsaky.androidide.lsp.models.CompletionResult;
 import com.itsaky.androidide.utils.DocumentUtils;
 import com.itsaky.androidide.utils.ILogger;
 import com.itsaky.androidide.utils.StopWatch;
+import openjdk.source.tree.ClassTree;
+import openjdk.source.tree.MethodTree;
 import openjdk.source.tree.Tree;
+import openjdk.source.tree.VariableTree;
+import openjdk.source.util.SourcePositions;
 import openjdk.source.util.TreePath;
+import openjdk.source.util.Trees;
 
 import java.nio.file.Path;
 import java.time.Duration;
@@ -60,7 +72,6 @@ import java.time.Instant;
 import java.util.Collections;
 import java.util.Locale;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Consumer;
 
 public class CompletionProvider extends AbstractServiceProvider implements ICompletionProvider {
 
@@ -68,8 +79,7 @@ public class CompletionProvider extends AbstractServiceProvider implements IComp
   private static final ILogger LOG = ILogger.newInstance("JavaCompletionProvider");
   private final AtomicBoolean completing = new AtomicBoolean(false);
   private JavaCompilerService compiler;
-  private CachedCompletion cache;
-  private Consumer<CachedCompletion> nextCacheConsumer;
+  private CompletionCache cache;
 
   public CompletionProvider() {
     super();
@@ -78,11 +88,9 @@ public class CompletionProvider extends AbstractServiceProvider implements IComp
   public synchronized CompletionProvider reset(
       JavaCompilerService compiler,
       IServerSettings settings,
-      CachedCompletion cache,
-      Consumer<CachedCompletion> nextCacheConsumer) {
+      CompletionCache cache) {
     this.compiler = compiler;
     this.cache = cache;
-    this.nextCacheConsumer = nextCacheConsumer;
 
     super.applySettings(settings);
     return this;
@@ -130,26 +138,15 @@ public class CompletionProvider extends AbstractServiceProvider implements IComp
 
     Instant started = Instant.now();
 
-    if (this.cache != null && this.cache.canUseCache(params)) {
-      final String prefix = params.requirePrefix();
-      final String partial = partialIdentifier(prefix, prefix.length());
-      final CompletionResult result =
-          CompletionResult.mapAndFilter(
-              this.cache.getResult(),
-              partial,
-              item -> item.setSnippetDescription(describeSnippet(partial)));
-
-      result.markCached();
-
-      if (!result.isIncomplete() && !result.getItems().isEmpty()) {
+    // Results computed from a document which has changed since then must not be cached
+    final long generation = this.cache != null ? this.cache.getGeneration() : 0;
+    if (this.cache != null) {
+      final CompletionResult result = fromCache(this.cache.findRefinable(params), params);
+      if (result != null) {
         LOG.info("...using cached completion");
         logCompletionDuration(started, result);
         return result;
-      } else {
-        LOG.info("...cached completions are empty");
       }
-    } else {
-      LOG.info("...cannot use cached completions");
     }
 
     abortIfCancelled();
@@ -160,19 +157,29 @@ public class CompletionProvider extends AbstractServiceProvider implements IComp
     abortIfCancelled();
     abortCompletionIfCancelled();
     long cursor = task.root.getLineMap().getPosition(line, column);
+    final String scope = scopeAt(task, cursor);
+
+    if (this.cache != null) {
+      // The same receiver may have been completed at a different position in this scope
+      final CompletionResult result = fromCache(this.cache.findForReceiver(params, scope), params);
+      if (result != null) {
+        LOG.info("...using cached completion for receiver");
+        logCompletionDuration(started, result);
+        return result;
+      }
+
+      LOG.info("...cannot use cached completions");
+      this.cache.record(false);
+    }
+
     StringBuilder pruned = new PruneMethodBodies(task.task).scan(task.root, cursor);
     watch.log();
     int endOfLine = endOfLine(pruned, (int) cursor);
     pruned.insert(endOfLine, ';');
 
-    final CharSequence contents;
-    if (compiler.compiler.currentContext != null) {
-      abortIfCancelled();
-      abortCompletionIfCancelled();
-      contents = new ASTFixer(compiler.compiler.currentContext).fix(pruned);
-    } else {
-      contents = pruned.toString();
-    }
+    abortIfCancelled();
+    abortCompletionIfCancelled();
+    final CharSequence contents = new ASTFixer().fix(pruned);
 
     final String contentString = contents.toString();
     final PartialReparseRequest partialRequest =
@@ -191,13 +198,74 @@ public class CompletionProvider extends AbstractServiceProvider implements IComp
 
     abortIfCancelled();
     abortCompletionIfCancelled();
-    if (this.nextCacheConsumer != null) {
-      this.nextCacheConsumer.accept(CachedCompletion.cache(params, result));
+    if (this.cache != null) {
+      this.cache.put(params, scope, result, generation);
+    }
+
+    return result;
+  }
+
+  @Nullable
+  private CompletionResult fromCache(
+      @Nullable CachedCompletion cached, @NonNull CompletionParams params) {
+    if (cached == null) {
+      return null;
     }
 
+    final String prefix = params.requirePrefix();
+    final String partial = partialIdentifier(prefix, prefix.length());
+    final CompletionResult result =
+        CompletionResult.mapAndFilter(
+            cached.getResult(),
+            partial,
+            item -> item.setSnippetDescription(describeSnippet(partial)));
+
+    result.markCached();
+
+    if (result.isIncomplete() || result.getItems().isEmpty()) {
+      LOG.info("...cached completions are empty");
+      return null;
+    }
+
+    this.cache.record(true);
     return result;
   }
 
+  /**
+   * Returns a key for the class and method declarations, blocks and lambda expressions enclosing
+   * the given cursor position.
+   */
+  @NonNull
+  static String scopeAt(@NonNull ParseTask task, long cursor) {
+    final StringBuilder sb = new StringBuilder();
+    final ClassTree type = new FindTypeDeclarationAt(task.task).scan(task.root, cursor);
+    if (type != null) {
+      sb.append(type.getSimpleName());
+    }
+
+    final MethodTree method = new FindMethodDeclarationAt(task.task).scan(task.root, cursor);
+    if (method != null) {
+      sb.append('#').append(method.getName()).append('(');
+      for (final VariableTree parameter : method.getParameters()) {
+        sb.append(parameter.getType()).append(',');
+      }
+      sb.append(')');
+    }
+
+    // Blocks are identified by their start position. The positions are stable for as long as the
+    // cached completions are kept, as any edit other than that of the completed expression
+    // invalidates them.
+    final SourcePositions pos = Trees.instance(task.task).getSourcePositions();
+    final FindBlocksAt blocks = new FindBlocksAt(task.task);
+    blocks.scan(task.root, cursor);
+    for (final Tree block : blocks.getBlocks()) {
+      sb.append(block.getKind() == Tree.Kind.LAMBDA_EXPRESSION ? "/->" : "/{");
+      sb.append(pos.getStartPosition(task.root, block));
+    }
+
+    return sb.toString();
+  }
+
   @NonNull
   private String partialIdentifier(String contents, int end) {
     int start = end;
@@ -239,7 +307,11 @@ public class CompletionProvider extends AbstractServiceProvider implements IComp
     abortCompletionIfCancelled();
 
     final CompilationRequest request =
-        new CompilationRequest(Collections.singletonList(source), partialRequest);
+        new CompilationRequest(
+            Collections.singletonList(source),
+            partialRequest,
+            new DefaultCompilationTaskProcessor(),
+            CompilerPriority.COMPLETION);
     SynchronizedTask synchronizedTask = compiler.compile(request);
     return synchronizedTask.get(
         task -> {
@@ -183,7 +183,7 @@ object DiagnosticsProvider {
       }
     }
     val file = Paths.get(root.sourceFile.toUri())
-    val contents = FileManager.getDocumentContents(file)
+    val contents = FileManager.getDocumentText(file)
     var name = unusedEl.simpleName
     if (name.contentEquals("<init>")) {
       name = unusedEl.enclosingElement.simpleName
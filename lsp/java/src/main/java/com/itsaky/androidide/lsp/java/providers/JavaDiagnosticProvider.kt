@@ -16,6 +16,8 @@
  */
 package com.itsaky.androidide.lsp.java.providers
 
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority
+import com.itsaky.androidide.lsp.java.JavaCompilerProvider
 import com.itsaky.androidide.lsp.java.compiler.CompileTask
 import com.itsaky.androidide.lsp.java.compiler.JavaCompilerService
 import com.itsaky.androidide.lsp.java.providers.DiagnosticsProvider.findDiagnostics
@@ -28,25 +30,37 @@ import com.itsaky.androidide.projects.ProjectManager
 import com.itsaky.androidide.utils.ILogger
 import java.nio.file.Path
 import java.time.Instant
-import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
 
 /**
  * Code analyzer for java source code.
  *
+ * The analysis is performed on a dedicated executor using the (warm) compiler instance provided by
+ * [JavaCompilerProvider]. Any analysis which is in progress when a new analyze request is received
+ * is cancelled.
+ *
  * @author Akash Yadav
  */
 class JavaDiagnosticProvider {
 
   private val log = ILogger.newInstance(javaClass.simpleName)
-  private val analyzeTimestamps = mutableMapOf<Path, Instant>()
-  private var cachedDiagnostics = DiagnosticResult.NO_UPDATE
-  private var analyzing = AtomicBoolean(false)
-  private var analyzingThread: AnalyzingThread? = null
+  private val analyzeTimestamps = ConcurrentHashMap<Path, Instant>()
+  private val executor: ExecutorService = Executors.newSingleThreadExecutor(AnalyzerThreadFactory)
+
+  @Volatile private var cachedDiagnostics = DiagnosticResult.NO_UPDATE
+  @Volatile private var analyzingThread: Thread? = null
+  private var analyzeFuture: Future<DiagnosticResult>? = null
 
   fun analyze(file: Path): DiagnosticResult {
 
     val module = ProjectManager.findModuleForFile(file) ?: return DiagnosticResult.NO_UPDATE
-    val compiler = JavaCompilerService(module)
+    val compiler = JavaCompilerProvider.get(module)
 
     abortIfCancelled()
 
@@ -60,29 +74,75 @@ class JavaDiagnosticProvider {
       return cachedDiagnostics
     }
 
-    if (analyzing.get() && analyzingThread != null) {
-      log.debug("Cancelling currently analyzing thread...")
-      ProgressManager.instance.cancel(analyzingThread!!)
-      analyzingThread = null
+    val future =
+      synchronized(this) {
+        cancel()
+        executor.submit<DiagnosticResult> { doAnalyze(compiler, file) }.also { analyzeFuture = it }
+      }
+
+    return try {
+      future.get()
+    } catch (err: CancellationException) {
+      log.debug("Analyze request cancelled before it was started")
+      DiagnosticResult.NO_UPDATE
+    } catch (err: ExecutionException) {
+      log.warn("Unable to analyze file", err.cause)
+      DiagnosticResult.NO_UPDATE
+    } finally {
+      synchronized(this) {
+        if (analyzeFuture === future) {
+          analyzeFuture = null
+        }
+      }
     }
+  }
 
-    analyzing.set(true)
+  /** Cancels the analysis which is currently in progress, if any. */
+  @Synchronized
+  fun cancel() {
+    val future = analyzeFuture ?: return
+    if (future.isDone) {
+      return
+    }
 
-    analyzingThread = AnalyzingThread(compiler, file)
-    analyzingThread!!.start()
-    analyzingThread!!.join()
+    log.debug("Cancelling current analyze request...")
 
-    val result = analyzingThread!!.result
+    // cancel the task if it has not been started yet
+    future.cancel(false)
 
-    analyzingThread = null
+    // request cancellation if the task is currently running
+    analyzingThread?.also { ProgressManager.instance.cancel(it) }
 
-    return result
+    analyzeFuture = null
   }
 
   fun clearTimestamp(file: Path) {
     analyzeTimestamps.remove(file)
   }
 
+  private fun doAnalyze(compiler: JavaCompilerService, file: Path): DiagnosticResult {
+    // The executor thread is reused, a cancellation request for the previous analysis may still be
+    // pending if it finished before checking for the cancellation
+    ProgressManager.instance.reset(Thread.currentThread())
+    analyzingThread = Thread.currentThread()
+    return try {
+        compiler.compile(CompilerPriority.DIAGNOSTICS, file).get { task -> doAnalyze(file, task) }
+      } catch (err: Throwable) {
+        if (CancelChecker.isCancelled(err)) {
+          log.error("Analyze request cancelled")
+        } else {
+          log.warn("Unable to analyze file", err)
+        }
+        DiagnosticResult.NO_UPDATE
+      } finally {
+        analyzingThread = null
+      }
+      .also {
+        cachedDiagnostics = it
+        analyzeTimestamps[file] = Instant.now()
+      }
+  }
+
   private fun doAnalyze(file: Path, task: CompileTask): DiagnosticResult {
     val result =
       if (!isTaskValid(task)) {
@@ -101,29 +161,9 @@ class JavaDiagnosticProvider {
     return task?.task != null && task.roots != null && task.roots.size > 0
   }
 
-  inner class AnalyzingThread(val compiler: JavaCompilerService, val file: Path) :
-    Thread("JavaAnalyzerThread") {
-    lateinit var result: DiagnosticResult
-
-    override fun run() {
-      result =
-        try {
-            compiler.compile(file).get { task -> doAnalyze(file, task) }
-          } catch (err: Throwable) {
-            if (CancelChecker.isCancelled(err)) {
-              log.error("Analyze request cancelled")
-            } else {
-              log.warn("Unable to analyze file", err)
-            }
-            DiagnosticResult.NO_UPDATE
-          } finally {
-            compiler.destroy()
-            analyzing.set(false)
-          }
-          .also {
-            cachedDiagnostics = it
-            analyzeTimestamps[file] = Instant.now()
-          }
+  private object AnalyzerThreadFactory : ThreadFactory {
+    override fun newThread(r: Runnable): Thread {
+      return Thread(r, "JavaAnalyzerThread").apply { isDaemon = true }
     }
   }
 }
@@ -19,6 +19,7 @@ package com.itsaky.androidide.lsp.java.providers;
 
 import androidx.annotation.NonNull;
 
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority;
 import com.itsaky.androidide.lsp.java.compiler.CompileTask;
 import com.itsaky.androidide.lsp.java.compiler.CompilerProvider;
 import com.itsaky.androidide.lsp.java.compiler.SynchronizedTask;
@@ -61,7 +62,7 @@ public class ReferenceProvider {
   }
 
   public List<Location> find() {
-    final SynchronizedTask synchronizedTask = compiler.compile(file);
+    final SynchronizedTask synchronizedTask = compiler.compile(CompilerPriority.REFERENCES, file);
     return synchronizedTask.get(
         task -> {
           Element element = NavigationHelper.findElement(task, file, line, column);
@@ -92,13 +93,13 @@ public class ReferenceProvider {
   private List<Location> findTypeReferences(String className) {
     Path[] files = compiler.findTypeReferences(className);
     if (files.length == 0) return Collections.emptyList();
-    return compiler.compile(files).get(this::findReferences);
+    return compiler.compile(CompilerPriority.REFERENCES, files).get(this::findReferences);
   }
 
   private List<Location> findMemberReferences(String className, String memberName) {
     Path[] files = compiler.findMemberReferences(className, memberName);
     if (files.length == 0) return Collections.emptyList();
-    return compiler.compile(files).get(this::findReferences);
+    return compiler.compile(CompilerPriority.REFERENCES, files).get(this::findReferences);
   }
 
   private List<Location> findReferences(CompileTask task) {
@@ -19,6 +19,7 @@ package com.itsaky.androidide.lsp.java.providers;
 
 import androidx.annotation.NonNull;
 
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority;
 import com.itsaky.androidide.lsp.java.compiler.CompileTask;
 import com.itsaky.androidide.lsp.java.compiler.CompilerProvider;
 import com.itsaky.androidide.lsp.java.compiler.SynchronizedTask;
@@ -93,7 +94,7 @@ public class SignatureProvider {
     final int column = c + 1;
 
     // TODO prune
-    SynchronizedTask synchronizedTask = compiler.compile(file);
+    SynchronizedTask synchronizedTask = compiler.compile(CompilerPriority.SIGNATURE_HELP, file);
     return synchronizedTask.get(
         task -> {
           long cursor = task.root().getLineMap().getPosition(line, column);
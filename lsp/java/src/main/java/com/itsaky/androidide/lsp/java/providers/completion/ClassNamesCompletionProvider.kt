@@ -21,9 +21,17 @@ import com.itsaky.androidide.lsp.api.IServerSettings
 import com.itsaky.androidide.lsp.java.compiler.CompileTask
 import com.itsaky.androidide.lsp.java.compiler.JavaCompilerService
 import com.itsaky.androidide.lsp.java.providers.CompletionProvider
+import com.itsaky.androidide.lsp.models.CompletionRanker
 import com.itsaky.androidide.lsp.models.CompletionResult
+import com.itsaky.androidide.lsp.models.MatchLevel
+import com.itsaky.androidide.lsp.models.MatchLevel.CASE_INSENSITIVE_EQUAL
+import com.itsaky.androidide.lsp.models.MatchLevel.CASE_INSENSITIVE_PREFIX
+import com.itsaky.androidide.lsp.models.MatchLevel.CASE_SENSITIVE_EQUAL
+import com.itsaky.androidide.lsp.models.MatchLevel.CASE_SENSITIVE_PREFIX
 import com.itsaky.androidide.lsp.models.MatchLevel.NO_MATCH
+import com.itsaky.androidide.lsp.models.MatchLevel.PARTIAL_MATCH
 import com.itsaky.androidide.progress.ProgressManager.Companion.abortIfCancelled
+import com.itsaky.androidide.utils.ClassNameIndex.MatchKind
 import openjdk.source.tree.ClassTree
 import openjdk.source.tree.CompilationUnitTree
 import openjdk.source.util.TreePath
@@ -73,19 +81,41 @@ class ClassNamesCompletionProvider(
     abortIfCancelled()
     abortCompletionIfCancelled()
 
-    val topLevelTypes = compiler.publicTopLevelTypes()
-    for (className in topLevelTypes) {
-      val matchLevel = matchLevel(simpleName(className), partial)
-      if (matchLevel == NO_MATCH) {
-        continue
+    val module = compiler.module
+    if (module != null) {
+      // Use the prebuilt class name index instead of matching against every class
+      for (match in module.findClassNames(partial, CompletionProvider.MAX_COMPLETION_ITEMS)) {
+        val className = match.qualifiedName
+        if (uniques.contains(className)) {
+          continue
+        }
+
+        list.add(classItem(imports, file, className, matchLevel(match.kind)))
+        uniques.add(className)
       }
-
-      if (uniques.contains(className)) {
-        continue
+    } else {
+      // Rank all the class names, but create completion items only for the best ones
+      val ranker = CompletionRanker<String>(partial, CompletionProvider.MAX_COMPLETION_ITEMS)
+      for (className in compiler.publicTopLevelTypes()) {
+        // The types are ordered by their qualified names, a better match may still follow unless
+        // all the kept ones are exact matches
+        if (ranker.isSaturated) {
+          break
+        }
+
+        if (!uniques.contains(className)) {
+          ranker.offer(simpleName(className).toString(), className)
+        }
       }
 
-      list.add(classItem(imports, file, className, matchLevel))
-      uniques.add(className)
+      abortIfCancelled()
+      abortCompletionIfCancelled()
+      val ranked =
+        ranker.toResult { className, matchLevel ->
+          uniques.add(className)
+          classItem(imports, file, className, matchLevel)
+        }
+      list.addAll(ranked.items)
     }
     abortIfCancelled()
     abortCompletionIfCancelled()
@@ -112,4 +142,14 @@ class ClassNamesCompletionProvider(
 
     return CompletionResult(list)
   }
+
+  private fun matchLevel(kind: MatchKind): MatchLevel {
+    return when (kind) {
+      MatchKind.EXACT -> CASE_SENSITIVE_EQUAL
+      MatchKind.EXACT_IGNORE_CASE -> CASE_INSENSITIVE_EQUAL
+      MatchKind.PREFIX -> CASE_SENSITIVE_PREFIX
+      MatchKind.PREFIX_IGNORE_CASE -> CASE_INSENSITIVE_PREFIX
+      MatchKind.CAMEL_CASE -> PARTIAL_MATCH
+    }
+  }
 }
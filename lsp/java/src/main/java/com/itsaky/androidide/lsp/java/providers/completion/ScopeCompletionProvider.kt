@@ -31,6 +31,7 @@ import com.itsaky.androidide.lsp.java.utils.JavaPoetUtils.Companion.buildMethod
 import com.itsaky.androidide.lsp.java.utils.JavaPoetUtils.Companion.print
 import com.itsaky.androidide.lsp.java.utils.ScopeHelper
 import com.itsaky.androidide.lsp.models.CompletionItem
+import com.itsaky.androidide.lsp.models.CompletionRanker
 import com.itsaky.androidide.lsp.models.CompletionResult
 import com.itsaky.androidide.lsp.models.InsertTextFormat.SNIPPET
 import com.itsaky.androidide.lsp.models.MatchLevel
@@ -46,6 +47,7 @@ import openjdk.source.util.Trees
 import java.nio.file.Path
 import java.util.*
 import java.util.function.*
+import jdkx.lang.model.element.Element
 import jdkx.lang.model.element.ElementKind.METHOD
 import jdkx.lang.model.element.ExecutableElement
 import jdkx.lang.model.element.Modifier.FINAL
@@ -74,8 +76,8 @@ class ScopeCompletionProvider(
     endsWithParen: Boolean,
   ): CompletionResult {
     val trees = Trees.instance(task.task)
-    val list: MutableList<CompletionItem> = ArrayList()
     val scope = trees.getScope(path)
+    val ranker = CompletionRanker<Element>(partial)
     val filter =
       Predicate<CharSequence?> {
         if (it == null || it.isEmpty()) {
@@ -87,7 +89,9 @@ class ScopeCompletionProvider(
           name = it.substring(0, it.lastIndexOf('('))
         }
 
-        return@Predicate matchLevel(name, partial) != NO_MATCH
+        abortIfCancelled()
+        abortCompletionIfCancelled()
+        return@Predicate ranker.matchLevel(name) != NO_MATCH
       }
 
     abortIfCancelled()
@@ -98,20 +102,26 @@ class ScopeCompletionProvider(
         name = name.substring(0, name.lastIndexOf('('))
       }
 
-      val matchLevel = matchLevel(name, partial)
+      // Only the best ranked members are converted to completion items
+      ranker.offer(name, member)
+    }
 
-      if (member.kind == METHOD) {
-        val method = member as ExecutableElement
-        val parentPath = path.parentPath /*method*/.parentPath /*class*/
-        list.add(overrideIfPossible(task, parentPath, method, endsWithParen, matchLevel, partial))
-      } else {
-        list.add(item(task, member, matchLevel))
+    abortIfCancelled()
+    abortCompletionIfCancelled()
+    val parentPath = path.parentPath /*method*/.parentPath /*class*/
+    val result =
+      ranker.toResult { member, matchLevel ->
+        if (member.kind == METHOD) {
+          val method = member as ExecutableElement
+          overrideIfPossible(task, parentPath, method, endsWithParen, matchLevel, partial)
+        } else {
+          item(task, member, matchLevel)
+        }
       }
-    }
 
-    log.info("...found " + list.size + " scope members")
+    log.info("...found " + ranker.matchCount + " scope members")
 
-    return CompletionResult(list)
+    return result
   }
 
   /**
@@ -163,7 +173,7 @@ class ScopeCompletionProvider(
     // Print the method details and the annotations
     // Print the method details and the annotations
     val indent =
-      EditHelper.indent(FileManager.getDocumentContents(file), cursor.toInt())
+      EditHelper.indent(FileManager.getDocumentText(file), cursor.toInt())
     val builder: Builder
     try {
       builder = buildMethod(method, types, type)
@@ -22,7 +22,10 @@ import androidx.annotation.NonNull;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Ordering;
+import com.itsaky.androidide.lsp.java.compiler.SourceFileManager;
 import openjdk.source.tree.LineMap;
+import openjdk.tools.javac.api.JavacTaskImpl;
+import openjdk.tools.javac.api.JavacTool;
 import openjdk.tools.javac.parser.Scanner;
 import openjdk.tools.javac.parser.ScannerFactory;
 import openjdk.tools.javac.parser.Tokens;
@@ -32,6 +35,7 @@ import openjdk.tools.javac.util.Context;
 import org.jetbrains.annotations.Contract;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -55,10 +59,37 @@ public class ASTFixer {
 
   private final Context context;
 
+  /**
+   * Creates a fixer which scans the source with a context of its own. The javac components are not
+   * thread-safe, so the contexts of the compilers (which may be in use by another thread) must not
+   * be used here. The context is released along with the fixer.
+   */
+  public ASTFixer() {
+    this(createScannerContext());
+  }
+
+  /**
+   * Creates a fixer which scans the source with the given context. The context must not be used by
+   * another thread while {@link #fix(CharSequence)} is running.
+   */
   public ASTFixer(Context context) {
     this.context = context;
   }
 
+  private static Context createScannerContext() {
+    final JavacTaskImpl task =
+        (JavacTaskImpl)
+            JavacTool.create()
+                .getTask(
+                    null,
+                    SourceFileManager.NO_MODULE,
+                    diagnostic -> {},
+                    Collections.emptyList(),
+                    Collections.emptyList(),
+                    Collections.emptyList());
+    return task.getContext();
+  }
+
   public CharSequence fix(CharSequence content) {
     Scanner scanner = ScannerFactory.instance(context).newScanner(content, true);
     List<Edit> edits = new ArrayList<>();
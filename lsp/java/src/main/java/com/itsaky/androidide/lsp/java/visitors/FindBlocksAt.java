@@ -0,0 +1,78 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.lsp.java.visitors;
+
+import openjdk.source.tree.BlockTree;
+import openjdk.source.tree.CompilationUnitTree;
+import openjdk.source.tree.LambdaExpressionTree;
+import openjdk.source.tree.Tree;
+import openjdk.source.util.JavacTask;
+import openjdk.source.util.SourcePositions;
+import openjdk.source.util.TreeScanner;
+import openjdk.source.util.Trees;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the blocks and lambda expressions enclosing a position, from the outermost to the
+ * innermost.
+ */
+public class FindBlocksAt extends TreeScanner<Void, Long> {
+
+  private final SourcePositions pos;
+  private final List<Tree> blocks = new ArrayList<>();
+  private CompilationUnitTree root;
+
+  public FindBlocksAt(JavacTask task) {
+    pos = Trees.instance(task).getSourcePositions();
+  }
+
+  /** Returns the enclosing blocks and lambda expressions, from the outermost to the innermost. */
+  public List<Tree> getBlocks() {
+    return blocks;
+  }
+
+  @Override
+  public Void visitCompilationUnit(CompilationUnitTree t, Long find) {
+    root = t;
+    return super.visitCompilationUnit(t, find);
+  }
+
+  @Override
+  public Void visitBlock(BlockTree t, Long find) {
+    if (!contains(t, find)) {
+      return null;
+    }
+    blocks.add(t);
+    return super.visitBlock(t, find);
+  }
+
+  @Override
+  public Void visitLambdaExpression(LambdaExpressionTree t, Long find) {
+    if (!contains(t, find)) {
+      return null;
+    }
+    blocks.add(t);
+    return super.visitLambdaExpression(t, find);
+  }
+
+  private boolean contains(Tree t, long find) {
+    return pos.getStartPosition(root, t) <= find && find < pos.getEndPosition(root, t);
+  }
+}
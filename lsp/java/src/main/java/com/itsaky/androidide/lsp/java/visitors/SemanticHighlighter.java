@@ -213,7 +213,7 @@ public class SemanticHighlighter extends TreePathScanner<Void, List<HighlightTok
     }
     // Find name inside expression
     Path file = Paths.get(root.getSourceFile().toUri());
-    CharSequence contents = FileManager.INSTANCE.getDocumentContents(file);
+    CharSequence contents = FileManager.INSTANCE.getDocumentText(file);
     String region = substring(contents, start, end);
     start += region.indexOf(name.toString());
     end = start + name.length();
@@ -64,4 +64,16 @@ class JavaCompilerProviderTest {
 
     assertThat(JavaCompilerProvider.get(appModule)).isNotEqualTo(appCompiler)
   }
+
+  @Test
+  fun `test compiler pool size is bounded by memory`() {
+    val mb = 1024L * 1024L
+    assertThat(JavaCompilerProvider.computeMaxCompilers(32 * mb, 1)).isEqualTo(2)
+    assertThat(JavaCompilerProvider.computeMaxCompilers(256 * mb, 1)).isEqualTo(5)
+    assertThat(JavaCompilerProvider.computeMaxCompilers(4096 * mb, 1)).isEqualTo(8)
+
+    // each compiler may hold a context for the background lane as well
+    assertThat(JavaCompilerProvider.computeMaxCompilers(512 * mb, 2)).isEqualTo(5)
+    assertThat(JavaCompilerProvider.computeMaxCompilers(8192 * mb, 2)).isEqualTo(8)
+  }
 }
@@ -20,6 +20,8 @@ package com.itsaky.androidide.lsp.java.compiler
 import com.google.common.truth.Truth.assertThat
 import com.itsaky.androidide.lsp.java.JavaLSPTest
 import java.time.Instant
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicBoolean
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -76,6 +78,31 @@ class CompilerTest {
     }
   }
 
+  @Test
+  fun testDestroyWaitsForRunningTask() {
+    JavaLSPTest.apply {
+      openFile("completion/MembersCompletionTest")
+
+      val compiler = getCompiler().copy()
+      val started = CountDownLatch(1)
+      val finished = AtomicBoolean(false)
+      val user = Thread {
+        compiler.compile(file!!).run {
+          started.countDown()
+          delay(500)
+          finished.set(it.roots.isNotEmpty())
+        }
+      }
+      user.start()
+      started.await()
+
+      // an evicted compiler may still be in use, it must not be destroyed under the user's feet
+      compiler.destroy()
+      assertThat(finished.get()).isTrue()
+      user.join()
+    }
+  }
+
   private fun delay(millis: Long) {
     Thread.sleep(millis)
   }
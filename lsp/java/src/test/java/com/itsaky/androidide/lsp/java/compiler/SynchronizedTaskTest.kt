@@ -0,0 +1,87 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.lsp.java.compiler
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.COMPLETION
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.DIAGNOSTICS
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.NORMAL
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.REFERENCES
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import kotlin.concurrent.thread
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.DEFAULT_VALUE_STRING)
+class SynchronizedTaskTest {
+
+  @Test
+  fun `test view with the same priority is the task itself`() {
+    val task = SynchronizedTask()
+    assertThat(task.priority).isEqualTo(NORMAL)
+    assertThat(task.withPriority(NORMAL)).isSameInstanceAs(task)
+
+    val view = task.withPriority(COMPLETION)
+    assertThat(view).isNotSameInstanceAs(task)
+    assertThat(view.priority).isEqualTo(COMPLETION)
+  }
+
+  @Test(timeout = 10_000)
+  fun `test views share the task and are served in priority order`() {
+    val task = SynchronizedTask()
+    val holding = CountDownLatch(1)
+    val release = CountDownLatch(1)
+    val holder = thread {
+      task.run {
+        holding.countDown()
+        release.await()
+      }
+    }
+    holding.await()
+    assertThat(task.isCompiling).isFalse()
+
+    val order = Collections.synchronizedList(mutableListOf<CompilerPriority>())
+    val waiters =
+      listOf(REFERENCES, DIAGNOSTICS, NORMAL, COMPLETION).map { priority ->
+        thread { task.withPriority(priority).run { order.add(priority) } }.also { awaitWaiting(it) }
+      }
+
+    // the waiters of all the views are queued on the same task
+    assertThat(task.isCompiling).isTrue()
+
+    release.countDown()
+    holder.join()
+    waiters.forEach { it.join() }
+
+    assertThat(order).containsExactly(COMPLETION, NORMAL, DIAGNOSTICS, REFERENCES).inOrder()
+    assertThat(task.isCompiling).isFalse()
+  }
+
+  private fun awaitWaiting(thread: Thread) {
+    while (thread.state != Thread.State.WAITING) {
+      Thread.yield()
+    }
+  }
+}
@@ -24,18 +24,21 @@ import com.itsaky.androidide.lsp.java.JavaLSPTest
 import com.itsaky.androidide.lsp.java.compiler.SourceFileObject
 import com.itsaky.androidide.lsp.java.models.CompilationRequest
 import com.itsaky.androidide.lsp.java.models.PartialReparseRequest
+import com.itsaky.androidide.lsp.java.models.ReparseFallbackReason.MULTIPLE_MEMBERS
+import com.itsaky.androidide.lsp.java.models.ReparseFallbackReason.NOT_IN_METHOD
+import com.itsaky.androidide.lsp.java.models.ReparseFallbackReason.SIGNATURE_CHANGED
 import com.itsaky.androidide.lsp.java.visitors.PrintingVisitor
 import com.itsaky.androidide.models.Range
 import openjdk.source.tree.ExpressionStatementTree
 import openjdk.source.tree.LiteralTree
 import openjdk.source.tree.Tree
+import openjdk.tools.javac.tree.JCTree.JCClassDecl
 import openjdk.tools.javac.tree.JCTree.JCCompilationUnit
 import openjdk.tools.javac.tree.JCTree.JCMethodDecl
 import openjdk.tools.javac.tree.JCTree.JCMethodInvocation
 import openjdk.tools.javac.tree.JCTree.JCVariableDecl
 import openjdk.tools.javac.tree.TreeScanner
 import org.junit.Before
-import org.junit.Ignore
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
@@ -45,7 +48,6 @@ import jdkx.lang.model.type.ArrayType
 /** @author Akash Yadav */
 @RunWith(RobolectricTestRunner::class)
 @Config(manifest = Config.DEFAULT_VALUE_STRING)
-@Ignore("Partial reparser is currently unused")
 class PartialReparserImplTest {
 
   @Before
@@ -67,6 +69,7 @@ class PartialReparserImplTest {
   fun testSimpleErrorneousStatement() {
     JavaLSPTest.apply {
       openFile("partial/PartialErrReparserTest")
+      getCompiler().reparseStats.reset()
       getCompiler()
         .compile(
           CompilationRequest(
@@ -92,6 +95,60 @@ class PartialReparserImplTest {
             PartialReparseRequest(179, contents.toString())
           )
         )
+
+      // the change is inside the method body, so it must be served by reparsing the method
+      val stats = getCompiler().reparseStats
+      assertThat(stats.reparseCount).isGreaterThan(0)
+      assertThat(stats.fallbackCount(NOT_IN_METHOD)).isEqualTo(0)
+      assertThat(stats.fallbackCount(SIGNATURE_CHANGED)).isEqualTo(0)
+      assertThat(stats.fallbackCount(MULTIPLE_MEMBERS)).isEqualTo(0)
+    }
+  }
+
+  @Test
+  fun testSignatureChangeFallsBackToCompilation() {
+    JavaLSPTest.apply {
+      openFile("partial/PartialErrReparserTest")
+      getCompiler()
+        .compile(
+          CompilationRequest(
+            listOf(SourceFileObject(file)),
+            PartialReparseRequest(0, contents.toString())
+          )
+        )
+      getCompiler().reparseStats.reset()
+
+      val index = contents!!.indexOf("String[] args")
+      dispatchEvent(
+        DocumentChangeEvent(
+          file!!,
+          contents!!.insert(index, "final ").toString(),
+          2,
+          INSERT,
+          "final ".length,
+          Range.NONE
+        )
+      )
+      getCompiler()
+        .compile(
+          CompilationRequest(
+            listOf(SourceFileObject(file)),
+            PartialReparseRequest(index.toLong(), contents.toString())
+          )
+        )
+        .run { task ->
+          val method =
+            (task.root() as JCCompilationUnit).typeDecls
+              .flatMap { (it as JCClassDecl).defs }
+              .filterIsInstance<JCMethodDecl>()
+              .first { it.name.contentEquals("main") }
+          assertThat(method.params[0].modifiers.toString()).contains("final")
+        }
+
+      // the parameters of the method are not a part of its body
+      val stats = getCompiler().reparseStats
+      assertThat(stats.reparseCount).isEqualTo(0)
+      assertThat(stats.fallbackCount(SIGNATURE_CHANGED)).isEqualTo(1)
     }
   }
 
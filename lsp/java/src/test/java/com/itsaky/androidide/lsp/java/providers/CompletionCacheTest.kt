@@ -0,0 +1,168 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.lsp.java.providers
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.lsp.internal.model.CompletionCache
+import com.itsaky.androidide.lsp.java.compiler.SourceFileObject
+import com.itsaky.androidide.lsp.java.parser.ParseTask
+import com.itsaky.androidide.lsp.java.parser.Parser
+import com.itsaky.androidide.lsp.models.CompletionParams
+import com.itsaky.androidide.lsp.models.CompletionResult
+import com.itsaky.androidide.models.Position
+import com.itsaky.androidide.models.Range
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.time.Instant
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.DEFAULT_VALUE_STRING)
+class CompletionCacheTest {
+
+  private val file = Paths.get("/project/src/Main.java")
+  private val other = Paths.get("/project/src/Other.java")
+
+  @Test
+  fun `test receiver completions are keyed by scope and receiver`() {
+    val cache = CompletionCache()
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()/{40", CompletionResult(listOf()), 0)
+
+    assertThat(cache.findForReceiver(params(file, 8, 15, "foo.bar"), "Main#run()/{40")).isNotNull()
+    assertThat(cache.findForReceiver(params(file, 8, 15, "foo.bar"), "Main#run()/{40/->60"))
+      .isNull()
+    assertThat(cache.findForReceiver(params(file, 8, 15, "bar.bar"), "Main#run()/{40")).isNull()
+    assertThat(cache.findForReceiver(params(other, 8, 15, "foo.bar"), "Main#run()/{40")).isNull()
+
+    // the cached result does not contain the items for a shorter identifier
+    assertThat(cache.findForReceiver(params(file, 8, 13, "foo.b"), "Main#run()/{40")).isNull()
+  }
+
+  @Test
+  fun `test completion is refined while typing`() {
+    val cache = CompletionCache()
+    cache.put(params(file, 4, 10, "ba"), "Main#run()", CompletionResult(listOf()), 0)
+
+    assertThat(cache.findRefinable(params(file, 4, 11, "bar"))).isNotNull()
+    assertThat(cache.findRefinable(params(file, 5, 11, "bar"))).isNull()
+    assertThat(cache.findRefinable(params(other, 4, 11, "bar"))).isNull()
+  }
+
+  @Test
+  fun `test editing the completed expression keeps the completion`() {
+    val cache = CompletionCache()
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), 0)
+
+    cache.invalidate(file, range(4, 14, 4, 14), "r")
+
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNotNull()
+  }
+
+  @Test
+  fun `test other edits in the file remove the completion`() {
+    val cache = CompletionCache()
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), 0)
+    cache.invalidate(file, range(2, 4, 2, 4), "i")
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNull()
+
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), 1)
+    cache.invalidate(file, range(4, 4, 4, 4), "i")
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNull()
+
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), 2)
+    cache.invalidate(file, range(4, 14, 5, 0), "\n")
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNull()
+  }
+
+  @Test
+  fun `test changes in other files remove the completion`() {
+    val cache = CompletionCache()
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), 0)
+    cache.invalidate(other, range(4, 14, 4, 14), "r")
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNull()
+
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), 1)
+    cache.invalidateOthers(other)
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNull()
+
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), 2)
+    cache.invalidateOthers(file)
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNotNull()
+
+    cache.clear()
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNull()
+  }
+
+  @Test
+  fun `test results computed before an invalidation are not cached`() {
+    val cache = CompletionCache()
+    val generation = cache.generation
+
+    cache.invalidate(file, range(4, 14, 4, 14), "r")
+    cache.put(params(file, 4, 14, "foo.ba"), "Main#run()", CompletionResult(listOf()), generation)
+
+    assertThat(cache.findRefinable(params(file, 4, 15, "foo.bar"))).isNull()
+  }
+
+  @Test
+  fun `test scope key includes the enclosing blocks and lambdas`() {
+    val source =
+      """
+      class Main {
+        void run() {
+          consume(a -> {
+            a.toString();
+          });
+          consume(b -> {
+            b.toString();
+          });
+          {
+            int c = 0;
+          }
+          int d = 0;
+        }
+      }
+      """
+        .trimIndent()
+    val task = parse(source)
+    fun scope(text: String) = CompletionProvider.scopeAt(task, source.indexOf(text).toLong())
+
+    assertThat(scope("a.toString")).startsWith("Main#run()/{")
+    assertThat(scope("a.toString")).isEqualTo(scope("toString();\n    });\n    consume(b"))
+    assertThat(scope("a.toString")).isNotEqualTo(scope("b.toString"))
+    assertThat(scope("c = 0")).isNotEqualTo(scope("d = 0"))
+    assertThat(scope("d = 0")).isEqualTo(scope("consume(a"))
+  }
+
+  private fun parse(source: String): ParseTask {
+    val parser =
+      Parser.parseJavaFileObject(SourceFileObject(file, source, Instant.now()))
+    return ParseTask(parser.task, parser.root)
+  }
+
+  private fun params(file: Path, line: Int, column: Int, prefix: String) =
+    CompletionParams(Position(line, column), file).apply { this.prefix = prefix }
+
+  private fun range(startLine: Int, startColumn: Int, endLine: Int, endColumn: Int) =
+    Range(Position(startLine, startColumn), Position(endLine, endColumn))
+}
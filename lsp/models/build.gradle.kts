@@ -16,4 +16,8 @@ dependencies {
     implementation(libs.androidx.ktx)
     implementation(libs.common.kotlin)
     implementation(libs.common.utilcode)
+
+    testImplementation(libs.tests.junit)
+    testImplementation(libs.tests.google.truth)
+    testImplementation(libs.tests.robolectric)
 }
\ No newline at end of file
@@ -23,10 +23,13 @@ import java.util.Comparator;
  * @author Akash Yadav
  */
 class CompletionItemComparator {
+
+  private static final Comparator<CompletionItem> COMPARATOR =
+      Comparator.<CompletionItem>comparingInt(item -> item.getMatchLevel().ordinal())
+          .thenComparing(CompletionItem::getIdeSortText)
+          .thenComparing(item -> item.label);
+
   static int compare(CompletionItem one, CompletionItem two) {
-    return Comparator.comparing(item -> ((CompletionItem) item).getMatchLevel().ordinal())
-        .thenComparing(item -> ((CompletionItem) item).getIdeSortText())
-        .thenComparing(item -> ((CompletionItem) item).label)
-        .compare(one, two);
+    return COMPARATOR.compare(one, two);
   }
 }
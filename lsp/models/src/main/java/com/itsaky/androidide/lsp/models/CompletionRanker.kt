@@ -0,0 +1,203 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.lsp.models
+
+import com.itsaky.androidide.lsp.models.MatchLevel.CASE_SENSITIVE_EQUAL
+import com.itsaky.androidide.lsp.models.MatchLevel.NO_MATCH
+import com.itsaky.androidide.lsp.models.MatchLevel.PARTIAL_MATCH
+import java.util.function.BiFunction
+
+/**
+ * Ranks completion candidates before the [CompletionItem] for them are created. Only the best
+ * [limit] candidates are kept in a bounded heap, ordered the same way as [CompletionItem]s are (by
+ * match level, then by the sort text). The completion items are created only for the candidates
+ * which are kept. If [CompletionResult.TRIM_TO_MAX] is disabled, all the matching candidates are
+ * kept.
+ *
+ * Providers which have many candidates can check [isSaturated] to stop early.
+ *
+ * @param partial The partial identifier to match the candidates against.
+ * @param limit The maximum number of candidates to keep.
+ * @author Akash Yadav
+ */
+class CompletionRanker<T>
+@JvmOverloads
+constructor(private val partial: String, private val limit: Int = CompletionResult.MAX_ITEMS) {
+
+  private val trim = CompletionResult.TRIM_TO_MAX
+
+  // The heap is stored in these arrays, the worst candidate is at index 0
+  private var levels = IntArray(if (trim) limit else 0)
+  private var sortTexts = arrayOfNulls<String>(levels.size)
+  private var candidates = arrayOfNulls<Any>(levels.size)
+  private var size = 0
+
+  private val isFull: Boolean
+    get() = trim && size == limit
+
+  /** The number of candidates that have been offered to this ranker and matched. */
+  var matchCount = 0
+    private set
+
+  /**
+   * Whether this ranker is full with candidates which are equal to the partial identifier. When the
+   * names of the candidates are used as their sort texts (see [offer]), no candidate offered after
+   * this can replace the kept ones, so providers may stop looking for more candidates.
+   */
+  val isSaturated: Boolean
+    get() = isFull && levels[0] == CASE_SENSITIVE_EQUAL.ordinal
+
+  /**
+   * Computes the match level for the given candidate name. The fuzzy match ratio is computed only
+   * if a partial match could still be kept by this ranker.
+   */
+  fun matchLevel(name: CharSequence): MatchLevel {
+    val level = CompletionItem.prefixMatchLevel(name, partial)
+    if (level != NO_MATCH || (isFull && levels[0] < PARTIAL_MATCH.ordinal)) {
+      return level
+    }
+
+    return CompletionItem.fuzzyMatchLevel(name, partial)
+  }
+
+  /**
+   * Matches the given name against the partial identifier and offers the candidate if it matches.
+   *
+   * @param name The name to match. This is also used as the sort text.
+   * @param candidate The candidate.
+   * @return The match level of the name.
+   */
+  fun offer(name: String, candidate: T): MatchLevel {
+    val level = matchLevel(name)
+    if (level != NO_MATCH) {
+      offer(name, level, candidate)
+    }
+    return level
+  }
+
+  /**
+   * Offer a candidate to this ranker.
+   *
+   * @param sortText The text used to sort the candidates with the same match level.
+   * @param matchLevel The match level of the candidate.
+   * @param candidate The candidate.
+   * @return Whether the candidate was kept.
+   */
+  fun offer(sortText: String, matchLevel: MatchLevel, candidate: T): Boolean {
+    if (matchLevel == NO_MATCH || (trim && limit == 0)) {
+      return false
+    }
+
+    ++matchCount
+    val level = matchLevel.ordinal
+    if (!isFull) {
+      if (size == levels.size) {
+        grow()
+      }
+      levels[size] = level
+      sortTexts[size] = sortText
+      candidates[size] = candidate
+      siftUp(size++)
+      return true
+    }
+
+    if (!isBetter(level, sortText, 0)) {
+      return false
+    }
+
+    levels[0] = level
+    sortTexts[0] = sortText
+    candidates[0] = candidate
+    siftDown(0)
+    return true
+  }
+
+  /**
+   * Creates the completion items for the kept candidates.
+   *
+   * @param factory Creates the completion item for a candidate. May return `null` to skip the
+   * candidate.
+   */
+  fun toResult(factory: BiFunction<T, MatchLevel, CompletionItem?>): CompletionResult {
+    val matchLevels = MatchLevel.values()
+    val items = ArrayList<CompletionItem>(size)
+    for (i in 0 until size) {
+      @Suppress("UNCHECKED_CAST")
+      factory.apply(candidates[i] as T, matchLevels[levels[i]])?.let { items.add(it) }
+    }
+    items.sort()
+    return CompletionResult(items, matchCount > size)
+  }
+
+  private fun grow() {
+    val capacity = maxOf(16, size * 2)
+    levels = levels.copyOf(capacity)
+    sortTexts = sortTexts.copyOf(capacity)
+    candidates = candidates.copyOf(capacity)
+  }
+
+  private fun isBetter(level: Int, sortText: String, index: Int): Boolean {
+    return level < levels[index] || (level == levels[index] && sortText < sortTexts[index]!!)
+  }
+
+  private fun siftUp(index: Int) {
+    var child = index
+    while (child > 0) {
+      val parent = (child - 1) ushr 1
+      if (!isBetter(levels[parent], sortTexts[parent]!!, child)) {
+        break
+      }
+      swap(parent, child)
+      child = parent
+    }
+  }
+
+  private fun siftDown(index: Int) {
+    var parent = index
+    while (true) {
+      var worst = parent
+      val left = 2 * parent + 1
+      val right = left + 1
+      if (left < size && isBetter(levels[worst], sortTexts[worst]!!, left)) {
+        worst = left
+      }
+      if (right < size && isBetter(levels[worst], sortTexts[worst]!!, right)) {
+        worst = right
+      }
+      if (worst == parent) {
+        break
+      }
+      swap(parent, worst)
+      parent = worst
+    }
+  }
+
+  private fun swap(i: Int, j: Int) {
+    val level = levels[i]
+    levels[i] = levels[j]
+    levels[j] = level
+
+    val sortText = sortTexts[i]
+    sortTexts[i] = sortTexts[j]
+    sortTexts[j] = sortText
+
+    val candidate = candidates[i]
+    candidates[i] = candidates[j]
+    candidates[j] = candidate
+  }
+}
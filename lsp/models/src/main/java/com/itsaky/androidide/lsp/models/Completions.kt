@@ -34,6 +34,8 @@ import io.github.rosemoe.sora.text.CharPosition
 import io.github.rosemoe.sora.text.Content
 import io.github.rosemoe.sora.widget.CodeEditor
 import java.nio.file.Path
+import java.util.Collections
+import java.util.PriorityQueue
 import java.util.function.Consumer
 
 const val DEFAULT_MIN_MATCH_RATIO = 59
@@ -58,19 +60,19 @@ data class CompletionParams(var position: Position, var file: Path) {
   }
 }
 
-open class CompletionResult(items: Collection<CompletionItem>) {
-  val items: List<CompletionItem> = run {
-    var temp = items.toMutableList()
-    temp.sort()
-    if (TRIM_TO_MAX && temp.size > MAX_ITEMS) {
-      temp = temp.subList(0, MAX_ITEMS)
-    }
-    return@run temp
-  }
+open class CompletionResult
+internal constructor(items: MutableList<CompletionItem>, isIncomplete: Boolean) {
+
+  /** The completion items, sorted. */
+  val items: List<CompletionItem> = items
 
-  var isIncomplete = this.items.size < items.size
+  var isIncomplete = isIncomplete
   var isCached = false
 
+  constructor(
+    items: Collection<CompletionItem>
+  ) : this(selectTop(items), TRIM_TO_MAX && items.size > MAX_ITEMS)
+
   companion object {
     const val MAX_ITEMS = 50
     @JvmField val EMPTY = CompletionResult(listOf())
@@ -84,10 +86,42 @@ open class CompletionResult(items: Collection<CompletionItem>) {
       partial: String,
       map: Consumer<CompletionItem> = Consumer {}
     ): CompletionResult {
-      val newItems = src.items.toMutableList()
-      newItems.forEach(map)
-      newItems.removeIf { !it.label.startsWith(partial) }
-      return CompletionResult(newItems)
+      // The source items are already sorted and trimmed, so filtering them keeps them sorted
+      val newItems = ArrayList<CompletionItem>()
+      for (item in src.items) {
+        if (item.label.startsWith(partial)) {
+          map.accept(item)
+          newItems.add(item)
+        }
+      }
+      return CompletionResult(newItems, false)
+    }
+
+    /**
+     * Selects the best [MAX_ITEMS] items and sorts them. A bounded heap is used so that large
+     * collections are not sorted completely.
+     */
+    private fun selectTop(items: Collection<CompletionItem>): MutableList<CompletionItem> {
+      if (!TRIM_TO_MAX || items.size <= MAX_ITEMS) {
+        val result = ArrayList(items)
+        result.sort()
+        return result
+      }
+
+      // The worst item is at the head of the queue
+      val heap = PriorityQueue<CompletionItem>(MAX_ITEMS + 1, Collections.reverseOrder())
+      for (item in items) {
+        if (heap.size < MAX_ITEMS) {
+          heap.add(item)
+        } else if (item < heap.peek()!!) {
+          heap.poll()
+          heap.add(item)
+        }
+      }
+
+      val result = ArrayList(heap)
+      result.sort()
+      return result
     }
   }
 
@@ -175,31 +209,59 @@ open class CompletionItem(
       partial: String,
       minMatchRatio: Int = DEFAULT_MIN_MATCH_RATIO
     ): MatchLevel {
-      if (candidate.startsWith(partial)) {
-        return if (candidate.length == partial.length) {
-          CASE_SENSITIVE_EQUAL
-        } else {
-          CASE_SENSITIVE_PREFIX
-        }
+      val level = prefixMatchLevel(candidate, partial)
+      if (level != NO_MATCH) {
+        return level
       }
 
-      val lowerCandidate = candidate.lowercase()
-      val lowerPartial = partial.lowercase()
-      if (lowerCandidate.startsWith(lowerPartial)) {
-        return if (lowerCandidate.length == lowerPartial.length) {
-          CASE_INSENSITIVE_EQUAL
-        } else {
-          CASE_INSENSITIVE_PREFIX
-        }
+      return fuzzyMatchLevel(candidate, partial, minMatchRatio)
+    }
+
+    /**
+     * Same as [matchLevel], but without the prefix matching. Returns [PARTIAL_MATCH] if the fuzzy
+     * match ratio is greater than [minMatchRatio] or if the partial identifier matches the
+     * CamelCase or snake_case humps of the candidate (e.g. `gsfm` for `getSupportFragmentManager`).
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun fuzzyMatchLevel(
+      candidate: CharSequence,
+      partial: CharSequence,
+      minMatchRatio: Int = DEFAULT_MIN_MATCH_RATIO
+    ): MatchLevel {
+      if (FuzzySearch.ratio(candidate, partial) > minMatchRatio) {
+        return PARTIAL_MATCH
       }
 
-      val ratio = FuzzySearch.ratio(candidate, partial)
-      if (ratio > minMatchRatio) {
+      // a single character would match the first hump of too many candidates
+      if (partial.length > 1 && FuzzySearch.humpMatches(candidate, partial)) {
         return PARTIAL_MATCH
       }
 
       return NO_MATCH
     }
+
+    /**
+     * Same as [matchLevel], but without the fuzzy matching. Returns [NO_MATCH] if the candidate
+     * does not start with the partial identifier.
+     */
+    @JvmStatic
+    fun prefixMatchLevel(candidate: CharSequence, partial: CharSequence): MatchLevel {
+      if (candidate.length < partial.length) {
+        return NO_MATCH
+      }
+
+      val equal = candidate.length == partial.length
+      if (candidate.startsWith(partial)) {
+        return if (equal) CASE_SENSITIVE_EQUAL else CASE_SENSITIVE_PREFIX
+      }
+
+      if (candidate.startsWith(partial, ignoreCase = true)) {
+        return if (equal) CASE_INSENSITIVE_EQUAL else CASE_INSENSITIVE_PREFIX
+      }
+
+      return NO_MATCH
+    }
   }
 
   fun setLabel(label: String) {
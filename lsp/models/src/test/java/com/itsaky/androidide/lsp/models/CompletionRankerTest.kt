@@ -0,0 +1,114 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.lsp.models
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.lsp.models.MatchLevel.CASE_SENSITIVE_EQUAL
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+class CompletionRankerTest {
+
+  @After
+  fun resetTrimToMax() {
+    CompletionResult.TRIM_TO_MAX = true
+  }
+
+  @Test
+  fun `test candidates are ordered by match level and sort text`() {
+    val ranker = CompletionRanker<String>("Str", 3)
+    for (name in listOf("StringBuilder", "str", "Xyz", "Strand", "Str")) {
+      ranker.offer(name, name)
+    }
+
+    val result = ranker.toResult(this::item)
+    assertThat(result.items.map { it.label }).containsExactly("Str", "str", "Strand").inOrder()
+    assertThat(result.isIncomplete).isTrue()
+    assertThat(ranker.matchCount).isEqualTo(4)
+  }
+
+  @Test
+  fun `test first offered candidates are kept on ties`() {
+    val ranker = CompletionRanker<String>("Foo", 2)
+    ranker.offer("Foo", CASE_SENSITIVE_EQUAL, "a.Foo")
+    ranker.offer("Foo", CASE_SENSITIVE_EQUAL, "b.Foo")
+    assertThat(ranker.offer("Foo", CASE_SENSITIVE_EQUAL, "c.Foo")).isFalse()
+
+    val result = ranker.toResult(this::item)
+    assertThat(result.items.map { it.label }).containsExactly("a.Foo", "b.Foo")
+  }
+
+  @Test
+  fun `test ranker is saturated only with exact matches`() {
+    val ranker = CompletionRanker<String>("Foo", 2)
+    ranker.offer("FooBar", "a.FooBar")
+    ranker.offer("FooBaz", "b.FooBaz")
+    assertThat(ranker.isSaturated).isFalse()
+
+    ranker.offer("Foo", "c.Foo")
+    assertThat(ranker.isSaturated).isFalse()
+
+    ranker.offer("Foo", "d.Foo")
+    assertThat(ranker.isSaturated).isTrue()
+    assertThat(ranker.offer("Foo", "e.Foo")).isEqualTo(CASE_SENSITIVE_EQUAL)
+
+    val result = ranker.toResult(this::item)
+    assertThat(result.items.map { it.label }).containsExactly("c.Foo", "d.Foo")
+  }
+
+  @Test
+  fun `test exact matches after saturated prefix matches are kept`() {
+    // candidates ordered by their qualified names, as the class names are
+    val ranker = CompletionRanker<String>("Foo", 2)
+    for (className in listOf("a.FooBar", "b.FooBaz", "c.Foo")) {
+      if (ranker.isSaturated) {
+        break
+      }
+      ranker.offer(className.substringAfterLast('.'), className)
+    }
+
+    val result = ranker.toResult(this::item)
+    assertThat(result.items.map { it.label }).containsExactly("c.Foo", "a.FooBar").inOrder()
+  }
+
+  @Test
+  fun `test all candidates are kept without trimming`() {
+    CompletionResult.TRIM_TO_MAX = false
+
+    val ranker = CompletionRanker<String>("a", 2)
+    val names = (0 until 40).map { "a$it" }
+    names.forEach { ranker.offer(it, it) }
+    assertThat(ranker.isSaturated).isFalse()
+
+    val result = ranker.toResult(this::item)
+    assertThat(result.items.map { it.label }).containsExactlyElementsIn(names)
+    assertThat(result.isIncomplete).isFalse()
+  }
+
+  private fun item(label: String, matchLevel: MatchLevel): CompletionItem {
+    return CompletionItem().apply {
+      this.label = label
+      this.matchLevel = matchLevel
+    }
+  }
+}
@@ -31,6 +31,8 @@ const val OFFLINE_MODE = "idepref_gradleCmd_offlineMode"
 const val GRADLE_COMMANDS = "idepref_build_gradleCommands"
 const val GRADLE_CLEAR_CACHE = "idepref_build_gradleClearCache"
 const val CUSTOM_GRADLE_INSTALLATION = "idepref_build_customGradleInstallation"
+const val BINARY_MODELS = "idepref_build_binaryModels"
+const val PROGRESS_VERBOSITY = "idepref_build_progressVerbosity"
 const val TP_FIX = KEY_TP_FIX
 
 /** Switch for Gradle `--debug` option. */
@@ -89,6 +91,23 @@ var gradleInstallationDir: String
     prefManager.putString(CUSTOM_GRADLE_INSTALLATION, value)
   }
 
+/** Whether the project models should be received from the tooling API in the binary encoding. */
+var isBinaryModelsEnabled: Boolean
+  get() = prefManager.getBoolean(BINARY_MODELS, false)
+  set(enabled) {
+    prefManager.putBoolean(BINARY_MODELS, enabled)
+  }
+
+/**
+ * The name of the progress verbosity level which is requested from the tooling API. One of
+ * `SUMMARY`, `NORMAL` or `VERBOSE`.
+ */
+var progressVerbosity: String
+  get() = prefManager.getString(PROGRESS_VERBOSITY, "NORMAL")
+  set(value) {
+    prefManager.putString(PROGRESS_VERBOSITY, value)
+  }
+
 /**
  * Whether the tag pointer fix should be enabled or not. The fix is needed only if JDK 11 is being
  * used.
@@ -39,6 +39,7 @@ class ProgressManager private constructor(){
     }
   }
 
+  @Synchronized
   fun cancel(thread: Thread) {
     var checker = threads[thread]
     if (checker == null) {
@@ -48,7 +49,18 @@ class ProgressManager private constructor(){
     threads[thread] = checker
   }
 
+  /**
+   * Clears the cancellation request of the given thread, if any. Threads which are reused for
+   * multiple tasks must call this before starting a task, as the request is otherwise cleared only
+   * by the next [abortIfCancelled] call.
+   */
+  @Synchronized
+  fun reset(thread: Thread) {
+    threads.remove(thread)
+  }
+
   @JvmName("internalAbortIfCancelled")
+  @Synchronized
   private fun abortIfCancelled() {
     val checker = threads.remove(Thread.currentThread())
     if (checker != null && checker.isCancelled()) {
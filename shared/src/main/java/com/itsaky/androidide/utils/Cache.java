@@ -17,125 +17,261 @@
 
 package com.itsaky.androidide.utils;
 
-import java.lang.reflect.Method;
 import java.nio.file.Path;
-import java.time.Instant;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.BiFunction;
 
 /**
- * Cache maps a file + an arbitrary key to a value. When the file is modified, the mapping expires.
+ * Cache maps a file + an arbitrary key to a value. When the file is modified, the mappings for the
+ * file must be dropped with {@link #invalidateAll(Path)}.
+ *
+ * <p>The total weight of the cached values is bounded. When the bound is exceeded, the mappings of
+ * the least recently used files are evicted.
  */
 public class Cache<K, V> {
 
-  private static final ILogger LOG = ILogger.newInstance("Cache");
-  // Cannot access FileManager from this module
-  private static Object FileManager_INSTANCE;
-  private static Method FileManager_getLastModified;
-  private final Map<Key<K>, Value> map = new HashMap<>();
+  /** The default maximum weight of a cache, with each entry weighing 1. */
+  public static final long DEFAULT_MAX_WEIGHT = 10_000;
+
+  private static final Set<Cache<?, ?>> CACHES =
+      Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+  private final Map<Path, FileEntries<K, V>> map = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<Path, PendingLoads> pendingLoads = new HashMap<>();
+  private final long maxWeight;
+  private final Weigher<? super K, ? super V> weigher;
+  private long weight = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  public Cache() {
+    this(DEFAULT_MAX_WEIGHT);
+  }
+
+  public Cache(long maxSize) {
+    this(maxSize, (k, v) -> 1);
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maxWeight The maximum total weight of the entries in this cache.
+   * @param weigher Computes the weight of an entry. Weights are computed once, when the entry is
+   *     loaded.
+   */
+  public Cache(long maxWeight, Weigher<? super K, ? super V> weigher) {
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("maxWeight must be positive");
+    }
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    CACHES.add(this);
+  }
+
+  /**
+   * Drops the mappings for the given file from all the caches. This must be called whenever the
+   * contents of the file change.
+   *
+   * @param file The file which was modified.
+   */
+  public static void invalidateAll(Path file) {
+    final Cache<?, ?>[] caches;
+    synchronized (CACHES) {
+      caches = CACHES.toArray(new Cache<?, ?>[0]);
+    }
+
+    for (final var cache : caches) {
+      cache.invalidate(file);
+    }
+  }
 
   public boolean has(Path file, K k) {
     return !needs(file, k);
   }
 
-  public boolean needs(Path file, K k) {
-    // If key is not in map, it needs to be loaded
-    Key<K> key = new Key<>(file, k);
-    if (!map.containsKey(key)) {
-      return true;
+  public synchronized boolean needs(Path file, K k) {
+    final var entries = map.get(file);
+    if (entries != null && entries.values.containsKey(k)) {
+      hitCount++;
+      return false;
     }
 
-    // If key was loaded before file was last modified, it needs to be reloaded
-    Value value = map.get(key);
-    if (value == null) {
-      return true;
+    missCount++;
+    return true;
+  }
+
+  public synchronized void load(Path file, K k, V v) {
+    var entries = map.get(file);
+    if (entries == null) {
+      entries = new FileEntries<>();
+      map.put(file, entries);
     }
 
-    Instant modified = getLastModified(file);
-    // TODO remove all keys associated with file when file changes
-    return value.created.isBefore(modified);
-  }
+    final var old = entries.values.put(k, v);
+    if (old != null) {
+      final var oldWeight = weigher.weigh(k, old);
+      entries.weight -= oldWeight;
+      weight -= oldWeight;
+    }
 
-  private static Instant getLastModified(Path file) {
-    initProjectManagerInstance();
+    final var newWeight = weigher.weigh(k, v);
+    entries.weight += newWeight;
+    weight += newWeight;
 
-    try {
-      return (Instant) FileManager_getLastModified.invoke(FileManager_INSTANCE, file);
-    } catch (Throwable err) {
-      LOG.error("Cannot get last modified from ProjectManager", err);
-      return Instant.now();
+    evictIfNeeded(file);
+  }
+
+  public synchronized V get(Path file, K k) {
+    final var entries = map.get(file);
+    if (entries == null || !entries.values.containsKey(k)) {
+      throw new IllegalArgumentException(k + " is not in cache for file " + file);
     }
+
+    return entries.values.get(k);
   }
 
-  private static void initProjectManagerInstance() {
-    if (FileManager_INSTANCE == null) {
-      try {
-        final var klass = Class.forName("com.itsaky.androidide.projects.FileManager");
-        final var field = klass.getDeclaredField("INSTANCE");
-        if (!field.isAccessible()) {
-          field.setAccessible(true);
-        }
+  /**
+   * Get the value mapped to the given file and key. If there is no such mapping, the value is
+   * computed with the given loader and cached.
+   *
+   * <p>The loader is called without holding the lock of this cache, so the same value might be
+   * computed more than once by concurrent callers. If the mappings for the file are invalidated
+   * while the value is being computed, the computed value is returned but it is not cached.
+   */
+  public V get(Path file, K k, BiFunction<Path, K, V> loader) {
+    final PendingLoads pending;
+    final long generation;
+    synchronized (this) {
+      final var entries = map.get(file);
+      if (entries != null && entries.values.containsKey(k)) {
+        hitCount++;
+        return entries.values.get(k);
+      }
+      missCount++;
 
-        FileManager_INSTANCE = field.get(null);
+      pending = pendingLoads.computeIfAbsent(file, f -> new PendingLoads());
+      pending.count++;
+      generation = pending.generation;
+    }
+
+    V value = null;
+    boolean loaded = false;
+    try {
+      value = loader.apply(file, k);
+      loaded = true;
+    } finally {
+      synchronized (this) {
+        if (--pending.count == 0) {
+          pendingLoads.remove(file);
+        }
 
-        FileManager_getLastModified = klass.getDeclaredMethod("getLastModified", Path.class);
-        if (!FileManager_getLastModified.isAccessible()) {
-          FileManager_getLastModified.setAccessible(true);
+        if (loaded && pending.generation == generation) {
+          load(file, k, value);
         }
-      } catch (Throwable err) {
-        LOG.error("Cannot reflect ProjectManager INSTANCE", err);
-        throw new RuntimeException(err);
       }
     }
+    return value;
   }
 
-  public void load(Path file, K k, V v) {
-    // TODO limit total size of cache
-    Key<K> key = new Key<>(file, k);
-    Value value = new Value(v);
-    map.put(key, value);
+  /** Drops all the mappings for the given file. */
+  public synchronized void invalidate(Path file) {
+    final var entries = map.remove(file);
+    if (entries != null) {
+      weight -= entries.weight;
+    }
+
+    final var pending = pendingLoads.get(file);
+    if (pending != null) {
+      pending.generation++;
+    }
   }
 
-  public V get(Path file, K k) {
-    final Key<K> key = new Key<>(file, k);
-    final var val = map.get(key);
-    if (val == null) {
-      throw new IllegalArgumentException(k + " is not in map " + map);
+  public synchronized void clear() {
+    map.clear();
+    weight = 0;
+    for (final var pending : pendingLoads.values()) {
+      pending.generation++;
     }
+  }
 
-    return val.value;
+  /** Returns the number of files which have at least one cached entry. */
+  public synchronized int fileCount() {
+    return map.size();
   }
 
-  private static class Key<K> {
-    final Path file;
-    final K key;
+  public synchronized long weight() {
+    return weight;
+  }
 
-    Key(Path file, K key) {
-      this.file = file;
-      this.key = key;
-    }
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
 
-    @Override
-    public int hashCode() {
-      return Objects.hash(file, key);
-    }
+  public synchronized long getMissCount() {
+    return missCount;
+  }
 
-    @SuppressWarnings("rawtypes")
-    @Override
-    public boolean equals(Object other) {
-      if (other.getClass() != Cache.Key.class) return false;
-      Key that = (Cache.Key) other;
-      return Objects.equals(this.key, that.key) && Objects.equals(this.file, that.file);
-    }
+  /** Returns the number of entries that have been evicted because the cache exceeded its bound. */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
   }
 
-  private class Value {
-    final V value;
-    final Instant created = Instant.now();
+  private void evictIfNeeded(Path loadedFile) {
+    final Iterator<Map.Entry<Path, FileEntries<K, V>>> iterator = map.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      final var eldest = iterator.next();
+      if (eldest.getKey().equals(loadedFile)) {
+        // never evict the entries which are being loaded
+        continue;
+      }
 
-    Value(V value) {
-      this.value = value;
+      iterator.remove();
+      weight -= eldest.getValue().weight;
+      evictionCount += eldest.getValue().values.size();
     }
   }
+
+  @Override
+  public synchronized String toString() {
+    return "Cache{"
+        + "files="
+        + map.size()
+        + ", weight="
+        + weight
+        + ", maxWeight="
+        + maxWeight
+        + ", hitCount="
+        + hitCount
+        + ", missCount="
+        + missCount
+        + ", evictionCount="
+        + evictionCount
+        + '}';
+  }
+
+  /** Computes the weight of a cache entry. */
+  public interface Weigher<K, V> {
+    int weigh(K key, V value);
+  }
+
+  private static class FileEntries<K, V> {
+    final Map<K, V> values = new HashMap<>(4);
+    long weight = 0;
+  }
+
+  /** The values of a file which are being computed, outside the lock of the cache. */
+  private static class PendingLoads {
+    /** The number of values being computed. */
+    int count = 0;
+
+    /** Incremented whenever the mappings of the file are invalidated. */
+    long generation = 0;
+  }
 }
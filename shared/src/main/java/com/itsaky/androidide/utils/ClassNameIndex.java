@@ -0,0 +1,401 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable index of fully qualified class names, keyed by their simple names. The index
+ * supports case-insensitive prefix lookups and CamelCase hump lookups (e.g. <code>ALi</code>
+ * matches <code>ArrayList</code>) without scanning all the indexed names.
+ *
+ * @author Akash Yadav
+ */
+public class ClassNameIndex {
+
+  public static final ClassNameIndex EMPTY = new ClassNameIndex(Collections.emptyList());
+
+  private final String[] names;
+  private final String[] simpleNames;
+  private final String[] humps;
+
+  /** Indices of entries, sorted case-insensitively by their simple names. */
+  private final int[] bySimpleName;
+
+  /** Indices of entries, sorted case-sensitively by their simple names. */
+  private final int[] bySimpleNameCaseSensitive;
+
+  /** Indices of entries, sorted by their humps. */
+  private final int[] byHumps;
+
+  /**
+   * Creates a new index for the given class names.
+   *
+   * @param classNames The fully qualified names of the classes to index.
+   */
+  public ClassNameIndex(Collection<String> classNames) {
+    final int size = classNames.size();
+    this.names = classNames.toArray(new String[0]);
+    this.simpleNames = new String[size];
+    this.humps = new String[size];
+
+    for (int i = 0; i < size; i++) {
+      final String name = names[i];
+      simpleNames[i] = name.substring(name.lastIndexOf('.') + 1);
+      humps[i] = humps(simpleNames[i]);
+    }
+
+    this.bySimpleName = sortedIndices(simpleNames, String.CASE_INSENSITIVE_ORDER);
+    this.bySimpleNameCaseSensitive = sortedIndices(simpleNames, Comparator.naturalOrder());
+    this.byHumps = sortedIndices(humps, Comparator.naturalOrder());
+  }
+
+  private static int[] sortedIndices(String[] keys, Comparator<String> comparator) {
+    final int[] indices = new int[keys.length];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    }
+    mergeSort(indices, new int[indices.length], 0, indices.length, keys, comparator);
+    return indices;
+  }
+
+  private static void mergeSort(
+      int[] indices, int[] tmp, int from, int to, String[] keys, Comparator<String> comparator) {
+    if (to - from < 2) {
+      return;
+    }
+
+    final int mid = (from + to) >>> 1;
+    mergeSort(indices, tmp, from, mid, keys, comparator);
+    mergeSort(indices, tmp, mid, to, keys, comparator);
+
+    if (comparator.compare(keys[indices[mid - 1]], keys[indices[mid]]) <= 0) {
+      // already sorted
+      return;
+    }
+
+    System.arraycopy(indices, from, tmp, from, to - from);
+    int left = from;
+    int right = mid;
+    for (int i = from; i < to; i++) {
+      if (right >= to
+          || (left < mid && comparator.compare(keys[tmp[left]], keys[tmp[right]]) <= 0)) {
+        indices[i] = tmp[left++];
+      } else {
+        indices[i] = tmp[right++];
+      }
+    }
+  }
+
+  /**
+   * @return The number of class names in this index.
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Finds at most <code>limit</code> class names whose simple name matches the given partial
+   * identifier. The result is sorted by {@link MatchKind}.
+   *
+   * @param partial The partial identifier.
+   * @param limit The maximum number of results.
+   * @return The matching class names.
+   */
+  public List<Match> find(String partial, int limit) {
+    if (limit <= 0 || names.length == 0) {
+      return Collections.emptyList();
+    }
+
+    final MatchKind[] kinds = MatchKind.values();
+    @SuppressWarnings("unchecked")
+    final List<Match>[] buckets = new List[kinds.length];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new ArrayList<>();
+    }
+
+    findPrefixMatches(partial, limit, buckets);
+
+    // the hump matches are needed only if the prefix matches are not enough
+    int count = 0;
+    for (final List<Match> bucket : buckets) {
+      count += bucket.size();
+    }
+
+    if (count < limit) {
+      findHumpMatches(partial, limit - count, buckets[MatchKind.CAMEL_CASE.ordinal()]);
+    }
+
+    final List<Match> result = new ArrayList<>(Math.min(limit, count + limit));
+    for (final List<Match> bucket : buckets) {
+      for (final Match match : bucket) {
+        if (result.size() >= limit) {
+          return result;
+        }
+        result.add(match);
+      }
+    }
+    return result;
+  }
+
+  private void findPrefixMatches(String partial, int limit, List<Match>[] buckets) {
+    final int length = partial.length();
+    final List<Match> exact = buckets[MatchKind.EXACT.ordinal()];
+    final List<Match> exactIgnoreCase = buckets[MatchKind.EXACT_IGNORE_CASE.ordinal()];
+    final List<Match> prefixIgnoreCase = buckets[MatchKind.PREFIX_IGNORE_CASE.ordinal()];
+
+    // The exact matches are always at the start of the case-insensitive range. The case-sensitive
+    // prefix matches are collected from their own range below, so at most 'limit' of the prefix
+    // matches in this range need to be checked to find enough case-insensitive prefix matches
+    int prefixes = 0;
+    int index = lowerBound(bySimpleName, simpleNames, partial, String.CASE_INSENSITIVE_ORDER);
+    for (; index < bySimpleName.length && prefixes < limit; index++) {
+      final int entry = bySimpleName[index];
+      final String simpleName = simpleNames[entry];
+      if (!simpleName.regionMatches(true, 0, partial, 0, length)) {
+        break;
+      }
+
+      if (simpleName.length() == length) {
+        if (simpleName.equals(partial)) {
+          exact.add(new Match(names[entry], MatchKind.EXACT));
+        } else {
+          exactIgnoreCase.add(new Match(names[entry], MatchKind.EXACT_IGNORE_CASE));
+        }
+
+        if (exact.size() + exactIgnoreCase.size() >= limit) {
+          // nothing better than the exact matches
+          return;
+        }
+        continue;
+      }
+
+      prefixes++;
+      if (!simpleName.startsWith(partial)) {
+        prefixIgnoreCase.add(new Match(names[entry], MatchKind.PREFIX_IGNORE_CASE));
+      }
+    }
+
+    final List<Match> prefix = buckets[MatchKind.PREFIX.ordinal()];
+    index =
+        lowerBound(bySimpleNameCaseSensitive, simpleNames, partial, Comparator.naturalOrder());
+    for (; index < bySimpleNameCaseSensitive.length && prefix.size() < limit; index++) {
+      final int entry = bySimpleNameCaseSensitive[index];
+      final String simpleName = simpleNames[entry];
+      if (!simpleName.startsWith(partial)) {
+        break;
+      }
+
+      if (simpleName.length() != length) {
+        prefix.add(new Match(names[entry], MatchKind.PREFIX));
+      }
+    }
+  }
+
+  private void findHumpMatches(String partial, int limit, List<Match> bucket) {
+    final String query = queryHumps(partial);
+    if (query.length() < 2) {
+      // a single hump is already covered by the prefix matches
+      return;
+    }
+
+    final int low = lowerBound(byHumps, humps, query, Comparator.naturalOrder());
+    for (int index = low; index < byHumps.length && bucket.size() < limit; index++) {
+      final int entry = byHumps[index];
+      if (!humps[entry].startsWith(query)) {
+        break;
+      }
+
+      final String simpleName = simpleNames[entry];
+      if (simpleName.regionMatches(true, 0, partial, 0, partial.length())) {
+        // already added as a prefix match
+        continue;
+      }
+
+      if (matchesHumps(simpleName, partial)) {
+        bucket.add(new Match(names[entry], MatchKind.CAMEL_CASE));
+      }
+    }
+  }
+
+  private static int lowerBound(
+      int[] indices, String[] keys, String key, Comparator<String> comparator) {
+    int low = 0;
+    int high = indices.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (comparator.compare(keys[indices[mid]], key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Checks whether every hump of the given partial identifier is a (case-insensitive) prefix of the
+   * corresponding hump of the given name.
+   *
+   * @param name The name to match.
+   * @param partial The partial identifier.
+   * @return <code>true</code> if the humps match, <code>false</code> otherwise.
+   */
+  static boolean matchesHumps(String name, String partial) {
+    int nameIndex = 0;
+    int partialIndex = 0;
+    while (partialIndex < partial.length()) {
+      if (nameIndex >= name.length()) {
+        return false;
+      }
+
+      // the end of the current hump in the partial identifier
+      int partialEnd = partialIndex + 1;
+      while (partialEnd < partial.length() && !isQueryHumpStart(partial, partialEnd)) {
+        partialEnd++;
+      }
+
+      final int humpLength = partialEnd - partialIndex;
+      if (!name.regionMatches(true, nameIndex, partial, partialIndex, humpLength)) {
+        return false;
+      }
+
+      partialIndex = partialEnd;
+      if (partialIndex >= partial.length()) {
+        return true;
+      }
+
+      // move to the start of the next hump in the name
+      nameIndex++;
+      while (nameIndex < name.length() && !isHumpStart(name, nameIndex)) {
+        nameIndex++;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the first character of every hump in the given name, in uppercase.
+   *
+   * @param name The name.
+   * @return The hump characters.
+   */
+  static String humps(String name) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < name.length(); i++) {
+      if (isHumpStart(name, i)) {
+        sb.append(Character.toUpperCase(name.charAt(i)));
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the first character of every hump in the given partial identifier, in uppercase. Unlike
+   * {@link #humps(String)}, every uppercase character in a partial identifier starts a hump (e.g.
+   * <code>SB</code> for <code>StringBuilder</code>).
+   *
+   * @param partial The partial identifier.
+   * @return The hump characters.
+   */
+  static String queryHumps(String partial) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < partial.length(); i++) {
+      if (isQueryHumpStart(partial, i)) {
+        sb.append(Character.toUpperCase(partial.charAt(i)));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static boolean isQueryHumpStart(String partial, int index) {
+    final char c = partial.charAt(index);
+    if (c == '_' || c == '$') {
+      return false;
+    }
+
+    if (index == 0 || Character.isUpperCase(c)) {
+      return true;
+    }
+
+    final char prev = partial.charAt(index - 1);
+    return prev == '_' || prev == '$';
+  }
+
+  private static boolean isHumpStart(String name, int index) {
+    final char c = name.charAt(index);
+    if (c == '_' || c == '$') {
+      return false;
+    }
+
+    if (index == 0) {
+      return true;
+    }
+
+    final char prev = name.charAt(index - 1);
+    if (prev == '_' || prev == '$') {
+      return true;
+    }
+
+    if (!Character.isUpperCase(c)) {
+      return false;
+    }
+
+    // 'C' in 'URLConnection' starts a hump, 'R' and 'L' do not
+    return !Character.isUpperCase(prev)
+        || (index + 1 < name.length() && Character.isLowerCase(name.charAt(index + 1)));
+  }
+
+  /** The kind of match for a class name, in the order of their relevance. */
+  public enum MatchKind {
+    EXACT,
+    EXACT_IGNORE_CASE,
+    PREFIX,
+    PREFIX_IGNORE_CASE,
+    CAMEL_CASE
+  }
+
+  /** A class name matched by the index. */
+  public static final class Match {
+
+    private final String qualifiedName;
+    private final MatchKind kind;
+
+    public Match(String qualifiedName, MatchKind kind) {
+      this.qualifiedName = qualifiedName;
+      this.kind = kind;
+    }
+
+    public String getQualifiedName() {
+      return qualifiedName;
+    }
+
+    public MatchKind getKind() {
+      return kind;
+    }
+
+    @Override
+    public String toString() {
+      return "Match{" + "qualifiedName='" + qualifiedName + '\'' + ", kind=" + kind + '}';
+    }
+  }
+}
@@ -24,7 +24,7 @@ import java.util.function.*
  *
  * @author Akash Yadav
  */
-open class ClassTrie(val root: Node = Node()) {
+open class ClassTrie(open val root: Node = Node()) {
 
   /**
    * Appends the class name entry to this trie.
@@ -80,7 +80,7 @@ open class ClassTrie(val root: Node = Node()) {
   }
 
   /** Removes all entries from this trie. */
-  fun clear() {
+  open fun clear() {
     this.root.children.clear()
   }
 
@@ -209,13 +209,22 @@ open class ClassTrie(val root: Node = Node()) {
   }
 
   /** A Node can be a package segment or a class name in the package trie. */
-  open class Node(val name: String, val qualifiedName: String) {
+  open class Node(val name: String, qualifiedName: String) {
 
     internal constructor() : this("", "")
 
-    val children: MutableMap<String, Node> = mutableMapOf()
+    open val qualifiedName: String = qualifiedName
     var isClass = false
 
+    private var childMap: MutableMap<String, Node>? = null
+
+    /**
+     * The children of this node. The map is created when it is first accessed, so the nodes which
+     * override this do not allocate it.
+     */
+    open val children: MutableMap<String, Node>
+      get() = childMap ?: mutableMapOf<String, Node>().also { childMap = it }
+
     open fun createChild(name: String, qualifiedName: String): Node {
       return children.computeIfAbsent(name) { Node(it, qualifiedName) }
     }
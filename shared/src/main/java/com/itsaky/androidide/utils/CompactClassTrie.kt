@@ -0,0 +1,381 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.utils
+
+import java.util.AbstractMap
+import java.util.AbstractSet
+import java.util.function.Predicate
+
+/**
+ * An immutable [ClassTrie] backed by arrays. The package segments are interned in a single table
+ * and the children of every node are stored contiguously, sorted by name. [Node] instances are only
+ * created when they are requested and their qualified names are computed lazily.
+ *
+ * Use this instead of [ClassTrie] for class names which do not change once they are indexed, like
+ * the classes from the classpaths.
+ *
+ * @author Akash Yadav
+ */
+class CompactClassTrie(classNames: Collection<String>) : ClassTrie(Node()) {
+
+  companion object {
+    @JvmField val EMPTY = CompactClassTrie(emptyList())
+  }
+
+  /** Interned package segments and simple names. */
+  private val segmentTable: Array<String>
+
+  /** Index of the name of each node in [segmentTable]. The root node has index 0. */
+  private val nodeNames: IntArray
+  private val nodeParents: IntArray
+  private val firstChild: IntArray
+  private val childCount: IntArray
+  private val classFlags: BooleanArray
+
+  init {
+    val builder = Builder(classNames, ::segments)
+    segmentTable = builder.segmentTable
+    nodeNames = builder.nodeNames.toArray()
+    nodeParents = builder.nodeParents.toArray()
+    firstChild = builder.firstChild.toArray()
+    childCount = builder.childCount.toArray()
+    classFlags = BooleanArray(nodeNames.size) { builder.classNodes.contains(it) }
+  }
+
+  override val root: ClassTrie.Node = nodeAt(0)
+
+  /** The number of nodes in this trie, including the root node. */
+  val nodeCount: Int
+    get() = nodeNames.size
+
+  override fun append(name: String): ClassTrie.Node {
+    throw UnsupportedOperationException("CompactClassTrie is immutable")
+  }
+
+  override fun remove(name: String, predicate: Predicate<ClassTrie.Node>?) {
+    throw UnsupportedOperationException("CompactClassTrie is immutable")
+  }
+
+  override fun clear() {
+    throw UnsupportedOperationException("CompactClassTrie is immutable")
+  }
+
+  override fun contains(name: String): Boolean {
+    return indexOf(name) != -1
+  }
+
+  override fun findNode(qualifiedName: String): ClassTrie.Node? {
+    val index = indexOf(qualifiedName)
+    return if (index == -1) null else nodeAt(index)
+  }
+
+  override fun findInPackage(packageName: String): List<ClassTrie.Node> {
+    val classes = mutableListOf<ClassTrie.Node>()
+    var node = 0
+    for (segment in segments(packageName)) {
+      val child = findChild(node, segment)
+      if (child == -1) {
+        break
+      }
+
+      if (classFlags[node]) {
+        classes.add(nodeAt(node))
+      }
+
+      node = child
+    }
+
+    forEachChild(node) { addRecursively(it, classes) }
+    return classes
+  }
+
+  private fun addRecursively(node: Int, classes: MutableList<ClassTrie.Node>) {
+    if (classFlags[node]) {
+      classes.add(nodeAt(node))
+    }
+
+    forEachChild(node) { addRecursively(it, classes) }
+  }
+
+  private fun indexOf(name: String): Int {
+    var node = 0
+    for (segment in segments(name)) {
+      node = findChild(node, segment)
+      if (node == -1) {
+        return -1
+      }
+    }
+    return node
+  }
+
+  private fun findChild(node: Int, name: String): Int {
+    var low = firstChild[node]
+    var high = low + childCount[node] - 1
+    while (low <= high) {
+      val mid = (low + high) ushr 1
+      val cmp = segmentTable[nodeNames[mid]].compareTo(name)
+      when {
+        cmp < 0 -> low = mid + 1
+        cmp > 0 -> high = mid - 1
+        else -> return mid
+      }
+    }
+    return -1
+  }
+
+  private inline fun forEachChild(node: Int, action: (Int) -> Unit) {
+    val first = firstChild[node]
+    for (child in first until first + childCount[node]) {
+      action(child)
+    }
+  }
+
+  private fun nodeAt(index: Int): ClassTrie.Node = CompactNode(index)
+
+  private fun qualifiedNameOf(index: Int): String {
+    if (index == 0) {
+      return ""
+    }
+
+    val parent = nodeParents[index]
+    val name = segmentTable[nodeNames[index]]
+    return if (parent == 0) name else "${qualifiedNameOf(parent)}.$name"
+  }
+
+  /** A view of a node in this trie. */
+  private inner class CompactNode(private val index: Int) :
+    ClassTrie.Node(segmentTable[nodeNames[index]], "") {
+
+    init {
+      isClass = classFlags[index]
+    }
+
+    override val qualifiedName: String
+      get() = qualifiedNameOf(index)
+
+    private var childrenView: ChildrenView? = null
+
+    override val children: MutableMap<String, ClassTrie.Node>
+      get() = childrenView ?: ChildrenView(index).also { childrenView = it }
+
+    override fun createChild(name: String, qualifiedName: String): ClassTrie.Node {
+      throw UnsupportedOperationException("CompactClassTrie is immutable")
+    }
+
+    override fun allClassNames(): Set<String> {
+      val names = mutableSetOf<String>()
+      collectClassNames(index, names)
+      return names
+    }
+
+    override fun allClassNodes(): Set<ClassTrie.Node> {
+      val nodes = mutableSetOf<ClassTrie.Node>()
+      collectClassNodes(index, nodes)
+      return nodes
+    }
+
+    private fun collectClassNames(node: Int, names: MutableSet<String>) {
+      if (classFlags[node]) {
+        names.add(qualifiedNameOf(node))
+      }
+      forEachChild(node) { collectClassNames(it, names) }
+    }
+
+    private fun collectClassNodes(node: Int, nodes: MutableSet<ClassTrie.Node>) {
+      if (classFlags[node]) {
+        nodes.add(nodeAt(node))
+      }
+      forEachChild(node) { collectClassNodes(it, nodes) }
+    }
+
+    override fun equals(other: Any?): Boolean {
+      return other is CompactNode && other.index == index && other.trie === trie
+    }
+
+    override fun hashCode(): Int = index
+
+    private val trie: CompactClassTrie
+      get() = this@CompactClassTrie
+  }
+
+  /**
+   * A read-only view of the children of a node. Lookups search the children of the node directly,
+   * without copying them to a map.
+   */
+  private inner class ChildrenView(private val node: Int) : AbstractMap<String, ClassTrie.Node>() {
+
+    override val size: Int
+      get() = childCount[node]
+
+    override fun isEmpty(): Boolean = childCount[node] == 0
+
+    override fun containsKey(key: String?): Boolean {
+      return key != null && findChild(node, key) != -1
+    }
+
+    override fun get(key: String?): ClassTrie.Node? {
+      val child = if (key == null) -1 else findChild(node, key)
+      return if (child == -1) null else nodeAt(child)
+    }
+
+    override val entries: MutableSet<MutableMap.MutableEntry<String, ClassTrie.Node>>
+      get() =
+        object : AbstractSet<MutableMap.MutableEntry<String, ClassTrie.Node>>() {
+          override val size: Int
+            get() = childCount[node]
+
+          override fun iterator() = ChildIterator(node)
+        }
+  }
+
+  private inner class ChildIterator(node: Int) :
+    MutableIterator<MutableMap.MutableEntry<String, ClassTrie.Node>> {
+
+    private var child = firstChild[node]
+    private val end = child + childCount[node]
+
+    override fun hasNext(): Boolean = child < end
+
+    override fun next(): MutableMap.MutableEntry<String, ClassTrie.Node> {
+      if (child >= end) {
+        throw NoSuchElementException()
+      }
+
+      val index = child++
+      return AbstractMap.SimpleImmutableEntry(segmentTable[nodeNames[index]], nodeAt(index))
+    }
+
+    override fun remove() {
+      throw UnsupportedOperationException("CompactClassTrie is immutable")
+    }
+  }
+
+  /**
+   * Builds the arrays of the trie. The nodes are laid out breadth-first, so that the children of a
+   * node are contiguous.
+   */
+  private class Builder(classNames: Collection<String>, segments: (String) -> List<String>) {
+
+    val segmentTable: Array<String>
+    val nodeNames = IntList()
+    val nodeParents = IntList()
+    val firstChild = IntList()
+    val childCount = IntList()
+    val classNodes = HashSet<Int>()
+
+    init {
+      val interned = HashMap<String, String>()
+      val paths = ArrayList<Array<String>>(classNames.size)
+      for (name in classNames) {
+        val path =
+          segments(name)
+            .filter { it.isNotEmpty() && it[0].isJavaIdentifierStart() }
+            .map { interned.getOrPut(it) { it } }
+            .toTypedArray()
+        if (path.isNotEmpty()) {
+          paths.add(path)
+        }
+      }
+
+      paths.sortWith { a, b -> comparePaths(a, b) }
+
+      // index 0 is the name of the root node
+      val table = ArrayList<String>(interned.size + 1)
+      table.add("")
+      table.addAll(interned.keys.sorted())
+      segmentTable = table.toTypedArray()
+
+      val segmentIds = HashMap<String, Int>(segmentTable.size)
+      for (id in 1 until segmentTable.size) {
+        segmentIds[segmentTable[id]] = id
+      }
+
+      // the root node
+      nodeNames.add(0)
+      nodeParents.add(-1)
+      firstChild.add(0)
+      childCount.add(0)
+
+      // queue of (node, low, high, depth)
+      val queue = ArrayDeque<IntArray>()
+      queue.add(intArrayOf(0, 0, paths.size, 0))
+      while (queue.isNotEmpty()) {
+        val (node, low, high, depth) = queue.removeFirst()
+        firstChild[node] = nodeNames.size
+
+        var start = low
+        while (start < high) {
+          val path = paths[start]
+          if (path.size == depth) {
+            // a class with the same name as this node
+            classNodes.add(node)
+            start++
+            continue
+          }
+
+          val segment = path[depth]
+          var end = start + 1
+          while (end < high && paths[end].size > depth && paths[end][depth] == segment) {
+            end++
+          }
+
+          val child = nodeNames.size
+          nodeNames.add(segmentIds[segment]!!)
+          nodeParents.add(node)
+          firstChild.add(0)
+          childCount.add(0)
+          childCount[node] = childCount[node] + 1
+          queue.add(intArrayOf(child, start, end, depth + 1))
+          start = end
+        }
+      }
+    }
+
+    private fun comparePaths(a: Array<String>, b: Array<String>): Int {
+      val size = minOf(a.size, b.size)
+      for (i in 0 until size) {
+        val cmp = a[i].compareTo(b[i])
+        if (cmp != 0) {
+          return cmp
+        }
+      }
+      return a.size - b.size
+    }
+  }
+
+  private class IntList {
+    private var data = IntArray(16)
+    var size = 0
+      private set
+
+    fun add(value: Int) {
+      if (size == data.size) {
+        data = data.copyOf(size * 2)
+      }
+      data[size++] = value
+    }
+
+    operator fun get(index: Int): Int = data[index]
+
+    operator fun set(index: Int, value: Int) {
+      data[index] = value
+    }
+
+    fun toArray(): IntArray = data.copyOf(size)
+  }
+}
@@ -5,6 +5,7 @@ import com.itsaky.androidide.layoutlib.resources.ResourceVisibility
 import java.io.File
 import java.util.SortedMap
 import java.util.TreeMap
+import java.util.concurrent.CopyOnWriteArrayList
 
 /**
  * The container and index for all resources defined for a given app.
@@ -22,8 +23,11 @@ class ResourceTable(val validateResources: Boolean = false, val logger: BlameLog
    */
   val stringPool = StringPool()
 
-  /** The list of packages in this table. */
-  val packages = mutableListOf<ResourceTablePackage>()
+  /**
+   * The list of packages in this table. This is a copy-on-write list so that it can be read while
+   * [replaceValuesFromSources] adds a package.
+   */
+  val packages: MutableList<ResourceTablePackage> = CopyOnWriteArrayList()
 
   /**
    * Set of dynamic packages that this table may reference. Their package names get encoded into the
@@ -306,6 +310,126 @@ class ResourceTable(val validateResources: Boolean = false, val logger: BlameLog
     }
   }
 
+  /**
+   * Removes the values which were extracted from the source file at the given path. Entries which
+   * do not have any values left after the removal are removed as well.
+   *
+   * @param path The path of the source file.
+   * @return Whether any value was removed.
+   */
+  fun removeValuesFromSource(path: String): Boolean {
+    var removed = false
+    for (pkg in packages) {
+      for (group in pkg.groups) {
+        val names = group.entries.values.iterator()
+        while (names.hasNext()) {
+          val entries = names.next()
+          val iterator = entries.values.iterator()
+          while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (entry.values.removeAll { it.value?.source?.path == path }) {
+              removed = true
+              if (entry.values.isEmpty()) {
+                iterator.remove()
+              }
+            }
+          }
+          if (entries.isEmpty()) {
+            names.remove()
+          }
+        }
+      }
+    }
+    return removed
+  }
+
+  /**
+   * Replaces the values which were extracted from the source files at the given paths with the
+   * values from the given table, without modifying any structure which may be read concurrently.
+   *
+   * The groups which are affected by the change are copied, updated and then published, so that the
+   * readers see either the old or the new entries of a group, but never a partially updated group.
+   * The callers which modify this table must still synchronize among themselves.
+   *
+   * @param paths The paths of the source files.
+   * @param other The table containing the new values from the source files.
+   * @param pck The name of the package to add the values to.
+   * @return Returns false if any of the values could not be added.
+   */
+  fun replaceValuesFromSources(
+    paths: Collection<String>,
+    other: ResourceTable,
+    pck: String
+  ): Boolean {
+    val types = mutableSetOf<AaptResourceType>()
+    for (otherPackage in other.packages) {
+      otherPackage.groups.forEach { types.add(it.type) }
+    }
+
+    val staging = ResourceTable(validateResources, logger)
+    for (tablePackage in packages) {
+      val stagedPackage = ResourceTablePackage(tablePackage.name, tablePackage.id)
+      for (group in tablePackage.groups) {
+        if (group.type in types || group.hasValuesFrom(paths)) {
+          stagedPackage.groups.add(group.copy())
+        }
+      }
+      staging.packages.add(stagedPackage)
+    }
+
+    paths.forEach(staging::removeValuesFromSource)
+    val success = staging.addAll(other, pck)
+
+    for (stagedPackage in staging.packages) {
+      val tablePackage =
+        packages.find { it.name == stagedPackage.name && it.id == stagedPackage.id }
+      if (tablePackage == null) {
+        packages.add(stagedPackage)
+        continue
+      }
+
+      for (staged in stagedPackage.groups) {
+        val group = tablePackage.groups.find { it.type == staged.type && it.id == staged.id }
+        if (group == null) {
+          tablePackage.groups.add(staged)
+        } else {
+          group.entries = staged.entries
+        }
+      }
+    }
+    return success
+  }
+
+  /**
+   * Adds the values from the given table to this table. The values are added to the package with
+   * the given name, regardless of the package they belong to in the other table.
+   *
+   * @param other The table to add the values from.
+   * @param pck The name of the package to add the values to.
+   * @return Returns false if any of the values could not be added.
+   */
+  fun addAll(other: ResourceTable, pck: String): Boolean {
+    var success = true
+    for (otherPackage in other.packages) {
+      for (group in otherPackage.groups) {
+        for (entries in group.entries.values) {
+          for (entry in entries.values) {
+            val name = ResourceName(pck, group.type, entry.name)
+            for (configValue in entry.values) {
+              val value = configValue.value ?: continue
+              success = addResource(name, configValue.config, configValue.product, value) && success
+            }
+
+            if (entry.visibility.level != ResourceVisibility.UNDEFINED) {
+              findResource(name)?.entry?.visibility = entry.visibility
+            }
+          }
+        }
+      }
+    }
+    return success
+  }
+
   private fun logError(source: BlameLogger.Source?, message: String) {
     logger?.error(message, source)
   }
@@ -682,7 +806,7 @@ class OverlayableItem(
 /** Represents all groups by type under a single package. */
 class ResourceTablePackage(var name: String = "", var id: Byte? = null) {
 
-  internal val groups = mutableListOf<ResourceGroup>()
+  internal val groups: MutableList<ResourceGroup> = CopyOnWriteArrayList()
 
   fun findGroup(type: AaptResourceType, groupId: Byte? = null) =
     if (groupId != null) {
@@ -713,7 +837,34 @@ class ResourceGroup(val type: AaptResourceType) {
   var id: Byte? = null
   var visibility = ResourceVisibility.UNDEFINED
 
-  internal val entries = sortedMapOf<String, SortedMap<Short?, ResourceEntry>>()
+  /**
+   * The entries of this group. The map is replaced as a whole by
+   * [ResourceTable.replaceValuesFromSources], the published maps are not modified afterwards.
+   */
+  @Volatile
+  internal var entries: SortedMap<String, SortedMap<Short?, ResourceEntry>> = sortedMapOf()
+
+  /** Creates a copy of this group. The entries and their values are copied as well. */
+  internal fun copy(): ResourceGroup {
+    val group = ResourceGroup(type)
+    group.id = id
+    group.visibility = visibility
+    for ((name, entriesById) in entries) {
+      val copies = TreeMap<Short?, ResourceEntry>(nullsFirst())
+      entriesById.forEach { (entryId, entry) -> copies[entryId] = entry.copy() }
+      group.entries[name] = copies
+    }
+    return group
+  }
+
+  /** Whether any entry of this group has a value which was extracted from the given files. */
+  internal fun hasValuesFrom(paths: Collection<String>): Boolean {
+    return entries.values.any { entriesById ->
+      entriesById.values.any { entry ->
+        entry.values.any { configValue -> configValue.value?.source?.path in paths }
+      }
+    }
+  }
 
   // To get Styleable's children we need to reach the ResourceEntry's value first
   internal fun getStyleable(entry: Map.Entry<String, SortedMap<Short?, ResourceEntry>>): Styleable {
@@ -761,6 +912,17 @@ class ResourceEntry(val name: String) {
 
   val values = mutableListOf<ResourceConfigValue>()
 
+  /** Creates a copy of this entry. The config values are copied as well. */
+  internal fun copy(): ResourceEntry {
+    val entry = ResourceEntry(name)
+    entry.id = id
+    entry.visibility = visibility
+    entry.allowNew = allowNew
+    entry.overlayable = overlayable
+    values.mapTo(entry.values) { it.copy() }
+    return entry
+  }
+
   fun findValue(config: ConfigDescription, product: String = ""): ResourceConfigValue? {
     return values.find { it.config == config && it.product == product }
   }
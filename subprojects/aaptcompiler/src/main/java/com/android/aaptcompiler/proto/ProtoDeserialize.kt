@@ -245,7 +245,7 @@ fun deserializeReferenceTypeFromPb(type: Resources.Reference.Type) = when (type)
 
 fun deserializeSourceFromPb(source: Resources.Source, sourcePool: ResStringPool): Source {
   val path = sourcePool.strings[source.getPathIdx()]
-  val line = source.getPosition().getLineNumber()
+  val line = if (source.hasPosition()) source.getPosition().getLineNumber() else null
   return Source(path, line)
 }
 
@@ -642,6 +642,10 @@ fun deserializePackageFromPb(
 
   val resourcePackage =
     table.createPackageAllowingDuplicateNames(original.getPackageName(), packageId)
+  if (!original.hasPackageId()) {
+    // The package did not have an id when it was serialized.
+    resourcePackage.id = null
+  }
   for (group in original.getTypeList()) {
     val resType = resourceTypeFromTag(group.getName())
 
@@ -784,7 +788,7 @@ fun deserializeTableFromPb(
 
   val sourcePool = ResStringPool.get(
     table.getSourcePool().getData().asReadOnlyByteBuffer(),
-    table.getSourcePool().getSerializedSize())
+    table.getSourcePool().getData().size())
 
   // Deserialize the overlayable groups of a table
   val overlayables = mutableListOf<Overlayable>()
@@ -18,4 +18,10 @@
 plugins {
     @Suppress("JavaPluginLanguageLevel")
     id("java-library")
+    id("me.champeau.jmh") version "0.7.0"
+}
+
+dependencies {
+    testImplementation(libs.tests.junit)
+    testImplementation(libs.tests.google.truth)
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.fuzzysearch;
+
+import com.itsaky.androidide.fuzzysearch.algorithms.HumpMatcher;
+import com.itsaky.androidide.fuzzysearch.ratios.BitParallelRatio;
+import com.itsaky.androidide.fuzzysearch.ratios.SimpleRatio;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link BitParallelRatio} with {@link SimpleRatio} when matching a partial identifier
+ * against a set of completion candidates. Run with <code>./gradlew :subprojects:fuzzysearch:jmh
+ * </code>.
+ *
+ * @author Akash Yadav
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatioBenchmark {
+
+  private static final String[] WORDS = {
+    "get", "set", "is", "add", "remove", "on", "create", "support", "fragment", "manager",
+    "view", "text", "layout", "params", "context", "activity", "string", "builder", "list",
+    "value", "listener", "click", "item", "adapter", "holder", "resource", "color", "size"
+  };
+
+  private static final int CANDIDATES = 1000;
+
+  /** The length of the partial identifier. */
+  @Param({"2", "4", "8"})
+  public int partialLength;
+
+  private final Ratio simpleRatio = new SimpleRatio();
+  private final Ratio bitParallelRatio = new BitParallelRatio();
+
+  private String[] candidates;
+  private String partial;
+
+  @Setup
+  public void setup() {
+    final var random = new Random(42);
+    candidates = new String[CANDIDATES];
+    for (int i = 0; i < candidates.length; i++) {
+      candidates[i] = identifier(random, 1 + random.nextInt(4));
+    }
+
+    final var sb = new StringBuilder(identifier(random, 4).toLowerCase());
+    sb.setLength(Math.min(sb.length(), partialLength));
+    partial = sb.toString();
+  }
+
+  @Benchmark
+  public void simpleRatio(Blackhole blackhole) {
+    for (final var candidate : candidates) {
+      blackhole.consume(simpleRatio.apply(candidate, partial));
+    }
+  }
+
+  @Benchmark
+  public void bitParallelRatio(Blackhole blackhole) {
+    for (final var candidate : candidates) {
+      blackhole.consume(bitParallelRatio.apply(candidate, partial));
+    }
+  }
+
+  @Benchmark
+  public void humpMatcher(Blackhole blackhole) {
+    for (final var candidate : candidates) {
+      blackhole.consume(HumpMatcher.matches(candidate, partial));
+    }
+  }
+
+  private static String identifier(Random random, int words) {
+    final var sb = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      final var word = WORDS[random.nextInt(WORDS.length)];
+      sb.append(i == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+    }
+    return sb.toString();
+  }
+}
@@ -17,13 +17,14 @@
 
 package com.itsaky.androidide.fuzzysearch;
 
+import com.itsaky.androidide.fuzzysearch.algorithms.HumpMatcher;
 import com.itsaky.androidide.fuzzysearch.algorithms.TokenSet;
 import com.itsaky.androidide.fuzzysearch.algorithms.TokenSort;
 import com.itsaky.androidide.fuzzysearch.algorithms.WeightedRatio;
 import com.itsaky.androidide.fuzzysearch.model.BoundExtractedResult;
 import com.itsaky.androidide.fuzzysearch.model.ExtractedResult;
+import com.itsaky.androidide.fuzzysearch.ratios.BitParallelRatio;
 import com.itsaky.androidide.fuzzysearch.ratios.PartialRatio;
-import com.itsaky.androidide.fuzzysearch.ratios.SimpleRatio;
 
 import java.util.Collection;
 import java.util.List;
@@ -32,6 +33,9 @@ import java.util.List;
 @SuppressWarnings("unused")
 public class FuzzySearch {
 
+  /** Computes the same ratio as {@link com.itsaky.androidide.fuzzysearch.ratios.SimpleRatio}. */
+  private static final Ratio SIMPLE_RATIO = new BitParallelRatio();
+
   /**
    * Calculates a Levenshtein simple ratio between the strings. This is indicates a measure of
    * similarity
@@ -41,7 +45,18 @@ public class FuzzySearch {
    * @return The simple ratio
    */
   public static int ratio(String s1, String s2) {
-    return new SimpleRatio().apply(s1, s2);
+    return SIMPLE_RATIO.apply(s1, s2);
+  }
+
+  /**
+   * Same as {@link #ratio(String, String)}, but does not require the inputs to be strings.
+   *
+   * @param s1 Input string
+   * @param s2 Input string
+   * @return The simple ratio
+   */
+  public static int ratio(CharSequence s1, CharSequence s2) {
+    return BitParallelRatio.ratio(s1, s2);
   }
 
   /**
@@ -54,7 +69,20 @@ public class FuzzySearch {
    * @return The simple ratio
    */
   public static int ratio(String s1, String s2, ToStringFunction<String> stringFunction) {
-    return new SimpleRatio().apply(s1, s2, stringFunction);
+    return SIMPLE_RATIO.apply(s1, s2, stringFunction);
+  }
+
+  /**
+   * Whether the given pattern matches the CamelCase or snake_case humps of the given candidate. For
+   * example, <code>gsfm</code> matches <code>getSupportFragmentManager</code>.
+   *
+   * @param candidate The candidate identifier
+   * @param pattern The pattern
+   * @return <code>true</code> if the pattern matches
+   * @see HumpMatcher
+   */
+  public static boolean humpMatches(CharSequence candidate, CharSequence pattern) {
+    return HumpMatcher.matches(candidate, pattern);
   }
 
   /**
@@ -117,7 +145,7 @@ public class FuzzySearch {
    * @return The full ratio of the strings
    */
   public static int tokenSortRatio(String s1, String s2) {
-    return new TokenSort().apply(s1, s2, new SimpleRatio());
+    return new TokenSort().apply(s1, s2, SIMPLE_RATIO);
   }
 
   /**
@@ -130,7 +158,7 @@ public class FuzzySearch {
    * @return The full ratio of the strings
    */
   public static int tokenSortRatio(String s1, String s2, ToStringFunction<String> stringFunction) {
-    return new TokenSort().apply(s1, s2, new SimpleRatio(), stringFunction);
+    return new TokenSort().apply(s1, s2, SIMPLE_RATIO, stringFunction);
   }
 
   /**
@@ -143,7 +171,7 @@ public class FuzzySearch {
    * @return The ratio of similarity
    */
   public static int tokenSetRatio(String s1, String s2) {
-    return new TokenSet().apply(s1, s2, new SimpleRatio());
+    return new TokenSet().apply(s1, s2, SIMPLE_RATIO);
   }
 
   /**
@@ -157,7 +185,7 @@ public class FuzzySearch {
    * @return The ratio of similarity
    */
   public static int tokenSetRatio(String s1, String s2, ToStringFunction<String> stringFunction) {
-    return new TokenSet().apply(s1, s2, new SimpleRatio(), stringFunction);
+    return new TokenSet().apply(s1, s2, SIMPLE_RATIO, stringFunction);
   }
 
   /**
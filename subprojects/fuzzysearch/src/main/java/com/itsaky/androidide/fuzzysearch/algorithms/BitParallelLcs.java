@@ -0,0 +1,187 @@
+package com.itsaky.androidide.fuzzysearch.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Computes the length of the longest common subsequence of two strings with the bit-parallel
+ * algorithm by Hyyro (a variant of Myers' bit-vector algorithm). The characters of the shorter
+ * string are the bits of machine words, so one character of the longer string is processed with a
+ * few word operations per 64 characters of the shorter string.
+ *
+ * <p>The methods of this class do not allocate memory, except when the per-thread buffers need to
+ * grow for a longer string.
+ */
+public final class BitParallelLcs {
+
+  private BitParallelLcs() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Computes the length of the longest common subsequence of the given strings.
+   *
+   * @param s1 Input string.
+   * @param s2 Input string.
+   * @return The length of the LCS.
+   */
+  public static int length(CharSequence s1, CharSequence s2) {
+    final var len1 = s1.length();
+    final var len2 = s2.length();
+
+    // strip common prefix and suffix, they are always part of an LCS
+    var prefix = 0;
+    while (prefix < len1 && prefix < len2 && s1.charAt(prefix) == s2.charAt(prefix)) {
+      prefix++;
+    }
+
+    var suffix = 0;
+    while (suffix < len1 - prefix
+        && suffix < len2 - prefix
+        && s1.charAt(len1 - suffix - 1) == s2.charAt(len2 - suffix - 1)) {
+      suffix++;
+    }
+
+    final var end1 = len1 - suffix;
+    final var end2 = len2 - suffix;
+    if (prefix == end1 || prefix == end2) {
+      return prefix + suffix;
+    }
+
+    // the shorter string is the pattern
+    final int lcs;
+    if (end1 - prefix <= end2 - prefix) {
+      lcs = lcs(s1, prefix, end1, s2, prefix, end2);
+    } else {
+      lcs = lcs(s2, prefix, end2, s1, prefix, end1);
+    }
+    return prefix + suffix + lcs;
+  }
+
+  /**
+   * Computes the InDel distance (the Levenshtein distance where a substitution costs 2) of the
+   * given strings.
+   *
+   * @param s1 Input string.
+   * @param s2 Input string.
+   * @return The distance.
+   */
+  public static int indelDistance(CharSequence s1, CharSequence s2) {
+    return s1.length() + s2.length() - 2 * length(s1, s2);
+  }
+
+  private static int lcs(
+      CharSequence pattern, int patternStart, int patternEnd,
+      CharSequence text, int textStart, int textEnd) {
+    final var scratch = Scratch.get();
+    final var length = patternEnd - patternStart;
+    final var words = (length + 63) >>> 6;
+    final var masks = scratch.asciiMasks(words);
+
+    var nonAscii = false;
+    for (int i = 0; i < length; i++) {
+      final var ch = pattern.charAt(patternStart + i);
+      if (ch < 128) {
+        masks[ch * words + (i >>> 6)] |= 1L << (i & 63);
+      } else {
+        nonAscii = true;
+      }
+    }
+
+    try {
+      if (words == 1) {
+        return lcsSingleWord(pattern, patternStart, patternEnd, text, textStart, textEnd, masks,
+            nonAscii);
+      }
+      return lcsMultiWord(pattern, patternStart, patternEnd, text, textStart, textEnd, masks,
+          scratch.state(words), words, nonAscii);
+    } finally {
+      for (int i = 0; i < length; i++) {
+        final var ch = pattern.charAt(patternStart + i);
+        if (ch < 128) {
+          masks[ch * words + (i >>> 6)] = 0;
+        }
+      }
+    }
+  }
+
+  private static int lcsSingleWord(
+      CharSequence pattern, int patternStart, int patternEnd,
+      CharSequence text, int textStart, int textEnd,
+      long[] masks, boolean nonAscii) {
+    var s = ~0L;
+    for (int j = textStart; j < textEnd; j++) {
+      final var ch = text.charAt(j);
+      final long matches;
+      if (ch < 128) {
+        matches = masks[ch];
+      } else if (nonAscii) {
+        matches = matchMask(pattern, patternStart, patternEnd, ch);
+      } else {
+        continue;
+      }
+
+      final var u = s & matches;
+      s = (s + u) | (s - u);
+    }
+
+    final var length = patternEnd - patternStart;
+    final var used = length == 64 ? ~0L : (1L << length) - 1;
+    return Long.bitCount(~s & used);
+  }
+
+  private static int lcsMultiWord(
+      CharSequence pattern, int patternStart, int patternEnd,
+      CharSequence text, int textStart, int textEnd,
+      long[] masks, long[] state, int words, boolean nonAscii) {
+    Arrays.fill(state, 0, words, ~0L);
+    for (int j = textStart; j < textEnd; j++) {
+      final var ch = text.charAt(j);
+      if (ch >= 128 && !nonAscii) {
+        continue;
+      }
+
+      var carry = 0L;
+      for (int w = 0; w < words; w++) {
+        final long matches;
+        if (ch < 128) {
+          matches = masks[ch * words + w];
+        } else {
+          final var start = patternStart + (w << 6);
+          matches = matchMask(pattern, start, Math.min(patternEnd, start + 64), ch);
+        }
+
+        final var sw = state[w];
+        final var u = sw & matches;
+
+        // x = sw + u + carry, with the carry out of the word
+        var x = sw + carry;
+        var carryOut = Long.compareUnsigned(x, carry) < 0 ? 1L : 0L;
+        x += u;
+        carryOut |= Long.compareUnsigned(x, u) < 0 ? 1L : 0L;
+        carry = carryOut;
+
+        state[w] = x | (sw - u);
+      }
+    }
+
+    var lcs = 0;
+    final var length = patternEnd - patternStart;
+    for (int w = 0; w < words; w++) {
+      final var bits = Math.min(64, length - (w << 6));
+      final var used = bits == 64 ? ~0L : (1L << bits) - 1;
+      lcs += Long.bitCount(~state[w] & used);
+    }
+    return lcs;
+  }
+
+  /** Computes the match mask of a non-ASCII character, which is not in the mask table. */
+  private static long matchMask(CharSequence pattern, int start, int end, char ch) {
+    var mask = 0L;
+    for (int i = start; i < end; i++) {
+      if (pattern.charAt(i) == ch) {
+        mask |= 1L << (i - start);
+      }
+    }
+    return mask;
+  }
+}
@@ -0,0 +1,115 @@
+package com.itsaky.androidide.fuzzysearch.algorithms;
+
+/**
+ * Matches a pattern against the humps of a CamelCase or snake_case identifier. For example,
+ * <code>gsfm</code> and <code>getSFMan</code> match <code>getSupportFragmentManager</code>, and
+ * <code>mvn</code> matches <code>MAX_VALUE_NAME</code>.
+ *
+ * <p>The first character of the pattern must match the start of a hump. Each of the following
+ * characters must match either the character after the previously matched character, or the start
+ * of a later hump. Characters are compared ignoring the case.
+ *
+ * <p>The matching is done with dynamic programming over the per-thread buffers, so it does not
+ * allocate memory and does not backtrack.
+ */
+public final class HumpMatcher {
+
+  private HumpMatcher() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Whether the given pattern matches the humps of the given candidate.
+   *
+   * @param candidate The candidate identifier.
+   * @param pattern The pattern.
+   * @return <code>true</code> if the pattern matches.
+   */
+  public static boolean matches(CharSequence candidate, CharSequence pattern) {
+    final var n = candidate.length();
+    final var m = pattern.length();
+    if (m == 0) {
+      return true;
+    }
+
+    if (m > n) {
+      return false;
+    }
+
+    final var scratch = Scratch.get();
+    scratch.ensureHumpCapacity(n);
+    final var humps = scratch.humps;
+    for (int i = 0; i < n; i++) {
+      humps[i] = isHumpStart(candidate, i);
+    }
+
+    // next[i] : pattern[k + 1..] matches with pattern[k + 1] at candidate[i]
+    // current[i] : pattern[k..] matches with pattern[k] at candidate[i]
+    var next = scratch.next;
+    var current = scratch.current;
+    for (int k = m - 1; k >= 0; k--) {
+      final var ch = Character.toLowerCase(pattern.charAt(k));
+      final var last = k == m - 1;
+
+      // whether a hump after the current index matches the rest of the pattern
+      var humpAfter = false;
+      for (int i = n - 1; i >= 0; i--) {
+        current[i] =
+            n - i >= m - k
+                && Character.toLowerCase(candidate.charAt(i)) == ch
+                && (last || (i + 1 < n && next[i + 1]) || humpAfter);
+        if (!last && humps[i] && next[i]) {
+          humpAfter = true;
+        }
+      }
+
+      final var tmp = next;
+      next = current;
+      current = tmp;
+    }
+
+    for (int i = 0; i < n; i++) {
+      if (humps[i] && next[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether a hump starts at the given index of the identifier. A hump starts at the first
+   * character, after a separator, at an upper case letter after a lower case letter, at the last
+   * upper case letter of an acronym followed by a lower case letter (<code>C</code> in <code>
+   * URLConnection</code>) and at the first digit of a number.
+   */
+  static boolean isHumpStart(CharSequence s, int index) {
+    if (index == 0) {
+      return true;
+    }
+
+    final var ch = s.charAt(index);
+    if (isSeparator(ch)) {
+      return false;
+    }
+
+    final var prev = s.charAt(index - 1);
+    if (isSeparator(prev)) {
+      return true;
+    }
+
+    if (Character.isUpperCase(ch)) {
+      return !Character.isUpperCase(prev)
+          || (index + 1 < s.length() && Character.isLowerCase(s.charAt(index + 1)));
+    }
+
+    if (Character.isDigit(ch)) {
+      return !Character.isDigit(prev);
+    }
+
+    return false;
+  }
+
+  private static boolean isSeparator(char ch) {
+    return ch == '_' || ch == '$' || ch == '.' || ch == '-' || ch == ' ';
+  }
+}
@@ -2,7 +2,7 @@ package com.itsaky.androidide.fuzzysearch.algorithms;
 
 import com.itsaky.androidide.fuzzysearch.Ratio;
 import com.itsaky.androidide.fuzzysearch.ToStringFunction;
-import com.itsaky.androidide.fuzzysearch.ratios.SimpleRatio;
+import com.itsaky.androidide.fuzzysearch.ratios.BitParallelRatio;
 
 public abstract class RatioAlgorithm extends BasicAlgorithm {
 
@@ -10,7 +10,7 @@ public abstract class RatioAlgorithm extends BasicAlgorithm {
 
   public RatioAlgorithm() {
     super();
-    this.ratio = new SimpleRatio();
+    this.ratio = new BitParallelRatio();
   }
 
   public RatioAlgorithm(ToStringFunction<String> stringFunction) {
@@ -0,0 +1,50 @@
+package com.itsaky.androidide.fuzzysearch.algorithms;
+
+/**
+ * Reusable buffers for the scorers in this package. Each thread has its own instance, so the
+ * scorers do not allocate memory for each pair of strings.
+ */
+final class Scratch {
+
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  /**
+   * The match masks of the ASCII characters. There are <code>words</code> masks per character.
+   * All the masks are zero between two uses.
+   */
+  long[] asciiMasks = new long[128];
+
+  /** The state vector of the bit-parallel LCS algorithm. */
+  long[] state = new long[1];
+
+  boolean[] humps = new boolean[64];
+  boolean[] current = new boolean[64];
+  boolean[] next = new boolean[64];
+
+  static Scratch get() {
+    return SCRATCH.get();
+  }
+
+  long[] asciiMasks(int words) {
+    if (asciiMasks.length < words * 128) {
+      asciiMasks = new long[words * 128];
+    }
+    return asciiMasks;
+  }
+
+  long[] state(int words) {
+    if (state.length < words) {
+      state = new long[words];
+    }
+    return state;
+  }
+
+  void ensureHumpCapacity(int length) {
+    if (humps.length < length) {
+      final var capacity = Math.max(length, humps.length * 2);
+      humps = new boolean[capacity];
+      current = new boolean[capacity];
+      next = new boolean[capacity];
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.itsaky.androidide.fuzzysearch.ratios;
+
+import com.itsaky.androidide.fuzzysearch.Ratio;
+import com.itsaky.androidide.fuzzysearch.ToStringFunction;
+import com.itsaky.androidide.fuzzysearch.algorithms.BitParallelLcs;
+
+/**
+ * Computes the same ratio as {@link SimpleRatio}, but with the bit-parallel LCS algorithm
+ * ({@link BitParallelLcs}) instead of a dynamic programming matrix. The ratio does not allocate
+ * memory.
+ *
+ * <p>{@link SimpleRatio} computes the Levenshtein distance where a substitution costs 2 (InDel
+ * distance), which is <code>len1 + len2 - 2 * LCS</code>.
+ */
+public class BitParallelRatio implements Ratio {
+
+  /**
+   * Computes the similarity ratio between the given character sequences.
+   *
+   * @param s1 Input string
+   * @param s2 Input string
+   * @return The resulting ratio of similarity
+   */
+  public static int ratio(CharSequence s1, CharSequence s2) {
+    final var lensum = s1.length() + s2.length();
+    final var distance = BitParallelLcs.indelDistance(s1, s2);
+
+    // Same arithmetic as SimpleRatio, so that the results are equal
+    return (int) Math.round(100 * ((lensum - distance) / (double) lensum));
+  }
+
+  @Override
+  public int apply(String s1, String s2) {
+    return ratio(s1, s2);
+  }
+
+  @Override
+  public int apply(String s1, String s2, ToStringFunction<String> sp) {
+    return apply(sp.apply(s1), sp.apply(s2));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.fuzzysearch;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.itsaky.androidide.fuzzysearch.algorithms.BitParallelLcs;
+import com.itsaky.androidide.fuzzysearch.algorithms.HumpMatcher;
+import com.itsaky.androidide.fuzzysearch.ratios.BitParallelRatio;
+import com.itsaky.androidide.fuzzysearch.ratios.SimpleRatio;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BitParallelRatio} and {@link HumpMatcher}.
+ *
+ * @author Akash Yadav
+ */
+public class BitParallelRatioTest {
+
+  private static final String ALPHABET = "abcdABCD_x\u00e9\u6f22\ud83d\ude00";
+
+  @Test
+  public void testSameRatioAsSimpleRatio() {
+    final var random = new Random(42);
+    final var simple = new SimpleRatio();
+    final var bitParallel = new BitParallelRatio();
+    for (int i = 0; i < 10000; i++) {
+      // strings longer than 64 characters need more than one word per bit vector
+      final var max = i % 10 == 0 ? 200 : 30;
+      final var s1 = random(random, random.nextInt(max));
+      final var s2 = random(random, random.nextInt(max));
+      assertThat(bitParallel.apply(s1, s2)).isEqualTo(simple.apply(s1, s2));
+      assertThat(bitParallel.apply(s1, s1 + s2)).isEqualTo(simple.apply(s1, s1 + s2));
+    }
+  }
+
+  @Test
+  public void testEmptyStrings() {
+    assertThat(BitParallelRatio.ratio("", "")).isEqualTo(new SimpleRatio().apply("", ""));
+    assertThat(BitParallelRatio.ratio("abc", "")).isEqualTo(0);
+    assertThat(BitParallelRatio.ratio("abc", "abc")).isEqualTo(100);
+  }
+
+  @Test
+  public void testLcsLength() {
+    assertThat(BitParallelLcs.length("getSupportFragmentManager", "gsfm")).isEqualTo(2);
+    assertThat(BitParallelLcs.length("ABCBDAB", "BDCABA")).isEqualTo(4);
+    assertThat(BitParallelLcs.indelDistance("kitten", "sitting")).isEqualTo(5);
+  }
+
+  @Test
+  public void testHumpMatches() {
+    assertThat(HumpMatcher.matches("getSupportFragmentManager", "gsfm")).isTrue();
+    assertThat(HumpMatcher.matches("getSupportFragmentManager", "getSFMan")).isTrue();
+    assertThat(HumpMatcher.matches("MAX_VALUE_NAME", "mvn")).isTrue();
+    assertThat(HumpMatcher.matches("getAbcAbd", "gabd")).isTrue();
+    assertThat(HumpMatcher.matches("toString", "ts")).isTrue();
+  }
+
+  @Test
+  public void testHumpDoesNotMatch() {
+    assertThat(HumpMatcher.matches("getSupportFragmentManager", "gsx")).isFalse();
+    assertThat(HumpMatcher.matches("MAX_VALUE_NAME", "mnv")).isFalse();
+    assertThat(HumpMatcher.matches("getAbcAbd", "gbc")).isFalse();
+    assertThat(HumpMatcher.matches("ts", "toString")).isFalse();
+  }
+
+  private static String random(Random random, int length) {
+    final var sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return sb.toString();
+  }
+}
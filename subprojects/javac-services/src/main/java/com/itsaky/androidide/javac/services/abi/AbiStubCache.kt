@@ -0,0 +1,189 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.abi
+
+import com.itsaky.androidide.utils.ILogger
+import java.io.File
+import java.io.OutputStream
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+/**
+ * Builds and caches the ABI stubs of JAR files. The stub of a JAR contains the class files stripped
+ * with [ClassFileStripper], so javac reads far fewer bytes when it loads the symbols from the JAR.
+ *
+ * The stubs are built in the background. [stubsOrOriginals] returns the stubs which have already
+ * been built and schedules the missing ones, so they are used when the classpath is configured the
+ * next time (for example, when the project is opened again).
+ *
+ * A stub is keyed by the path, size and modification time of its JAR file.
+ *
+ * @author Akash Yadav
+ */
+object AbiStubCache {
+
+  /** Incremented when the format of the stubs changes. */
+  private const val VERSION = 2
+
+  /** The maximum number of stubs to keep. Least recently used stubs are deleted. */
+  private const val MAX_STUBS = 256
+
+  private const val MANIFEST = "META-INF/MANIFEST.MF"
+  private const val MODULE_INFO = "module-info.class"
+
+  private val log = ILogger.newInstance("AbiStubCache")
+
+  /** The names of the stubs which are being built, or could not be built. */
+  private val scheduled = ConcurrentHashMap.newKeySet<String>()
+
+  private val builder =
+    Executors.newSingleThreadExecutor { r ->
+      Thread(r, "AbiStubBuilder").apply {
+        isDaemon = true
+        priority = Thread.MIN_PRIORITY
+      }
+    }
+
+  /** The directory where the stubs are stored. Stubs are not used if this is `null`. */
+  @JvmStatic @Volatile var directory: File? = null
+
+  /**
+   * Replaces the given JAR files with their stubs, if available. The stubs of the other JAR files
+   * are built in the background.
+   *
+   * @param files The classpath entries.
+   * @param filter Whether the stub of a JAR file should be used. Should return `false` for the JAR
+   *   files which are modified often (e.g. the outputs of the project).
+   * @return The classpath entries, in the same order.
+   */
+  @JvmStatic
+  fun stubsOrOriginals(files: Collection<File>, filter: (File) -> Boolean): List<File> {
+    val dir = directory ?: return files.toList()
+    return files.map { file ->
+      if (file.isFile && file.extension == "jar" && filter(file)) {
+        stubOrOriginal(dir, file)
+      } else {
+        file
+      }
+    }
+  }
+
+  private fun stubOrOriginal(dir: File, jar: File): File {
+    val stub = File(dir, stubName(jar))
+    if (stub.isFile) {
+      stub.setLastModified(System.currentTimeMillis())
+      return stub
+    }
+
+    if (scheduled.add(stub.name)) {
+      builder.execute { buildStub(dir, jar, stub) }
+    }
+    return jar
+  }
+
+  private fun buildStub(dir: File, jar: File, stub: File) {
+    val start = System.currentTimeMillis()
+    try {
+      dir.mkdirs()
+      val tmp = File(dir, "${stub.name}.tmp")
+      tmp.outputStream().use { writeStub(jar, it) }
+      if (!tmp.renameTo(stub)) {
+        stub.delete()
+        tmp.renameTo(stub)
+      }
+    } catch (err: Throwable) {
+      // not removed from 'scheduled' so that it is not retried
+      log.error("Unable to build ABI stub for", jar, err)
+      return
+    }
+
+    log.info(
+      "Built ABI stub for ${jar.name} in ${System.currentTimeMillis() - start}ms " +
+        "(${jar.length()} -> ${stub.length()} bytes)"
+    )
+    scheduled.remove(stub.name)
+    prune(dir)
+  }
+
+  /**
+   * Writes the stub of the given JAR file. The class files are stripped, the manifest is kept and
+   * the other resources are removed.
+   */
+  internal fun writeStub(jar: File, out: OutputStream) {
+    ZipFile(jar).use { zip ->
+      ZipOutputStream(out.buffered()).use { zos ->
+        val names = HashSet<String>()
+        for (entry in zip.entries()) {
+          val name = entry.name
+          if (!names.add(name)) {
+            continue
+          }
+
+          if (entry.isDirectory) {
+            zos.putNextEntry(ZipEntry(name))
+            zos.closeEntry()
+            continue
+          }
+
+          if (!name.endsWith(".class") && name != MANIFEST) {
+            continue
+          }
+
+          val bytes = zip.getInputStream(entry).use { it.readBytes() }
+          zos.putNextEntry(ZipEntry(name))
+          zos.write(if (name.endsWith(".class")) stripClass(name, bytes) else bytes)
+          zos.closeEntry()
+        }
+      }
+    }
+  }
+
+  private fun stripClass(name: String, bytes: ByteArray): ByteArray {
+    if (name.endsWith(MODULE_INFO)) {
+      return bytes
+    }
+
+    return try {
+      ClassFileStripper.strip(bytes)
+    } catch (err: IllegalArgumentException) {
+      log.warn("Unable to strip class file", name, err.message)
+      bytes
+    }
+  }
+
+  private fun prune(dir: File) {
+    val stubs = dir.listFiles { file -> file.extension == "jar" } ?: return
+    if (stubs.size <= MAX_STUBS) {
+      return
+    }
+
+    stubs.sortedByDescending { it.lastModified() }.drop(MAX_STUBS).forEach { it.delete() }
+  }
+
+  private fun stubName(jar: File): String {
+    val key = "$VERSION:${jar.absolutePath}:${jar.length()}:${jar.lastModified()}"
+    val digest = MessageDigest.getInstance("SHA-256").digest(key.toByteArray())
+    val hash = digest.joinToString(separator = "") { "%02x".format(it) }
+    return "${jar.nameWithoutExtension}-$hash.jar"
+  }
+}
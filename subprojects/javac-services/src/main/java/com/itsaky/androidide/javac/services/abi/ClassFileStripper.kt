@@ -0,0 +1,500 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.abi
+
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+/**
+ * Strips a class file down to its ABI, i.e. what is needed to compile against the class.
+ *
+ * The method bodies, debug information and the attributes which are not read by javac are removed,
+ * and the constant pool is rebuilt with only the entries which are still referenced. The names of
+ * the method parameters are kept by replacing the `Code` attribute with an empty one which contains
+ * only the entries of the `LocalVariableTable` for the parameters. Private synthetic members (e.g.
+ * lambda bodies) are removed.
+ *
+ * The stripped class files are meant to be read by javac only, they cannot be loaded by a VM.
+ *
+ * @author Akash Yadav
+ */
+internal class ClassFileStripper private constructor(private val data: ByteArray) {
+
+  companion object {
+
+    private const val MAGIC = 0xCAFEBABE.toInt()
+
+    private const val ACC_PRIVATE = 0x0002
+    private const val ACC_SYNTHETIC = 0x1000
+
+    private const val CONSTANT_Utf8 = 1
+    private const val CONSTANT_Integer = 3
+    private const val CONSTANT_Float = 4
+    private const val CONSTANT_Long = 5
+    private const val CONSTANT_Double = 6
+    private const val CONSTANT_Class = 7
+    private const val CONSTANT_String = 8
+    private const val CONSTANT_Fieldref = 9
+    private const val CONSTANT_Methodref = 10
+    private const val CONSTANT_InterfaceMethodref = 11
+    private const val CONSTANT_NameAndType = 12
+    private const val CONSTANT_MethodHandle = 15
+    private const val CONSTANT_MethodType = 16
+    private const val CONSTANT_Dynamic = 17
+    private const val CONSTANT_InvokeDynamic = 18
+    private const val CONSTANT_Module = 19
+    private const val CONSTANT_Package = 20
+
+    /**
+     * Strips the given class file.
+     *
+     * @param classFile The contents of the class file.
+     * @return The contents of the stripped class file.
+     * @throws IllegalArgumentException If the class file is malformed or cannot be stripped.
+     */
+    fun strip(classFile: ByteArray): ByteArray {
+      return try {
+        ClassFileStripper(classFile).strip()
+      } catch (err: IndexOutOfBoundsException) {
+        throw IllegalArgumentException("Malformed class file", err)
+      }
+    }
+  }
+
+  private var pos = 0
+
+  /** The offsets of the constant pool entries in [data]. */
+  private var offsets = IntArray(0)
+
+  /** The indices of the constant pool entries in the stripped class file, `0` if not written. */
+  private var mapping = IntArray(0)
+
+  private val poolBytes = ByteArrayOutputStream(data.size / 2)
+  private val pool = DataOutputStream(poolBytes)
+  private var poolCount = 1
+
+  private fun strip(): ByteArray {
+    require(u4() == MAGIC) { "Not a class file" }
+    val minor = u2()
+    val major = u2()
+    readConstantPool()
+
+    val bodyBytes = ByteArrayOutputStream(data.size / 2)
+    val body = DataOutputStream(bodyBytes)
+    body.writeShort(u2()) // access flags
+    body.writeShort(map(u2())) // this class
+    body.writeShort(map(u2())) // super class
+
+    val interfaces = u2()
+    body.writeShort(interfaces)
+    repeat(interfaces) { body.writeShort(map(u2())) }
+
+    copyMembers(body) // fields
+    copyMembers(body) // methods
+    copyAttributes(body)
+
+    val result = ByteArrayOutputStream(10 + poolBytes.size() + bodyBytes.size())
+    DataOutputStream(result).apply {
+      writeInt(MAGIC)
+      writeShort(minor)
+      writeShort(major)
+      writeShort(poolCount)
+      poolBytes.writeTo(this)
+      bodyBytes.writeTo(this)
+    }
+    return result.toByteArray()
+  }
+
+  private fun readConstantPool() {
+    val count = u2()
+    offsets = IntArray(count)
+    mapping = IntArray(count)
+
+    var index = 1
+    while (index < count) {
+      offsets[index] = pos
+      val tag = data[pos].toInt()
+      pos += entrySize(offsets[index])
+      index += if (tag == CONSTANT_Long || tag == CONSTANT_Double) 2 else 1
+    }
+  }
+
+  private fun entrySize(offset: Int): Int {
+    return when (val tag = data[offset].toInt()) {
+      CONSTANT_Utf8 -> 3 + u2At(offset + 1)
+      CONSTANT_Integer,
+      CONSTANT_Float,
+      CONSTANT_Fieldref,
+      CONSTANT_Methodref,
+      CONSTANT_InterfaceMethodref,
+      CONSTANT_NameAndType,
+      CONSTANT_Dynamic,
+      CONSTANT_InvokeDynamic -> 5
+      CONSTANT_Long,
+      CONSTANT_Double -> 9
+      CONSTANT_Class,
+      CONSTANT_String,
+      CONSTANT_MethodType,
+      CONSTANT_Module,
+      CONSTANT_Package -> 3
+      CONSTANT_MethodHandle -> 4
+      else -> throw IllegalArgumentException("Invalid constant pool tag: $tag")
+    }
+  }
+
+  /**
+   * Writes the constant pool entry at the given index (and the entries it refers to) to the new
+   * constant pool, if not written already.
+   *
+   * @return The index of the entry in the new constant pool.
+   */
+  private fun map(index: Int): Int {
+    if (index == 0) {
+      return 0
+    }
+
+    if (mapping[index] != 0) {
+      return mapping[index]
+    }
+
+    val offset = offsets[index]
+    val tag = data[offset].toInt()
+    when (tag) {
+      CONSTANT_Class,
+      CONSTANT_String,
+      CONSTANT_MethodType,
+      CONSTANT_Module,
+      CONSTANT_Package -> {
+        val ref = map(u2At(offset + 1))
+        pool.writeByte(tag)
+        pool.writeShort(ref)
+      }
+      CONSTANT_Fieldref,
+      CONSTANT_Methodref,
+      CONSTANT_InterfaceMethodref,
+      CONSTANT_NameAndType -> {
+        val first = map(u2At(offset + 1))
+        val second = map(u2At(offset + 3))
+        pool.writeByte(tag)
+        pool.writeShort(first)
+        pool.writeShort(second)
+      }
+      CONSTANT_MethodHandle -> {
+        val ref = map(u2At(offset + 2))
+        pool.writeByte(tag)
+        pool.writeByte(data[offset + 1].toInt())
+        pool.writeShort(ref)
+      }
+      CONSTANT_Dynamic,
+      CONSTANT_InvokeDynamic ->
+        // the bootstrap methods are not kept
+        throw IllegalArgumentException("Dynamic constant referenced outside of code")
+      else -> pool.write(data, offset, entrySize(offset))
+    }
+
+    mapping[index] = poolCount
+    poolCount += if (tag == CONSTANT_Long || tag == CONSTANT_Double) 2 else 1
+    return mapping[index]
+  }
+
+  private fun copyMembers(out: DataOutputStream) {
+    val count = u2()
+    val membersBytes = ByteArrayOutputStream()
+    val members = DataOutputStream(membersBytes)
+    var kept = 0
+    repeat(count) {
+      val access = u2()
+      val name = u2()
+      val descriptor = u2()
+      if (access and ACC_PRIVATE != 0 && access and ACC_SYNTHETIC != 0) {
+        skipAttributes()
+        return@repeat
+      }
+
+      members.writeShort(access)
+      members.writeShort(map(name))
+      members.writeShort(map(descriptor))
+      copyAttributes(members)
+      ++kept
+    }
+
+    out.writeShort(kept)
+    membersBytes.writeTo(out)
+  }
+
+  private fun skipAttributes() {
+    repeat(u2()) {
+      pos += 2
+      val length = u4()
+      pos += length
+    }
+  }
+
+  private fun copyAttributes(out: DataOutputStream) {
+    val count = u2()
+    val attributesBytes = ByteArrayOutputStream()
+    val attributes = DataOutputStream(attributesBytes)
+    var kept = 0
+    repeat(count) {
+      val name = u2()
+      val length = u4()
+      val end = pos + length
+
+      val attributeBytes = ByteArrayOutputStream(length)
+      if (copyAttribute(utf8(name), DataOutputStream(attributeBytes))) {
+        attributes.writeShort(map(name))
+        attributes.writeInt(attributeBytes.size())
+        attributeBytes.writeTo(attributes)
+        ++kept
+      }
+
+      pos = end
+    }
+
+    out.writeShort(kept)
+    attributesBytes.writeTo(out)
+  }
+
+  /**
+   * Copies the contents of the attribute with the given name.
+   *
+   * @return Whether the attribute is kept. Nothing is written for the attributes which are not
+   *   kept.
+   */
+  private fun copyAttribute(name: String, out: DataOutputStream): Boolean {
+    when (name) {
+      "ConstantValue",
+      "Signature",
+      "NestHost" -> out.writeShort(map(u2()))
+      "Deprecated",
+      "Synthetic" -> Unit
+      "Exceptions",
+      "NestMembers",
+      "PermittedSubclasses" -> {
+        val count = u2()
+        out.writeShort(count)
+        repeat(count) { out.writeShort(map(u2())) }
+      }
+      "InnerClasses" -> {
+        val count = u2()
+        out.writeShort(count)
+        repeat(count) {
+          out.writeShort(map(u2())) // inner class
+          out.writeShort(map(u2())) // outer class
+          out.writeShort(map(u2())) // inner name
+          out.writeShort(u2()) // access flags
+        }
+      }
+      "EnclosingMethod" -> {
+        out.writeShort(map(u2()))
+        out.writeShort(map(u2()))
+      }
+      "MethodParameters" -> {
+        val count = u1()
+        out.writeByte(count)
+        repeat(count) {
+          out.writeShort(map(u2()))
+          out.writeShort(u2())
+        }
+      }
+      "RuntimeVisibleAnnotations",
+      "RuntimeInvisibleAnnotations" -> copyAnnotations(out)
+      "RuntimeVisibleParameterAnnotations",
+      "RuntimeInvisibleParameterAnnotations" -> {
+        val count = u1()
+        out.writeByte(count)
+        repeat(count) { copyAnnotations(out) }
+      }
+      "RuntimeVisibleTypeAnnotations",
+      "RuntimeInvisibleTypeAnnotations" -> {
+        val count = u2()
+        out.writeShort(count)
+        repeat(count) { copyTypeAnnotation(out) }
+      }
+      "AnnotationDefault" -> copyElementValue(out)
+      "Record" -> {
+        val count = u2()
+        out.writeShort(count)
+        repeat(count) {
+          out.writeShort(map(u2())) // name
+          out.writeShort(map(u2())) // descriptor
+          copyAttributes(out)
+        }
+      }
+      "Code" -> return copyParameterNames(out)
+      else -> return false
+    }
+    return true
+  }
+
+  /**
+   * Replaces the `Code` attribute with an empty one which only contains the entries of the local
+   * variable tables which start at the beginning of the method i.e. the parameters.
+   */
+  private fun copyParameterNames(out: DataOutputStream): Boolean {
+    pos += 2 // max stack
+    val maxLocals = u2()
+    val codeLength = u4()
+    pos += codeLength
+    val exceptionTableLength = u2()
+    pos += exceptionTableLength * 8
+
+    var tableName = 0
+    val entries = ArrayList<Int>()
+    repeat(u2()) {
+      val name = u2()
+      val length = u4()
+      val end = pos + length
+      if (utf8(name) == "LocalVariableTable") {
+        tableName = name
+        repeat(u2()) {
+          if (u2At(pos) == 0) {
+            entries.add(pos)
+          }
+          pos += 10
+        }
+      }
+      pos = end
+    }
+
+    if (entries.isEmpty()) {
+      return false
+    }
+
+    out.writeShort(0) // max stack
+    out.writeShort(maxLocals)
+    out.writeInt(0) // code length
+    out.writeShort(0) // exception table length
+    out.writeShort(1) // attributes count
+    out.writeShort(map(tableName))
+    out.writeInt(2 + entries.size * 10)
+    out.writeShort(entries.size)
+    for (entry in entries) {
+      out.writeShort(0) // start pc
+      out.writeShort(0) // length
+      out.writeShort(map(u2At(entry + 4)))
+      out.writeShort(map(u2At(entry + 6)))
+      out.writeShort(u2At(entry + 8))
+    }
+    return true
+  }
+
+  private fun copyAnnotations(out: DataOutputStream) {
+    val count = u2()
+    out.writeShort(count)
+    repeat(count) { copyAnnotation(out) }
+  }
+
+  private fun copyAnnotation(out: DataOutputStream) {
+    out.writeShort(map(u2())) // type
+    val count = u2()
+    out.writeShort(count)
+    repeat(count) {
+      out.writeShort(map(u2())) // element name
+      copyElementValue(out)
+    }
+  }
+
+  /**
+   * Copies a type annotation of a class, field or method. The type annotations which target the
+   * code of a method are in the `Code` attribute and are removed with it.
+   */
+  private fun copyTypeAnnotation(out: DataOutputStream) {
+    val targetType = u1()
+    out.writeByte(targetType)
+    when (targetType) {
+      0x00, // class type parameter
+      0x01, // method type parameter
+      0x16 -> out.writeByte(u1()) // formal parameter
+      0x10, // supertype
+      0x17 -> out.writeShort(u2()) // throws
+      0x11, // class type parameter bound
+      0x12 -> { // method type parameter bound
+        out.writeByte(u1())
+        out.writeByte(u1())
+      }
+      0x13, // field
+      0x14, // return type
+      0x15 -> Unit // receiver type
+      else -> throw IllegalArgumentException("Invalid type annotation target: $targetType")
+    }
+
+    val pathLength = u1()
+    out.writeByte(pathLength)
+    repeat(pathLength) {
+      out.writeByte(u1()) // type path kind
+      out.writeByte(u1()) // type argument index
+    }
+    copyAnnotation(out)
+  }
+
+  private fun copyElementValue(out: DataOutputStream) {
+    val tag = u1()
+    out.writeByte(tag)
+    when (tag.toChar()) {
+      'B',
+      'C',
+      'D',
+      'F',
+      'I',
+      'J',
+      'S',
+      'Z',
+      's',
+      'c' -> out.writeShort(map(u2()))
+      'e' -> {
+        out.writeShort(map(u2()))
+        out.writeShort(map(u2()))
+      }
+      '@' -> copyAnnotation(out)
+      '[' -> {
+        val count = u2()
+        out.writeShort(count)
+        repeat(count) { copyElementValue(out) }
+      }
+      else -> throw IllegalArgumentException("Invalid element value tag: $tag")
+    }
+  }
+
+  private fun utf8(index: Int): String {
+    val offset = offsets[index]
+    require(data[offset].toInt() == CONSTANT_Utf8) { "Not a UTF-8 constant: $index" }
+    return String(data, offset + 3, u2At(offset + 1), Charsets.UTF_8)
+  }
+
+  private fun u1(): Int {
+    return data[pos++].toInt() and 0xFF
+  }
+
+  private fun u2(): Int {
+    val value = u2At(pos)
+    pos += 2
+    return value
+  }
+
+  private fun u4(): Int {
+    val value = (u2At(pos) shl 16) or u2At(pos + 2)
+    pos += 4
+    return value
+  }
+
+  private fun u2At(offset: Int): Int {
+    return ((data[offset].toInt() and 0xFF) shl 8) or (data[offset + 1].toInt() and 0xFF)
+  }
+}
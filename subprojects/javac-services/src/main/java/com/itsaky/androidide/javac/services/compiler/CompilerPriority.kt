@@ -0,0 +1,48 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.compiler
+
+/**
+ * The priority with which a compilation context is borrowed from a [ReusableCompiler]. When all
+ * the contexts of the compiler are in use, the waiting requests are served in the order of their
+ * priority (declaration order) and then in the order in which they were made.
+ *
+ * @author Akash Yadav
+ */
+enum class CompilerPriority {
+
+  /** Code completion. The user is waiting for the result while typing. */
+  COMPLETION,
+
+  /** Signature help. */
+  SIGNATURE_HELP,
+
+  /** Any request which does not specify a priority. */
+  NORMAL,
+
+  /** Analysis of a file to report diagnostics. */
+  DIAGNOSTICS,
+
+  /** Finding references. Compiles many files and may take long. */
+  REFERENCES;
+
+  /** Whether the requests with this priority can be deferred in favor of interactive requests. */
+  val isBackground: Boolean
+    get() = this >= DIAGNOSTICS
+}
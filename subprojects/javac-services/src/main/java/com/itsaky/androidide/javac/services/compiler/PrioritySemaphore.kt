@@ -0,0 +1,124 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.compiler
+
+import java.util.PriorityQueue
+import java.util.concurrent.locks.Condition
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * A counting semaphore which hands out the released permits to the waiting threads in the order of
+ * their [CompilerPriority]. Threads waiting with the same priority are served in FIFO order. A
+ * thread which tries to acquire a permit while other threads are waiting is always queued, even if
+ * a permit is available, so that it cannot overtake a waiting thread.
+ *
+ * @param permits The initial number of permits.
+ * @author Akash Yadav
+ */
+class PrioritySemaphore(permits: Int) {
+
+  private val lock = ReentrantLock()
+  private val waiters = PriorityQueue<Waiter>()
+  private var available = permits
+  private var sequence = 0L
+
+  init {
+    require(permits >= 0) { "Invalid number of permits: $permits" }
+  }
+
+  /**
+   * Acquires a permit, blocking until one is available and there are no waiting threads with a
+   * higher priority.
+   *
+   * @param priority The priority of the caller.
+   * @throws InterruptedException If the current thread is interrupted while waiting.
+   */
+  @Throws(InterruptedException::class)
+  fun acquire(priority: CompilerPriority) {
+    lock.lockInterruptibly()
+    try {
+      if (available > 0 && waiters.isEmpty()) {
+        --available
+        return
+      }
+
+      val waiter = Waiter(priority, sequence++, lock.newCondition())
+      waiters.add(waiter)
+      try {
+        while (!waiter.granted) {
+          waiter.condition.await()
+        }
+      } catch (err: InterruptedException) {
+        if (waiter.granted) {
+          // the permit was handed over just before the interruption
+          releaseLocked()
+        } else {
+          waiters.remove(waiter)
+        }
+        throw err
+      }
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  /** Releases a permit. It is handed over to the waiting thread with the highest priority. */
+  fun release() {
+    lock.withLock { releaseLocked() }
+  }
+
+  /** Whether there are threads waiting to acquire a permit. */
+  fun hasQueuedThreads(): Boolean {
+    return lock.withLock { waiters.isNotEmpty() }
+  }
+
+  /** The number of threads waiting to acquire a permit. */
+  val queueLength: Int
+    get() = lock.withLock { waiters.size }
+
+  /** The number of permits which are currently available. */
+  val availablePermits: Int
+    get() = lock.withLock { available }
+
+  private fun releaseLocked() {
+    val next = waiters.poll()
+    if (next == null) {
+      ++available
+      return
+    }
+
+    next.granted = true
+    next.condition.signal()
+  }
+
+  private class Waiter(
+    val priority: CompilerPriority,
+    val sequence: Long,
+    val condition: Condition
+  ) : Comparable<Waiter> {
+
+    var granted = false
+
+    override fun compareTo(other: Waiter): Int {
+      val result = priority.compareTo(other.priority)
+      return if (result != 0) result else sequence.compareTo(other.sequence)
+    }
+  }
+}
@@ -18,11 +18,18 @@ package com.itsaky.androidide.javac.services.compiler
 
 import openjdk.tools.javac.api.JavacTaskImpl
 
-/** @author Akash Yadav */
+/**
+ * A task borrowed from a [ReusableCompiler]. The context of the task is returned to the compiler
+ * when the borrow is closed.
+ *
+ * @author Akash Yadav
+ */
 class ReusableBorrow
 internal constructor(
   private val reusableCompiler: ReusableCompiler,
-  @JvmField val task: JavacTaskImpl
+  @JvmField val task: JavacTaskImpl,
+  private val options: List<String>,
+  private val context: ReusableContext
 ) : AutoCloseable {
 
   private var closed = false
@@ -31,11 +38,17 @@ internal constructor(
     if (closed) {
       return
     }
-    // not returning the context to the pool if task crashes with an exception
-    // the task/context may be in a broken state
-    reusableCompiler.currentContext!!.clear()
-    task.cleanup()
-    reusableCompiler.checkedOut = false
     closed = true
+
+    var reusable: ReusableContext? = null
+    try {
+      context.clear()
+      task.cleanup()
+      reusable = context
+    } finally {
+      // not returning the context to the pool if it cannot be cleaned up
+      // the task/context may be in a broken state
+      reusableCompiler.release(options, reusable)
+    }
   }
 }
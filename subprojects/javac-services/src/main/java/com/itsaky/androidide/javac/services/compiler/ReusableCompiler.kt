@@ -31,7 +31,9 @@ import jdkx.tools.JavaFileObject
  * up leftovers from previous compilation.
  *
  * For each combination of options, a separate task/context is created and kept, as most option
- * values are cached inside components themselves.
+ * values are cached inside components themselves. At most [maxContexts] contexts are kept, so that
+ * that many compilations (e.g. a completion and a diagnostic pass) can run concurrently. When all
+ * of them are in use, the callers wait for a context in the order of their [CompilerPriority].
  *
  * When the compilation redefines sensitive classes (e.g. classes in the the java.* packages), the
  * task/context is not reused.
@@ -48,18 +50,53 @@ import jdkx.tools.JavaFileObject
  * your own risk. This code and its internal interfaces are subject to change or deletion without
  * notice.**
  */
-class ReusableCompiler {
+class ReusableCompiler @JvmOverloads constructor(
+  /** The maximum number of contexts which can be in use (or kept for reuse) at a time. */
+  val maxContexts: Int = 1
+) {
+
+  init {
+    require(maxContexts > 0) { "Invalid maxContexts: $maxContexts" }
+  }
+
   private val systemProvider = JavacTool.create()
-  private val currentOptions = mutableListOf<String>()
-  @JvmField var currentContext: ReusableContext? = null
+  private val permits = PrioritySemaphore(maxContexts)
+
+  /** The contexts which are not in use, the eldest first. Guarded by itself. */
+  private val idleContexts = ArrayDeque<PooledContext>()
 
-  internal var checkedOut = false
+  /** The number of contexts which are in use. Guarded by [idleContexts]. */
+  private var borrowedContexts = 0
+
+  /** Metrics about the contexts borrowed from this compiler. */
+  @JvmField val metrics = ReusableCompilerMetrics()
+
+  /** Same as [getTask] with [CompilerPriority.NORMAL]. */
+  fun getTask(
+    fileManager: JavaFileManager?,
+    diagnosticListener: DiagnosticListener<in JavaFileObject?>?,
+    options: Iterable<String>,
+    classes: Iterable<String>,
+    compilationUnits: Iterable<JavaFileObject?>?
+  ): ReusableBorrow {
+    return getTask(
+      fileManager,
+      diagnosticListener,
+      options,
+      classes,
+      compilationUnits,
+      CompilerPriority.NORMAL
+    )
+  }
 
   /**
    * Creates a new task as if by [jdkx.tools.JavaCompiler.getTask] and runs the provided worker
    * with it. The task is only valid while the worker is running. The internal structures may be
    * reused from some previous compilation.
    *
+   * If [maxContexts] tasks are already in use, this method blocks until one of them is closed.
+   * Waiting callers are served in the order of their [priority].
+   *
    * @param fileManager a file manager; if `null` use the compiler's standard filemanager
    * @param diagnosticListener a diagnostic listener; if `null` use the compiler's default method
    *   for reporting diagnostics
@@ -67,6 +104,7 @@ class ReusableCompiler {
    * @param classes names of classes to be processed by annotation processing, `null` means no class
    *   names
    * @param compilationUnits the compilation units to compile, `null` means no compilation units
+   * @param priority the priority of the caller
    * @return an object representing the compilation
    * @throws RuntimeException if an unrecoverable error occurred in a user supplied component. The
    *   [cause][Throwable.cause] will be the error in user code.
@@ -78,37 +116,86 @@ class ReusableCompiler {
     diagnosticListener: DiagnosticListener<in JavaFileObject?>?,
     options: Iterable<String>,
     classes: Iterable<String>,
-    compilationUnits: Iterable<JavaFileObject?>?
+    compilationUnits: Iterable<JavaFileObject?>?,
+    priority: CompilerPriority
   ): ReusableBorrow {
 
-    if (checkedOut) {
-      throw RuntimeException("Compiler is already in-use!")
+    val waitStart = System.nanoTime()
+    try {
+      permits.acquire(priority)
+    } catch (err: InterruptedException) {
+      Thread.currentThread().interrupt()
+      throw RuntimeException("Interrupted while waiting for the compiler", err)
     }
 
-    checkedOut = true
     val opts = options.toList()
-    if (opts != currentOptions) {
-      currentOptions.clear()
-      currentOptions.addAll(opts)
-      currentContext = ReusableContext(cancelService)
+    val context: ReusableContext
+    try {
+      val idle = takeIdleContext(opts)
+      context = idle ?: ReusableContext(cancelService)
+      metrics.onBorrowed(System.nanoTime() - waitStart, idle != null)
+
+      val task =
+        systemProvider.getTask(
+          null,
+          fileManager,
+          diagnosticListener,
+          opts,
+          classes,
+          compilationUnits,
+          context
+        ) as JavacTaskImpl
+
+      task.addTaskListener(context)
+
+      return ReusableBorrow(this, task, opts, context)
+    } catch (err: Throwable) {
+      release(opts, null)
+      throw err
     }
+  }
 
-    val task =
-      systemProvider.getTask(
-        null,
-        fileManager,
-        diagnosticListener,
-        opts,
-        classes,
-        compilationUnits,
-        currentContext
-      ) as JavacTaskImpl
+  /**
+   * Takes an idle context which was created for the given options. If there is no such context, the
+   * eldest idle contexts are discarded to make room for a new one.
+   */
+  private fun takeIdleContext(options: List<String>): ReusableContext? {
+    synchronized(idleContexts) {
+      ++borrowedContexts
 
-    task.addTaskListener(currentContext)
+      val iterator = idleContexts.iterator()
+      while (iterator.hasNext()) {
+        val idle = iterator.next()
+        if (idle.options == options) {
+          iterator.remove()
+          return idle.context
+        }
+      }
 
-    return ReusableBorrow(this, task)
+      while (idleContexts.isNotEmpty() && idleContexts.size + borrowedContexts > maxContexts) {
+        idleContexts.removeFirst()
+      }
+      return null
+    }
   }
 
+  /**
+   * Returns a borrowed context to the pool.
+   *
+   * @param context The context, or `null` if it must not be reused.
+   */
+  internal fun release(options: List<String>, context: ReusableContext?) {
+    synchronized(idleContexts) {
+      --borrowedContexts
+      if (context != null) {
+        idleContexts.addLast(PooledContext(options, context))
+      }
+    }
+    permits.release()
+  }
+
+  private class PooledContext(val options: List<String>, val context: ReusableContext)
+
   companion object {
     private val cancelService: CancelService = CancelServiceImpl()
   }
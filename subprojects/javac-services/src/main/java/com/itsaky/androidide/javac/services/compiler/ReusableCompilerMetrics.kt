@@ -0,0 +1,83 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.compiler
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts the contexts borrowed from a [ReusableCompiler], how many of them were reused and how
+ * long the borrowers had to wait for a context.
+ *
+ * @author Akash Yadav
+ */
+class ReusableCompilerMetrics {
+
+  private val borrowed = AtomicLong()
+  private val reused = AtomicLong()
+  private val waitNanos = AtomicLong()
+  private val maxWaitNanos = AtomicLong()
+
+  /** The number of contexts borrowed from the compiler. */
+  val borrowCount: Long
+    get() = borrowed.get()
+
+  /** The number of borrows which were served with a previously used context. */
+  val reuseCount: Long
+    get() = reused.get()
+
+  /** The fraction of borrows which were served with a previously used context. */
+  val reuseRate: Double
+    get() = borrowCount.let { if (it == 0L) 0.0 else reuseCount.toDouble() / it }
+
+  /** The total time spent waiting for a context, in milliseconds. */
+  val totalWaitTime: Long
+    get() = TimeUnit.NANOSECONDS.toMillis(waitNanos.get())
+
+  /** The longest time spent waiting for a context, in milliseconds. */
+  val maxWaitTime: Long
+    get() = TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get())
+
+  /** The average time spent waiting for a context, in milliseconds. */
+  val averageWaitTime: Double
+    get() = borrowCount.let { if (it == 0L) 0.0 else waitNanos.get() / 1_000_000.0 / it }
+
+  internal fun onBorrowed(waitNanos: Long, reused: Boolean) {
+    borrowed.incrementAndGet()
+    if (reused) {
+      this.reused.incrementAndGet()
+    }
+    this.waitNanos.addAndGet(waitNanos)
+    maxWaitNanos.accumulateAndGet(waitNanos, ::maxOf)
+  }
+
+  /** Resets all the counters. */
+  fun reset() {
+    borrowed.set(0)
+    reused.set(0)
+    waitNanos.set(0)
+    maxWaitNanos.set(0)
+  }
+
+  override fun toString(): String {
+    return "ReusableCompilerMetrics(borrowed=$borrowCount, reused=$reuseCount, " +
+      "reuseRate=${"%.2f".format(reuseRate)}, averageWait=${"%.2f".format(averageWaitTime)}ms, " +
+      "maxWait=${maxWaitTime}ms)"
+  }
+}
@@ -21,7 +21,13 @@ import com.itsaky.androidide.zipfs2.ZipFileSystem
 import com.itsaky.androidide.zipfs2.ZipFileSystemProvider
 import openjdk.tools.javac.file.RelativePath.RelativeDirectory
 import java.io.IOException
+import java.nio.file.FileVisitResult
+import java.nio.file.FileVisitResult.CONTINUE
+import java.nio.file.FileVisitResult.SKIP_SUBTREE
+import java.nio.file.Files
 import java.nio.file.Path
+import java.nio.file.SimpleFileVisitor
+import java.nio.file.attribute.BasicFileAttributes
 import jdkx.lang.model.SourceVersion
 
 /**
@@ -47,6 +53,28 @@ class CachedJarFileSystem(
     super.close()
   }
 
+  /**
+   * Walks the directories of this file system and stores the package directories, unless they have
+   * already been stored (for example, while listing the classes of the JAR file).
+   */
+  @Synchronized
+  fun indexPackagesIfNeeded() {
+    if (packages.isNotEmpty()) {
+      return
+    }
+
+    for (rootDirectory in rootDirectories) {
+      Files.walkFileTree(
+        rootDirectory,
+        object : SimpleFileVisitor<Path>() {
+          override fun preVisitDirectory(dir: Path?, attrs: BasicFileAttributes?): FileVisitResult {
+            return if (storeJARPackageDir(dir)) CONTINUE else SKIP_SUBTREE
+          }
+        }
+      )
+    }
+  }
+
   fun storeJARPackageDir(dir: Path?): Boolean {
     if (isValid(dir?.fileName)) {
       packages[RelativeDirectory(rootDir.relativize(dir!!).toString())] = dir
@@ -30,6 +30,9 @@ import java.nio.file.Path
 object JarPackageProviderImpl : JarPackageProvider {
   override fun getPackages(archivePath: Path): MutableMap<RelativeDirectory, Path> {
     val fs = CachingJarFileSystemProvider.newFileSystem(archivePath) as CachedJarFileSystem
+
+    // The packages are not stored if the class listing of the JAR was loaded from a cache
+    fs.indexPackagesIfNeeded()
     return fs.packages
   }
 }
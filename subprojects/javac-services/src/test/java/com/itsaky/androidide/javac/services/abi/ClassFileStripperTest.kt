@@ -0,0 +1,276 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.abi
+
+import com.google.common.truth.Truth.assertThat
+import com.sun.source.util.JavacTask
+import java.io.File
+import java.io.PrintWriter
+import java.io.StringWriter
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+import javax.lang.model.element.ExecutableElement
+import javax.lang.model.element.TypeElement
+import javax.lang.model.element.VariableElement
+import javax.lang.model.util.ElementFilter
+import javax.tools.Diagnostic
+import javax.tools.DiagnosticCollector
+import javax.tools.JavaFileObject
+import javax.tools.ToolProvider
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+/**
+ * Strips class files compiled by the system Java compiler and checks that javac reads the same ABI
+ * from the stripped class files.
+ *
+ * @author Akash Yadav
+ */
+class ClassFileStripperTest {
+
+  @JvmField @Rule val temp = TemporaryFolder()
+
+  private lateinit var classes: File
+  private lateinit var stripped: File
+
+  @Before
+  fun compileAndStrip() {
+    val sources = temp.newFolder("src")
+    source(
+      sources,
+      "p/Param.java",
+      """
+      package p;
+      public @interface Param {}
+      """
+    )
+    source(
+      sources,
+      "p/TypeUse.java",
+      """
+      package p;
+      import java.lang.annotation.*;
+      @Target(ElementType.TYPE_USE)
+      @Retention(RetentionPolicy.RUNTIME)
+      public @interface TypeUse {}
+      """
+    )
+    source(
+      sources,
+      "p/Api.java",
+      """
+      package p;
+      import java.util.List;
+      import java.util.function.Supplier;
+      @Deprecated
+      public class Api<T extends Number> {
+        public static final int CONSTANT = 42;
+        public static final String NAME = "name";
+        public List<String> names;
+        public Api(T value) {}
+        public <E extends Exception> List<T> values(int first, String second) throws E {
+          Supplier<String> supplier = () -> NAME + first + second;
+          return null;
+        }
+        public @TypeUse String typed(@Param String name) {
+          return name;
+        }
+      }
+      """
+    )
+
+    classes = temp.newFolder("classes")
+    val files = sources.walkTopDown().filter { it.isFile }.map { it.path }.toList()
+    val args = listOf("-g", "-d", classes.path) + files
+    assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, *args.toTypedArray()))
+      .isEqualTo(0)
+
+    stripped = temp.newFolder("stripped")
+    classes.walkTopDown().filter { it.isFile }.forEach { file ->
+      val out = File(stripped, file.relativeTo(classes).path)
+      out.parentFile.mkdirs()
+      out.writeBytes(ClassFileStripper.strip(file.readBytes()))
+    }
+  }
+
+  @Test
+  fun `test class files are smaller after stripping`() {
+    val original = File(classes, "p/Api.class")
+    val stub = File(stripped, "p/Api.class")
+    assertThat(stub.length()).isLessThan(original.length())
+
+    // javap verifies the constant pool indices while printing them
+    val javap = javap("-v", "-p", stub.path)
+    assertThat(javap).doesNotContain("lambda$")
+    assertThat(javap).doesNotContain("invokedynamic")
+    assertThat(javap).doesNotContain("LineNumberTable")
+  }
+
+  @Test
+  fun `test constant values are kept`() {
+    val api = readApi()
+    assertThat(field(api, "CONSTANT").constantValue).isEqualTo(42)
+    assertThat(field(api, "NAME").constantValue).isEqualTo("name")
+  }
+
+  @Test
+  fun `test signatures are kept`() {
+    val api = readApi()
+    assertThat(api.typeParameters.single().bounds.single().toString())
+      .isEqualTo("java.lang.Number")
+
+    val names = field(api, "names")
+    assertThat(names.asType().toString()).isEqualTo("java.util.List<java.lang.String>")
+
+    val values = method(api, "values")
+    assertThat(values.returnType.toString()).isEqualTo("java.util.List<T>")
+    assertThat(values.thrownTypes.single().toString()).isEqualTo("E")
+  }
+
+  @Test
+  fun `test annotations are kept`() {
+    val api = readApi()
+    assertThat(api.annotationMirrors.map { it.annotationType.toString() })
+      .containsExactly("java.lang.Deprecated")
+
+    val param = method(api, "typed").parameters.single()
+    assertThat(param.annotationMirrors.map { it.annotationType.toString() })
+      .containsExactly("p.Param")
+
+    val javap = javap("-v", File(stripped, "p/Api.class").path)
+    assertThat(javap).contains("RuntimeVisibleTypeAnnotations")
+    assertThat(javap).contains("METHOD_RETURN")
+  }
+
+  @Test
+  fun `test parameter names are kept`() {
+    val api = readApi()
+    assertThat(method(api, "values").parameters.map { it.simpleName.toString() })
+      .containsExactly("first", "second")
+      .inOrder()
+    assertThat(method(api, "typed").parameters.map { it.simpleName.toString() })
+      .containsExactly("name")
+
+    val constructor = ElementFilter.constructorsIn(api.enclosedElements).single()
+    assertThat(constructor.parameters.map { it.simpleName.toString() }).containsExactly("value")
+  }
+
+  @Test
+  fun `test malformed class files are rejected`() {
+    val bytes = File(classes, "p/Api.class").readBytes()
+    assertThrows(IllegalArgumentException::class.java) {
+      ClassFileStripper.strip(bytes.copyOf(bytes.size / 2))
+    }
+    assertThrows(IllegalArgumentException::class.java) {
+      ClassFileStripper.strip(byteArrayOf(1, 2, 3, 4, 5, 6, 7, 8))
+    }
+  }
+
+  @Test
+  fun `test stub keeps class files which cannot be stripped`() {
+    val api = File(classes, "p/Api.class").readBytes()
+    val malformed = api.copyOf(api.size / 2)
+
+    val jar = temp.newFile("lib.jar")
+    ZipOutputStream(jar.outputStream()).use { zos ->
+      zos.putNextEntry(ZipEntry("p/Api.class"))
+      zos.write(api)
+      zos.putNextEntry(ZipEntry("p/Malformed.class"))
+      zos.write(malformed)
+      zos.putNextEntry(ZipEntry("res/data.txt"))
+      zos.write("data".toByteArray())
+    }
+
+    val stub = temp.newFile("stub.jar")
+    stub.outputStream().use { AbiStubCache.writeStub(jar, it) }
+
+    ZipFile(stub).use { zip ->
+      fun bytesOf(name: String) = zip.getInputStream(zip.getEntry(name)).use { it.readBytes() }
+      assertThat(bytesOf("p/Api.class")).isEqualTo(ClassFileStripper.strip(api))
+      assertThat(bytesOf("p/Malformed.class")).isEqualTo(malformed)
+      assertThat(zip.getEntry("res/data.txt")).isNull()
+    }
+  }
+
+  private fun readApi(): TypeElement {
+    val client = File(temp.newFolder(), "Client.java")
+    client.writeText(
+      """
+      import java.util.List;
+      class Client {
+        List<String> names = new p.Api<Integer>(1).names;
+        int constant(int value) {
+          switch (value) {
+            case p.Api.CONSTANT: return 1;
+            default: return 0;
+          }
+        }
+      }
+      """
+        .trimIndent()
+    )
+
+    val compiler = ToolProvider.getSystemJavaCompiler()
+    val diagnostics = DiagnosticCollector<JavaFileObject>()
+    val fileManager = compiler.getStandardFileManager(diagnostics, null, null)
+    val task =
+      compiler.getTask(
+        null,
+        fileManager,
+        diagnostics,
+        listOf("-cp", stripped.path, "-parameters", "-proc:none"),
+        null,
+        fileManager.getJavaFileObjects(client)
+      ) as JavacTask
+    task.analyze()
+
+    val errors = diagnostics.diagnostics.filter { it.kind == Diagnostic.Kind.ERROR }
+    assertThat(errors.map { it.getMessage(null) }).isEmpty()
+    return task.elements.getTypeElement("p.Api")
+  }
+
+  private fun field(type: TypeElement, name: String): VariableElement {
+    return ElementFilter.fieldsIn(type.enclosedElements).single {
+      it.simpleName.contentEquals(name)
+    }
+  }
+
+  private fun method(type: TypeElement, name: String): ExecutableElement {
+    return ElementFilter.methodsIn(type.enclosedElements).single {
+      it.simpleName.contentEquals(name)
+    }
+  }
+
+  private fun javap(vararg args: String): String {
+    val out = StringWriter()
+    val javap = java.util.spi.ToolProvider.findFirst("javap").get()
+    assertThat(javap.run(PrintWriter(out), PrintWriter(out), *args)).isEqualTo(0)
+    return out.toString()
+  }
+
+  private fun source(dir: File, path: String, content: String) {
+    val file = File(dir, path)
+    file.parentFile.mkdirs()
+    file.writeText(content.trimIndent())
+  }
+}
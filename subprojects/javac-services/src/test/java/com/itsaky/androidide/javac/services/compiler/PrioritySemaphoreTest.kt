@@ -0,0 +1,151 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.compiler
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.COMPLETION
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.DIAGNOSTICS
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.NORMAL
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.REFERENCES
+import com.itsaky.androidide.javac.services.compiler.CompilerPriority.SIGNATURE_HELP
+import java.util.Collections
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+import org.junit.Test
+
+/** @author Akash Yadav */
+class PrioritySemaphoreTest {
+
+  @Test(timeout = 10_000)
+  fun `test waiters are served in priority order`() {
+    val semaphore = PrioritySemaphore(1)
+    semaphore.acquire(NORMAL)
+
+    val order = Collections.synchronizedList(mutableListOf<Any>())
+    val priorities = listOf(REFERENCES, DIAGNOSTICS, NORMAL, COMPLETION, SIGNATURE_HELP)
+    val waiters =
+      priorities.mapIndexed { index, priority ->
+        waiter(semaphore, priority, priority, order).also { awaitQueueLength(semaphore, index + 1) }
+      }
+
+    semaphore.release()
+    waiters.forEach { it.join() }
+
+    assertThat(order)
+      .containsExactly(COMPLETION, SIGNATURE_HELP, NORMAL, DIAGNOSTICS, REFERENCES)
+      .inOrder()
+    assertThat(semaphore.availablePermits).isEqualTo(1)
+  }
+
+  @Test(timeout = 10_000)
+  fun `test waiters with the same priority are served in FIFO order`() {
+    val semaphore = PrioritySemaphore(1)
+    semaphore.acquire(NORMAL)
+
+    val order = Collections.synchronizedList(mutableListOf<Any>())
+    val waiters =
+      (0 until 5).map { index ->
+        waiter(semaphore, DIAGNOSTICS, index, order).also { awaitQueueLength(semaphore, index + 1) }
+      }
+
+    semaphore.release()
+    waiters.forEach { it.join() }
+
+    assertThat(order).containsExactly(0, 1, 2, 3, 4).inOrder()
+    assertThat(semaphore.availablePermits).isEqualTo(1)
+  }
+
+  @Test(timeout = 10_000)
+  fun `test interrupted waiter leaves the queue`() {
+    val semaphore = PrioritySemaphore(1)
+    semaphore.acquire(NORMAL)
+
+    val interrupted = AtomicBoolean(false)
+    val waiter = thread {
+      try {
+        semaphore.acquire(COMPLETION)
+      } catch (err: InterruptedException) {
+        interrupted.set(true)
+      }
+    }
+    awaitQueueLength(semaphore, 1)
+
+    waiter.interrupt()
+    waiter.join()
+
+    assertThat(interrupted.get()).isTrue()
+    assertThat(semaphore.queueLength).isEqualTo(0)
+    assertThat(semaphore.availablePermits).isEqualTo(0)
+
+    semaphore.release()
+    assertThat(semaphore.availablePermits).isEqualTo(1)
+  }
+
+  @Test(timeout = 30_000)
+  fun `test permit is handed over when the granted waiter is interrupted`() {
+    repeat(200) {
+      val semaphore = PrioritySemaphore(1)
+      semaphore.acquire(NORMAL)
+
+      val first = thread {
+        try {
+          semaphore.acquire(COMPLETION)
+          semaphore.release()
+        } catch (err: InterruptedException) {
+          // the permit must have been passed to the next waiter
+        }
+      }
+      awaitQueueLength(semaphore, 1)
+
+      val next = thread {
+        semaphore.acquire(REFERENCES)
+        semaphore.release()
+      }
+      awaitQueueLength(semaphore, 2)
+
+      // the permit may be granted to the first waiter just before it sees the interruption
+      first.interrupt()
+      semaphore.release()
+
+      first.join()
+      next.join()
+      assertThat(semaphore.queueLength).isEqualTo(0)
+      assertThat(semaphore.availablePermits).isEqualTo(1)
+    }
+  }
+
+  private fun waiter(
+    semaphore: PrioritySemaphore,
+    priority: CompilerPriority,
+    tag: Any,
+    order: MutableList<Any>
+  ): Thread {
+    return thread {
+      semaphore.acquire(priority)
+      order.add(tag)
+      semaphore.release()
+    }
+  }
+
+  private fun awaitQueueLength(semaphore: PrioritySemaphore, length: Int) {
+    while (semaphore.queueLength < length) {
+      Thread.yield()
+    }
+  }
+}
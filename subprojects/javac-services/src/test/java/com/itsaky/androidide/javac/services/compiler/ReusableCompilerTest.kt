@@ -0,0 +1,91 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.javac.services.compiler
+
+import com.google.common.truth.Truth.assertThat
+import openjdk.tools.javac.comp.Modules
+import openjdk.tools.javac.util.Context
+import org.junit.Assert.assertThrows
+import org.junit.Test
+
+/** @author Akash Yadav */
+class ReusableCompilerTest {
+
+  companion object {
+    private val OPTIONS = listOf("-proc:none")
+    private val OTHER_OPTIONS = listOf("-proc:none", "-g")
+  }
+
+  @Test(timeout = 30_000)
+  fun `test idle context is reused for the same options`() {
+    val compiler = ReusableCompiler(1)
+    borrow(compiler, OPTIONS).close()
+    borrow(compiler, OPTIONS).close()
+
+    assertThat(compiler.metrics.borrowCount).isEqualTo(2)
+    assertThat(compiler.metrics.reuseCount).isEqualTo(1)
+  }
+
+  @Test(timeout = 30_000)
+  fun `test idle context with other options is evicted`() {
+    val compiler = ReusableCompiler(1)
+    borrow(compiler, OPTIONS).close()
+
+    // evicts the idle context, there is room for one context only
+    borrow(compiler, OTHER_OPTIONS).close()
+    borrow(compiler, OPTIONS).close()
+
+    assertThat(compiler.metrics.borrowCount).isEqualTo(3)
+    assertThat(compiler.metrics.reuseCount).isEqualTo(0)
+  }
+
+  @Test(timeout = 30_000)
+  fun `test idle contexts are kept for each options up to the maximum`() {
+    val compiler = ReusableCompiler(2)
+    borrow(compiler, OPTIONS).close()
+    borrow(compiler, OTHER_OPTIONS).close()
+    borrow(compiler, OPTIONS).close()
+    borrow(compiler, OTHER_OPTIONS).close()
+
+    assertThat(compiler.metrics.borrowCount).isEqualTo(4)
+    assertThat(compiler.metrics.reuseCount).isEqualTo(2)
+  }
+
+  @Test(timeout = 30_000)
+  fun `test context is released after a cleanup failure`() {
+    val compiler = ReusableCompiler(1)
+    val borrow = borrow(compiler, OPTIONS)
+
+    // the context is cleaned up for reuse when the borrow is closed, which fails here
+    borrow.task.context.put(
+      Modules::class.java,
+      Context.Factory<Modules> { throw IllegalStateException("cleanup failed") }
+    )
+    assertThrows(IllegalStateException::class.java) { borrow.close() }
+
+    // the permit is released, but the broken context is not reused
+    borrow(compiler, OPTIONS).close()
+    assertThat(compiler.metrics.borrowCount).isEqualTo(2)
+    assertThat(compiler.metrics.reuseCount).isEqualTo(0)
+  }
+
+  private fun borrow(compiler: ReusableCompiler, options: List<String>): ReusableBorrow {
+    return compiler.getTask(null, null, options, emptyList(), emptyList())
+  }
+}
@@ -18,13 +18,22 @@
 package com.itsaky.androidide.projects
 
 import com.itsaky.androidide.eventbus.events.EventReceiver
+import com.itsaky.androidide.eventbus.events.editor.ChangeType.DELETE
+import com.itsaky.androidide.eventbus.events.editor.ChangeType.INSERT
+import com.itsaky.androidide.eventbus.events.editor.ChangeType.NEW_TEXT
 import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent
 import com.itsaky.androidide.eventbus.events.editor.DocumentCloseEvent
 import com.itsaky.androidide.eventbus.events.editor.DocumentOpenEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentResyncRequestEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentSaveEvent
+import com.itsaky.androidide.eventbus.events.file.FileDeletionEvent
+import com.itsaky.androidide.eventbus.events.file.FileRenameEvent
 import com.itsaky.androidide.models.Range
 import com.itsaky.androidide.progress.ProcessCancelledException
 import com.itsaky.androidide.progress.ProgressManager
 import com.itsaky.androidide.projects.models.ActiveDocument
+import com.itsaky.androidide.projects.models.DocumentSnapshot
+import com.itsaky.androidide.utils.Cache
 import com.itsaky.androidide.utils.ILogger
 import java.io.BufferedReader
 import java.io.InputStream
@@ -32,7 +41,10 @@ import java.nio.charset.Charset
 import java.nio.file.Files
 import java.nio.file.Path
 import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
 import org.apache.commons.io.FileUtils
+import org.greenrobot.eventbus.EventBus
 import org.greenrobot.eventbus.Subscribe
 import org.greenrobot.eventbus.ThreadMode.BACKGROUND
 
@@ -44,7 +56,29 @@ import org.greenrobot.eventbus.ThreadMode.BACKGROUND
 object FileManager : EventReceiver {
 
   private val log = ILogger.newInstance(javaClass.simpleName)
-  private val activeDocuments: MutableMap<Path, ActiveDocument> = mutableMapOf()
+  private val activeDocuments: MutableMap<Path, ActiveDocument> = ConcurrentHashMap()
+
+  /** The documents which missed a change and wait for the editor to send their complete text. */
+  private val outdatedDocuments: MutableSet<Path> = ConcurrentHashMap.newKeySet()
+  private val changeListeners = CopyOnWriteArrayList<DocumentChangeListener>()
+
+  /** Listener for the changes in the contents of the active documents. */
+  fun interface DocumentChangeListener {
+
+    /**
+     * Called on the thread which applies the change, before the new contents of the document are
+     * visible through [FileManager].
+     */
+    fun onDocumentChange(event: DocumentChangeEvent)
+  }
+
+  fun addDocumentChangeListener(listener: DocumentChangeListener) {
+    changeListeners.add(listener)
+  }
+
+  fun removeDocumentChangeListener(listener: DocumentChangeListener) {
+    changeListeners.remove(listener)
+  }
 
   fun isActive(file: Path): Boolean {
     return this.activeDocuments.containsKey(file.normalize())
@@ -67,6 +101,19 @@ object FileManager : EventReceiver {
     return getFileContents(file)
   }
 
+  /**
+   * Get the text of the given file. If the file is opened in the editor, the snapshot of the
+   * document is returned without flattening it to a string.
+   */
+  fun getDocumentText(file: Path): CharSequence {
+    val document = getActiveDocument(file)
+    if (document != null) {
+      return document.snapshot
+    }
+
+    return getFileContents(file)
+  }
+
   fun getLastModified(file: Path): Instant {
     val document = getActiveDocument(file)
     if (document != null) {
@@ -97,25 +144,80 @@ object FileManager : EventReceiver {
   @Subscribe(threadMode = BACKGROUND)
   @Suppress("unused")
   fun onDocumentOpen(event: DocumentOpenEvent) {
+    outdatedDocuments.remove(event.openedFile.normalize())
     activeDocuments[event.openedFile.normalize()] = createDocument(event)
+    invalidateCaches(event.openedFile)
   }
 
   @Subscribe(threadMode = BACKGROUND)
   @Suppress("unused")
   fun onDocumentContentChange(event: DocumentChangeEvent) {
-    activeDocuments[event.changedFile.normalize()] = createDocument(event)
+    changeListeners.forEach { it.onDocumentChange(event) }
+
+    val file = event.changedFile.normalize()
+    val document =
+      if (event.newText == null && file in outdatedDocuments) {
+        // the previous changes were not applied, this one cannot be applied either
+        null
+      } else {
+        createDocument(event, activeDocuments[file])
+      }
+
+    if (document != null) {
+      outdatedDocuments.remove(file)
+      activeDocuments[file] = document
+    } else if (outdatedDocuments.add(file)) {
+      // the last applied version is kept until the editor sends the complete text
+      EventBus.getDefault().post(DocumentResyncRequestEvent(file))
+    }
+    invalidateCaches(event.changedFile)
+  }
+
+  @Subscribe(threadMode = BACKGROUND)
+  @Suppress("unused")
+  fun onDocumentSave(event: DocumentSaveEvent) {
+    invalidateCaches(event.savedFile)
   }
 
   @Subscribe(threadMode = BACKGROUND)
   @Suppress("unused")
   fun onDocumentClose(event: DocumentCloseEvent) {
     activeDocuments.remove(event.closedFile.normalize())
+    outdatedDocuments.remove(event.closedFile.normalize())
+
+    // unsaved changes are discarded when the document is closed
+    invalidateCaches(event.closedFile)
+  }
+
+  @Subscribe(threadMode = BACKGROUND)
+  @Suppress("unused")
+  fun onFileDeleted(event: FileDeletionEvent) {
+    invalidateCaches(event.file.toPath())
+  }
+
+  @Subscribe(threadMode = BACKGROUND)
+  @Suppress("unused")
+  fun onFileRenamed(event: FileRenameEvent) {
+    invalidateCaches(event.file.toPath())
+  }
+
+  /**
+   * Drops the cached entries for the given file. The caches rely on this instead of checking the
+   * modification time of the file on every lookup.
+   */
+  private fun invalidateCaches(file: Path) {
+    Cache.invalidateAll(file)
+
+    val normalized = file.normalize()
+    if (normalized != file) {
+      Cache.invalidateAll(normalized)
+    }
   }
 
   private fun createDocument(event: DocumentOpenEvent): ActiveDocument {
     return ActiveDocument(
       file = event.openedFile,
-      content = event.text,
+      snapshot = DocumentSnapshot.of(event.text),
       changeRange = Range.NONE,
       version = event.version,
       changDelta = 0,
@@ -123,10 +225,14 @@ object FileManager : EventReceiver {
     )
   }
 
-  private fun createDocument(event: DocumentChangeEvent): ActiveDocument {
+  private fun createDocument(
+    event: DocumentChangeEvent,
+    previous: ActiveDocument?
+  ): ActiveDocument? {
+    val snapshot = event.newText?.let { DocumentSnapshot.of(it) } ?: applyChange(event, previous)
     return ActiveDocument(
       file = event.changedFile,
-      content = event.newText,
+      snapshot = snapshot ?: return null,
       changeRange = event.changeRange,
       version = event.version,
       changDelta = event.changeDelta,
@@ -134,6 +240,34 @@ object FileManager : EventReceiver {
     )
   }
 
+  /** Applies the change in the given event to the snapshot of the previous version. */
+  private fun applyChange(
+    event: DocumentChangeEvent,
+    previous: ActiveDocument?
+  ): DocumentSnapshot? {
+    if (previous == null || previous.version + 1 != event.version) {
+      log.error(
+        "Cannot apply change to ${event.changedFile}. Expected version",
+        previous?.version?.plus(1),
+        "but got",
+        event.version
+      )
+      return null
+    }
+
+    val start = event.changeRange.start.index
+    return try {
+      when (event.changeType) {
+        INSERT -> previous.snapshot.insert(start, event.changedText)
+        DELETE -> previous.snapshot.delete(start, event.changeRange.end.index)
+        NEW_TEXT -> null
+      }
+    } catch (err: IndexOutOfBoundsException) {
+      log.error("Cannot apply change to ${event.changedFile}", err)
+      null
+    }
+  }
+
   private fun createFileReader(file: Path): BufferedReader {
     return try {
       Files.newBufferedReader(file)
@@ -17,6 +17,8 @@
 package com.itsaky.androidide.projects
 
 import com.itsaky.androidide.eventbus.events.EventReceiver
+import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentCloseEvent
 import com.itsaky.androidide.eventbus.events.editor.DocumentSaveEvent
 import com.itsaky.androidide.eventbus.events.file.FileCreationEvent
 import com.itsaky.androidide.eventbus.events.file.FileDeletionEvent
@@ -28,6 +30,7 @@ import com.itsaky.androidide.projects.api.AndroidModule
 import com.itsaky.androidide.projects.api.ModuleProject
 import com.itsaky.androidide.projects.api.Project
 import com.itsaky.androidide.projects.builder.BuildService
+import com.itsaky.androidide.projects.classpath.ClasspathCache
 import com.itsaky.androidide.projects.util.ProjectTransformer
 import com.itsaky.androidide.tasks.executeAsync
 import com.itsaky.androidide.tooling.api.IProject
@@ -37,7 +40,6 @@ import java.io.File
 import java.nio.file.Path
 import kotlin.io.path.extension
 import kotlin.io.path.isDirectory
-import kotlin.io.path.pathString
 import org.greenrobot.eventbus.EventBus
 import org.greenrobot.eventbus.Subscribe
 import org.greenrobot.eventbus.ThreadMode.ASYNC
@@ -64,15 +66,32 @@ object ProjectManager : EventReceiver {
     this.rootProject = ProjectTransformer().transform(caching)
     if (this.rootProject != null) {
       this.app = this.rootProject!!.findFirstAndroidAppModule()
+      ClasspathCache.setCacheFile(classpathCacheFile(this.rootProject!!.buildDir))
       this.rootProject!!.subModules.filterIsInstance(ModuleProject::class.java).forEach {
         it.indexSourcesAndClasspaths()
         if (it is AndroidModule) {
           it.readResources()
         }
       }
+      ClasspathCache.save()
     }
   }
   
+  /**
+   * Loads the cached classpath listings of the project at [projectPath] from its default build
+   * directory. Called before the project is set up, so that the JARs which are listed early (like
+   * the bundled android.jar) are read from the cache as well.
+   */
+  fun loadClasspathCache() {
+    if (::projectPath.isInitialized) {
+      ClasspathCache.setCacheFile(classpathCacheFile(File(projectPath, "build")))
+    }
+  }
+
+  private fun classpathCacheFile(buildDir: File): File {
+    return File(buildDir, "cache/androidide/classpaths.bin")
+  }
+
   fun destroy() {
     log.info("Destroying project manager")
     this.rootProject = null
@@ -213,39 +232,73 @@ object ProjectManager : EventReceiver {
         return@apply
       }
 
-      val module = findModuleForFile(this) ?: return@apply
-      if (module !is AndroidModule) {
-        return@apply
-      }
+      updateResourceTable(toFile())
+    }
 
-      val isResource =
-        module.mainSourceSet?.sourceProvider?.resDirectories?.any {
-          this.pathString.contains(it.path)
-        }
-          ?: false
+    forEachModule { it.onSourceFileSaved(event.savedFile) }
+  }
 
-      if (isResource) {
-        module.updateResourceTable()
-      }
-    }
+  @Suppress("unused")
+  @Subscribe(threadMode = BACKGROUND)
+  fun onDocumentChanged(event: DocumentChangeEvent) {
+    forEachModule { it.onSourceFileChanged(event.changedFile) }
+  }
+
+  @Suppress("unused")
+  @Subscribe(threadMode = BACKGROUND)
+  fun onDocumentClosed(event: DocumentCloseEvent) {
+    // unsaved changes are discarded when the document is closed
+    forEachModule { it.onSourceFileChanged(event.closedFile) }
   }
 
   @Suppress("unused")
   @Subscribe(threadMode = BACKGROUND)
   fun onFileCreated(event: FileCreationEvent) {
     generateSourcesIfNecessary(event)
+    updateResourceTable(event.file)
+    forEachModule { it.onSourceFileCreated(event.file.toPath()) }
   }
 
   @Suppress("unused")
   @Subscribe(threadMode = BACKGROUND)
   fun onFileDeleted(event: FileDeletionEvent) {
     generateSourcesIfNecessary(event)
+    updateResourceTable(event.file)
+    forEachModule { it.onSourceFileRemoved(event.file.toPath()) }
   }
 
   @Suppress("unused")
   @Subscribe(threadMode = BACKGROUND)
   fun onFileRenamed(event: FileRenameEvent) {
     generateSourcesIfNecessary(event)
+    forEachModule { it.onSourceFileRemoved(event.file.toPath()) }
+  }
+
+  private fun updateResourceTable(file: File) {
+    val module = findModuleForFile(file) ?: return
+    if (module !is AndroidModule) {
+      return
+    }
+
+    val isResource =
+      module.mainSourceSet?.sourceProvider?.resDirectories?.any { file.path.contains(it.path) }
+        ?: false
+
+    if (isResource) {
+      module.updateResourceTable(file)
+    }
+  }
+
+  private fun forEachModule(action: (ModuleProject) -> Unit) {
+    if (!isInitialized()) {
+      return
+    }
+
+    this.rootProject!!.subModules.forEach {
+      if (it is ModuleProject) {
+        action(it)
+      }
+    }
   }
 
   private fun generateSourcesIfNecessary(event: FileEvent) {
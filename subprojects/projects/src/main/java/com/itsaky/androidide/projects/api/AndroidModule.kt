@@ -46,6 +46,8 @@ import com.itsaky.androidide.xml.widgets.WidgetTable
 import com.itsaky.androidide.xml.widgets.WidgetTableRegistry
 import java.io.File
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 
 /**
  * A [Project] model implementation for Android modules which is exposed to other modules and
@@ -122,6 +124,24 @@ open class AndroidModule( // Class must be open because BaseXMLTest mocks this..
   private val log = ILogger.newInstance(javaClass.simpleName)
   override var moduleData: SimpleModuleData? = null
 
+  /**
+   * The resource tables of the dependencies. The module instances are re-created when the project
+   * is synced, so this is computed once per sync.
+   */
+  @Volatile private var dependencyResourceTables: Set<ResourceTable>? = null
+  private val dependencyResourceTablesLock = Any()
+
+  companion object {
+
+    /** Extracts the resource tables of the dependencies in parallel. */
+    private val dependencyResourceReader: ExecutorService by lazy {
+      val threads = Runtime.getRuntime().availableProcessors().coerceIn(2, 4)
+      Executors.newFixedThreadPool(threads) { r ->
+        Thread(r, "DependencyResourceReader").apply { isDaemon = true }
+      }
+    }
+  }
+
   init {
     type = Android
   }
@@ -255,9 +275,9 @@ open class AndroidModule( // Class must be open because BaseXMLTest mocks this..
       Thread {
         getFrameworkResourceTable()
         getResourceTable()
-        getDependencyResourceTables()
       }
     )
+    threads.add(Thread(this::getDependencyResourceTables))
     threads.add(Thread(this::getApiVersions))
     threads.add(Thread(this::getWidgetTable))
 
@@ -321,6 +341,25 @@ open class AndroidModule( // Class must be open because BaseXMLTest mocks this..
     }
   }
 
+  /**
+   * Updates the resource table for this module after the given resource file was created, modified
+   * or deleted. Only the resources from the given file are extracted again.
+   *
+   * @param file The resource file.
+   */
+  fun updateResourceTable(file: File) {
+    if (this.packageName == UNKNOWN_PACKAGE) {
+      return
+    }
+
+    CompletableFuture.runAsync {
+      if (!ResourceTableRegistry.getInstance().updateResourceFile(this.packageName, file)) {
+        // the table has not been created yet, it will include the file when it is created
+        getResourceTable()
+      }
+    }
+  }
+
   /**
    * Get the [ResourceTable] instance for this module's compile SDK.
    *
@@ -348,27 +387,52 @@ open class AndroidModule( // Class must be open because BaseXMLTest mocks this..
     return set
   }
 
-  /** Get the resource tables for external dependencies (not local module project dependencies). */
+  /**
+   * Get the resource tables for external dependencies (not local module project dependencies). The
+   * tables are extracted in parallel when this is called for the first time.
+   */
   fun getDependencyResourceTables(): Set<ResourceTable> {
-    return mutableSetOf<ResourceTable>().also {
-      it.addAll(
-        libraryMap.values
-          .filter { library ->
-            library.type == ANDROID_LIBRARY &&
-              library.androidLibraryData!!.resFolder.exists() &&
-              library.findPackageName() != UNKNOWN_PACKAGE
-          }
-          .mapNotNull { library ->
-            ResourceTableRegistry.getInstance()
-              .forPackage(
-                library.packageName,
-                library.androidLibraryData!!.resFolder,
-              )
-          }
-      )
+    dependencyResourceTables?.let {
+      return it
+    }
+
+    return synchronized(dependencyResourceTablesLock) {
+      dependencyResourceTables
+        ?: readDependencyResourceTables().also { dependencyResourceTables = it }
     }
   }
 
+  private fun readDependencyResourceTables(): Set<ResourceTable> {
+    val registry = ResourceTableRegistry.getInstance()
+    val futures =
+      libraryMap.values
+        .filter { library ->
+          library.type == ANDROID_LIBRARY && library.androidLibraryData!!.resFolder.exists()
+        }
+        .map { library ->
+          CompletableFuture.supplyAsync(
+            {
+              if (library.findPackageName() == UNKNOWN_PACKAGE) {
+                return@supplyAsync null
+              }
+              registry.forPackage(library.packageName, library.androidLibraryData!!.resFolder)
+            },
+            dependencyResourceReader
+          )
+        }
+
+    return futures
+      .mapNotNull { future ->
+        try {
+          future.join()
+        } catch (err: Throwable) {
+          log.error("Unable to read resource table of dependency", err)
+          null
+        }
+      }
+      .toSet()
+  }
+
   /**
    * Checks all the resource tables from this module and returns if any of the tables contain
    * resources for the the given package.
@@ -21,11 +21,15 @@ import android.text.TextUtils
 import com.itsaky.androidide.builder.model.IJavaCompilerSettings
 import com.itsaky.androidide.javac.services.fs.CacheFSInfoSingleton
 import com.itsaky.androidide.lookup.Lookup
-import com.itsaky.androidide.projects.classpath.JarFsClasspathReader
+import com.itsaky.androidide.projects.classpath.ClasspathCache
 import com.itsaky.androidide.projects.util.BootClasspathProvider
+import com.itsaky.androidide.projects.util.SourceWordIndex
 import com.itsaky.androidide.tooling.api.model.GradleTask
+import com.itsaky.androidide.utils.ClassNameIndex
 import com.itsaky.androidide.utils.ClassTrie
+import com.itsaky.androidide.utils.CompactClassTrie
 import com.itsaky.androidide.utils.DocumentUtils
+import com.itsaky.androidide.utils.Environment
 import com.itsaky.androidide.utils.ILogger
 import com.itsaky.androidide.utils.SourceClassTrie
 import com.itsaky.androidide.utils.SourceClassTrie.SourceNode
@@ -63,7 +67,30 @@ abstract class ModuleProject(
   }
 
   @JvmField val compileJavaSourceClasses = SourceClassTrie()
-  @JvmField val compileClasspathClasses = ClassTrie()
+
+  /** The top-level classes from the compile classpath. Replaced in [indexClasspaths]. */
+  @JvmField @Volatile var compileClasspathClasses: ClassTrie = CompactClassTrie.EMPTY
+
+  /**
+   * Simple name index of the top-level classes from the compile classpath and the boot classpath.
+   * Rebuilt in [indexClasspaths].
+   */
+  @Volatile
+  private var classpathClassNames = ClassNameIndex.EMPTY
+
+  /**
+   * Simple name index of the classes from [compileJavaSourceClasses]. Rebuilt whenever the source
+   * files are indexed or a source file is created, deleted or renamed.
+   */
+  @Volatile
+  private var sourceClassNames = ClassNameIndex.EMPTY
+
+  /**
+   * Index of the words and imports used in the source files of [compileJavaSourceClasses]. Stored in
+   * the build directory of this module.
+   */
+  private val sourceWordIndex =
+    SourceWordIndex(File(buildDir, "cache/androidide/source-words.idx").toPath())
 
   /**
    * Get the source directories of this module (non-transitive i.e for this module only).
@@ -110,27 +137,34 @@ abstract class ModuleProject(
   }
 
   internal fun indexClasspaths() {
-
-    this.compileClasspathClasses.clear()
-
     val watch = StopWatch("Indexing classpaths")
     val paths = getCompileClasspaths().filter { it.exists() }
 
-    for (path in paths) {
+    paths.parallelStream().forEach { path ->
       // Use 'getCanonicalFile' just to be sure that caches are stored with correct keys
       // See JavacFileManager.getContainer(Path) for more details
       CacheFSInfoSingleton.cache(CacheFSInfoSingleton.getCanonicalFile(path.toPath()))
     }
 
-    val topLevelClasses = JarFsClasspathReader().listClasses(paths).filter { it.isTopLevel }
-    topLevelClasses.forEach { this.compileClasspathClasses.append(it.name) }
+    // The listings are shared among modules and cached on disk
+    val topLevelClasses = ClasspathCache.listTopLevelClasses(paths)
+    this.compileClasspathClasses = CompactClassTrie(topLevelClasses)
 
     watch.log()
     log.debug("Found ${topLevelClasses.size} classpaths.")
 
-    if (this is AndroidModule) {
-      BootClasspathProvider.update(bootClassPaths.map { it.path })
-    }
+    val bootClasspaths =
+      if (this is AndroidModule) {
+        bootClassPaths.map { it.path }.also { BootClasspathProvider.update(it) }
+      } else {
+        listOfNotNull(Environment.ANDROID_JAR?.absolutePath)
+      }
+
+    val indexWatch = StopWatch("Indexing classpath class names")
+    val classNames = HashSet(topLevelClasses)
+    classNames.addAll(BootClasspathProvider.getTopLevelClasses(bootClasspaths))
+    this.classpathClassNames = ClassNameIndex(classNames)
+    indexWatch.log()
   }
 
   internal fun indexSources() {
@@ -151,8 +185,108 @@ abstract class ModuleProject(
         }
     }
 
+    this.sourceClassNames = indexSourceClassNames()
+
     watch.log()
     log.debug("Found $count source files.")
+
+    this.sourceWordIndex.sync(this.compileJavaSourceClasses.allSources().map { it.file })
+  }
+
+  /**
+   * Called when a file is created in the project. If the file is a Java source file from one of the
+   * compile source directories, it is added to the source index.
+   */
+  internal fun onSourceFileCreated(file: Path) {
+    if (!DocumentUtils.isJavaFile(file)) {
+      return
+    }
+
+    val sourceDir =
+      getCompileSourceDirectories().map(File::toPath).find { file.startsWith(it) } ?: return
+
+    this.compileJavaSourceClasses.append(file, sourceDir)
+    this.sourceClassNames = indexSourceClassNames()
+    this.sourceWordIndex.update(file)
+  }
+
+  /** Called when a document is saved. Updates the source word index if it is a source file. */
+  internal fun onSourceFileSaved(file: Path) {
+    if (isCompileSourceFile(file)) {
+      this.sourceWordIndex.update(file)
+    }
+  }
+
+  /**
+   * Called when the contents of a document change in the editor. The source word index is updated
+   * lazily, before it is queried next.
+   */
+  internal fun onSourceFileChanged(file: Path) {
+    this.sourceWordIndex.markDirty(file)
+  }
+
+  /**
+   * Called when a file is deleted or renamed in the project. The file events do not tell where a
+   * renamed file ended up, so the sources are indexed again if the file was (or was inside) a source
+   * directory entry.
+   */
+  internal fun onSourceFileRemoved(file: Path) {
+    if (getCompileSourceDirectories().none { file.startsWith(it.toPath()) }) {
+      return
+    }
+
+    indexSources()
+  }
+
+  private fun isCompileSourceFile(file: Path): Boolean {
+    return DocumentUtils.isJavaFile(file) &&
+      getCompileSourceDirectories().any { file.startsWith(it.toPath()) }
+  }
+
+  /**
+   * Find the source files which might contain the given word. The result is a superset of the files
+   * which contain the word, the files must be checked by the caller.
+   *
+   * @param word The word to look for. If it contains multiple identifiers (like a package name), the
+   *   files containing all of them are returned.
+   * @return The candidate source files.
+   */
+  fun findSourceFilesContaining(word: String): List<Path> {
+    return this.sourceWordIndex.findFiles(word)
+  }
+
+  /**
+   * Get the imports declared in the given source file.
+   *
+   * @return The imports of the file or `null` if the file is not indexed.
+   */
+  fun getSourceFileImports(file: Path): List<String>? {
+    return this.sourceWordIndex.getImports(file)
+  }
+
+  private fun indexSourceClassNames(): ClassNameIndex {
+    return ClassNameIndex(this.compileJavaSourceClasses.allSources().map { it.qualifiedName })
+  }
+
+  /**
+   * Find the top-level classes from the source files and the classpaths whose simple names match the
+   * given partial name. Matches are ordered from the best to the worst kind of match, classes from
+   * the source files preceding the classes from the classpaths for the same kind of match.
+   *
+   * @param partial The partial simple name of the class.
+   * @param limit The maximum number of matches to return.
+   * @return The matching classes.
+   */
+  fun findClassNames(partial: String, limit: Int): List<ClassNameIndex.Match> {
+    val fromSources = this.sourceClassNames.find(partial, limit)
+    val fromClasspaths = this.classpathClassNames.find(partial, limit)
+    val result = ArrayList<ClassNameIndex.Match>(fromSources.size + fromClasspaths.size)
+    result.addAll(fromSources)
+    result.addAll(fromClasspaths)
+
+    // stable sort, so that the source classes remain first within a kind
+    result.sortBy { it.kind }
+    return if (result.size > limit) result.subList(0, limit) else result
   }
 
   fun getSourceFilesInDir(dir: Path): List<SourceNode> =
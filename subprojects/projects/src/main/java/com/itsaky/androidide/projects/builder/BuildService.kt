@@ -52,10 +52,15 @@ interface BuildService {
    * Initialize the project.
    *
    * @param rootDir The root directory of the project to initialize.
+   * @param forceSync Whether the project must be synced even if a cached project model is
+   * available.
    * @return A [CompletableFuture] which returns an [InitializeResult] when the project
    * initialization process finishes.
    */
-  fun initializeProject(rootDir: String): CompletableFuture<InitializeResult>
+  fun initializeProject(
+    rootDir: String,
+    forceSync: Boolean = false
+  ): CompletableFuture<InitializeResult>
 
   /**
    * Execute the given tasks.
@@ -0,0 +1,209 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.classpath
+
+import com.itsaky.androidide.projects.util.BootClasspathProvider
+import com.itsaky.androidide.utils.ILogger
+import com.itsaky.androidide.utils.StopWatch
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Caches the top-level classes listed from JAR files. The listings are shared among all the modules
+ * and are stored on disk, so that the JAR files do not have to be opened again when the project is
+ * opened next time. A listing is used as long as the size and the modification time of the JAR file
+ * do not change. Listings of JAR files which are no longer in the classpath of the project are
+ * dropped when the cache is saved.
+ *
+ * @author Akash Yadav
+ */
+object ClasspathCache {
+
+  private const val MAGIC = 0x41494350
+  private const val VERSION = 1
+
+  private val log = ILogger.newInstance(javaClass.simpleName)
+  private val entries = ConcurrentHashMap<String, Entry>()
+
+  /** The paths of the JAR files which have been listed since the cache file was set. */
+  private val used = ConcurrentHashMap.newKeySet<String>()
+
+  @Volatile private var cacheFile: File? = null
+  @Volatile private var modified = false
+
+  /**
+   * Set the file where the listings are stored. The listings from the file are loaded if they are
+   * not loaded already. The JAR files which are listed after this call are considered to be the
+   * classpath of the project when the cache is [saved][save].
+   *
+   * @param file The cache file, or `null` to keep the listings in memory only.
+   */
+  @Synchronized
+  fun setCacheFile(file: File?) {
+    used.clear()
+    if (file == cacheFile) {
+      return
+    }
+
+    cacheFile = file
+    if (file != null && file.exists()) {
+      read(file)
+    }
+  }
+
+  /**
+   * List the top-level classes from the given JAR files. JAR files which are not cached yet (or have
+   * been modified) are listed in parallel.
+   *
+   * @param jars The JAR files.
+   * @return The fully qualified names of the top-level classes in the given JAR files.
+   */
+  fun listTopLevelClasses(jars: Collection<File>): List<String> {
+    val files = jars.filter { it.exists() }.distinctBy { it.path }
+    val missing = files.filter { entries[it.path]?.isValidFor(it) != true }
+    files.forEach { used.add(it.path) }
+
+    if (missing.isNotEmpty()) {
+      val watch = StopWatch("Listing classes from ${missing.size} JAR files")
+      missing.parallelStream().forEach { entries[it.path] = list(it) }
+      watch.log()
+      modified = true
+    }
+
+    val result = ArrayList<String>()
+    for (file in files) {
+      entries[file.path]?.classes?.let { result.addAll(it) }
+    }
+    return result
+  }
+
+  /**
+   * Drops the listings of the JAR files which have not been listed since the cache file was set, and
+   * writes the remaining listings to the cache file if they have changed. Called after the
+   * classpaths of all the modules have been listed.
+   *
+   * The boot classpaths indexed by [BootClasspathProvider] are kept as well, as they might have been
+   * listed before the cache file was set and are not listed again.
+   */
+  @Synchronized
+  fun save() {
+    used.addAll(BootClasspathProvider.getIndexedClasspaths())
+    val pruned = entries.keys.retainAll(used)
+    if (pruned || modified) {
+      modified = false
+      write()
+    }
+  }
+
+  /** Drops the cached listings. The cache file is not modified. */
+  fun clear() {
+    entries.clear()
+  }
+
+  private fun list(jar: File): Entry {
+    val classes =
+      JarFsClasspathReader()
+        .listClasses(listOf(jar))
+        .filter { it.isTopLevel }
+        .map { it.name }
+        .toTypedArray()
+    return Entry(jar.length(), jar.lastModified(), classes)
+  }
+
+  private fun read(file: File) {
+    try {
+      DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+          log.info("Ignoring incompatible classpath cache:", file)
+          return
+        }
+
+        val count = input.readInt()
+        for (i in 0 until count) {
+          val path = input.readUTF()
+          val size = input.readLong()
+          val modified = input.readLong()
+          val packages = Array(input.readInt()) { input.readUTF() }
+          val classes =
+            Array(input.readInt()) {
+              val pkg = packages[input.readInt()]
+              val simpleName = input.readUTF()
+              if (pkg.isEmpty()) simpleName else "$pkg.$simpleName"
+            }
+
+          entries.putIfAbsent(path, Entry(size, modified, classes))
+        }
+        log.debug("Loaded $count classpath listings from cache")
+      }
+    } catch (err: Throwable) {
+      log.error("Unable to read classpath cache:", file, err)
+    }
+  }
+
+  @Synchronized
+  private fun write() {
+    val file = cacheFile ?: return
+    try {
+      file.parentFile?.mkdirs()
+      val tmp = File(file.parentFile, "${file.name}.tmp")
+      DataOutputStream(BufferedOutputStream(tmp.outputStream())).use { out ->
+        val snapshot = entries.entries.toList()
+        out.writeInt(MAGIC)
+        out.writeInt(VERSION)
+        out.writeInt(snapshot.size)
+        for ((path, entry) in snapshot) {
+          out.writeUTF(path)
+          out.writeLong(entry.size)
+          out.writeLong(entry.modified)
+
+          // Store the package names once per JAR
+          val packages = LinkedHashMap<String, Int>()
+          for (name in entry.classes) {
+            packages.putIfAbsent(name.substringBeforeLast('.', ""), packages.size)
+          }
+          out.writeInt(packages.size)
+          packages.keys.forEach(out::writeUTF)
+
+          out.writeInt(entry.classes.size)
+          for (name in entry.classes) {
+            val pkg = name.substringBeforeLast('.', "")
+            out.writeInt(packages[pkg]!!)
+            out.writeUTF(if (pkg.isEmpty()) name else name.substring(pkg.length + 1))
+          }
+        }
+      }
+
+      if (!tmp.renameTo(file)) {
+        file.delete()
+        tmp.renameTo(file)
+      }
+    } catch (err: Throwable) {
+      log.error("Unable to write classpath cache:", file, err)
+    }
+  }
+
+  private class Entry(val size: Long, val modified: Long, val classes: Array<String>) {
+    fun isValidFor(file: File): Boolean {
+      return size == file.length() && modified == file.lastModified()
+    }
+  }
+}
@@ -21,39 +21,62 @@ import com.itsaky.androidide.models.Range
 import com.itsaky.androidide.utils.DocumentUtils
 import java.io.BufferedInputStream
 import java.io.BufferedReader
+import java.nio.CharBuffer
+import java.nio.charset.StandardCharsets
 import java.nio.file.Path
 import java.time.Instant
 
 /**
- * A document that is opened in the editor.
+ * A document that is opened in the editor. The text of the document is kept as an immutable
+ * [DocumentSnapshot], which can be shared with the readers without copying it.
  *
  * @author Akash Yadav
  */
 open class ActiveDocument(
   val file: Path,
-  val content: String,
+  val snapshot: DocumentSnapshot,
   val changeRange: Range,
   var changDelta: Int,
   val version: Int,
   val modified: Instant
 ) {
 
+  /**
+   * The text of this document. The snapshot is flattened on first access, so readers which do not
+   * need a [String] should read the [snapshot] instead.
+   */
+  val content: String
+    get() = snapshot.toString()
+
+  /**
+   * The text of this document, encoded in UTF-8. The text is encoded on first access and is shared
+   * by all the readers of this version of the document, so the array must not be modified.
+   */
+  val utf8: ByteArray by lazy {
+    val buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(snapshot))
+    if (buffer.limit() == buffer.capacity()) {
+      buffer.array()
+    } else {
+      buffer.array().copyOf(buffer.limit())
+    }
+  }
+
   companion object {
 
     @JvmStatic
     fun create(
       file: Path,
-      content: String,
+      snapshot: DocumentSnapshot,
       changeRange: Range,
       changDelta: Int,
       version: Int,
       modified: Instant
     ): ActiveDocument {
       if (DocumentUtils.isJavaFile(file)) {
-        return ActiveJavaDocument(file, content, changeRange, changDelta, version, modified)
+        return ActiveJavaDocument(file, snapshot, changeRange, changDelta, version, modified)
       }
 
-      return ActiveDocument(file, content, changeRange, changDelta, version, modified)
+      return ActiveDocument(file, snapshot, changeRange, changDelta, version, modified)
     }
   }
 
@@ -62,6 +85,6 @@ open class ActiveDocument(
   }
 
   fun reader(): BufferedReader {
-    return content.reader().buffered()
+    return snapshot.reader().buffered()
   }
 }
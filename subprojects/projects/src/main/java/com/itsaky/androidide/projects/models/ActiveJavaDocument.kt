@@ -29,12 +29,13 @@ import java.time.Instant
  */
 class ActiveJavaDocument(
   file: Path,
-  content: String,
+  snapshot: DocumentSnapshot,
   changeRange: Range,
   changDelta: Int,
   version: Int,
   modified: Instant
-) : ActiveDocument(file, content, changeRange, changDelta, version, modified) {
+) : ActiveDocument(file, snapshot, changeRange, changDelta, version, modified) {
 
-  val packageName: String = StringSearch.packageName(reader())
+  /** The package name of this document. Read from the snapshot when it is first requested. */
+  val packageName: String by lazy { StringSearch.packageName(reader()) }
 }
@@ -0,0 +1,419 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.models;
+
+import androidx.annotation.NonNull;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the text of a document, stored as a rope. Editing a snapshot creates a
+ * new snapshot which shares the unchanged parts of the text with the old one, so an edit only
+ * allocates memory proportional to the depth of the rope and not to the length of the text.
+ *
+ * <p>Snapshots can be shared among threads. The flattened text is computed only when
+ * {@link #toString()} is called and is cached. Until then, {@link #charAt(int)} reads the leaves
+ * of the rope, and reading the characters in order is not slower than reading a string.
+ *
+ * @author Akash Yadav
+ */
+public final class DocumentSnapshot implements CharSequence {
+
+  /** Maximum length of the text in a leaf node. */
+  static final int MAX_LEAF_LENGTH = 512;
+
+  /** The rope is rebalanced when its depth exceeds this value. */
+  static final int MAX_DEPTH = 48;
+
+  public static final DocumentSnapshot EMPTY = new DocumentSnapshot(new Leaf(""));
+
+  private final Node root;
+  private volatile String text;
+
+  /** The leaf which was read last by {@link #charAt(int)}. */
+  private volatile LeafPosition lastLeaf;
+
+  private DocumentSnapshot(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Creates a snapshot of the given text.
+   *
+   * @param text The text.
+   * @return The snapshot.
+   */
+  @NonNull
+  public static DocumentSnapshot of(@NonNull CharSequence text) {
+    if (text instanceof DocumentSnapshot) {
+      return (DocumentSnapshot) text;
+    }
+
+    final var str = text.toString();
+    final var snapshot = new DocumentSnapshot(build(split(str)));
+    snapshot.text = str;
+    return snapshot;
+  }
+
+  /**
+   * Inserts the given text at the given index.
+   *
+   * @return The new snapshot.
+   */
+  @NonNull
+  public DocumentSnapshot insert(int index, @NonNull CharSequence text) {
+    return replace(index, index, text);
+  }
+
+  /**
+   * Deletes the text between the given indices.
+   *
+   * @return The new snapshot.
+   */
+  @NonNull
+  public DocumentSnapshot delete(int start, int end) {
+    return replace(start, end, "");
+  }
+
+  /**
+   * Replaces the text between the given indices with the given text.
+   *
+   * @param start The start index (inclusive).
+   * @param end The end index (exclusive).
+   * @param text The new text.
+   * @return The new snapshot.
+   */
+  @NonNull
+  public DocumentSnapshot replace(int start, int end, @NonNull CharSequence text) {
+    if (start < 0 || end < start || end > length()) {
+      throw new IndexOutOfBoundsException(
+          "start=" + start + ", end=" + end + ", length=" + length());
+    }
+
+    if (start == end && text.length() == 0) {
+      return this;
+    }
+
+    final var head = split(root, start);
+    final var tail = split(head[1], end - start);
+    var node = head[0];
+    if (text.length() > 0) {
+      node = concat(node, build(split(text.toString())));
+    }
+    node = concat(node, tail[1]);
+
+    if (node.depth > MAX_DEPTH) {
+      node = rebalance(node);
+    }
+
+    return new DocumentSnapshot(node);
+  }
+
+  /**
+   * Returns a reader which reads the text of this snapshot without flattening it.
+   *
+   * @return The reader.
+   */
+  @NonNull
+  public Reader reader() {
+    return new SnapshotReader(root);
+  }
+
+  /** The depth of the rope. Visible for testing. */
+  int depth() {
+    return root.depth;
+  }
+
+  @Override
+  public int length() {
+    return root.length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length()) {
+      throw new IndexOutOfBoundsException("index=" + index + ", length=" + length());
+    }
+
+    final var text = this.text;
+    if (text != null) {
+      return text.charAt(index);
+    }
+
+    final var last = lastLeaf;
+    if (last != null && index >= last.start && index < last.start + last.leaf.length) {
+      return last.leaf.text.charAt(index - last.start);
+    }
+
+    var node = root;
+    var start = 0;
+    while (node instanceof Concat) {
+      final var concat = (Concat) node;
+      if (index - start < concat.left.length) {
+        node = concat.left;
+      } else {
+        start += concat.left.length;
+        node = concat.right;
+      }
+    }
+
+    final var leaf = (Leaf) node;
+    lastLeaf = new LeafPosition(leaf, start);
+    return leaf.text.charAt(index - start);
+  }
+
+  @NonNull
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end < start || end > length()) {
+      throw new IndexOutOfBoundsException(
+          "start=" + start + ", end=" + end + ", length=" + length());
+    }
+
+    final var text = this.text;
+    if (text != null) {
+      return text.substring(start, end);
+    }
+
+    final var sb = new StringBuilder(end - start);
+    root.appendTo(sb, start, end);
+    return sb.toString();
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    var text = this.text;
+    if (text == null) {
+      final var sb = new StringBuilder(length());
+      root.appendTo(sb, 0, length());
+      this.text = text = sb.toString();
+    }
+    return text;
+  }
+
+  private static List<Node> split(String text) {
+    final var leaves = new ArrayList<Node>(text.length() / MAX_LEAF_LENGTH + 1);
+    for (int i = 0; i < text.length(); i += MAX_LEAF_LENGTH) {
+      leaves.add(new Leaf(text.substring(i, Math.min(text.length(), i + MAX_LEAF_LENGTH))));
+    }
+    return leaves;
+  }
+
+  /** Builds a balanced rope from the given leaves. */
+  private static Node build(List<Node> leaves) {
+    if (leaves.isEmpty()) {
+      return new Leaf("");
+    }
+    return build(leaves, 0, leaves.size());
+  }
+
+  private static Node build(List<Node> leaves, int start, int end) {
+    if (end - start == 1) {
+      return leaves.get(start);
+    }
+
+    final var mid = (start + end) >>> 1;
+    return new Concat(build(leaves, start, mid), build(leaves, mid, end));
+  }
+
+  private static Node rebalance(Node node) {
+    final var leaves = new ArrayList<Node>();
+    collectLeaves(node, leaves);
+    return build(leaves);
+  }
+
+  private static void collectLeaves(Node node, List<Node> leaves) {
+    if (node instanceof Concat) {
+      collectLeaves(((Concat) node).left, leaves);
+      collectLeaves(((Concat) node).right, leaves);
+    } else if (node.length > 0) {
+      leaves.add(node);
+    }
+  }
+
+  /** Splits the given node at the given index. Returns the left and the right parts. */
+  private static Node[] split(Node node, int index) {
+    if (index == 0) {
+      return new Node[] {new Leaf(""), node};
+    }
+
+    if (index == node.length) {
+      return new Node[] {node, new Leaf("")};
+    }
+
+    if (node instanceof Leaf) {
+      final var text = ((Leaf) node).text;
+      return new Node[] {new Leaf(text.substring(0, index)), new Leaf(text.substring(index))};
+    }
+
+    final var concat = (Concat) node;
+    if (index < concat.left.length) {
+      final var parts = split(concat.left, index);
+      return new Node[] {parts[0], concat(parts[1], concat.right)};
+    }
+
+    final var parts = split(concat.right, index - concat.left.length);
+    return new Node[] {concat(concat.left, parts[0]), parts[1]};
+  }
+
+  private static Node concat(Node left, Node right) {
+    if (left.length == 0) {
+      return right;
+    }
+
+    if (right.length == 0) {
+      return left;
+    }
+
+    // Merge small leaves so that typing does not create a leaf per character
+    if (left instanceof Leaf && right instanceof Leaf) {
+      if (left.length + right.length <= MAX_LEAF_LENGTH) {
+        return new Leaf(((Leaf) left).text + ((Leaf) right).text);
+      }
+    } else if (left instanceof Concat && right instanceof Leaf) {
+      final var concat = (Concat) left;
+      if (concat.right instanceof Leaf
+          && concat.right.length + right.length <= MAX_LEAF_LENGTH) {
+        return new Concat(concat.left, concat(concat.right, right));
+      }
+    } else if (left instanceof Leaf && right instanceof Concat) {
+      final var concat = (Concat) right;
+      if (concat.left instanceof Leaf && left.length + concat.left.length <= MAX_LEAF_LENGTH) {
+        return new Concat(concat(left, concat.left), concat.right);
+      }
+    }
+
+    return new Concat(left, right);
+  }
+
+  private abstract static class Node {
+    final int length;
+    final int depth;
+
+    Node(int length, int depth) {
+      this.length = length;
+      this.depth = depth;
+    }
+
+    /** Appends the text between the given indices (relative to this node) to the builder. */
+    abstract void appendTo(StringBuilder sb, int start, int end);
+  }
+
+  private static final class Leaf extends Node {
+    final String text;
+
+    Leaf(String text) {
+      super(text.length(), 0);
+      this.text = text;
+    }
+
+    @Override
+    void appendTo(StringBuilder sb, int start, int end) {
+      sb.append(text, start, end);
+    }
+  }
+
+  private static final class Concat extends Node {
+    final Node left;
+    final Node right;
+
+    Concat(Node left, Node right) {
+      super(left.length + right.length, Math.max(left.depth, right.depth) + 1);
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    void appendTo(StringBuilder sb, int start, int end) {
+      if (start < left.length) {
+        left.appendTo(sb, start, Math.min(end, left.length));
+      }
+      if (end > left.length) {
+        right.appendTo(sb, Math.max(0, start - left.length), end - left.length);
+      }
+    }
+  }
+
+  /** A leaf of a rope and the index in the rope where the leaf starts. */
+  private static final class LeafPosition {
+    final Leaf leaf;
+    final int start;
+
+    LeafPosition(Leaf leaf, int start) {
+      this.leaf = leaf;
+      this.start = start;
+    }
+  }
+
+  /** Reads the leaves of a rope in order. */
+  private static final class SnapshotReader extends Reader {
+
+    private final Deque<Node> stack = new ArrayDeque<>();
+    private String leaf = "";
+    private int position = 0;
+
+    SnapshotReader(Node root) {
+      stack.push(root);
+    }
+
+    @Override
+    public int read(@NonNull char[] cbuf, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+
+      var read = 0;
+      while (read < len) {
+        if (position == leaf.length() && !nextLeaf()) {
+          break;
+        }
+
+        final var count = Math.min(len - read, leaf.length() - position);
+        leaf.getChars(position, position + count, cbuf, off + read);
+        position += count;
+        read += count;
+      }
+
+      return read == 0 ? -1 : read;
+    }
+
+    private boolean nextLeaf() {
+      while (!stack.isEmpty()) {
+        final var node = stack.pop();
+        if (node instanceof Concat) {
+          stack.push(((Concat) node).right);
+          stack.push(((Concat) node).left);
+        } else if (node.length > 0) {
+          leaf = ((Leaf) node).text;
+          position = 0;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void close() {
+      stack.clear();
+    }
+  }
+}
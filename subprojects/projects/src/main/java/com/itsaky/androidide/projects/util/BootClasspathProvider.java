@@ -17,9 +17,9 @@
 
 package com.itsaky.androidide.projects.util;
 
-import com.itsaky.androidide.projects.classpath.JarFsClasspathReader;
-import com.itsaky.androidide.projects.classpath.ZipFileClasspathReader;
+import com.itsaky.androidide.projects.classpath.ClasspathCache;
 import com.itsaky.androidide.utils.ClassTrie;
+import com.itsaky.androidide.utils.CompactClassTrie;
 import com.itsaky.androidide.utils.ILogger;
 import com.itsaky.androidide.utils.StopWatch;
 
@@ -60,17 +60,8 @@ public class BootClasspathProvider {
 
       LOG.debug("Indexing boot classpath:", classpath);
       final var classes =
-          new JarFsClasspathReader().listClasses(Collections.singleton(new File(classpath)));
-      final var trie = new ClassTrie();
-      for (final var info : classes) {
-        if (!info.isTopLevel()) {
-          continue;
-        }
-
-        trie.append(info.getName());
-      }
-
-      bootClasspathClasses.put(classpath, trie);
+          ClasspathCache.INSTANCE.listTopLevelClasses(Collections.singleton(new File(classpath)));
+      bootClasspathClasses.put(classpath, new CompactClassTrie(classes));
       count += classes.size();
     }
 
@@ -120,6 +111,15 @@ public class BootClasspathProvider {
     return result;
   }
 
+  /**
+   * Returns the paths of the boot classpaths which have been indexed.
+   *
+   * @return The indexed classpaths.
+   */
+  public static Set<String> getIndexedClasspaths() {
+    return Collections.unmodifiableSet(bootClasspathClasses.keySet());
+  }
+
   /**
    * Returns all the {@link ClassTrie} entries.
    *
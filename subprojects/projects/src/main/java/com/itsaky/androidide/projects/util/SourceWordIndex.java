@@ -0,0 +1,612 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.projects.FileManager;
+import com.itsaky.androidide.utils.ILogger;
+import com.itsaky.androidide.utils.StopWatch;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index which maps the identifiers used in Java source files to the files which use
+ * them. The imports of each file are indexed as well.
+ *
+ * <p>The index is stored on disk and loaded when the index is synchronized with the source files for
+ * the first time. Only the files which have been modified since the index was written are read
+ * again.
+ *
+ * <p>Lookups return a superset of the files which contain a word, the candidates must still be
+ * verified by the caller.
+ *
+ * @author Akash Yadav
+ */
+public class SourceWordIndex {
+
+  private static final ILogger LOG = ILogger.newInstance("SourceWordIndex");
+  private static final int MAGIC = 0x41494458;
+  private static final int VERSION = 1;
+  private static final long NOT_ON_DISK = -1;
+  private static final Pattern IMPORT_CLASS = Pattern.compile("^import +([\\w.]+\\.\\w+);");
+  private static final Pattern IMPORT_STAR = Pattern.compile("^import +([\\w.]+\\.\\*);");
+
+  @Nullable private final Path indexFile;
+  private final Map<Path, Integer> fileIds = new HashMap<>();
+  private final List<FileEntry> entries = new ArrayList<>();
+  private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+  private final Map<String, Postings> postings = new HashMap<>();
+  private final Set<Path> dirty = new HashSet<>();
+  private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+  private CompletableFuture<Void> pendingWrite = CompletableFuture.completedFuture(null);
+  private boolean loaded = false;
+
+  /** The buffer which the strings are decoded from while the index is read. */
+  private byte[] readBuffer;
+
+  /**
+   * Creates a new index.
+   *
+   * @param indexFile The file where the index is stored. If <code>null</code>, the index is not
+   *     persisted.
+   */
+  public SourceWordIndex(@Nullable Path indexFile) {
+    this.indexFile = indexFile;
+  }
+
+  /**
+   * Synchronizes the index with the given source files. Files which are not in the given collection
+   * are removed from the index. Files which are not indexed yet or have been modified since they
+   * were indexed are read again.
+   *
+   * @param files The source files which must be indexed.
+   */
+  public synchronized void sync(Collection<Path> files) {
+    final var watch = new StopWatch("Synchronizing source word index");
+    if (!loaded) {
+      loaded = true;
+      read();
+    }
+
+    final var wanted = new HashSet<Path>(files.size());
+    for (final var file : files) {
+      wanted.add(file.normalize());
+    }
+
+    var changed = 0;
+    for (final var file : new ArrayList<>(fileIds.keySet())) {
+      if (!wanted.contains(file)) {
+        removeEntry(file);
+        changed++;
+      }
+    }
+
+    for (final var file : wanted) {
+      final var id = fileIds.get(file);
+      if (id != null && !isStale(entries.get(id), file)) {
+        continue;
+      }
+
+      indexFromDisk(file);
+      changed++;
+    }
+
+    watch.log();
+    LOG.debug("Indexed", changed, "changed source files,", fileIds.size(), "files in total");
+
+    if (changed > 0) {
+      scheduleWrite();
+    }
+  }
+
+  /**
+   * Reads the given file from disk and updates the index. Called when the file is created or saved.
+   */
+  public synchronized void update(Path file) {
+    file = file.normalize();
+    dirty.remove(file);
+    indexFromDisk(file);
+    scheduleWrite();
+  }
+
+  /** Removes the given file from the index. */
+  public synchronized void remove(Path file) {
+    file = file.normalize();
+    dirty.remove(file);
+    if (removeEntry(file)) {
+      scheduleWrite();
+    }
+  }
+
+  /**
+   * Marks the given file as modified in the editor. The file is indexed again from the contents of
+   * the editor before the next lookup.
+   */
+  public synchronized void markDirty(Path file) {
+    file = file.normalize();
+    if (fileIds.containsKey(file)) {
+      dirty.add(file);
+    }
+  }
+
+  /**
+   * Find the files which contain all the words in the given query. The query is split at the
+   * characters which cannot be part of an identifier, so <code>com.example</code> matches files
+   * which contain both <code>com</code> and <code>example</code>.
+   *
+   * @param query The word(s) to look for.
+   * @return The files which might contain the query.
+   */
+  public synchronized List<Path> findFiles(String query) {
+    refreshDirty();
+
+    final var words = tokenize(query);
+    if (words.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Postings smallest = null;
+    final var lists = new ArrayList<Postings>(words.size());
+    for (final var word : words) {
+      final var list = postings.get(word);
+      if (list == null) {
+        return Collections.emptyList();
+      }
+
+      lists.add(list);
+      if (smallest == null || list.size < smallest.size) {
+        smallest = list;
+      }
+    }
+
+    final var result = new ArrayList<Path>(smallest.size);
+    outer:
+    for (int i = 0; i < smallest.size; i++) {
+      final var id = smallest.ids[i];
+      for (final var list : lists) {
+        if (list != smallest && !list.contains(id)) {
+          continue outer;
+        }
+      }
+
+      result.add(entries.get(id).file);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the imports of the given file.
+   *
+   * @return The imported class names and star imports (<code>java.util.*</code>) of the file, or
+   *     <code>null</code> if the file is not indexed.
+   */
+  @Nullable
+  public synchronized List<String> getImports(Path file) {
+    refreshDirty();
+
+    final var id = fileIds.get(file.normalize());
+    if (id == null) {
+      return null;
+    }
+
+    return Arrays.asList(entries.get(id).imports);
+  }
+
+  /**
+   * Get the write of the index which has been scheduled last. The writes are performed one after
+   * another, so the index on disk is up to date when the returned future completes.
+   *
+   * @return The future of the write.
+   */
+  @NonNull
+  public synchronized CompletableFuture<Void> getPendingWrite() {
+    return pendingWrite;
+  }
+
+  /** Returns the number of indexed files. */
+  public synchronized int fileCount() {
+    return fileIds.size();
+  }
+
+  private void refreshDirty() {
+    if (dirty.isEmpty()) {
+      return;
+    }
+
+    for (final var file : dirty) {
+      final var content = FileManager.INSTANCE.getDocumentText(file);
+      final var stamp = FileManager.INSTANCE.isActive(file) ? NOT_ON_DISK : lastModified(file);
+      index(file, content, stamp, stamp == NOT_ON_DISK ? NOT_ON_DISK : size(file));
+    }
+
+    dirty.clear();
+  }
+
+  private void indexFromDisk(Path file) {
+    final String content;
+    try {
+      content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      removeEntry(file);
+      return;
+    } catch (IOException e) {
+      LOG.error("Unable to read source file", file, e);
+      removeEntry(file);
+      return;
+    }
+
+    index(file, content, lastModified(file), size(file));
+  }
+
+  private void index(Path file, CharSequence content, long modified, long size) {
+    final var words = new TreeSet<String>();
+    final var imports = new ArrayList<String>();
+    collectWords(content, words);
+    collectImports(content, imports);
+    put(
+        new FileEntry(
+            file, modified, size, words.toArray(new String[0]), imports.toArray(new String[0])));
+  }
+
+  private void put(FileEntry entry) {
+    removeEntry(entry.file);
+
+    final int id;
+    if (freeIds.isEmpty()) {
+      id = entries.size();
+      entries.add(entry);
+    } else {
+      id = freeIds.pop();
+      entries.set(id, entry);
+    }
+
+    fileIds.put(entry.file, id);
+    for (int i = 0; i < entry.words.length; i++) {
+      var list = postings.get(entry.words[i]);
+      if (list == null) {
+        list = new Postings(entry.words[i]);
+        postings.put(list.word, list);
+      } else {
+        // share the same string instance among all the entries
+        entry.words[i] = list.word;
+      }
+
+      list.add(id);
+    }
+  }
+
+  private boolean removeEntry(Path file) {
+    final var id = fileIds.remove(file);
+    if (id == null) {
+      return false;
+    }
+
+    final var entry = entries.get(id);
+    for (final var word : entry.words) {
+      final var list = postings.get(word);
+      if (list != null && list.remove(id) && list.size == 0) {
+        postings.remove(word);
+      }
+    }
+
+    entries.set(id, null);
+    freeIds.push(id);
+    return true;
+  }
+
+  private boolean isStale(FileEntry entry, Path file) {
+    return entry.modified == NOT_ON_DISK
+        || entry.modified != lastModified(file)
+        || entry.size != size(file);
+  }
+
+  private void scheduleWrite() {
+    if (indexFile == null || !writeScheduled.compareAndSet(false, true)) {
+      return;
+    }
+
+    // run after the previous write, even if it failed
+    pendingWrite =
+        pendingWrite
+            .handle((result, err) -> (Void) null)
+            .thenRunAsync(
+                () -> {
+                  writeScheduled.set(false);
+                  write();
+                });
+  }
+
+  private void write() {
+    final var file = indexFile;
+    if (file == null) {
+      return;
+    }
+
+    final List<FileEntry> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(fileIds.size());
+      for (final var entry : entries) {
+        if (entry != null) {
+          snapshot.add(entry);
+        }
+      }
+    }
+
+    try {
+      Files.createDirectories(file.getParent());
+      final var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (final var out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(snapshot.size());
+        for (final var entry : snapshot) {
+          writeString(out, entry.file.toString());
+          out.writeLong(entry.modified);
+          out.writeLong(entry.size);
+          writeStrings(out, entry.imports);
+          writeStrings(out, entry.words);
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOG.error("Unable to write source word index to", file, e);
+    }
+  }
+
+  private void read() {
+    if (indexFile == null || !Files.exists(indexFile)) {
+      return;
+    }
+
+    try (final var in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        LOG.info("Ignoring incompatible source word index at", indexFile);
+        return;
+      }
+
+      readBuffer = new byte[256];
+      final var count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        final var file = Paths.get(readString(in));
+        final var modified = in.readLong();
+        final var size = in.readLong();
+        final var imports = readStrings(in);
+        final var words = readStrings(in);
+        put(new FileEntry(file, modified, size, words, imports));
+      }
+    } catch (Throwable err) {
+      LOG.error("Unable to read source word index from", indexFile, err);
+      clear();
+    } finally {
+      readBuffer = null;
+    }
+  }
+
+  private void clear() {
+    fileIds.clear();
+    entries.clear();
+    freeIds.clear();
+    postings.clear();
+    dirty.clear();
+  }
+
+  private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+    out.writeInt(strings.length);
+    for (final var string : strings) {
+      writeString(out, string);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    final var bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private String[] readStrings(DataInputStream in) throws IOException {
+    final var strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = readString(in);
+    }
+    return strings;
+  }
+
+  private String readString(DataInputStream in) throws IOException {
+    final var length = in.readInt();
+    if (length > readBuffer.length) {
+      readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+    }
+
+    // decode from the shared buffer instead of allocating an array for each string
+    in.readFully(readBuffer, 0, length);
+    return new String(readBuffer, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private static long lastModified(Path file) {
+    try {
+      return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+    } catch (IOException e) {
+      return NOT_ON_DISK;
+    }
+  }
+
+  private static long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return NOT_ON_DISK;
+    }
+  }
+
+  /** Splits the given text into words, with the same word characters as {@link StringSearch}. */
+  @NonNull
+  static List<String> tokenize(CharSequence text) {
+    final var words = new ArrayList<String>();
+    collectWords(text, words);
+    return words;
+  }
+
+  private static void collectWords(CharSequence text, Collection<String> words) {
+    final var length = text.length();
+    int start = -1;
+    for (int i = 0; i <= length; i++) {
+      final var isWordChar = i < length && isWordChar(text.charAt(i));
+      if (isWordChar && start == -1) {
+        start = i;
+      } else if (!isWordChar && start != -1) {
+        words.add(text.subSequence(start, i).toString());
+        start = -1;
+      }
+    }
+  }
+
+  private static void collectImports(CharSequence text, List<String> imports) {
+    final var length = text.length();
+    int start = 0;
+    while (start < length) {
+      int end = start;
+      while (end < length && text.charAt(end) != '\n') {
+        end++;
+      }
+
+      var lineEnd = end;
+      if (lineEnd > start && text.charAt(lineEnd - 1) == '\r') {
+        lineEnd--;
+      }
+
+      final var line = text.subSequence(start, lineEnd).toString();
+
+      // If we reach a class declaration, stop looking for imports
+      if (line.contains("class")) {
+        break;
+      }
+
+      Matcher matcher = IMPORT_CLASS.matcher(line);
+      if (matcher.matches()) {
+        imports.add(matcher.group(1));
+      }
+
+      matcher = IMPORT_STAR.matcher(line);
+      if (matcher.matches()) {
+        imports.add(matcher.group(1));
+      }
+
+      start = end + 1;
+    }
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isAlphabetic(c) || Character.isDigit(c) || c == '_' || c == '$';
+  }
+
+  private static class FileEntry {
+    final Path file;
+    final long modified;
+    final long size;
+    final String[] words;
+    final String[] imports;
+
+    FileEntry(Path file, long modified, long size, String[] words, String[] imports) {
+      this.file = file;
+      this.modified = modified;
+      this.size = size;
+      this.words = words;
+      this.imports = imports;
+    }
+  }
+
+  /** Sorted list of the IDs of the files which contain a word. */
+  private static class Postings {
+    final String word;
+    int[] ids = new int[2];
+    int size = 0;
+
+    Postings(String word) {
+      this.word = word;
+    }
+
+    void add(int id) {
+      if (size == 0 || ids[size - 1] < id) {
+        ensureCapacity();
+        ids[size++] = id;
+        return;
+      }
+
+      final var index = Arrays.binarySearch(ids, 0, size, id);
+      if (index >= 0) {
+        return;
+      }
+
+      final var insertAt = -index - 1;
+      ensureCapacity();
+      System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+      ids[insertAt] = id;
+      size++;
+    }
+
+    boolean remove(int id) {
+      final var index = Arrays.binarySearch(ids, 0, size, id);
+      if (index < 0) {
+        return false;
+      }
+
+      System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+      size--;
+      return true;
+    }
+
+    boolean contains(int id) {
+      return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    private void ensureCapacity() {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+    }
+  }
+}
@@ -30,15 +30,20 @@ import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // Translated from https://golang.org/src/strings/search.go
 
@@ -47,11 +52,19 @@ import java.util.regex.Pattern;
 // https://en.wikipedia.org/wiki/Boyer-Moore_string_search_algorithm
 // https://www.cs.utexas.edu/~moore/publications/fstrpos.pdf (note: this aged
 // document uses 1-based indexing)
+//
+// Instances are immutable and can be shared among threads. The static search methods read files
+// into per-thread buffers and can be called concurrently.
 public class StringSearch {
-  private static final ByteBuffer SEARCH_BUFFER = ByteBuffer.allocateDirect(1024 * 1024);
+  // Read up to 1 MB of data from file
+  private static final int MAX_SEARCH_SIZE = 1024 * 1024;
+  // Batches smaller than this are searched on the calling thread
+  private static final int PARALLEL_SEARCH_THRESHOLD = 8;
+  private static final ThreadLocal<byte[]> SEARCH_BUFFER =
+      ThreadLocal.withInitial(() -> new byte[8 * 1024]);
   private static final Logger LOG = Logger.getLogger("main");
-  private static final Cache<String, Boolean> cacheContainsClass = new Cache<>();
-  private static final Cache<String, Boolean> cacheContainsInterface = new Cache<>();
+  private static final Cache<String, Boolean> cacheContainsClass = new Cache<>(50_000);
+  private static final Cache<String, Boolean> cacheContainsInterface = new Cache<>(50_000);
   // pattern is the string that we are searching for in the text.
   private final byte[] pattern;
   // badCharSkip[b] contains the distance between the last byte of pattern
@@ -86,7 +99,7 @@ public class StringSearch {
   private final int[] goodSuffixSkip;
 
   public StringSearch(String patternSting) {
-    this.pattern = patternSting.getBytes();
+    this.pattern = patternSting.getBytes(StandardCharsets.UTF_8);
     this.goodSuffixSkip = new int[pattern.length];
 
     // last is the index of the last character in the pattern.
@@ -140,35 +153,109 @@ public class StringSearch {
 
   // TODO cache the progress made by searching shorter queries
   public static boolean containsWordMatching(Path java, String query) {
-    String text = tryGetActiveDocContent(java);
+    CharSequence text = tryGetActiveDocText(java);
     if (text != null) {
       return matchesTitleCase(text, query);
     }
-    try (FileChannel channel = FileChannel.open(java)) {
-      // Read up to 1 MB of data from file
-      int limit = Math.min((int) channel.size(), SEARCH_BUFFER.capacity());
-      SEARCH_BUFFER.position(0);
-      SEARCH_BUFFER.limit(limit);
-      channel.read(SEARCH_BUFFER);
-      SEARCH_BUFFER.position(0);
-      CharBuffer chars = StandardCharsets.UTF_8.decode(SEARCH_BUFFER);
-      return matchesTitleCase(chars, query);
+    Text bytes = readText(java);
+    return bytes != null && matchesTitleCase(bytes.bytes, bytes.length, query);
+  }
+
+  @Nullable
+  private static CharSequence tryGetActiveDocText(Path file) {
+    final var doc = FileManager.INSTANCE.getActiveDocument(file);
+    if (doc != null) {
+      return doc.getSnapshot();
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the text of the given file, as UTF-8 bytes. If the file is opened in the editor, the text of
+   * the document is returned, which is encoded only once per version of the document. Otherwise, up to {@link #MAX_SEARCH_SIZE} bytes are read into the
+   * search buffer of the calling thread. The returned text must not be used after the calling thread
+   * reads another file.
+   *
+   * @return The text or <code>null</code> if the file does not exist.
+   */
+  @Nullable
+  private static Text readText(Path file) {
+    final var doc = FileManager.INSTANCE.getActiveDocument(file);
+    if (doc != null) {
+      final var bytes = doc.getUtf8();
+      return new Text(bytes, bytes.length);
+    }
+    try (FileChannel channel = FileChannel.open(file)) {
+      int limit = (int) Math.min(channel.size(), MAX_SEARCH_SIZE);
+      byte[] buffer = SEARCH_BUFFER.get();
+      if (buffer.length < limit) {
+        buffer = new byte[limit];
+        SEARCH_BUFFER.set(buffer);
+      }
+      ByteBuffer target = ByteBuffer.wrap(buffer, 0, limit);
+      while (target.hasRemaining() && channel.read(target) != -1) {
+        // read until the limit or EOF
+      }
+      return new Text(buffer, target.position());
     } catch (NoSuchFileException e) {
       LOG.warning(e.getMessage());
-      return false;
+      return null;
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  @Nullable
-  private static String tryGetActiveDocContent(Path file) {
-    final var doc = FileManager.INSTANCE.getActiveDocument(file);
-    if (doc != null) {
-      return doc.getContent();
+  /**
+   * Same as {@link #matchesTitleCase(CharSequence, String)}, but matches the UTF-8 encoded
+   * candidate without decoding it. Only ASCII characters are compared case-insensitively.
+   */
+  public static boolean matchesTitleCase(byte[] candidate, int length, String find) {
+    Objects.requireNonNull(candidate, "candidate is null");
+    final byte[] findBytes = find.getBytes(StandardCharsets.UTF_8);
+    int i = 0;
+
+    tokenLoop:
+    while (i < length) {
+      i = startOfToken(candidate, length, i);
+
+      for (byte f : findBytes) {
+        // If we have reached the end of candidate without matching all of find, fail
+        if (i >= length) return false;
+        // If the next character in candidate matches, advance i
+        else if (toLowerCase(f) == toLowerCase(candidate[i])) i++;
+        else {
+          // Find the start of the next word
+          while (i < length) {
+            byte c = candidate[i];
+            // If the next character is not a word, try again with the next token
+            if (!isWordChar(c)) continue tokenLoop;
+            boolean isStartOfWord = c >= 'A' && c <= 'Z';
+            boolean isMatch = toLowerCase(f) == toLowerCase(c);
+            if (isStartOfWord && isMatch) {
+              i++;
+              break;
+            } else i++;
+          }
+          if (i >= length) return false;
+        }
+      }
+      // All of find was matched!
+      return true;
     }
+    return false;
+  }
 
-    return null;
+  private static int startOfToken(byte[] candidate, int length, int offset) {
+    while (offset < length) {
+      if (isWordChar(candidate[offset])) break;
+      offset++;
+    }
+    return offset;
+  }
+
+  private static byte toLowerCase(byte b) {
+    return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
   }
 
   /**
@@ -227,41 +314,68 @@ public class StringSearch {
 
   public static boolean containsWord(Path java, String query) {
     StringSearch search = new StringSearch(query);
-    String text = tryGetActiveDocContent(java);
-    if (text != null) {
-      return search.nextWord(text.getBytes()) != -1;
+    Text text = readText(java);
+    return text != null && search.nextWord(text.bytes, text.length) != -1;
+  }
+
+  /**
+   * Find the files which contain the given word. The files are searched in parallel on the common
+   * fork-join pool.
+   *
+   * @param files The files to search.
+   * @param word The word to look for.
+   * @return The files which contain the word, in the same order as <code>files</code>.
+   */
+  public static List<Path> findFilesContainingWord(Collection<Path> files, String word) {
+    return findFilesContainingAllWords(files, Collections.singletonList(word));
+  }
+
+  /**
+   * Find the files which contain all of the given words. Each file is read only once, and the files
+   * are searched in parallel on the common fork-join pool.
+   *
+   * @param files The files to search.
+   * @param words The words to look for.
+   * @return The files which contain all the words, in the same order as <code>files</code>.
+   */
+  public static List<Path> findFilesContainingAllWords(
+      Collection<Path> files, Collection<String> words) {
+    final StringSearch[] searches = new StringSearch[words.size()];
+    int index = 0;
+    for (String word : words) {
+      searches[index++] = new StringSearch(word);
     }
-    try (FileChannel channel = FileChannel.open(java)) {
-      // Read up to 1 MB of data from file
-      int limit = Math.min((int) channel.size(), SEARCH_BUFFER.capacity());
-      SEARCH_BUFFER.position(0);
-      SEARCH_BUFFER.limit(limit);
-      channel.read(SEARCH_BUFFER);
-      SEARCH_BUFFER.position(0);
-      return search.nextWord(SEARCH_BUFFER) != -1;
-    } catch (NoSuchFileException e) {
-      LOG.warning(e.getMessage());
+
+    Stream<Path> stream =
+        files.size() < PARALLEL_SEARCH_THRESHOLD ? files.stream() : files.parallelStream();
+    return stream
+        .filter(file -> containsAllWords(file, searches))
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  private static boolean containsAllWords(Path file, StringSearch[] searches) {
+    Text text = readText(file);
+    if (text == null) {
       return false;
-    } catch (IOException e) {
-      throw new RuntimeException(e);
     }
+    for (StringSearch search : searches) {
+      if (search.nextWord(text.bytes, text.length) == -1) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public static boolean containsClass(Path file, String simpleName) {
-    if (cacheContainsClass.needs(file, simpleName)) {
-      cacheContainsClass.load(file, simpleName, containsString(file, "class " + simpleName));
-      // TODO verify this by actually parsing the file
-    }
-    return cacheContainsClass.get(file, simpleName);
+    // TODO verify this by actually parsing the file
+    return cacheContainsClass.get(
+        file, simpleName, (f, name) -> containsString(f, "class " + name));
   }
 
   public static boolean containsInterface(Path file, String simpleName) {
-    if (cacheContainsInterface.needs(file, simpleName)) {
-      cacheContainsInterface.load(
-          file, simpleName, containsString(file, "interface " + simpleName));
-      // TODO verify this by actually parsing the file
-    }
-    return cacheContainsInterface.get(file, simpleName);
+    // TODO verify this by actually parsing the file
+    return cacheContainsInterface.get(
+        file, simpleName, (f, name) -> containsString(f, "interface " + name));
   }
 
   // TODO this doesn't work for inner classes, eliminate
@@ -346,90 +460,81 @@ public class StringSearch {
 
   private static boolean containsString(Path java, String query) {
     StringSearch search = new StringSearch(query);
-    String text = tryGetActiveDocContent(java);
-    if (text != null) {
-      return search.next(text.getBytes()) != -1;
-    }
-    try (FileChannel channel = FileChannel.open(java)) {
-      // Read up to 1 MB of data from file
-      int limit = Math.min((int) channel.size(), SEARCH_BUFFER.capacity());
-      SEARCH_BUFFER.position(0);
-      SEARCH_BUFFER.limit(limit);
-      channel.read(SEARCH_BUFFER);
-      SEARCH_BUFFER.position(0);
-      return search.next(SEARCH_BUFFER) != -1;
-    } catch (NoSuchFileException e) {
-      LOG.warning(e.getMessage());
-      return false;
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    Text text = readText(java);
+    return text != null && search.next(text.bytes, text.length, 0) != -1;
   }
 
   public int next(String text) {
-    return next(text.getBytes());
-  }
-
-  private int next(byte[] text) {
-    return next(ByteBuffer.wrap(text));
+    final var bytes = text.getBytes(StandardCharsets.UTF_8);
+    return next(bytes, bytes.length, 0);
   }
 
-  private int next(ByteBuffer text) {
-    return next(text, 0);
-  }
-
-  private int next(ByteBuffer text, int startingAfter) {
+  private int next(byte[] text, int length, int startingAfter) {
     int i = startingAfter + pattern.length - 1;
-    while (i < text.limit()) {
+    while (i < length) {
       // Compare backwards from the end until the first unmatching character.
       int j = pattern.length - 1;
-      while (j >= 0 && text.get(i) == pattern[j]) {
+      while (j >= 0 && text[i] == pattern[j]) {
         i--;
         j--;
       }
       if (j < 0) {
         return i + 1; // match
       }
-      i += Math.max(badCharSkip[text.get(i) + 128], goodSuffixSkip[j]);
+      i += Math.max(badCharSkip[text[i] + 128], goodSuffixSkip[j]);
     }
     return -1;
   }
 
   public int nextWord(String text) {
-    return nextWord(text.getBytes());
+    final var bytes = text.getBytes(StandardCharsets.UTF_8);
+    return nextWord(bytes, bytes.length);
   }
 
-  private int nextWord(byte[] text) {
-    return nextWord(ByteBuffer.wrap(text));
-  }
-
-  private int nextWord(ByteBuffer text) {
+  private int nextWord(byte[] text, int length) {
     int i = 0;
     while (true) {
-      i = next(text, i);
+      i = next(text, length, i);
       if (i == -1) return -1;
-      if (isWord(text, i)) return i;
+      if (isWord(text, length, i)) return i;
       i++;
     }
   }
 
-  private boolean isWord(ByteBuffer text, int offset) {
-    return startsWord(text, offset) && endsWord(text, offset + pattern.length - 1);
+  private boolean isWord(byte[] text, int length, int offset) {
+    return startsWord(text, offset) && endsWord(text, length, offset + pattern.length - 1);
   }
 
-  private boolean startsWord(ByteBuffer text, int offset) {
+  private boolean startsWord(byte[] text, int offset) {
     if (offset == 0) return true;
-    return !isWordChar(text.get(offset - 1));
+    return !isWordChar(text[offset - 1]);
+  }
+
+  private static boolean isWordChar(byte b) {
+    // Bytes of multi-byte UTF-8 sequences are negative, treat them as part of a word as Java
+    // identifiers may contain non-ASCII letters
+    return b < 0
+        || (b >= 'a' && b <= 'z')
+        || (b >= 'A' && b <= 'Z')
+        || (b >= '0' && b <= '9')
+        || b == '$'
+        || b == '_';
   }
 
-  private boolean isWordChar(byte b) {
-    char c = (char) (b + 128);
-    return Character.isAlphabetic(c) || Character.isDigit(c) || c == '$' || c == '_';
+  private boolean endsWord(byte[] text, int length, int offset) {
+    if (offset + 1 >= length) return true;
+    return !isWordChar(text[offset + 1]);
   }
 
-  private boolean endsWord(ByteBuffer text, int offset) {
-    if (offset + 1 >= text.limit()) return true;
-    return !isWordChar(text.get(offset + 1));
+  /** UTF-8 encoded text, which might be backed by a larger (reused) buffer. */
+  private static final class Text {
+    final byte[] bytes;
+    final int length;
+
+    Text(byte[] bytes, int length) {
+      this.bytes = bytes;
+      this.length = length;
+    }
   }
 
   private static class Slice {
@@ -0,0 +1,120 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.projects
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.eventbus.events.editor.ChangeType.INSERT
+import com.itsaky.androidide.eventbus.events.editor.ChangeType.NEW_TEXT
+import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentCloseEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentOpenEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentResyncRequestEvent
+import com.itsaky.androidide.models.Position
+import com.itsaky.androidide.models.Range
+import java.nio.file.Paths
+import org.greenrobot.eventbus.EventBus
+import org.greenrobot.eventbus.Subscribe
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class FileManagerTest {
+
+  private val file = Paths.get("/project/src/main/java/Main.java")
+  private val resyncRequests = mutableListOf<DocumentResyncRequestEvent>()
+
+  @Before
+  fun setup() {
+    EventBus.getDefault().register(this)
+  }
+
+  @After
+  fun tearDown() {
+    EventBus.getDefault().unregister(this)
+    FileManager.onDocumentClose(DocumentCloseEvent(file))
+  }
+
+  @Subscribe
+  @Suppress("unused")
+  fun onResyncRequested(event: DocumentResyncRequestEvent) {
+    resyncRequests.add(event)
+  }
+
+  @Test
+  fun `test changes are applied to the previous version`() {
+    FileManager.onDocumentOpen(DocumentOpenEvent(file, "hello", 0))
+    FileManager.onDocumentContentChange(insert(1, 5, ", world"))
+
+    assertThat(FileManager.getDocumentContents(file)).isEqualTo("hello, world")
+    assertThat(FileManager.getActiveDocument(file)!!.version).isEqualTo(1)
+    assertThat(resyncRequests).isEmpty()
+  }
+
+  @Test
+  fun `test missed change keeps the last version and requests resync`() {
+    FileManager.onDocumentOpen(DocumentOpenEvent(file, "hello", 0))
+    FileManager.onDocumentContentChange(insert(1, 5, ", world"))
+
+    // version 2 was missed
+    FileManager.onDocumentContentChange(insert(3, 12, "!"))
+    assertThat(FileManager.isActive(file)).isTrue()
+    assertThat(FileManager.getDocumentContents(file)).isEqualTo("hello, world")
+    assertThat(resyncRequests).containsExactly(DocumentResyncRequestEvent(file))
+
+    // the following changes cannot be applied either, the resync is requested only once
+    FileManager.onDocumentContentChange(insert(4, 13, "?"))
+    assertThat(FileManager.getDocumentContents(file)).isEqualTo("hello, world")
+    assertThat(resyncRequests).hasSize(1)
+
+    // the complete text brings the document back in sync
+    FileManager.onDocumentContentChange(
+      DocumentChangeEvent(file, "hello, world!?", 5, NEW_TEXT, 0, Range.NONE)
+    )
+    assertThat(FileManager.getDocumentContents(file)).isEqualTo("hello, world!?")
+
+    FileManager.onDocumentContentChange(insert(6, 14, "."))
+    assertThat(FileManager.getDocumentContents(file)).isEqualTo("hello, world!?.")
+    assertThat(FileManager.getActiveDocument(file)!!.version).isEqualTo(6)
+    assertThat(resyncRequests).hasSize(1)
+  }
+
+  @Test
+  fun `test reopening the document clears the resync state`() {
+    FileManager.onDocumentOpen(DocumentOpenEvent(file, "hello", 0))
+    FileManager.onDocumentContentChange(insert(2, 5, "!"))
+    assertThat(resyncRequests).hasSize(1)
+
+    FileManager.onDocumentOpen(DocumentOpenEvent(file, "hello", 0))
+    FileManager.onDocumentContentChange(insert(1, 5, "!"))
+    assertThat(FileManager.getDocumentContents(file)).isEqualTo("hello!")
+    assertThat(resyncRequests).hasSize(1)
+  }
+
+  private fun insert(version: Int, index: Int, text: String): DocumentChangeEvent {
+    val start = Position(0, index, index)
+    val end = Position(0, index + text.length, index + text.length)
+    return DocumentChangeEvent(file, null, version, INSERT, text.length, Range(start, end), text)
+  }
+}
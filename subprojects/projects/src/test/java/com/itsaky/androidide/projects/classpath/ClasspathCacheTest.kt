@@ -0,0 +1,146 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.classpath
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.javac.services.fs.CachingJarFileSystemProvider
+import com.itsaky.androidide.projects.util.BootClasspathProvider
+import java.io.File
+import java.nio.file.Files
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.DEFAULT_VALUE_STRING)
+class ClasspathCacheTest {
+
+  private val dir = Files.createTempDirectory("classpath-cache").toFile()
+  private val cacheFile = File(dir, "cache/classpaths.bin")
+
+  @After
+  fun tearDown() {
+    BootClasspathProvider.dropAll(BootClasspathProvider.getIndexedClasspaths().toList())
+    ClasspathCache.setCacheFile(null)
+    ClasspathCache.clear()
+  }
+
+  @Test
+  fun testListingsAreReadFromTheCacheFile() {
+    val first = jar("first.jar", "com/example/Foo.class", "com/example/Foo\$Inner.class", "A.class")
+    val second = jar("second.jar", "org/example/Bar.class")
+
+    ClasspathCache.setCacheFile(cacheFile)
+    assertThat(ClasspathCache.listTopLevelClasses(listOf(first, second)))
+      .containsExactly("com.example.Foo", "A", "org.example.Bar")
+    ClasspathCache.save()
+    assertThat(cacheFile.exists()).isTrue()
+
+    // the listing from the cache file is used while the size and the modification time of the JAR
+    // do not change
+    replace(first, "com/example/Baz.class", "com/example/Baz\$Inner.class", "B.class")
+    reopen()
+    assertThat(ClasspathCache.listTopLevelClasses(listOf(first, second)))
+      .containsExactly("com.example.Foo", "A", "org.example.Bar")
+
+    // a modified JAR is listed again
+    first.setLastModified(first.lastModified() + 10_000)
+    assertThat(ClasspathCache.listTopLevelClasses(listOf(first)))
+      .containsExactly("com.example.Baz", "B")
+  }
+
+  @Test
+  fun testUnusedListingsArePruned() {
+    val first = jar("first.jar", "com/example/Foo.class")
+    val second = jar("second.jar", "org/example/Bar.class")
+
+    ClasspathCache.setCacheFile(cacheFile)
+    ClasspathCache.listTopLevelClasses(listOf(first, second))
+    ClasspathCache.save()
+
+    // the second JAR is no longer in the classpath
+    reopen()
+    assertThat(ClasspathCache.listTopLevelClasses(listOf(first)))
+      .containsExactly("com.example.Foo")
+    ClasspathCache.save()
+
+    replace(first, "com/example/Baz.class")
+    replace(second, "org/example/Baz.class")
+    reopen()
+    assertThat(ClasspathCache.listTopLevelClasses(listOf(first, second)))
+      .containsExactly("com.example.Foo", "org.example.Baz")
+  }
+
+  @Test
+  fun testBootClasspathListedBeforeProjectSetupIsKept() {
+    val android = jar("android.jar", "android/app/Activity.class")
+    val library = jar("library.jar", "com/example/Foo.class")
+
+    repeat(2) {
+      // the boot classpath is indexed when the editor starts, before the project is set up
+      reopen()
+      BootClasspathProvider.update(listOf(android.path))
+
+      // setting up the project sets the cache file again and lists the module classpaths
+      ClasspathCache.setCacheFile(cacheFile)
+      BootClasspathProvider.update(listOf(android.path))
+      ClasspathCache.listTopLevelClasses(listOf(library))
+      ClasspathCache.save()
+      BootClasspathProvider.drop(android.path)
+    }
+
+    // the listing of the boot classpath is still served from the cache file
+    replace(android, "android/app/Fragment.class")
+    reopen()
+    assertThat(ClasspathCache.listTopLevelClasses(listOf(android)))
+      .containsExactly("android.app.Activity")
+  }
+
+  /** Simulates opening the project again, the listings are read from the cache file. */
+  private fun reopen() {
+    ClasspathCache.setCacheFile(null)
+    ClasspathCache.clear()
+    ClasspathCache.setCacheFile(cacheFile)
+  }
+
+  /** Replaces the entries of the given JAR, without changing its size or modification time. */
+  private fun replace(file: File, vararg entries: String) {
+    val size = file.length()
+    val modified = file.lastModified()
+    jar(file.name, *entries)
+    file.setLastModified(modified)
+    CachingJarFileSystemProvider.clearCache(file.path)
+    assertThat(file.length()).isEqualTo(size)
+  }
+
+  private fun jar(name: String, vararg entries: String): File {
+    val file = File(dir, name)
+    JarOutputStream(file.outputStream()).use { out ->
+      for (entry in entries) {
+        out.putNextEntry(JarEntry(entry).apply { time = 0 })
+        out.closeEntry()
+      }
+    }
+    return file
+  }
+}
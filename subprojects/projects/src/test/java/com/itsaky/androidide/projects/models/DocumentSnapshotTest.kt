@@ -0,0 +1,130 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.models
+
+import com.google.common.truth.Truth.assertThat
+import java.lang.management.ManagementFactory
+import java.util.Random
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class DocumentSnapshotTest {
+
+  private fun createText(lines: Int): StringBuilder {
+    val sb = StringBuilder()
+    for (i in 0 until lines) {
+      sb.append("    int field").append(i).append(" = ").append(i).append(";\n")
+    }
+    return sb
+  }
+
+  @Test
+  fun testEditsMatchStringBuilder() {
+    val random = Random(42)
+    val expected = createText(2000)
+    var snapshot = DocumentSnapshot.of(expected)
+
+    for (i in 0 until 20_000) {
+      if (random.nextInt(10) < 7 || expected.isEmpty()) {
+        val index = random.nextInt(expected.length + 1)
+        val text = if (random.nextInt(20) == 0) "line\nanother line\n" else "x"
+        expected.insert(index, text)
+        snapshot = snapshot.insert(index, text)
+      } else {
+        val start = random.nextInt(expected.length)
+        val end = minOf(expected.length, start + random.nextInt(3))
+        expected.delete(start, end)
+        snapshot = snapshot.delete(start, end)
+      }
+    }
+
+    assertThat(snapshot.length).isEqualTo(expected.length)
+    assertThat(snapshot.depth()).isAtMost(DocumentSnapshot.MAX_DEPTH)
+    assertThat(snapshot.subSequence(100, 2000).toString()).isEqualTo(expected.substring(100, 2000))
+    assertThat(snapshot[1234]).isEqualTo(expected[1234])
+    assertThat(snapshot.reader().readText()).isEqualTo(expected.toString())
+    assertThat(snapshot.toString()).isEqualTo(expected.toString())
+  }
+
+  @Test
+  fun testCharAtWithoutFlattening() {
+    val expected = createText(2000)
+    var snapshot = DocumentSnapshot.of(expected)
+    for (i in 0 until 1000) {
+      val index = (i * 7919) % expected.length
+      expected.insert(index, "x")
+      snapshot = snapshot.insert(index, "x")
+    }
+
+    // forwards, backwards and random reads of the same snapshot
+    val length = expected.length
+    for (i in 0 until length) {
+      assertThat(snapshot[i]).isEqualTo(expected[i])
+    }
+    for (i in length - 1 downTo 0) {
+      assertThat(snapshot[i]).isEqualTo(expected[i])
+    }
+    val random = Random(42)
+    for (i in 0 until 10_000) {
+      val index = random.nextInt(length)
+      assertThat(snapshot[index]).isEqualTo(expected[index])
+    }
+  }
+
+  @Test
+  fun testSnapshotsAreImmutable() {
+    val first = DocumentSnapshot.of("class Main {}")
+    val second = first.insert(12, "int a; ")
+    val third = second.delete(0, 6)
+
+    assertThat(first.toString()).isEqualTo("class Main {}")
+    assertThat(second.toString()).isEqualTo("class Main {int a; }")
+    assertThat(third.toString()).isEqualTo("Main {int a; }")
+  }
+
+  /** Compares the memory allocated per keystroke with copying the whole text on every change. */
+  @Test
+  fun testAllocationPerKeystroke() {
+    val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    val thread = Thread.currentThread().id
+    val keystrokes = 500
+    val text = createText(5000)
+    var snapshot = DocumentSnapshot.of(text)
+
+    var before = threads.getThreadAllocatedBytes(thread)
+    for (i in 0 until keystrokes) {
+      text.insert(text.length / 2, 'x')
+      text.toString()
+    }
+    val copying = (threads.getThreadAllocatedBytes(thread) - before) / keystrokes
+
+    before = threads.getThreadAllocatedBytes(thread)
+    for (i in 0 until keystrokes) {
+      snapshot = snapshot.insert(snapshot.length / 2, "x")
+    }
+    val snapshots = (threads.getThreadAllocatedBytes(thread) - before) / keystrokes
+
+    assertThat(snapshot.length).isEqualTo(text.length)
+    assertThat(snapshots).isLessThan(copying / 10)
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.util
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.utils.Cache
+import java.nio.file.Paths
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class CacheTest {
+
+  private val first = Paths.get("/project/First.java")
+  private val second = Paths.get("/project/Second.java")
+  private val third = Paths.get("/project/Third.java")
+
+  @Test
+  fun testHitsAndMisses() {
+    val cache = Cache<String, Boolean>()
+    assertThat(cache.needs(first, "word")).isTrue()
+    cache.load(first, "word", true)
+    assertThat(cache.has(first, "word")).isTrue()
+    assertThat(cache.get(first, "word")).isTrue()
+    assertThat(cache.get(first, "other") { _, _ -> false }).isFalse()
+    assertThat(cache.get(first, "other") { _, _ -> true }).isFalse()
+
+    assertThat(cache.hitCount).isEqualTo(2)
+    assertThat(cache.missCount).isEqualTo(2)
+  }
+
+  @Test
+  fun testInvalidation() {
+    val cache = Cache<String, Boolean>()
+    cache.load(first, "word", true)
+    cache.load(second, "word", true)
+
+    Cache.invalidateAll(first)
+
+    assertThat(cache.needs(first, "word")).isTrue()
+    assertThat(cache.has(second, "word")).isTrue()
+    assertThat(cache.weight()).isEqualTo(1)
+  }
+
+  @Test
+  fun testEvictsLeastRecentlyUsedFiles() {
+    val cache = Cache<Void?, List<String>>(5) { _, value -> value.size + 1 }
+    cache.load(first, null, listOf("a", "b"))
+    cache.load(second, null, listOf("a"))
+    assertThat(cache.has(first, null)).isTrue()
+
+    cache.load(third, null, listOf("a"))
+
+    assertThat(cache.has(first, null)).isTrue()
+    assertThat(cache.has(second, null)).isFalse()
+    assertThat(cache.has(third, null)).isTrue()
+    assertThat(cache.weight()).isEqualTo(5)
+    assertThat(cache.evictionCount).isEqualTo(1)
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.util
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.utils.ClassNameIndex
+import com.itsaky.androidide.utils.ClassNameIndex.MatchKind.CAMEL_CASE
+import com.itsaky.androidide.utils.ClassNameIndex.MatchKind.EXACT
+import com.itsaky.androidide.utils.ClassNameIndex.MatchKind.EXACT_IGNORE_CASE
+import com.itsaky.androidide.utils.ClassNameIndex.MatchKind.PREFIX
+import com.itsaky.androidide.utils.ClassNameIndex.MatchKind.PREFIX_IGNORE_CASE
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class ClassNameIndexTest {
+
+  private val index =
+    ClassNameIndex(
+      listOf(
+        "java.util.List",
+        "java.awt.List",
+        "java.util.ArrayList",
+        "java.util.LinkedList",
+        "java.util.ListIterator",
+        "java.lang.StringBuilder",
+        "java.lang.String",
+        "java.net.URLConnection",
+        "com.example.list",
+      )
+    )
+
+  @Test
+  fun testPrefixMatches() {
+    val matches = index.find("List", 10)
+    assertThat(matches.map { it.qualifiedName })
+      .containsExactly(
+        "java.awt.List",
+        "java.util.List",
+        "com.example.list",
+        "java.util.ListIterator"
+      )
+    assertThat(matches.map { it.kind })
+      .containsExactly(EXACT, EXACT, EXACT_IGNORE_CASE, PREFIX)
+      .inOrder()
+
+    assertThat(index.find("string", 10).map { it.kind })
+      .containsExactly(EXACT_IGNORE_CASE, PREFIX_IGNORE_CASE)
+      .inOrder()
+  }
+
+  @Test
+  fun testCamelCaseMatches() {
+    assertThat(index.find("AL", 10).map { it.qualifiedName }).containsExactly("java.util.ArrayList")
+    assertThat(index.find("ALi", 10).map { it.kind }).containsExactly(CAMEL_CASE)
+    assertThat(index.find("UC", 10).map { it.qualifiedName })
+      .containsExactly("java.net.URLConnection")
+    assertThat(index.find("SB", 10).map { it.qualifiedName })
+      .containsExactly("java.lang.StringBuilder")
+    assertThat(index.find("LIt", 10).map { it.qualifiedName })
+      .containsExactly("java.util.ListIterator")
+  }
+
+  @Test
+  fun testLimit() {
+    assertThat(index.find("List", 2).map { it.kind }).containsExactly(EXACT, EXACT)
+    assertThat(index.find("", 3)).hasSize(3)
+    assertThat(index.find("Xyz", 10)).isEmpty()
+    assertThat(ClassNameIndex.EMPTY.find("List", 10)).isEmpty()
+  }
+
+  @Test
+  fun testLowercasePrefixMatchesAreBounded() {
+    val names = (0 until 100).map { "com.example.Item$it" } + "com.example.item_z"
+    val matches = ClassNameIndex(names).find("item", 5)
+
+    // the case-sensitive match sorts after all the case-insensitive matches, but ranks first
+    assertThat(matches.map { it.qualifiedName })
+      .containsExactly(
+        "com.example.item_z",
+        "com.example.Item0",
+        "com.example.Item1",
+        "com.example.Item10",
+        "com.example.Item11"
+      )
+      .inOrder()
+    assertThat(matches.map { it.kind })
+      .containsExactly(
+        PREFIX,
+        PREFIX_IGNORE_CASE,
+        PREFIX_IGNORE_CASE,
+        PREFIX_IGNORE_CASE,
+        PREFIX_IGNORE_CASE
+      )
+      .inOrder()
+  }
+}
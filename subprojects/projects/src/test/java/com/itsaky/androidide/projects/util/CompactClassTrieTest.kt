@@ -0,0 +1,113 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.util
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.utils.ClassTrie
+import com.itsaky.androidide.utils.CompactClassTrie
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class CompactClassTrieTest {
+
+  private val names =
+    listOf(
+      "java.lang.String",
+      "java.lang.String.Inner",
+      "java.lang.Object",
+      "java.util.List",
+      "java.io.File",
+      "java.nio.file.Path"
+    )
+
+  @Test
+  fun testSameResultsAsClassTrie() {
+    val expected = ClassTrie()
+    names.forEach { expected.append(it) }
+    val trie = CompactClassTrie(names)
+
+    for (pkg in listOf("java", "java.lang", "java.util", "java.nio", "java.lang.String", "javax")) {
+      assertThat(trie.findClassNames(pkg))
+        .containsExactlyElementsIn(expected.findClassNames(pkg))
+    }
+    assertThat(trie.allClassNames()).containsExactlyElementsIn(expected.allClassNames())
+    assertThat(trie.nodeCount).isEqualTo(13)
+  }
+
+  @Test
+  fun testLookup() {
+    val trie = CompactClassTrie(names)
+
+    assertThat(trie.contains("java.io.File")).isTrue()
+    assertThat(trie.contains("java.nio")).isTrue()
+    assertThat(trie.contains("java.nio.File")).isFalse()
+    assertThat(trie.contains("")).isFalse()
+
+    val string = trie.findNode("java.lang.String")!!
+    assertThat(string.isClass).isTrue()
+    assertThat(string.name).isEqualTo("String")
+    assertThat(string.qualifiedName).isEqualTo("java.lang.String")
+    assertThat(string.children.keys).containsExactly("Inner")
+
+    val lang = trie.findNode("java.lang")!!
+    assertThat(lang.isClass).isFalse()
+    assertThat(lang.children.keys).containsExactly("Object", "String").inOrder()
+    assertThat(trie.root.children.keys).containsExactly("java")
+    assertThat(trie.findNode("java.lang.Integer")).isNull()
+  }
+
+  @Test
+  fun testChildrenView() {
+    val trie = CompactClassTrie(names)
+    val java = trie.findNode("java")!!
+
+    assertThat(java.children).isSameInstanceAs(java.children)
+    assertThat(java.children.size).isEqualTo(4)
+    assertThat(java.children.containsKey("nio")).isTrue()
+    assertThat(java.children.containsKey("net")).isFalse()
+    assertThat(java.children["lang"]).isEqualTo(trie.findNode("java.lang"))
+    assertThat(java.children["net"]).isNull()
+    assertThat(java.children.values.map { it.qualifiedName })
+      .containsExactly("java.io", "java.lang", "java.nio", "java.util")
+      .inOrder()
+
+    val file = trie.findNode("java.io.File")!!
+    assertThat(file.children.isEmpty()).isTrue()
+    assertThat(file.children["Inner"]).isNull()
+  }
+
+  @Test(expected = UnsupportedOperationException::class)
+  fun testImmutable() {
+    CompactClassTrie(names).append("java.lang.Integer")
+  }
+
+  @Test(expected = UnsupportedOperationException::class)
+  fun testChildrenAreImmutable() {
+    CompactClassTrie(names).findNode("java.lang")!!.children.clear()
+  }
+
+  @Test(expected = UnsupportedOperationException::class)
+  fun testClear() {
+    CompactClassTrie(names).clear()
+  }
+}
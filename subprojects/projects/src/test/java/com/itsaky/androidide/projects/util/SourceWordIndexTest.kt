@@ -0,0 +1,70 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.util
+
+import com.google.common.truth.Truth.assertThat
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+import kotlin.io.path.writeText
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class SourceWordIndexTest {
+
+  @Test
+  fun testLookupAndPersistence() {
+    val dir = Files.createTempDirectory("word-index")
+    val first = dir.resolve("First.java")
+    val second = dir.resolve("Second.java")
+    first.writeText(
+      "package com.example;\nimport java.util.List;\nimport java.io.*;\nclass First { List<String> items; }"
+    )
+    second.writeText("package com.example;\nclass Second { void items() {} }")
+
+    val indexFile = dir.resolve("cache/words.idx")
+    val index = SourceWordIndex(indexFile)
+    index.sync(listOf(first, second))
+
+    assertThat(index.findFiles("items")).containsExactly(first, second)
+    assertThat(index.findFiles("List")).containsExactly(first)
+    assertThat(index.findFiles("com.example")).containsExactly(first, second)
+    assertThat(index.findFiles("Third")).isEmpty()
+    assertThat(index.getImports(first)).containsExactly("java.util.List", "java.io.*").inOrder()
+
+    second.writeText("package com.example;\nclass Second { void other() {} }")
+    index.update(second)
+    assertThat(index.findFiles("items")).containsExactly(first)
+
+    index.remove(first)
+    assertThat(index.findFiles("items")).isEmpty()
+    assertThat(index.getImports(first)).isNull()
+
+    index.pendingWrite.get(10, TimeUnit.SECONDS)
+    assertThat(Files.exists(indexFile)).isTrue()
+
+    val loaded = SourceWordIndex(indexFile)
+    loaded.sync(listOf(second))
+    assertThat(loaded.fileCount()).isEqualTo(1)
+    assertThat(loaded.findFiles("other")).containsExactly(second)
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.projects.util
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.eventbus.events.editor.ChangeType.INSERT
+import com.itsaky.androidide.eventbus.events.editor.DocumentChangeEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentCloseEvent
+import com.itsaky.androidide.eventbus.events.editor.DocumentOpenEvent
+import com.itsaky.androidide.models.Position
+import com.itsaky.androidide.models.Range
+import com.itsaky.androidide.projects.FileManager
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.io.path.writeText
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class StringSearchTest {
+
+  private val dir = Files.createTempDirectory("string-search")
+
+  @Test
+  fun testWordBoundaries() {
+    val search = StringSearch("value")
+    assertThat(search.nextWord("int value;")).isEqualTo(4)
+    assertThat(search.nextWord("value")).isEqualTo(0)
+    assertThat(search.nextWord("a.value()")).isEqualTo(2)
+
+    // digits, '$', '_' and non-ASCII letters are a part of the word
+    assertThat(search.nextWord("int value1;")).isEqualTo(-1)
+    assertThat(search.nextWord("int x1value;")).isEqualTo(-1)
+    assertThat(search.nextWord("int \$value;")).isEqualTo(-1)
+    assertThat(search.nextWord("int value_;")).isEqualTo(-1)
+    assertThat(search.nextWord("int valueÄ;")).isEqualTo(-1)
+    assertThat(search.nextWord("int Övalue;")).isEqualTo(-1)
+
+    // the first occurrences are not words, the last one is
+    assertThat(search.nextWord("value1 value_ value")).isEqualTo(14)
+  }
+
+  @Test
+  fun testTitleCaseMatchingOnBytes() {
+    val cases =
+      listOf(
+        "class FooBar {}" to "fb",
+        "class FooBar {}" to "foob",
+        "class Foobar {}" to "fb",
+        "class Foo_Bar {}" to "fb",
+        "class Foo {} class Bar {}" to "fb",
+        "int x = 1; Foo2Bar" to "f2",
+        "" to "f"
+      )
+
+    for ((candidate, find) in cases) {
+      val bytes = candidate.toByteArray()
+      assertThat(StringSearch.matchesTitleCase(bytes, bytes.size, find))
+        .isEqualTo(StringSearch.matchesTitleCase(candidate, find))
+    }
+
+    val bytes = "class FooBar {}".toByteArray()
+    assertThat(StringSearch.matchesTitleCase(bytes, bytes.size, "fb")).isTrue()
+    assertThat(StringSearch.matchesTitleCase(bytes, bytes.size, "fbz")).isFalse()
+
+    // the bytes after the length must be ignored
+    val buffer = "class Foo BarBaz".toByteArray()
+    assertThat(StringSearch.matchesTitleCase(buffer, "class Foo".length, "fb")).isFalse()
+  }
+
+  @Test
+  fun testFindFilesContainingWords() {
+    val first = file("First.java", "class First { List<String> items; }")
+    val second = file("Second.java", "class Second { void items() {} }")
+    val third = file("Third.java", "class Third { String itemsCount; }")
+    val missing = dir.resolve("Missing.java")
+    val files = listOf(first, second, third, missing)
+
+    assertThat(StringSearch.findFilesContainingWord(files, "items"))
+      .containsExactly(first, second)
+      .inOrder()
+    assertThat(StringSearch.findFilesContainingWord(files, "item")).isEmpty()
+    assertThat(StringSearch.findFilesContainingAllWords(files, listOf("items", "String")))
+      .containsExactly(first)
+    assertThat(StringSearch.findFilesContainingAllWords(files, listOf("class", "String")))
+      .containsExactly(first, third)
+      .inOrder()
+    assertThat(StringSearch.findFilesContainingAllWords(files, listOf("items", "Third")))
+      .isEmpty()
+  }
+
+  @Test
+  fun testParallelSearchKeepsTheOrderOfFiles() {
+    // more files than the threshold for a parallel search, with contents of different sizes
+    val files =
+      (0 until 200).map { i ->
+        val word = if (i % 3 == 0) "Target" else "Other"
+        file("File$i.java", "class File$i { $word field; }" + " ".repeat(i * 100))
+      }
+
+    val expected = files.filterIndexed { i, _ -> i % 3 == 0 }
+    repeat(10) {
+      assertThat(StringSearch.findFilesContainingWord(files, "Target"))
+        .containsExactlyElementsIn(expected)
+        .inOrder()
+      assertThat(StringSearch.findFilesContainingAllWords(files, listOf("Target", "field")))
+        .containsExactlyElementsIn(expected)
+        .inOrder()
+    }
+  }
+
+  @Test
+  fun testFilesNearTheSearchLimit() {
+    val limit = 1024 * 1024
+
+    // the word ends at the last byte which is searched
+    val atLimit = file("AtLimit.java", " ".repeat(limit - "Last".length) + "Last")
+    assertThat(StringSearch.containsWord(atLimit, "Last")).isTrue()
+
+    // the word starts after the last byte which is searched
+    val afterLimit = file("AfterLimit.java", " ".repeat(limit) + "Last")
+    assertThat(StringSearch.containsWord(afterLimit, "Last")).isFalse()
+
+    // a smaller file read into the same (grown) buffer must not see the previous contents
+    val big = file("Big.java", "class Big { int Stale; }" + " ".repeat(limit))
+    val small = file("Small.java", "class A {}")
+    assertThat(StringSearch.containsWord(big, "Stale")).isTrue()
+    assertThat(StringSearch.containsWord(small, "Stale")).isFalse()
+    assertThat(StringSearch.containsWordMatching(small, "st")).isFalse()
+    assertThat(StringSearch.findFilesContainingWord(listOf(big, small), "Stale"))
+      .containsExactly(big)
+  }
+
+  @Test
+  fun testOpenDocumentsAreSearched() {
+    val file = file("Open.java", "class Open {}")
+    FileManager.onDocumentOpen(DocumentOpenEvent(file, "class Open { String naïve; }", 0))
+    try {
+      assertThat(StringSearch.findFilesContainingWord(listOf(file), "naïve")).containsExactly(file)
+
+      // the text of a version is encoded only once
+      val document = FileManager.getActiveDocument(file)!!
+      assertThat(document.utf8).isSameInstanceAs(document.utf8)
+
+      val start = Position(0, 27, 27)
+      val end = Position(0, 38, 38)
+      FileManager.onDocumentContentChange(
+        DocumentChangeEvent(file, null, 1, INSERT, 11, Range(start, end), "int Added; ")
+      )
+      assertThat(StringSearch.containsWord(file, "Added")).isTrue()
+      assertThat(StringSearch.containsWord(file, "naïve")).isTrue()
+    } finally {
+      FileManager.onDocumentClose(DocumentCloseEvent(file))
+    }
+  }
+
+  private fun file(name: String, contents: String): Path {
+    val file = dir.resolve(name)
+    file.writeText(contents)
+    return file
+  }
+}
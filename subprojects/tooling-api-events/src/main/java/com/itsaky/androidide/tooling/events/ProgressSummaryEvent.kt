@@ -0,0 +1,47 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.events
+
+import com.itsaky.androidide.tooling.events.internal.DefaultOperationDescriptor
+
+/**
+ * A snapshot of the progress of a build. Sent periodically while the build is running, and once
+ * when it finishes.
+ *
+ * @param startedOperations The number of operations started so far.
+ * @param finishedOperations The number of operations finished so far.
+ * @param failedOperations The number of operations which failed.
+ * @param runningOperations The display names of (some of) the running operations.
+ * @param runningCount The number of running operations.
+ * @author Akash Yadav
+ */
+class ProgressSummaryEvent(
+  val startedOperations: Int,
+  val finishedOperations: Int,
+  val failedOperations: Int,
+  val runningOperations: List<String>,
+  val runningCount: Int,
+  override val displayName: String,
+  override val eventTime: Long,
+  override val descriptor: OperationDescriptor = DefaultOperationDescriptor(NAME, NAME)
+) : ProgressEvent() {
+
+  companion object {
+    const val NAME = "Build progress"
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.events
+
+/**
+ * The progress events which are sent to the client during a build.
+ *
+ * @author Akash Yadav
+ */
+enum class ProgressVerbosity {
+
+  /** Only [ProgressSummaryEvent]s are sent. */
+  SUMMARY,
+
+  /**
+   * Start events are sent only for operations which run for a while, and the other progress
+   * events of an operation are rate-limited. [ProgressSummaryEvent]s are sent periodically.
+   */
+  NORMAL,
+
+  /** All the progress events are sent, along with the periodic [ProgressSummaryEvent]s. */
+  VERBOSE
+}
@@ -23,6 +23,7 @@ plugins {
   id("com.github.johnrengelman.shadow") version "7.1.2"
   id("java-library")
   id("org.jetbrains.kotlin.jvm")
+  id("me.champeau.jmh") version "0.7.0"
 }
 
 shadow { archivesName.set("tooling-api") }
@@ -52,6 +53,8 @@ project.tasks.getByName("jar") { finalizedBy("shadowJar") }
 
 project.tasks.getByName("shadowJar") { finalizedBy("renameJar") }
 
+jmh { profilers.add("gc") }
+
 dependencies {
   implementation(projects.subprojects.toolingApi)
 
@@ -64,5 +67,7 @@ dependencies {
   testImplementation(libs.tests.junit)
   testImplementation(libs.tests.google.truth)
 
+  jmhImplementation(projects.subprojects.toolingApiTesting)
+
   runtimeOnly(libs.tooling.slf4j)
 }
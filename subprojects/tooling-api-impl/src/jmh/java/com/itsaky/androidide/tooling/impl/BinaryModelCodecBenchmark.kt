@@ -0,0 +1,111 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl
+
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import com.itsaky.androidide.tooling.api.messages.InitializeProjectMessage
+import com.itsaky.androidide.tooling.api.messages.VariantDataRequest
+import com.itsaky.androidide.tooling.api.messages.result.SimpleVariantData
+import com.itsaky.androidide.tooling.api.model.IdeGradleProject
+import com.itsaky.androidide.tooling.api.util.BinaryModelCodec
+import com.itsaky.androidide.tooling.api.util.ToolingApiLauncher
+import com.itsaky.androidide.tooling.testing.ToolingApiTestLauncher
+import com.itsaky.androidide.tooling.testing.ToolingApiTestLauncher.MultiVersionTestClient
+import java.io.File
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+
+/**
+ * Compares the encode/decode time of the JSON and the binary encodings of the project models of the
+ * test project. Run with `./gradlew :subprojects:tooling-api-impl:jmh`. The `gc` profiler reports
+ * the bytes allocated per operation (`gc.alloc.rate.norm`).
+ *
+ * @author Akash Yadav
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class BinaryModelCodecBenchmark {
+
+  /** The model to encode and decode. */
+  @Param("root project", "variant data")
+  @JvmField
+  var model: String = ""
+
+  private val json = gson(false)
+  private val binary = gson(true)
+
+  private lateinit var value: Any
+  private lateinit var type: Class<*>
+  private lateinit var jsonPayload: String
+  private lateinit var binaryPayload: String
+
+  @Setup
+  fun setup() {
+    val (server, project) =
+      ToolingApiTestLauncher().launchServer(client = MultiVersionTestClient("7.2.0"))
+    try {
+      val projectDir = File("../../tests/test-project").absolutePath
+      server.initialize(InitializeProjectMessage(projectDir, binaryModels = true)).get()
+
+      if (model == "root project") {
+        value = server.getRootProject().get()
+        type = IdeGradleProject::class.java
+      } else {
+        value = project.getVariantData(VariantDataRequest("debug", ":app")).get()
+        type = SimpleVariantData::class.java
+      }
+    } finally {
+      server.shutdown().get()
+    }
+
+    jsonPayload = json.toJson(value, type)
+    binaryPayload = binary.toJson(value, type)
+  }
+
+  @Benchmark
+  fun jsonEncode(): String = json.toJson(value, type)
+
+  @Benchmark
+  fun binaryEncode(): String = binary.toJson(value, type)
+
+  @Benchmark
+  fun jsonDecode(): Any = json.fromJson(jsonPayload, type)
+
+  @Benchmark
+  fun binaryDecode(): Any = binary.fromJson(binaryPayload, type)
+
+  private fun gson(binary: Boolean): Gson {
+    val codec = BinaryModelCodec().apply { isEnabled = binary }
+    return GsonBuilder().apply { ToolingApiLauncher.configureGson(this, codec) }.create()
+  }
+}
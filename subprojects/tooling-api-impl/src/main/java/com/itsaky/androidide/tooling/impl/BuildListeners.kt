@@ -0,0 +1,38 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl
+
+import com.itsaky.androidide.tooling.impl.progress.ForwardingProgressListener
+import java.io.Closeable
+
+/**
+ * The listeners which forward the output and the progress events of a build to the client.
+ *
+ * @author Akash Yadav
+ */
+class BuildListeners(
+  val output: LoggingOutputStream,
+  val progress: ForwardingProgressListener
+) : Closeable {
+
+  /** Sends the remaining progress events and output of the build to the client. */
+  override fun close() {
+    progress.close()
+    output.close()
+  }
+}
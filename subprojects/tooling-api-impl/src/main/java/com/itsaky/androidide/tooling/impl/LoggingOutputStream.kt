@@ -18,21 +18,223 @@
 package com.itsaky.androidide.tooling.impl
 
 import com.itsaky.androidide.tooling.api.IToolingApiClient
+import com.itsaky.androidide.utils.ILogger
 import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.CodingErrorAction
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
 
 /**
  * Sends the output received from Gradle build to the [IToolingApiClient].
+ *
+ * The output is decoded as UTF-8 and the complete lines are sent in batches with
+ * [IToolingApiClient.logOutputBatch]. A batch is sent when it has [maxBatchLines] lines or
+ * [maxBatchChars] characters, or [flushInterval] milliseconds after its first line was received.
+ * At most [maxPendingBatches] batches are sent without being acknowledged by the client, the
+ * writing thread is blocked until the client catches up.
+ *
  * @author Akash Yadav
  */
-class LoggingOutputStream : OutputStream() {
+class LoggingOutputStream
+@JvmOverloads
+constructor(
+  private val client: IToolingApiClient? = Main.client,
+  private val maxBatchLines: Int = DEFAULT_MAX_BATCH_LINES,
+  private val maxBatchChars: Int = DEFAULT_MAX_BATCH_CHARS,
+  private val flushInterval: Long = DEFAULT_FLUSH_INTERVAL,
+  maxPendingBatches: Int = DEFAULT_MAX_PENDING_BATCHES
+) : OutputStream() {
+
+  companion object {
+    const val DEFAULT_MAX_BATCH_LINES = 256
+    const val DEFAULT_MAX_BATCH_CHARS = 32 * 1024
+    const val DEFAULT_FLUSH_INTERVAL = 100L
+    const val DEFAULT_MAX_PENDING_BATCHES = 4
+
+    /** The maximum time to wait for the client to acknowledge a batch, in milliseconds. */
+    private const val ACK_TIMEOUT = 5000L
+
+    private val log = ILogger.newInstance("LoggingOutputStream")
+
+    private val flushScheduler =
+      Executors.newSingleThreadScheduledExecutor { r ->
+        Thread(r, "LoggingOutputStreamFlusher").apply { isDaemon = true }
+      }
+  }
+
+  private val decoder =
+    StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE)
+
+  private val bytes = ByteBuffer.allocate(8192)
+  private val chars = CharBuffer.allocate(8192)
   private val lineBuilder = StringBuilder()
+
+  private var batch = ArrayList<String>()
+  private var batchChars = 0
+  private var scheduledFlush: ScheduledFuture<*>? = null
+  private var closed = false
+
+  private val pendingBatches = Semaphore(maxPendingBatches)
+
+  @Synchronized
   override fun write(b: Int) {
-    val c = b.toChar()
-    lineBuilder.append(c)
+    if (!bytes.hasRemaining()) {
+      decode(false)
+    }
+    bytes.put(b.toByte())
+    if (b == '\n'.code) {
+      decode(false)
+    }
+  }
+
+  @Synchronized
+  override fun write(b: ByteArray, off: Int, len: Int) {
+    var offset = off
+    val end = off + len
+    while (offset < end) {
+      val count = minOf(bytes.remaining(), end - offset)
+      bytes.put(b, offset, count)
+      offset += count
+      decode(false)
+    }
+  }
+
+  @Synchronized
+  override fun close() {
+    if (closed) {
+      return
+    }
 
-    if (c == '\n' && Main.client != null) {
-      Main.client.logOutput(lineBuilder.toString())
+    decode(true)
+    if (lineBuilder.isNotEmpty()) {
+      addLine(lineBuilder.toString())
       lineBuilder.clear()
     }
+    sendBatch(true)
+    closed = true
+  }
+
+  private fun decode(endOfInput: Boolean) {
+    bytes.flip()
+    while (true) {
+      val result = decoder.decode(bytes, chars, endOfInput)
+      consumeChars()
+      if (!result.isOverflow) {
+        break
+      }
+    }
+
+    if (endOfInput) {
+      decoder.flush(chars)
+      consumeChars()
+    }
+
+    // incomplete multi-byte sequences are kept for the next write
+    bytes.compact()
+  }
+
+  private fun consumeChars() {
+    chars.flip()
+    while (chars.hasRemaining()) {
+      val c = chars.get()
+      lineBuilder.append(c)
+      if (c == '\n') {
+        addLine(lineBuilder.toString())
+        lineBuilder.clear()
+      }
+    }
+    chars.clear()
+  }
+
+  private fun addLine(line: String) {
+    batch.add(line)
+    batchChars += line.length
+    if (batch.size >= maxBatchLines || batchChars >= maxBatchChars) {
+      sendBatch(true)
+    } else if (scheduledFlush == null) {
+      scheduleFlush()
+    }
+  }
+
+  private fun scheduleFlush() {
+    scheduledFlush =
+      flushScheduler.schedule({ flushScheduled() }, flushInterval, TimeUnit.MILLISECONDS)
+  }
+
+  @Synchronized
+  private fun flushScheduled() {
+    scheduledFlush = null
+    // do not block the flusher thread if the client is behind
+    if (!sendBatch(false)) {
+      scheduleFlush()
+    }
+  }
+
+  /** Sends the current batch. Returns `false` if the batch could not be sent without blocking. */
+  private fun sendBatch(block: Boolean): Boolean {
+    if (batch.isEmpty()) {
+      return true
+    }
+
+    val client = this.client
+    if (client == null) {
+      clearBatch()
+      return true
+    }
+
+    val acquired =
+      if (block) {
+        awaitPendingBatch()
+      } else if (pendingBatches.tryAcquire()) {
+        true
+      } else {
+        return false
+      }
+
+    val lines = batch
+    batch = ArrayList()
+    clearBatch()
+
+    try {
+      client.logOutputBatch(lines).whenComplete { _, err ->
+        if (acquired) {
+          pendingBatches.release()
+        }
+        if (err != null) {
+          log.error("Unable to send build output to client", err)
+        }
+      }
+    } catch (err: Throwable) {
+      if (acquired) {
+        pendingBatches.release()
+      }
+      log.error("Unable to send build output to client", err)
+    }
+    return true
+  }
+
+  private fun awaitPendingBatch(): Boolean {
+    return try {
+      pendingBatches.tryAcquire(ACK_TIMEOUT, TimeUnit.MILLISECONDS).also {
+        if (!it) log.warn("Client did not acknowledge build output in", ACK_TIMEOUT, "ms")
+      }
+    } catch (err: InterruptedException) {
+      Thread.currentThread().interrupt()
+      false
+    }
+  }
+
+  private fun clearBatch() {
+    batch.clear()
+    batchChars = 0
+    scheduledFlush?.cancel(false)
+    scheduledFlush = null
   }
 }
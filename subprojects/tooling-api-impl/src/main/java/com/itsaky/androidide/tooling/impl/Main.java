@@ -22,7 +22,9 @@ import static com.itsaky.androidide.utils.ILogger.newInstance;
 import com.itsaky.androidide.models.LogLine;
 import com.itsaky.androidide.tooling.api.IProject;
 import com.itsaky.androidide.tooling.api.IToolingApiClient;
+import com.itsaky.androidide.tooling.api.util.BinaryModelCodec;
 import com.itsaky.androidide.tooling.api.util.ToolingApiLauncher;
+import com.itsaky.androidide.tooling.events.ProgressVerbosity;
 import com.itsaky.androidide.tooling.impl.model.InternalForwardingProject;
 import com.itsaky.androidide.tooling.impl.progress.ForwardingProgressListener;
 import com.itsaky.androidide.utils.ILogger;
@@ -43,6 +45,7 @@ public class Main {
   public static final String MIN_SUPPORTED_AGP_VERSION = "7.2.0";
   private static final ILogger LOG = newInstance("ToolingApiMain");
   public static IToolingApiClient client;
+  public static ProgressVerbosity progressVerbosity = ProgressVerbosity.NORMAL;
   public static Future<Void> future;
 
   static {
@@ -52,9 +55,10 @@ public class Main {
   public static void main(String[] args) {
     LOG.debug("Starting Tooling API server...");
     final var project = new InternalForwardingProject(null, IProject.FILE_PATH_NOT_AVAILABLE);
-    final var server = new ToolingApiServerImpl(project);
+    final var codec = new BinaryModelCodec();
+    final var server = new ToolingApiServerImpl(project, codec);
     final var launcher =
-        ToolingApiLauncher.newServerLauncher(server, project, System.in, System.out);
+        ToolingApiLauncher.newServerLauncher(server, project, System.in, System.out, codec);
     Main.future = launcher.startListening();
     Main.client = (IToolingApiClient) launcher.getRemoteProxy();
     server.connect(client);
@@ -85,13 +89,34 @@ public class Main {
     }
   }
 
+  /**
+   * Configures the given launcher with the standard streams, the progress listener and the build
+   * arguments from the client.
+   *
+   * @param launcher The launcher to configure.
+   * @return The listeners which receive the build output and the progress events. They should be
+   *     closed once the build is finished so that the remaining output is sent to the client.
+   */
   @SuppressWarnings("NewApi")
-  public static void finalizeLauncher(ConfigurableLauncher<?> launcher) {
+  public static BuildListeners finalizeLauncher(ConfigurableLauncher<?> launcher) {
     final var out = new LoggingOutputStream();
+    final var progress = new ForwardingProgressListener(client, progressVerbosity);
     launcher.setStandardError(out);
     launcher.setStandardOutput(out);
+    launcher.addProgressListener(progress, progressUpdateTypes());
+    configureLauncher(launcher);
+
+    return new BuildListeners(out, progress);
+  }
+
+  /**
+   * Configures the given launcher with the standard input and the build arguments from the client.
+   * The output and the progress events of the build are not sent to the client.
+   *
+   * @param launcher The launcher to configure.
+   */
+  public static void configureLauncher(ConfigurableLauncher<?> launcher) {
     launcher.setStandardInput(new ByteArrayInputStream("NoOp".getBytes(StandardCharsets.UTF_8)));
-    launcher.addProgressListener(new ForwardingProgressListener(), progressUpdateTypes());
 
     if (client != null) {
       try {
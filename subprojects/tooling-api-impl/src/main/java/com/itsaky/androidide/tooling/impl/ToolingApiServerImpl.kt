@@ -38,7 +38,9 @@ import com.itsaky.androidide.tooling.api.messages.result.TaskExecutionResult.Fai
 import com.itsaky.androidide.tooling.api.messages.result.TaskExecutionResult.Failure.UNSUPPORTED_CONFIGURATION
 import com.itsaky.androidide.tooling.api.messages.result.TaskExecutionResult.Failure.UNSUPPORTED_GRADLE_VERSION
 import com.itsaky.androidide.tooling.api.model.IdeGradleProject
+import com.itsaky.androidide.tooling.api.util.BinaryModelCodec
 import com.itsaky.androidide.tooling.impl.model.InternalForwardingProject
+import com.itsaky.androidide.tooling.impl.util.ProjectModelCache
 import com.itsaky.androidide.tooling.impl.util.ProjectReader
 import com.itsaky.androidide.tooling.impl.util.StopWatch
 import com.itsaky.androidide.utils.ILogger
@@ -59,19 +61,25 @@ import org.gradle.tooling.exceptions.UnsupportedOperationConfigurationException
  *
  * @author Akash Yadav
  */
-internal class ToolingApiServerImpl(private val forwardingProject: InternalForwardingProject) :
-  IToolingApiServer {
+internal class ToolingApiServerImpl(
+  private val forwardingProject: InternalForwardingProject,
+  private val modelCodec: BinaryModelCodec
+) : IToolingApiServer {
 
   private var initialized = false
   private var client: IToolingApiClient? = null
   private var connector: GradleConnector? = null
-  private var project: IdeGradleProject? = null
+  @Volatile private var project: IdeGradleProject? = null
   private var buildCancellationToken: CancellationTokenSource? = null
+  private var revalidationToken: CancellationTokenSource? = null
+  @Volatile private var revalidatedFingerprint: String? = null
   private val log = ILogger.newInstance(javaClass.simpleName)
 
   @Suppress("UnstableApiUsage")
   override fun initialize(params: InitializeProjectMessage): CompletableFuture<InitializeResult> {
     forwardingProject.projectPath = params.directory
+    modelCodec.isEnabled = params.binaryModels
+    Main.progressVerbosity = params.progressVerbosity
     return CompletableFutures.computeAsync {
       try {
         if (initialized && connector != null) {
@@ -86,6 +94,8 @@ internal class ToolingApiServerImpl(private val forwardingProject: InternalForwa
           cancelCurrentBuild().get()
         }
 
+        cancelRevalidation()
+
         log.debug("Got initialize request", params)
         val stopWatch = StopWatch("Connection to project")
         this.connector = GradleConnector.newConnector().forProjectDirectory(File(params.directory))
@@ -100,6 +110,29 @@ internal class ToolingApiServerImpl(private val forwardingProject: InternalForwa
           )
         }
 
+        val cache = ProjectModelCache(File(params.directory), params.gradleInstallation)
+        if (params.forceSync) {
+          log.info("Sync requested, discarding cached project model")
+          cache.invalidate()
+        }
+
+        val cached = cache.load()
+        stopWatch.lapFromLast("Project model cache checked")
+        if (cached != null) {
+          log.info("Using cached project model")
+          this.project = cached.project
+          this.forwardingProject.project = this.project
+          initialized = true
+          stopWatch.log()
+
+          // The model is revalidated once per server session for a fingerprint
+          if (revalidatedFingerprint != cache.fingerprint) {
+            revalidate(cache, cached)
+          }
+
+          return@computeAsync InitializeResult(cached.syncIssues ?: emptyMap(), params.binaryModels)
+        }
+
         notifyBeforeBuild()
 
         val connection = this.connector!!.connect()
@@ -113,20 +146,84 @@ internal class ToolingApiServerImpl(private val forwardingProject: InternalForwa
         stopWatch.log()
 
         this.forwardingProject.project = this.project
+        this.project?.let {
+          cache.store(it, issues)
+          revalidatedFingerprint = cache.fingerprint
+        }
 
         initialized = true
 
         notifyBuildSuccess(emptyList())
-        return@computeAsync InitializeResult(issues)
+        return@computeAsync InitializeResult(issues, params.binaryModels)
       } catch (err: Throwable) {
         log.error(err)
         notifyBuildFailure(emptyList())
       }
 
-      return@computeAsync InitializeResult(emptyMap())
+      return@computeAsync InitializeResult(emptyMap(), params.binaryModels)
+    }
+  }
+
+  /**
+   * Syncs the project in the background and updates the cached project model. The client is
+   * notified if the model has changed. The sync is cancelled if a build is started or the project
+   * is initialized again.
+   */
+  private fun revalidate(cache: ProjectModelCache, cached: ProjectModelCache.Entry) {
+    val connector = this.connector ?: return
+    val token = GradleConnector.newCancellationTokenSource()
+    synchronized(this) { this.revalidationToken = token }
+
+    CompletableFuture.runAsync {
+      try {
+        log.info("Revalidating cached project model...")
+        val stopWatch = StopWatch("Project model revalidation")
+        val issues: MutableMap<String, DefaultProjectSyncIssues> = mutableMapOf()
+        val connection = connector.connect()
+        val project =
+          try {
+            ProjectReader.readInBackground(connection, issues, token.token())
+          } finally {
+            connection.close()
+          }
+        stopWatch.log()
+
+        if (token.token().isCancellationRequested || project == null) {
+          return@runAsync
+        }
+
+        revalidatedFingerprint = cache.fingerprint
+        if (!cache.store(project, issues, cached)) {
+          log.info("Cached project model is up-to-date")
+          return@runAsync
+        }
+
+        log.info("Project model has changed since it was cached")
+        this.project = project
+        this.forwardingProject.project = project
+        client?.onProjectModelChanged()
+      } catch (err: Throwable) {
+        if (token.token().isCancellationRequested) {
+          log.info("Project model revalidation cancelled")
+        } else {
+          log.error("Unable to revalidate cached project model", err)
+        }
+      } finally {
+        synchronized(this) {
+          if (this.revalidationToken === token) {
+            this.revalidationToken = null
+          }
+        }
+      }
     }
   }
 
+  @Synchronized
+  private fun cancelRevalidation() {
+    revalidationToken?.cancel()
+    revalidationToken = null
+  }
+
   override fun isServerInitialized(): CompletableFuture<Boolean> {
     return CompletableFuture.supplyAsync { initialized }
   }
@@ -145,6 +242,9 @@ internal class ToolingApiServerImpl(private val forwardingProject: InternalForwa
       log.debug("Received request to run tasks.", message)
       Main.checkGradleWrapper()
 
+      // Do not run the background sync along with the build
+      cancelRevalidation()
+
       var projectPath = message.projectPath
       if (projectPath == null) {
         projectPath = ":"
@@ -162,12 +262,8 @@ internal class ToolingApiServerImpl(private val forwardingProject: InternalForwa
 
       // System.in and System.out are used for communication between this server and the
       // client.
-      val out = LoggingOutputStream()
-      builder.setStandardInput("NoOp".byteInputStream())
-      builder.setStandardError(out)
-      builder.setStandardOutput(out)
       builder.forTasks(*message.tasks.filter { it.isNotBlank() }.toTypedArray())
-      Main.finalizeLauncher(builder)
+      val listeners = Main.finalizeLauncher(builder)
 
       this.buildCancellationToken = GradleConnector.newCancellationTokenSource()
       builder.withCancellationToken(this.buildCancellationToken!!.token())
@@ -177,9 +273,12 @@ internal class ToolingApiServerImpl(private val forwardingProject: InternalForwa
       try {
         builder.run()
         this.buildCancellationToken = null
+        // send the remaining output before the build result
+        listeners.close()
         notifyBuildSuccess(message.tasks)
         return@computeAsync TaskExecutionResult(true, null)
       } catch (error: Throwable) {
+        listeners.close()
         notifyBuildFailure(message.tasks)
         return@computeAsync TaskExecutionResult(false, getTaskFailureType(error))
       }
@@ -245,6 +344,7 @@ internal class ToolingApiServerImpl(private val forwardingProject: InternalForwa
   @Suppress("UnstableApiUsage")
   override fun shutdown(): CompletableFuture<Void> {
     return CompletableFuture.runAsync {
+      cancelRevalidation()
       connector?.disconnect()
       Main.future?.cancel(true)
 
@@ -18,7 +18,9 @@
 package com.itsaky.androidide.tooling.impl.progress
 
 import com.itsaky.androidide.tooling.api.IToolingApiClient
-import com.itsaky.androidide.tooling.impl.Main
+import com.itsaky.androidide.tooling.events.ProgressVerbosity
+import java.io.Closeable
+import org.gradle.tooling.events.FailureResult
 import org.gradle.tooling.events.FinishEvent
 import org.gradle.tooling.events.ProgressEvent
 import org.gradle.tooling.events.ProgressListener
@@ -42,14 +44,20 @@ import org.gradle.tooling.events.work.WorkItemProgressEvent
 import org.gradle.tooling.events.work.WorkItemStartEvent
 
 /**
- * A [ProgressListener] which forwards all of its event to [IToolingApiClient].
+ * A [ProgressListener] which forwards its events to [IToolingApiClient], through a
+ * [ProgressEventAggregator]. The listener must be closed once the build finishes.
+ *
  * @author Akash Yadav
  */
 @Suppress("UnstableApiUsage")
-class ForwardingProgressListener : ProgressListener {
+class ForwardingProgressListener(client: IToolingApiClient?, verbosity: ProgressVerbosity) :
+  ProgressListener, Closeable {
+
+  private val aggregator = client?.let { ProgressEventAggregator(it, verbosity) }
 
   override fun statusChanged(event: ProgressEvent?) {
-    if (event == null || Main.client == null) {
+    val aggregator = this.aggregator
+    if (event == null || aggregator == null) {
       return
     }
 
@@ -99,6 +107,11 @@ class ForwardingProgressListener : ProgressListener {
           }
       }
 
-    Main.client.onProgressEvent(ideEvent)
+    val isFailure = event is FinishEvent && event.result is FailureResult
+    aggregator.onEvent(event.descriptor, ideEvent, isFailure)
+  }
+
+  override fun close() {
+    aggregator?.close()
   }
 }
@@ -0,0 +1,243 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl.progress
+
+import com.itsaky.androidide.tooling.api.IToolingApiClient
+import com.itsaky.androidide.tooling.events.FinishEvent
+import com.itsaky.androidide.tooling.events.ProgressEvent
+import com.itsaky.androidide.tooling.events.ProgressSummaryEvent
+import com.itsaky.androidide.tooling.events.ProgressVerbosity
+import com.itsaky.androidide.tooling.events.ProgressVerbosity.NORMAL
+import com.itsaky.androidide.tooling.events.ProgressVerbosity.SUMMARY
+import com.itsaky.androidide.tooling.events.ProgressVerbosity.VERBOSE
+import com.itsaky.androidide.tooling.events.StartEvent
+import com.itsaky.androidide.utils.ILogger
+import java.io.Closeable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Reduces the number of progress events of a build which are sent to the client, depending on the
+ * [ProgressVerbosity] requested by the client.
+ *
+ * With [ProgressVerbosity.NORMAL], the start event of an operation is held back for
+ * [flushInterval] milliseconds. If the operation finishes before that, neither its start nor its
+ * finish event is sent, unless it failed. Other progress events of an operation are sent at most
+ * once per [flushInterval], only the latest one is sent.
+ *
+ * With all the verbosity levels, a [ProgressSummaryEvent] is sent every [summaryInterval]
+ * milliseconds if the progress has changed, and once when the build finishes.
+ *
+ * @author Akash Yadav
+ */
+class ProgressEventAggregator
+@JvmOverloads
+constructor(
+  private val client: IToolingApiClient,
+  private val verbosity: ProgressVerbosity,
+  private val flushInterval: Long = DEFAULT_FLUSH_INTERVAL,
+  private val summaryInterval: Long = DEFAULT_SUMMARY_INTERVAL
+) : Closeable {
+
+  companion object {
+    const val DEFAULT_FLUSH_INTERVAL = 100L
+    const val DEFAULT_SUMMARY_INTERVAL = 1000L
+
+    /** The maximum number of running operations listed in a summary. */
+    private const val MAX_RUNNING_OPERATIONS = 3
+
+    private val log = ILogger.newInstance("ProgressEventAggregator")
+
+    private val scheduler =
+      Executors.newSingleThreadScheduledExecutor { r ->
+        Thread(r, "ProgressEventAggregator").apply { isDaemon = true }
+      }
+  }
+
+  /** The display names of the running operations, keyed by their Gradle operation descriptors. */
+  private val running = LinkedHashMap<Any, String>()
+  private val pendingStarts = LinkedHashMap<Any, PendingStart>()
+  private val pendingProgress = LinkedHashMap<Any, ProgressEvent>()
+
+  private var started = 0
+  private var finished = 0
+  private var failed = 0
+  private var collapsed = 0
+  private var summaryChanged = false
+  private var lastSummaryTime = 0L
+  private var closed = false
+
+  private val tickTask =
+    scheduler.scheduleAtFixedRate(
+      { tick(System.currentTimeMillis()) },
+      flushInterval,
+      flushInterval,
+      TimeUnit.MILLISECONDS
+    )
+
+  /**
+   * Handles the given progress event.
+   *
+   * @param key Identifies the operation of the event. Must be same for all the events of an
+   * operation.
+   * @param event The event.
+   * @param isFailure Whether the event is the finish event of a failed operation.
+   */
+  @JvmOverloads
+  @Synchronized
+  fun onEvent(
+    key: Any,
+    event: ProgressEvent,
+    isFailure: Boolean = false,
+    now: Long = System.currentTimeMillis()
+  ) {
+    if (closed) {
+      return
+    }
+
+    when (event) {
+      is StartEvent -> onStart(key, event, now)
+      is FinishEvent -> onFinish(key, event, isFailure)
+      else ->
+        when (verbosity) {
+          VERBOSE -> send(event)
+          // only the latest progress of an operation is sent
+          NORMAL -> if (!pendingStarts.containsKey(key)) pendingProgress[key] = event
+          SUMMARY -> {}
+        }
+    }
+  }
+
+  private fun onStart(key: Any, event: ProgressEvent, now: Long) {
+    running[key] = event.descriptor.displayName
+    ++started
+    summaryChanged = true
+
+    when (verbosity) {
+      VERBOSE -> send(event)
+      NORMAL -> pendingStarts[key] = PendingStart(event, now)
+      SUMMARY -> {}
+    }
+  }
+
+  private fun onFinish(key: Any, event: ProgressEvent, isFailure: Boolean) {
+    running.remove(key)
+    ++finished
+    if (isFailure) {
+      ++failed
+    }
+    summaryChanged = true
+
+    when (verbosity) {
+      VERBOSE -> send(event)
+      NORMAL -> {
+        pendingProgress.remove(key)
+        if (pendingStarts.remove(key) == null || isFailure) {
+          send(event)
+        } else {
+          // a short operation, its start event was not sent
+          ++collapsed
+        }
+      }
+      SUMMARY -> {}
+    }
+  }
+
+  /** Sends the pending events and the summary, if they are due. */
+  @Synchronized
+  internal fun tick(now: Long) {
+    if (closed) {
+      return
+    }
+
+    if (verbosity == NORMAL) {
+      val starts = pendingStarts.values.iterator()
+      while (starts.hasNext()) {
+        val start = starts.next()
+        // the operations are started in order, so the rest of them started later
+        if (now - start.time < flushInterval) {
+          break
+        }
+        send(start.event)
+        starts.remove()
+      }
+
+      pendingProgress.values.forEach(this::send)
+      pendingProgress.clear()
+    }
+
+    if (summaryChanged && now - lastSummaryTime >= summaryInterval) {
+      sendSummary(now)
+    }
+  }
+
+  /** Sends the final summary. Events received after this are ignored. */
+  @Synchronized
+  override fun close() {
+    if (closed) {
+      return
+    }
+
+    tickTask.cancel(false)
+    pendingStarts.clear()
+    pendingProgress.clear()
+    if (started > 0) {
+      sendSummary(System.currentTimeMillis())
+    }
+    closed = true
+
+    if (collapsed > 0) {
+      log.debug("Collapsed the events of", collapsed, "short operations out of", started)
+    }
+  }
+
+  private fun sendSummary(now: Long) {
+    summaryChanged = false
+    lastSummaryTime = now
+
+    val names = running.values.take(MAX_RUNNING_OPERATIONS)
+    val displayName =
+      when {
+        names.isEmpty() -> "$finished of $started operations finished"
+        running.size == 1 -> names.first()
+        else -> "${names.first()} (+${running.size - 1} more)"
+      }
+
+    send(
+      ProgressSummaryEvent(
+        startedOperations = started,
+        finishedOperations = finished,
+        failedOperations = failed,
+        runningOperations = names,
+        runningCount = running.size,
+        displayName = displayName,
+        eventTime = now
+      )
+    )
+  }
+
+  private fun send(event: ProgressEvent) {
+    try {
+      client.onProgressEvent(event)
+    } catch (err: Throwable) {
+      log.error("Unable to send progress event to client", err)
+    }
+  }
+
+  private class PendingStart(val event: ProgressEvent, val time: Long)
+}
@@ -0,0 +1,224 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl.util
+
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import com.itsaky.androidide.builder.model.DefaultProjectSyncIssues
+import com.itsaky.androidide.tooling.api.model.IdeGradleProject
+import com.itsaky.androidide.tooling.api.util.ToolingApiLauncher
+import com.itsaky.androidide.utils.ILogger
+import java.io.File
+import java.security.MessageDigest
+
+/**
+ * Stores the project model of a Gradle project on disk, so that it can be used when the project is
+ * opened again without running the model builders.
+ *
+ * The cached model is used only if the fingerprint of the project matches. The fingerprint is
+ * computed from the contents of the build scripts, settings files, `gradle.properties` files,
+ * version catalogs and the Gradle wrapper properties, as well as the Gradle installation which is
+ * used for the build. The sources of the build logic (`buildSrc` and the included builds) are
+ * included in the fingerprint as well, since they may change the project model.
+ *
+ * @param projectDir The root directory of the project.
+ * @param gradleInstallation The Gradle installation used for the build, if any.
+ * @author Akash Yadav
+ */
+class ProjectModelCache(private val projectDir: File, private val gradleInstallation: String) {
+
+  companion object {
+
+    /** Incremented when the format of the cache (or the models) changes. */
+    private const val VERSION = 1
+
+    /**
+     * The cache file, relative to the project directory. The build directory of the root project
+     * is not known until the model is read, so the default location is used.
+     */
+    private const val CACHE_FILE = "build/cache/androidide/project-model.json"
+
+    private val BUILD_FILES =
+      setOf(
+        "build.gradle",
+        "build.gradle.kts",
+        "settings.gradle",
+        "settings.gradle.kts",
+        "gradle.properties",
+        "local.properties",
+        "gradle-wrapper.properties"
+      )
+
+    /** Directories which never contain build files. */
+    private val IGNORED_DIRS = setOf("build", "src")
+
+    private const val SOURCES_DIR = "src"
+
+    private val INCLUDE_BUILD = Regex("""includeBuild\s*\(?\s*["']([^"']+)["']""")
+
+    private val log = ILogger.newInstance("ProjectModelCache")
+
+    private val gson: Gson by lazy {
+      GsonBuilder().apply { ToolingApiLauncher.configureGson(this) }.create()
+    }
+  }
+
+  private val cacheFile = File(projectDir, CACHE_FILE)
+
+  /** The fingerprint of the build files of the project. */
+  val fingerprint: String by lazy { computeFingerprint() }
+
+  /**
+   * Loads the cached project model.
+   *
+   * @return The cached model, or `null` if there is no cached model for the current fingerprint.
+   */
+  fun load(): Entry? {
+    if (!cacheFile.exists()) {
+      return null
+    }
+
+    return try {
+      val entry = cacheFile.bufferedReader().use { gson.fromJson(it, Entry::class.java) }
+      if (entry?.version != VERSION || entry.fingerprint != fingerprint || entry.project == null) {
+        log.info("Cached project model is outdated")
+        return null
+      }
+      entry
+    } catch (err: Throwable) {
+      log.error("Unable to read cached project model", err)
+      null
+    }
+  }
+
+  /**
+   * Stores the given project model for the current fingerprint.
+   *
+   * @return Whether the stored model is different from the previously cached model.
+   */
+  fun store(
+    project: IdeGradleProject,
+    syncIssues: Map<String, DefaultProjectSyncIssues>,
+    previous: Entry? = null
+  ): Boolean {
+    val entry = Entry(VERSION, fingerprint, project, syncIssues)
+    val json = gson.toJson(entry)
+    if (previous != null && json == gson.toJson(previous)) {
+      return false
+    }
+
+    try {
+      cacheFile.parentFile?.mkdirs()
+      val tmp = File(cacheFile.parentFile, "${cacheFile.name}.tmp")
+      tmp.writeText(json)
+      if (!tmp.renameTo(cacheFile)) {
+        cacheFile.delete()
+        tmp.renameTo(cacheFile)
+      }
+    } catch (err: Throwable) {
+      log.error("Unable to write project model cache", err)
+    }
+    return true
+  }
+
+  /** Deletes the cached project model. */
+  fun invalidate() {
+    cacheFile.delete()
+  }
+
+  private fun computeFingerprint(): String {
+    val files = mutableListOf<File>()
+    collectBuildFiles(projectDir, files, false)
+    for (build in findBuildLogic()) {
+      collectBuildFiles(build, files, true)
+    }
+    File(projectDir, "gradle")
+      .listFiles { file -> file.isFile && file.name.endsWith(".versions.toml") }
+      ?.let { files.addAll(it) }
+    File(projectDir, "gradle/wrapper/gradle-wrapper.properties").takeIf { it.isFile }?.let {
+      files.add(it)
+    }
+
+    val digest = MessageDigest.getInstance("SHA-256")
+    digest.update("$VERSION:$gradleInstallation".toByteArray())
+    for (file in files.distinct().sortedBy { it.path }) {
+      digest.update(file.relativeTo(projectDir).path.toByteArray())
+      digest.update(0.toByte())
+      digest.update(file.readBytes())
+      digest.update(0.toByte())
+    }
+
+    return digest.digest().joinToString(separator = "") { "%02x".format(it) }
+  }
+
+  /**
+   * Collects the build files in the given directory.
+   *
+   * @param isBuildLogic Whether the directory contains build logic. If `true`, the files in the
+   *   source directories are collected as well.
+   */
+  private fun collectBuildFiles(dir: File, files: MutableList<File>, isBuildLogic: Boolean) {
+    val children = dir.listFiles() ?: return
+    for (child in children) {
+      if (child.isDirectory) {
+        if (isBuildLogic && child.name == SOURCES_DIR) {
+          child.walkTopDown().filterTo(files) { it.isFile }
+        } else if (!child.name.startsWith('.') && child.name !in IGNORED_DIRS) {
+          collectBuildFiles(child, files, isBuildLogic)
+        }
+      } else if (child.name in BUILD_FILES) {
+        files.add(child)
+      }
+    }
+  }
+
+  /**
+   * Finds the root directories of the build logic of the project i.e. the `buildSrc` directories
+   * and the builds included with `includeBuild` in the settings files, recursively.
+   */
+  private fun findBuildLogic(): Set<File> {
+    val buildLogic = linkedSetOf<File>()
+    val builds = ArrayDeque(listOf(projectDir))
+    while (builds.isNotEmpty()) {
+      val build = builds.removeFirst()
+      val candidates = mutableListOf(File(build, "buildSrc"))
+      for (name in listOf("settings.gradle", "settings.gradle.kts")) {
+        val settings = File(build, name).takeIf { it.isFile } ?: continue
+        INCLUDE_BUILD.findAll(settings.readText()).mapTo(candidates) {
+          File(build, it.groupValues[1])
+        }
+      }
+
+      for (candidate in candidates) {
+        val dir = candidate.normalize()
+        if (dir.isDirectory && buildLogic.add(dir)) {
+          builds.addLast(dir)
+        }
+      }
+    }
+    return buildLogic
+  }
+
+  /** A cached project model. */
+  class Entry(
+    val version: Int,
+    val fingerprint: String,
+    val project: IdeGradleProject?,
+    val syncIssues: Map<String, DefaultProjectSyncIssues>?
+  )
+}
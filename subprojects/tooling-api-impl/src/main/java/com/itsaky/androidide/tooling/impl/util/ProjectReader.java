@@ -17,6 +17,7 @@
 
 package com.itsaky.androidide.tooling.impl.util;
 
+import static com.itsaky.androidide.tooling.impl.Main.configureLauncher;
 import static com.itsaky.androidide.tooling.impl.Main.finalizeLauncher;
 import static com.itsaky.androidide.utils.ILogger.MSG_SEPARATOR;
 import static java.util.Collections.emptyList;
@@ -46,12 +47,14 @@ import com.itsaky.androidide.tooling.api.model.JavaModuleProjectDependency;
 import com.itsaky.androidide.tooling.api.model.JavaSourceDirectory;
 import com.itsaky.androidide.tooling.api.model.util.AndroidModulePropertyCopier;
 import com.itsaky.androidide.tooling.api.model.util.ProjectBuilder;
+import com.itsaky.androidide.tooling.impl.BuildListeners;
 import com.itsaky.androidide.tooling.impl.Main;
 import com.itsaky.androidide.utils.ILogger;
 import com.itsaky.androidide.utils.LogUtils;
 
 import org.gradle.api.JavaVersion;
 import org.gradle.tooling.BuildController;
+import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.ConfigurableLauncher;
 import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.UnknownModelException;
@@ -61,6 +64,7 @@ import org.gradle.tooling.model.idea.IdeaModule;
 import org.gradle.tooling.model.idea.IdeaModuleDependency;
 import org.gradle.tooling.model.idea.IdeaProject;
 import org.gradle.tooling.model.idea.IdeaSingleEntryLibraryDependency;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
@@ -86,6 +90,48 @@ public class ProjectReader {
   public static IdeGradleProject read(
       ProjectConnection connection, Map<String, DefaultProjectSyncIssues> outIssues)
       throws ExecutionException, InterruptedException {
+    return read(connection, outIssues, null);
+  }
+
+  /**
+   * Reads the project model.
+   *
+   * @param connection The project connection.
+   * @param outIssues The map which receives the sync issues of the modules.
+   * @param cancellationToken The token to cancel the model building, or <code>null</code>.
+   * @return The project model.
+   */
+  public static IdeGradleProject read(
+      ProjectConnection connection,
+      Map<String, DefaultProjectSyncIssues> outIssues,
+      @Nullable CancellationToken cancellationToken)
+      throws ExecutionException, InterruptedException {
+    return read(connection, outIssues, cancellationToken, true);
+  }
+
+  /**
+   * Reads the project model without sending the build output and the progress events to the
+   * client, for the syncs which are not requested by the user.
+   *
+   * @param connection The project connection.
+   * @param outIssues The map which receives the sync issues of the modules.
+   * @param cancellationToken The token to cancel the model building.
+   * @return The project model.
+   */
+  public static IdeGradleProject readInBackground(
+      ProjectConnection connection,
+      Map<String, DefaultProjectSyncIssues> outIssues,
+      @NotNull CancellationToken cancellationToken)
+      throws ExecutionException, InterruptedException {
+    return read(connection, outIssues, cancellationToken, false);
+  }
+
+  private static IdeGradleProject read(
+      ProjectConnection connection,
+      Map<String, DefaultProjectSyncIssues> outIssues,
+      @Nullable CancellationToken cancellationToken,
+      boolean forwardOutput)
+      throws ExecutionException, InterruptedException {
     final var buildActionExecutor =
         connection.action(
             controller -> {
@@ -94,17 +140,35 @@ public class ProjectReader {
               log("IdeaProject model created...");
               return buildGradleProjectModel(ideaProject, controller, outIssues);
             });
-    finalizeLauncher(buildActionExecutor);
+    final BuildListeners listeners;
+    if (forwardOutput) {
+      listeners = finalizeLauncher(buildActionExecutor);
+    } else {
+      listeners = null;
+      configureLauncher(buildActionExecutor);
+    }
     applyAndroidModelBuilderProps(buildActionExecutor);
+    if (cancellationToken != null) {
+      buildActionExecutor.withCancellationToken(cancellationToken);
+    }
 
-    final var logger = ILogger.newInstance("ProjectReader");
-    logger.warn("Starting build. See build output for more details...");
+    if (forwardOutput) {
+      final var logger = ILogger.newInstance("ProjectReader");
+      logger.warn("Starting build. See build output for more details...");
 
-    if (Main.client != null) {
-      Main.client.logOutput("Starting build...");
+      if (Main.client != null) {
+        Main.client.logOutput("Starting build...");
+      }
     }
 
-    final var project = buildActionExecutor.run();
+    final IdeGradleProject project;
+    try {
+      project = buildActionExecutor.run();
+    } finally {
+      if (listeners != null) {
+        listeners.close();
+      }
+    }
 
     // Fetch java module dependencies
     final var ideaProject = connection.model(IdeaProject.class).get();
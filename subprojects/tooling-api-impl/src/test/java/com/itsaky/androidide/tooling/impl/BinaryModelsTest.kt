@@ -0,0 +1,86 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl
+
+import com.google.common.truth.Truth.assertThat
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import com.itsaky.androidide.tooling.api.messages.InitializeProjectMessage
+import com.itsaky.androidide.tooling.api.messages.VariantDataRequest
+import com.itsaky.androidide.tooling.api.messages.result.SimpleVariantData
+import com.itsaky.androidide.tooling.api.model.AndroidModule
+import com.itsaky.androidide.tooling.api.model.IdeGradleProject
+import com.itsaky.androidide.tooling.api.util.BinaryModelCodec
+import com.itsaky.androidide.tooling.api.util.ToolingApiLauncher
+import com.itsaky.androidide.tooling.testing.ToolingApiTestLauncher
+import com.itsaky.androidide.tooling.testing.ToolingApiTestLauncher.MultiVersionTestClient
+import java.io.File
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Checks that the binary encoding of the project models of the test project decodes to the same
+ * models and results in a smaller payload than the JSON encoding. The encode/decode time and the
+ * allocations are compared by `BinaryModelCodecBenchmark`.
+ *
+ * @author Akash Yadav
+ */
+@RunWith(JUnit4::class)
+class BinaryModelsTest {
+
+  private val json = gson(false)
+  private val binary = gson(true)
+
+  @Test
+  fun `test binary models`() {
+    val (server, project) =
+      ToolingApiTestLauncher().launchServer(client = MultiVersionTestClient("7.2.0"))
+    val projectDir = File("../../tests/test-project").absolutePath
+    val result =
+      server.initialize(InitializeProjectMessage(projectDir, binaryModels = true)).get()
+    assertThat(result.binaryModels).isTrue()
+
+    // The models are received in the binary encoding
+    val root = server.getRootProject().get()
+    val app = project.findByPath(":app").get()
+    assertThat(app).isInstanceOf(AndroidModule::class.java)
+    assertThat((app as AndroidModule).libraries).isNotEmpty()
+    val variant = project.getVariantData(VariantDataRequest("debug", ":app")).get()
+    assertThat(variant).isNotNull()
+
+    assertRoundTrip(root, IdeGradleProject::class.java)
+    assertRoundTrip(variant, SimpleVariantData::class.java)
+
+    server.shutdown().get()
+  }
+
+  private fun <T> assertRoundTrip(model: T, type: Class<T>) {
+    val jsonPayload = json.toJson(model, type)
+    val binaryPayload = binary.toJson(model, type)
+
+    // Decoding the binary payload must result in the same model
+    assertThat(json.toJson(json.fromJson(binaryPayload, type), type)).isEqualTo(jsonPayload)
+    assertThat(binaryPayload.length).isLessThan(jsonPayload.length)
+  }
+
+  private fun gson(binary: Boolean): Gson {
+    val codec = BinaryModelCodec().apply { isEnabled = binary }
+    return GsonBuilder().apply { ToolingApiLauncher.configureGson(this, codec) }.create()
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.tooling.testing.ToolingApiTestLauncher.TestClient
+import java.util.concurrent.CompletableFuture
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/** @author Akash Yadav */
+@RunWith(JUnit4::class)
+class LoggingOutputStreamTest {
+
+  @Test
+  fun `test multi-byte characters are decoded`() {
+    val client = RecordingClient()
+    val out = LoggingOutputStream(client)
+    "héllo ✓ wörld\n😀 end\n".toByteArray().forEach { out.write(it.toInt()) }
+    out.close()
+
+    assertThat(client.batches.flatten()).containsExactly("héllo ✓ wörld\n", "😀 end\n").inOrder()
+  }
+
+  @Test
+  fun `test lines are sent in batches`() {
+    val client = RecordingClient()
+    val out = LoggingOutputStream(client, maxBatchLines = 10, flushInterval = 60_000)
+    val text = (1..25).joinToString(separator = "") { "Line $it\n" }
+    out.write(text.toByteArray())
+    out.close()
+
+    assertThat(client.batches.map { it.size }).containsExactly(10, 10, 5).inOrder()
+    assertThat(client.batches.flatten().joinToString(separator = "")).isEqualTo(text)
+  }
+
+  @Test
+  fun `test partial line is sent on close`() {
+    val client = RecordingClient()
+    val out = LoggingOutputStream(client, flushInterval = 60_000)
+    out.write("BUILD SUCCESSFUL\nin 5s".toByteArray())
+    assertThat(client.batches).isEmpty()
+
+    out.close()
+    assertThat(client.batches.flatten()).containsExactly("BUILD SUCCESSFUL\n", "in 5s").inOrder()
+  }
+
+  private class RecordingClient : TestClient() {
+    val batches = mutableListOf<List<String>>()
+
+    override fun logOutputBatch(lines: List<String>): CompletableFuture<Void> {
+      batches.add(lines)
+      return CompletableFuture.completedFuture(null)
+    }
+  }
+}
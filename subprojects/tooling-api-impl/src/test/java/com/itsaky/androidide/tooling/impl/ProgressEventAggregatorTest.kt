@@ -0,0 +1,161 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.tooling.events.ProgressEvent
+import com.itsaky.androidide.tooling.events.ProgressSummaryEvent
+import com.itsaky.androidide.tooling.events.ProgressVerbosity
+import com.itsaky.androidide.tooling.events.ProgressVerbosity.NORMAL
+import com.itsaky.androidide.tooling.events.ProgressVerbosity.SUMMARY
+import com.itsaky.androidide.tooling.events.ProgressVerbosity.VERBOSE
+import com.itsaky.androidide.tooling.events.task.TaskFailureResult
+import com.itsaky.androidide.tooling.events.task.TaskFinishEvent
+import com.itsaky.androidide.tooling.events.task.TaskOperationDescriptor
+import com.itsaky.androidide.tooling.events.task.TaskProgressEvent
+import com.itsaky.androidide.tooling.events.task.TaskStartEvent
+import com.itsaky.androidide.tooling.events.task.TaskSuccessResult
+import com.itsaky.androidide.tooling.impl.progress.ProgressEventAggregator
+import com.itsaky.androidide.tooling.model.PluginIdentifier
+import com.itsaky.androidide.tooling.testing.ToolingApiTestLauncher.TestClient
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/** @author Akash Yadav */
+@RunWith(JUnit4::class)
+class ProgressEventAggregatorTest {
+
+  private val client = RecordingClient()
+
+  @Test
+  fun `test short operations are collapsed`() {
+    val aggregator = newAggregator(NORMAL)
+    aggregator.onEvent(":a", start(":a"), now = 0)
+    aggregator.onEvent(":a", finish(":a"), now = 5_000)
+    aggregator.onEvent(":b", start(":b"), now = 6_000)
+    aggregator.tick(20_000)
+    assertThat(client.events).isEmpty()
+
+    // :b runs longer than the flush interval
+    aggregator.tick(70_000)
+    assertThat(client.events.map { it.displayName }).containsExactly("Start :b")
+
+    aggregator.onEvent(":b", finish(":b"), now = 80_000)
+    assertThat(client.events.last()).isInstanceOf(TaskFinishEvent::class.java)
+  }
+
+  @Test
+  fun `test failed short operations are sent`() {
+    val aggregator = newAggregator(NORMAL)
+    aggregator.onEvent(":a", start(":a"), now = 0)
+    aggregator.onEvent(":a", finish(":a", failed = true), isFailure = true, now = 10)
+    assertThat(client.events.map { it.displayName }).containsExactly("Finish :a")
+  }
+
+  @Test
+  fun `test progress of an operation is rate limited`() {
+    val aggregator = newAggregator(NORMAL)
+    aggregator.onEvent(":a", start(":a"), now = 0)
+    aggregator.tick(60_000)
+    for (i in 1..100) {
+      aggregator.onEvent(":a", progress(":a", i), now = 60_000L + i)
+    }
+    aggregator.tick(120_000)
+
+    assertThat(client.events.map { it.displayName })
+      .containsExactly("Start :a", "Progress :a 100")
+      .inOrder()
+  }
+
+  @Test
+  fun `test summaries`() {
+    val aggregator = newAggregator(SUMMARY)
+    aggregator.onEvent(":a", start(":a"), now = 0)
+    aggregator.onEvent(":b", start(":b"), now = 0)
+    aggregator.onEvent(":a", finish(":a"), now = 10)
+    aggregator.tick(100_000)
+    assertThat(client.events).isEmpty()
+
+    aggregator.tick(600_000)
+    val summary = client.events.single() as ProgressSummaryEvent
+    assertThat(summary.startedOperations).isEqualTo(2)
+    assertThat(summary.finishedOperations).isEqualTo(1)
+    assertThat(summary.runningOperations).containsExactly("Task :b")
+    assertThat(summary.displayName).isEqualTo("Task :b")
+
+    // no summary if nothing has changed
+    aggregator.tick(1_200_000)
+    assertThat(client.events).hasSize(1)
+
+    aggregator.onEvent(":b", finish(":b"), now = 1_200_000)
+    aggregator.close()
+    val last = client.events.last() as ProgressSummaryEvent
+    assertThat(last.finishedOperations).isEqualTo(2)
+    assertThat(last.runningCount).isEqualTo(0)
+  }
+
+  @Test
+  fun `test verbose sends all events`() {
+    val aggregator = newAggregator(VERBOSE)
+    aggregator.onEvent(":a", start(":a"), now = 0)
+    aggregator.onEvent(":a", progress(":a", 1), now = 1)
+    aggregator.onEvent(":a", finish(":a"), now = 2)
+    aggregator.close()
+
+    assertThat(client.events.map { it.javaClass })
+      .containsExactly(
+        TaskStartEvent::class.java,
+        TaskProgressEvent::class.java,
+        TaskFinishEvent::class.java,
+        ProgressSummaryEvent::class.java
+      )
+      .inOrder()
+  }
+
+  private fun newAggregator(verbosity: ProgressVerbosity) =
+    ProgressEventAggregator(
+      client,
+      verbosity,
+      flushInterval = 60_000,
+      summaryInterval = 600_000
+    )
+
+  private fun descriptor(path: String) =
+    TaskOperationDescriptor(emptySet(), PluginIdentifier("test"), path, path, "Task $path")
+
+  private fun start(path: String) = TaskStartEvent("Start $path", 0, descriptor(path))
+
+  private fun progress(path: String, i: Int) =
+    TaskProgressEvent("Progress $path $i", 0, descriptor(path))
+
+  private fun finish(path: String, failed: Boolean = false): TaskFinishEvent {
+    val result =
+      if (failed) TaskFailureResult(0, 0)
+      else TaskSuccessResult(false, false, 0, 0, false, emptyList())
+    return TaskFinishEvent("Finish $path", 0, descriptor(path), result)
+  }
+
+  private class RecordingClient : TestClient() {
+    val events = mutableListOf<ProgressEvent>()
+
+    override fun onProgressEvent(event: ProgressEvent) {
+      events.add(event)
+    }
+  }
+}
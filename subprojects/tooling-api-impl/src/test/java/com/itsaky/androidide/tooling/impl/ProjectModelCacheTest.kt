@@ -0,0 +1,133 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.impl
+
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.tooling.api.model.IdeGradleProject
+import com.itsaky.androidide.tooling.impl.util.ProjectModelCache
+import java.io.File
+import java.nio.file.Files
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/** @author Akash Yadav */
+@RunWith(JUnit4::class)
+class ProjectModelCacheTest {
+
+  @Test
+  fun `test fingerprint changes only with build files`() {
+    val dir = createProject()
+    val fingerprint = ProjectModelCache(dir, "").fingerprint
+    assertThat(ProjectModelCache(dir, "").fingerprint).isEqualTo(fingerprint)
+
+    File(dir, "app/src/main/java/Main.java").writeText("class Main { int a; }")
+    assertThat(ProjectModelCache(dir, "").fingerprint).isEqualTo(fingerprint)
+
+    File(dir, "gradle/libs.versions.toml").writeText("[versions]\nagp = \"7.3.0\"")
+    assertThat(ProjectModelCache(dir, "").fingerprint).isNotEqualTo(fingerprint)
+    assertThat(ProjectModelCache(dir, "/gradle-7.5").fingerprint)
+      .isNotEqualTo(ProjectModelCache(dir, "").fingerprint)
+  }
+
+  @Test
+  fun `test fingerprint changes with build logic sources`() {
+    val dir = createProject()
+    File(dir, "buildSrc/src/main/kotlin").mkdirs()
+    File(dir, "buildSrc/build.gradle.kts").writeText("plugins { `kotlin-dsl` }")
+    File(dir, "buildSrc/src/main/kotlin/Versions.kt").writeText("object Versions")
+    File(dir, "build-logic/convention/src/main/kotlin").mkdirs()
+    File(dir, "build-logic/settings.gradle.kts").writeText("include(\":convention\")")
+    File(dir, "build-logic/convention/src/main/kotlin/Plugin.kt").writeText("class Plugin")
+    File(dir, "settings.gradle").writeText("includeBuild 'build-logic'\ninclude ':app'")
+
+    var fingerprint = ProjectModelCache(dir, "").fingerprint
+
+    File(dir, "buildSrc/src/main/kotlin/Versions.kt").writeText("object Versions { val a = 1 }")
+    assertThat(ProjectModelCache(dir, "").fingerprint).isNotEqualTo(fingerprint)
+    fingerprint = ProjectModelCache(dir, "").fingerprint
+
+    File(dir, "build-logic/convention/src/main/kotlin/Plugin.kt").writeText("class Plugin { }")
+    assertThat(ProjectModelCache(dir, "").fingerprint).isNotEqualTo(fingerprint)
+    fingerprint = ProjectModelCache(dir, "").fingerprint
+
+    // the sources of the other modules are still ignored
+    File(dir, "app/src/main/java/Main.java").writeText("class Main { int b; }")
+    assertThat(ProjectModelCache(dir, "").fingerprint).isEqualTo(fingerprint)
+
+    File(dir, "buildSrc/build/classes").mkdirs()
+    File(dir, "buildSrc/build/classes/Versions.class").writeText("")
+    assertThat(ProjectModelCache(dir, "").fingerprint).isEqualTo(fingerprint)
+  }
+
+  @Test
+  fun `test cached model is used only for the same fingerprint`() {
+    val dir = createProject()
+    val cache = ProjectModelCache(dir, "")
+    assertThat(cache.load()).isNull()
+
+    val project = createModel(dir)
+    assertThat(cache.store(project, emptyMap())).isTrue()
+    assertThat(File(dir, "build/cache/androidide/project-model.json").isFile).isTrue()
+
+    val cached = ProjectModelCache(dir, "").load()
+    assertThat(cached).isNotNull()
+    assertThat(cached!!.project!!.name).isEqualTo("test")
+    assertThat(cached.project!!.projectDir).isEqualTo(dir)
+    assertThat(cache.store(project, emptyMap(), cached)).isFalse()
+
+    File(dir, "app/build.gradle").appendText("\napply plugin: 'kotlin-android'")
+    assertThat(ProjectModelCache(dir, "").load()).isNull()
+  }
+
+  @Test
+  fun `test invalidated model is not used`() {
+    val dir = createProject()
+    val cache = ProjectModelCache(dir, "")
+    cache.store(createModel(dir), emptyMap())
+    assertThat(cache.load()).isNotNull()
+
+    cache.invalidate()
+    assertThat(ProjectModelCache(dir, "").load()).isNull()
+  }
+
+  private fun createModel(dir: File): IdeGradleProject {
+    return IdeGradleProject(
+      "test",
+      null,
+      ":",
+      dir,
+      File(dir, "build"),
+      File(dir, "build.gradle"),
+      null,
+      emptyList()
+    )
+  }
+
+  private fun createProject(): File {
+    val dir = Files.createTempDirectory("project-model-cache").toFile()
+    dir.deleteOnExit()
+    File(dir, "settings.gradle").writeText("include ':app'")
+    File(dir, "build.gradle").writeText("")
+    File(dir, "app/src/main/java").mkdirs()
+    File(dir, "app/build.gradle").writeText("apply plugin: 'com.android.application'")
+    File(dir, "app/src/main/java/Main.java").writeText("class Main {}")
+    File(dir, "gradle").mkdirs()
+    return dir
+  }
+}
@@ -122,6 +122,12 @@ class ToolingApiTestLauncher {
       log.debug(line.trim())
     }
 
+    override fun logOutputBatch(lines: List<String>): CompletableFuture<Void> {
+      lines.forEach(this::logOutput)
+      return CompletableFuture.completedFuture(null)
+    }
+
+    override fun onProjectModelChanged() {}
     override fun prepareBuild() {}
     override fun onBuildSuccessful(result: BuildResult) {}
     override fun onBuildFailed(result: BuildResult) {}
@@ -38,6 +38,14 @@ class ForwardingToolingApiClient(var client: IToolingApiClient?) : IToolingApiCl
     client?.logOutput(line)
   }
 
+  override fun logOutputBatch(lines: List<String>): CompletableFuture<Void> {
+    return client?.logOutputBatch(lines) ?: CompletableFuture.completedFuture(null)
+  }
+
+  override fun onProjectModelChanged() {
+    client?.onProjectModelChanged()
+  }
+
   override fun prepareBuild() {
     client?.prepareBuild()
   }
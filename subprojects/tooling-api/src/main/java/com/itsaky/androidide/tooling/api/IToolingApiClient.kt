@@ -48,6 +48,21 @@ interface IToolingApiClient {
    */
   @JsonNotification fun logOutput(line: String)
 
+  /**
+   * Log a batch of lines of the build output received from Gradle. The server waits for the
+   * returned future to complete before it sends more batches, so the client should complete it
+   * once the lines have been handled.
+   *
+   * @param lines The lines of the build output, in order.
+   */
+  @JsonRequest fun logOutputBatch(lines: List<String>): CompletableFuture<Void>
+
+  /**
+   * Called when the project was initialized with a cached project model, and the model which was
+   * synced later in the background is different. The client should initialize the project again.
+   */
+  @JsonNotification fun onProjectModelChanged()
+
   /** Called just before a build is started. */
   @JsonNotification fun prepareBuild()
 
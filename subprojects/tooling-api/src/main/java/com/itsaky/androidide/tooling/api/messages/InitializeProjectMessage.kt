@@ -17,9 +17,26 @@
 
 package com.itsaky.androidide.tooling.api.messages
 
+import com.itsaky.androidide.tooling.events.ProgressVerbosity
+
 /**
  * Message sent from client to server to initialize the tooling API client in the given directory.
  *
+ * @param directory The root directory of the project.
+ * @param gradleInstallation The Gradle installation to use for the build, if any.
+ * @param binaryModels Whether the server should send the project models and the progress events in
+ * the binary encoding (see [BinaryModelCodec][com.itsaky.androidide.tooling.api.util.BinaryModelCodec])
+ * instead of JSON.
+ * @param progressVerbosity The progress events which the server should send during builds.
+ * @param forceSync Whether the project model must be read from the project even if a cached model
+ * is available, e.g. when the user syncs the project explicitly.
+ *
  * @author Akash Yadav
  */
-data class InitializeProjectMessage(val directory: String, val gradleInstallation: String = "")
+data class InitializeProjectMessage(
+  val directory: String,
+  val gradleInstallation: String = "",
+  val binaryModels: Boolean = false,
+  val progressVerbosity: ProgressVerbosity = ProgressVerbosity.NORMAL,
+  val forceSync: Boolean = false
+)
@@ -24,7 +24,11 @@ import com.itsaky.androidide.builder.model.DefaultProjectSyncIssues
  *
  * @param project The initialized project model.
  * @param syncIssues The issues reported by the Android Gradle Plugin during the project sync.
+ * @param binaryModels Whether the server sends the project models in the binary encoding.
  *
  * @author Akash Yadav
  */
-data class InitializeResult(val syncIssues: Map<String, DefaultProjectSyncIssues>)
+data class InitializeResult(
+  val syncIssues: Map<String, DefaultProjectSyncIssues>,
+  val binaryModels: Boolean = false
+)
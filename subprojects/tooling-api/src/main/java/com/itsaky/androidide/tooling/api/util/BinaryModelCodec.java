@@ -0,0 +1,734 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.api.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.JsonReaderInternalAccess;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.itsaky.androidide.tooling.api.messages.result.SimpleModuleData;
+import com.itsaky.androidide.tooling.api.messages.result.SimpleVariantData;
+import com.itsaky.androidide.tooling.api.model.IdeGradleProject;
+import com.itsaky.androidide.tooling.events.ProgressEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding for the project models and the progress events sent over the tooling
+ * API.
+ *
+ * <p>The models are written with the same type adapters which are used for JSON, so the encoding
+ * supports everything that the JSON encoding supports. But instead of JSON text, a stream of
+ * one-byte tags is written. Strings (including the property names and the <code>gsonType</code>
+ * values) are written only the first time they occur, later occurrences refer to the first one by
+ * its index. This makes the payload much smaller for models which contain many dependencies, as
+ * their property names, class names and paths are repeated many times.
+ *
+ * <p>The encoded models are sent as Base64 strings inside the JSON-RPC messages. The binary
+ * encoding is used only after the client has asked for it when initializing the project (see
+ * {@link #setEnabled(boolean)}). The models can always be read from both the encodings.
+ *
+ * @author Akash Yadav
+ */
+public class BinaryModelCodec implements TypeAdapterFactory {
+
+  private static final byte MAGIC = 'B';
+  private static final byte VERSION = 1;
+
+  private static final byte BEGIN_OBJECT = 1;
+  private static final byte END_OBJECT = 2;
+  private static final byte BEGIN_ARRAY = 3;
+  private static final byte END_ARRAY = 4;
+  private static final byte NAME = 5;
+  private static final byte STRING = 6;
+  private static final byte NULL = 7;
+  private static final byte TRUE = 8;
+  private static final byte FALSE = 9;
+  private static final byte LONG = 10;
+  private static final byte DOUBLE = 11;
+  private static final byte NUMBER = 12;
+  private static final byte END = 13;
+
+  /** The types which are sent in the binary encoding. Their subtypes are included. */
+  private static final Class<?>[] TYPES = {
+    IdeGradleProject.class, SimpleVariantData.class, SimpleModuleData.class, ProgressEvent.class
+  };
+
+  private volatile boolean enabled = false;
+
+  /**
+   * Encodes the given value with the given type adapter.
+   *
+   * @param adapter The type adapter for the value.
+   * @param value The value to encode.
+   * @return The encoded value.
+   */
+  public static <T> byte[] encode(TypeAdapter<T> adapter, T value) throws IOException {
+    final var writer = new BinaryJsonWriter();
+    adapter.write(writer, value);
+    return writer.finish();
+  }
+
+  /**
+   * Decodes the given bytes with the type adapter that was used to encode the value. The value is
+   * read directly from the bytes, without building a JSON tree.
+   *
+   * @param adapter The type adapter for the value.
+   * @param bytes The encoded value.
+   * @return The decoded value.
+   */
+  public static <T> T decode(TypeAdapter<T> adapter, byte[] bytes) throws IOException {
+    final var reader = new BinaryJsonReader(bytes);
+    final var value = adapter.read(reader);
+    reader.finish();
+    return value;
+  }
+
+  /**
+   * Decodes the given bytes to a JSON tree.
+   *
+   * @param bytes The encoded value.
+   * @return The JSON tree.
+   */
+  public static JsonElement decode(byte[] bytes) {
+    final var reader = new BinaryJsonReader(bytes);
+    final var element = JsonParser.parseReader(reader);
+    reader.finish();
+    return element;
+  }
+
+  /**
+   * Whether the supported models are written in the binary encoding.
+   *
+   * @return <code>true</code> if the binary encoding is used.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Set whether the supported models are written in the binary encoding.
+   *
+   * @param enabled <code>true</code> to use the binary encoding, <code>false</code> to use JSON.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Override
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+    if (!isSupported(type.getRawType())) {
+      return null;
+    }
+
+    return new Adapter<>(gson.getDelegateAdapter(this, type));
+  }
+
+  private static boolean isSupported(Class<?> klass) {
+    for (final var type : TYPES) {
+      if (type.isAssignableFrom(klass)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private class Adapter<T> extends TypeAdapter<T> {
+
+    private final TypeAdapter<T> delegate;
+
+    Adapter(TypeAdapter<T> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void write(JsonWriter out, T value) throws IOException {
+      // Models nested in an encoded model are encoded along with it
+      if (value == null || !enabled || out instanceof BinaryJsonWriter) {
+        delegate.write(out, value);
+        return;
+      }
+
+      out.value(Base64.getEncoder().encodeToString(encode(delegate, value)));
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+      if (in.peek() != JsonToken.STRING) {
+        return delegate.read(in);
+      }
+
+      return decode(delegate, Base64.getDecoder().decode(in.nextString()));
+    }
+  }
+
+  /** Writes the binary encoding for the values written by the type adapters. */
+  private static final class BinaryJsonWriter extends JsonWriter {
+
+    private static final Writer UNWRITABLE_WRITER =
+        new Writer() {
+          @Override
+          public void write(char[] buffer, int offset, int counter) {
+            throw new AssertionError();
+          }
+
+          @Override
+          public void flush() {
+            throw new AssertionError();
+          }
+
+          @Override
+          public void close() {
+            throw new AssertionError();
+          }
+        };
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    private final Map<String, Integer> strings = new HashMap<>();
+    private String deferredName;
+
+    BinaryJsonWriter() {
+      super(UNWRITABLE_WRITER);
+      // null properties are skipped, like in the JSON-RPC messages
+      setSerializeNulls(false);
+      out.write(MAGIC);
+      out.write(VERSION);
+    }
+
+    byte[] finish() {
+      out.write(END);
+      return out.toByteArray();
+    }
+
+    @Override
+    public JsonWriter beginArray() {
+      writeDeferredName();
+      out.write(BEGIN_ARRAY);
+      return this;
+    }
+
+    @Override
+    public JsonWriter endArray() {
+      out.write(END_ARRAY);
+      return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() {
+      writeDeferredName();
+      out.write(BEGIN_OBJECT);
+      return this;
+    }
+
+    @Override
+    public JsonWriter endObject() {
+      out.write(END_OBJECT);
+      return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) {
+      if (name == null) {
+        throw new NullPointerException("name == null");
+      }
+      if (deferredName != null) {
+        throw new IllegalStateException("Name already written: " + deferredName);
+      }
+      deferredName = name;
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) {
+      if (value == null) {
+        return nullValue();
+      }
+      writeDeferredName();
+      out.write(STRING);
+      writeString(value);
+      return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) {
+      throw new UnsupportedOperationException("Raw JSON values are not supported");
+    }
+
+    @Override
+    public JsonWriter nullValue() {
+      if (deferredName != null && !getSerializeNulls()) {
+        // skip the name and the value
+        deferredName = null;
+        return this;
+      }
+      writeDeferredName();
+      out.write(NULL);
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) {
+      writeDeferredName();
+      out.write(value ? TRUE : FALSE);
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) {
+      if (value == null) {
+        return nullValue();
+      }
+      return value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(float value) {
+      return value((double) value);
+    }
+
+    @Override
+    public JsonWriter value(double value) {
+      writeDeferredName();
+      out.write(DOUBLE);
+      final var bits = Double.doubleToRawLongBits(value);
+      for (int i = 56; i >= 0; i -= 8) {
+        out.write((int) (bits >>> i));
+      }
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) {
+      writeDeferredName();
+      out.write(LONG);
+      writeVarLong((value << 1) ^ (value >> 63));
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) {
+      if (value == null) {
+        return nullValue();
+      }
+
+      if (value instanceof Integer
+          || value instanceof Long
+          || value instanceof Short
+          || value instanceof Byte) {
+        return value(value.longValue());
+      }
+
+      if (value instanceof Double || value instanceof Float) {
+        return value(value.doubleValue());
+      }
+
+      writeDeferredName();
+      out.write(NUMBER);
+      writeString(value.toString());
+      return this;
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+
+    private void writeDeferredName() {
+      if (deferredName != null) {
+        out.write(NAME);
+        writeString(deferredName);
+        deferredName = null;
+      }
+    }
+
+    /**
+     * Writes a reference to a string which has already been written, or the string itself if it
+     * is written for the first time.
+     */
+    private void writeString(String value) {
+      final var index = strings.get(value);
+      if (index != null) {
+        writeVarLong(index + 1);
+        return;
+      }
+
+      strings.put(value, strings.size());
+      final var bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(0);
+      writeVarLong(bytes.length);
+      out.write(bytes, 0, bytes.length);
+    }
+
+    private void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        out.write((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      out.write((int) value);
+    }
+  }
+
+  /**
+   * Reads the binary encoding as a stream of JSON tokens, so that the type adapters read the models
+   * directly from the encoded bytes.
+   */
+  private static final class BinaryJsonReader extends JsonReader {
+
+    private static final Reader UNREADABLE_READER =
+        new Reader() {
+          @Override
+          public int read(char[] buffer, int offset, int count) {
+            throw new AssertionError();
+          }
+
+          @Override
+          public void close() {
+            throw new AssertionError();
+          }
+        };
+
+    /** The value of {@link #peeked} when the next tag has not been read yet. */
+    private static final byte PEEKED_NONE = 0;
+
+    static {
+      // Gson reads the keys of maps by promoting the names to values, which it can do for its own
+      // readers only
+      final var access = JsonReaderInternalAccess.INSTANCE;
+      JsonReaderInternalAccess.INSTANCE =
+          new JsonReaderInternalAccess() {
+            @Override
+            public void promoteNameToValue(JsonReader reader) throws IOException {
+              if (reader instanceof BinaryJsonReader) {
+                ((BinaryJsonReader) reader).promoteNameToValue();
+              } else {
+                access.promoteNameToValue(reader);
+              }
+            }
+          };
+    }
+
+    private final byte[] bytes;
+    private final List<String> strings = new ArrayList<>();
+    private int position;
+    private byte peeked = PEEKED_NONE;
+
+    BinaryJsonReader(byte[] bytes) {
+      super(UNREADABLE_READER);
+      if (bytes.length < 3 || bytes[0] != MAGIC) {
+        throw new JsonParseException("Not a binary encoded model");
+      }
+      if (bytes[1] != VERSION) {
+        throw new JsonParseException("Unsupported binary model version: " + bytes[1]);
+      }
+
+      this.bytes = bytes;
+      this.position = 2;
+    }
+
+    /** Checks that the whole encoded model has been read. */
+    void finish() {
+      if (peekTag() != END) {
+        throw new JsonParseException("Expected end of binary model at " + (position - 1));
+      }
+    }
+
+    @Override
+    public void beginArray() {
+      consume(BEGIN_ARRAY, JsonToken.BEGIN_ARRAY);
+    }
+
+    @Override
+    public void endArray() {
+      consume(END_ARRAY, JsonToken.END_ARRAY);
+    }
+
+    @Override
+    public void beginObject() {
+      consume(BEGIN_OBJECT, JsonToken.BEGIN_OBJECT);
+    }
+
+    @Override
+    public void endObject() {
+      consume(END_OBJECT, JsonToken.END_OBJECT);
+    }
+
+    @Override
+    public boolean hasNext() {
+      final var tag = peekTag();
+      return tag != END_OBJECT && tag != END_ARRAY && tag != END;
+    }
+
+    @Override
+    public JsonToken peek() {
+      switch (peekTag()) {
+        case BEGIN_OBJECT:
+          return JsonToken.BEGIN_OBJECT;
+        case END_OBJECT:
+          return JsonToken.END_OBJECT;
+        case BEGIN_ARRAY:
+          return JsonToken.BEGIN_ARRAY;
+        case END_ARRAY:
+          return JsonToken.END_ARRAY;
+        case NAME:
+          return JsonToken.NAME;
+        case STRING:
+          return JsonToken.STRING;
+        case NULL:
+          return JsonToken.NULL;
+        case TRUE:
+        case FALSE:
+          return JsonToken.BOOLEAN;
+        case LONG:
+        case DOUBLE:
+        case NUMBER:
+          return JsonToken.NUMBER;
+        case END:
+          return JsonToken.END_DOCUMENT;
+        default:
+          throw unexpected(peeked);
+      }
+    }
+
+    @Override
+    public String nextName() {
+      consume(NAME, JsonToken.NAME);
+      return readString();
+    }
+
+    @Override
+    public String nextString() {
+      switch (takeTag(JsonToken.STRING)) {
+        case LONG:
+          return Long.toString(readLong());
+        case DOUBLE:
+          return Double.toString(readDouble());
+        default:
+          return readString();
+      }
+    }
+
+    @Override
+    public boolean nextBoolean() {
+      final var tag = peekTag();
+      if (tag != TRUE && tag != FALSE) {
+        throw expected(JsonToken.BOOLEAN);
+      }
+      peeked = PEEKED_NONE;
+      return tag == TRUE;
+    }
+
+    @Override
+    public void nextNull() {
+      consume(NULL, JsonToken.NULL);
+    }
+
+    @Override
+    public double nextDouble() {
+      switch (takeTag(JsonToken.NUMBER)) {
+        case LONG:
+          return readLong();
+        case DOUBLE:
+          return readDouble();
+        default:
+          return Double.parseDouble(readString());
+      }
+    }
+
+    @Override
+    public long nextLong() {
+      switch (takeTag(JsonToken.NUMBER)) {
+        case LONG:
+          return readLong();
+        case DOUBLE:
+          final var value = readDouble();
+          if ((long) value != value) {
+            throw new NumberFormatException("Expected a long but was " + value);
+          }
+          return (long) value;
+        default:
+          return Long.parseLong(readString());
+      }
+    }
+
+    @Override
+    public int nextInt() {
+      final var value = nextLong();
+      if ((int) value != value) {
+        throw new NumberFormatException("Expected an int but was " + value);
+      }
+      return (int) value;
+    }
+
+    @Override
+    public void skipValue() {
+      // the strings must be read even if they are skipped, as later references depend on them
+      var depth = 0;
+      do {
+        final var tag = peekTag();
+        peeked = PEEKED_NONE;
+        switch (tag) {
+          case BEGIN_OBJECT:
+          case BEGIN_ARRAY:
+            ++depth;
+            break;
+          case END_OBJECT:
+          case END_ARRAY:
+            if (depth == 0) {
+              throw unexpected(tag);
+            }
+            --depth;
+            break;
+          case NAME:
+          case STRING:
+          case NUMBER:
+            readString();
+            break;
+          case LONG:
+            readLong();
+            break;
+          case DOUBLE:
+            readDouble();
+            break;
+          case NULL:
+          case TRUE:
+          case FALSE:
+            break;
+          default:
+            throw unexpected(tag);
+        }
+      } while (depth > 0);
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + " at " + position;
+    }
+
+    /** Makes the next name readable as a string value. */
+    void promoteNameToValue() {
+      if (peekTag() != NAME) {
+        throw expected(JsonToken.NAME);
+      }
+      // names and strings are encoded the same way
+      peeked = STRING;
+    }
+
+    private byte peekTag() {
+      if (peeked == PEEKED_NONE) {
+        peeked = readByte();
+      }
+      return peeked;
+    }
+
+    private void consume(byte tag, JsonToken token) {
+      if (peekTag() != tag) {
+        throw expected(token);
+      }
+      peeked = PEEKED_NONE;
+    }
+
+    /** Consumes the tag of the next value, which must be a string or a number. */
+    private byte takeTag(JsonToken token) {
+      final var tag = peekTag();
+      if (tag != STRING && tag != LONG && tag != DOUBLE && tag != NUMBER) {
+        throw expected(token);
+      }
+      peeked = PEEKED_NONE;
+      return tag;
+    }
+
+    private String readString() {
+      final var index = (int) readVarLong();
+      if (index > 0) {
+        if (index > strings.size()) {
+          throw new JsonParseException("Invalid string reference: " + index);
+        }
+        return strings.get(index - 1);
+      }
+
+      final var length = (int) readVarLong();
+      if (length < 0 || position + length > bytes.length) {
+        throw new JsonParseException("Invalid string length: " + length);
+      }
+      final var value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      strings.add(value);
+      return value;
+    }
+
+    private long readLong() {
+      final var zigzag = readVarLong();
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private double readDouble() {
+      long bits = 0;
+      for (int i = 0; i < 8; i++) {
+        bits = (bits << 8) | (readByte() & 0xFF);
+      }
+      return Double.longBitsToDouble(bits);
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        final var b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new JsonParseException("Malformed variable length number at " + position);
+    }
+
+    private byte readByte() {
+      if (position >= bytes.length) {
+        throw new JsonParseException("Unexpected end of binary model");
+      }
+      return bytes[position++];
+    }
+
+    private IllegalStateException expected(JsonToken token) {
+      return new IllegalStateException("Expected " + token + " but was " + peek() + " at " + this);
+    }
+
+    private JsonParseException unexpected(byte tag) {
+      return new JsonParseException("Unexpected tag " + tag + " at " + (position - 1));
+    }
+  }
+}
@@ -35,6 +35,7 @@ import com.itsaky.androidide.tooling.api.model.JavaModuleProjectDependency;
 import com.itsaky.androidide.tooling.events.OperationDescriptor;
 import com.itsaky.androidide.tooling.events.OperationResult;
 import com.itsaky.androidide.tooling.events.ProgressEvent;
+import com.itsaky.androidide.tooling.events.ProgressSummaryEvent;
 import com.itsaky.androidide.tooling.events.StatusEvent;
 import com.itsaky.androidide.tooling.events.configuration.ProjectConfigurationFinishEvent;
 import com.itsaky.androidide.tooling.events.configuration.ProjectConfigurationOperationDescriptor;
@@ -98,10 +99,16 @@ public class ToolingApiLauncher {
         .setOutput(out)
         .setLocalService(local)
         .setRemoteInterface(remote)
-        .configureGson(ToolingApiLauncher::configureGson)
+        .configureGson(builder -> configureGson(builder, new BinaryModelCodec()))
         .create();
   }
 
+  /**
+   * Configures the given {@link GsonBuilder} to read and write the tooling API models in the JSON
+   * encoding.
+   *
+   * @param builder The builder to configure.
+   */
   public static void configureGson(GsonBuilder builder) {
     builder.registerTypeAdapter(File.class, new FileTypeAdapter());
     builder.registerTypeAdapterFactory(
@@ -173,7 +180,10 @@ public class ToolingApiLauncher {
             .registerSubtype(DefaultFinishEvent.class, DefaultFinishEvent.class.getName())
 
             // Status event
-            .registerSubtype(StatusEvent.class, StatusEvent.class.getName()));
+            .registerSubtype(StatusEvent.class, StatusEvent.class.getName())
+
+            // Summary event
+            .registerSubtype(ProgressSummaryEvent.class, ProgressSummaryEvent.class.getName()));
 
     builder.registerTypeAdapterFactory(
         RuntimeTypeAdapterFactory.of(OperationDescriptor.class, "gsonType", true)
@@ -213,6 +223,20 @@ public class ToolingApiLauncher {
             .registerSubtype(TaskSuccessResult.class, TaskSuccessResult.class.getName()));
   }
 
+  /**
+   * Configures the given {@link GsonBuilder} to read the tooling API models in both JSON and binary
+   * encodings, and to write them in the encoding selected in the given codec.
+   *
+   * @param builder The builder to configure.
+   * @param codec The binary model codec.
+   */
+  public static void configureGson(GsonBuilder builder, BinaryModelCodec codec) {
+    configureGson(builder);
+
+    // The codec must be registered last so that it wraps the adapters registered above
+    builder.registerTypeAdapterFactory(codec);
+  }
+
   public static Launcher<Object> newClientLauncher(
       IToolingApiClient client, InputStream in, OutputStream out) {
     return newIoLauncher(
@@ -221,20 +245,43 @@ public class ToolingApiLauncher {
 
   public static Launcher<Object> newIoLauncher(
       Object[] locals, Class<?>[] remotes, InputStream in, OutputStream out) {
+    return newIoLauncher(locals, remotes, in, out, new BinaryModelCodec());
+  }
+
+  public static Launcher<Object> newIoLauncher(
+      Object[] locals,
+      Class<?>[] remotes,
+      InputStream in,
+      OutputStream out,
+      BinaryModelCodec codec) {
     return new Launcher.Builder<>()
         .setInput(in)
         .setOutput(out)
         .setExecutorService(Executors.newCachedThreadPool())
         .setLocalServices(Arrays.asList(locals))
         .setRemoteInterfaces(Arrays.asList(remotes))
-        .configureGson(ToolingApiLauncher::configureGson)
+        .configureGson(builder -> configureGson(builder, codec))
         .setClassLoader(locals[0].getClass().getClassLoader())
         .create();
   }
 
   public static Launcher<Object> newServerLauncher(
       IToolingApiServer server, IProject project, InputStream in, OutputStream out) {
+    return newServerLauncher(server, project, in, out, new BinaryModelCodec());
+  }
+
+  /**
+   * Creates the launcher for the tooling API server.
+   *
+   * @param codec The codec which the server enables if the client asks for the binary encoding.
+   */
+  public static Launcher<Object> newServerLauncher(
+      IToolingApiServer server,
+      IProject project,
+      InputStream in,
+      OutputStream out,
+      BinaryModelCodec codec) {
     return newIoLauncher(
-        new Object[] {server, project}, new Class[] {IToolingApiClient.class}, in, out);
+        new Object[] {server, project}, new Class[] {IToolingApiClient.class}, in, out, codec);
   }
 }
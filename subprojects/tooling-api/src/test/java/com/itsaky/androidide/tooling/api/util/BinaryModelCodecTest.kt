@@ -0,0 +1,168 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.itsaky.androidide.tooling.api.util
+
+import com.google.common.truth.Truth.assertThat
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import com.itsaky.androidide.tooling.api.messages.result.SimpleArtifact
+import com.itsaky.androidide.tooling.api.messages.result.SimpleVariantData
+import com.itsaky.androidide.tooling.api.model.GradleTask
+import com.itsaky.androidide.tooling.api.model.IdeGradleProject
+import com.itsaky.androidide.tooling.api.model.JavaModule
+import com.itsaky.androidide.tooling.api.model.JavaModuleCompilerSettings
+import com.itsaky.androidide.tooling.events.ProgressEvent
+import com.itsaky.androidide.tooling.events.task.TaskOperationDescriptor
+import com.itsaky.androidide.tooling.events.task.TaskStartEvent
+import com.itsaky.androidide.tooling.model.PluginIdentifier
+import java.io.File
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/** @author Akash Yadav */
+@RunWith(JUnit4::class)
+class BinaryModelCodecTest {
+
+  private val json = gson(false)
+  private val binary = gson(true)
+
+  @Test
+  fun `test project is encoded as a compact binary string`() {
+    val project = createProject()
+    val jsonPayload = json.toJson(project, IdeGradleProject::class.java)
+    val binaryPayload = binary.toJson(project, IdeGradleProject::class.java)
+
+    assertThat(jsonPayload).startsWith("{")
+    assertThat(binaryPayload).startsWith("\"")
+    assertThat(binaryPayload.length).isLessThan(jsonPayload.length / 2)
+
+    // Both the encodings can be read by both the clients
+    for (gson in listOf(json, binary)) {
+      for (payload in listOf(jsonPayload, binaryPayload)) {
+        val decoded = gson.fromJson(payload, IdeGradleProject::class.java)
+        assertThat(json.toJson(decoded, IdeGradleProject::class.java)).isEqualTo(jsonPayload)
+        assertThat(decoded.moduleProjects.first()).isInstanceOf(JavaModule::class.java)
+      }
+    }
+  }
+
+  @Test
+  fun `test variant data with maps`() {
+    val artifact =
+      SimpleArtifact(
+        "debug",
+        null,
+        File("build/outputs/apk/debug/output-metadata.json"),
+        listOf(File("build/generated/res/resValues/debug")),
+        emptyList(),
+        null,
+        21,
+        "debug",
+        "generateDebugSources",
+        "assembleDebug",
+        listOf(File("build/intermediates/javac/debug/classes")),
+        "compileDebugSources",
+        -1
+      )
+    val variant = SimpleVariantData("debug", artifact, mapOf("androidTest" to artifact))
+
+    val payload = binary.toJson(variant, SimpleVariantData::class.java)
+    assertThat(payload).startsWith("\"")
+    assertThat(json.fromJson(payload, SimpleVariantData::class.java)).isEqualTo(variant)
+  }
+
+  @Test
+  fun `test skipped values keep later string references valid`() {
+    val project = createProject()
+    val bytes = BinaryModelCodec.encode(json.getAdapter(IdeGradleProject::class.java), project)
+
+    // the task names and paths are skipped, but later values refer back to the strings
+    // that were first written in them
+    val decoded = BinaryModelCodec.decode(Gson().getAdapter(ProjectPaths::class.java), bytes)
+    assertThat(decoded.projectPath).isEqualTo(":")
+    assertThat(decoded.moduleProjects!!.single().projectPath).isEqualTo(":library")
+  }
+
+  @Test
+  fun `test progress event`() {
+    val descriptor =
+      TaskOperationDescriptor(
+        emptySet(),
+        PluginIdentifier("com.android.application"),
+        ":app:compileDebugKotlin",
+        ":app:compileDebugKotlin",
+        "Task :app:compileDebugKotlin"
+      )
+    val event = TaskStartEvent("Task :app:compileDebugKotlin started", 1234567890123L, descriptor)
+
+    val payload = binary.toJson(event, ProgressEvent::class.java)
+    val decoded = json.fromJson(payload, ProgressEvent::class.java)
+    assertThat(decoded).isInstanceOf(TaskStartEvent::class.java)
+    assertThat(decoded.eventTime).isEqualTo(event.eventTime)
+    assertThat(decoded.displayName).isEqualTo(event.displayName)
+    assertThat(decoded.descriptor).isEqualTo(descriptor)
+  }
+
+  private fun createProject(): IdeGradleProject {
+    val root = File("/storage/emulated/0/AndroidIDEProjects/MyApplication")
+    val project =
+      IdeGradleProject(
+        "MyApplication",
+        null,
+        ":",
+        root,
+        File(root, "build"),
+        File(root, "build.gradle"),
+        null,
+        createTasks(":")
+      )
+
+    val libDir = File(root, "library")
+    project.moduleProjects.add(
+      JavaModule(
+        "library",
+        ":library",
+        "A Java library",
+        libDir,
+        File(libDir, "build"),
+        File(libDir, "build.gradle"),
+        null,
+        createTasks(":library"),
+        JavaModuleCompilerSettings("11", "11"),
+        emptyList(),
+        mutableListOf()
+      )
+    )
+    return project
+  }
+
+  private fun createTasks(projectPath: String): List<GradleTask> {
+    val prefix = if (projectPath == ":") "" else projectPath
+    return (0 until 100).map {
+      GradleTask("task$it", "Runs task $it", "build", "$prefix:task$it", null, true, projectPath)
+    }
+  }
+
+  private class ProjectPaths(val projectPath: String?, val moduleProjects: List<ProjectPaths>?)
+
+  private fun gson(binary: Boolean): Gson {
+    val codec = BinaryModelCodec().apply { isEnabled = binary }
+    return GsonBuilder().apply { ToolingApiLauncher.configureGson(this, codec) }.create()
+  }
+}
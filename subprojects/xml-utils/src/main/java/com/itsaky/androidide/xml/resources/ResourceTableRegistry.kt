@@ -41,6 +41,13 @@ interface ResourceTableRegistry : XmlRegistry<ResourceTable> {
     @JvmStatic fun getInstance(): ResourceTableRegistry = DefaultResourceTableRegistry
   }
 
+  /**
+   * The directory where the snapshots of the extracted resource tables are stored. The snapshots
+   * are used to avoid extracting the resource tables again when the resources have not changed.
+   * Snapshots are not used if this is `null`.
+   */
+  var snapshotsDir: File?
+
   /**
    * Find the resource table by package name. Should not be used for platform resource tables.
    *
@@ -48,6 +55,17 @@ interface ResourceTableRegistry : XmlRegistry<ResourceTable> {
    */
   fun forPackage(name: String, vararg resDirs: File): ResourceTable?
 
+  /**
+   * Updates the resource table for the given package after the given resource file was created,
+   * modified or deleted. Only the resources from the given file are extracted again.
+   *
+   * @param name The package name for the resource table.
+   * @param file The resource file.
+   * @return Whether the resource table was updated. `false` if there is no resource table for the
+   * package.
+   */
+  fun updateResourceFile(name: String, file: File): Boolean
+
   /**
    * Remove the resource table entry for the given package name.
    *
@@ -73,6 +73,14 @@ internal object DefaultResourceTableRegistry : ResourceTableRegistry {
   private val singleLineValueEntries =
     ConcurrentHashMap<String, ConcurrentHashMap<SingleLineValueEntryType, List<String>>>()
 
+  @Volatile private var snapshots: ResourceTableSnapshots? = null
+
+  override var snapshotsDir: File? = null
+    set(value) {
+      field = value
+      snapshots = value?.let { ResourceTableSnapshots(it) }
+    }
+
   override fun forPackage(name: String, vararg resDirs: File): ResourceTable? {
 
     if (name == PCK_ANDROID) {
@@ -81,12 +89,14 @@ internal object DefaultResourceTableRegistry : ResourceTableRegistry {
 
     return tables[name]
       ?: createTable(*resDirs)?.also {
-        tables[name] = it
         it.packages.firstOrNull()?.name = name
         
         resDirs.forEach { resDir ->
           addFileReferences(it, name, resDir)
         }
+
+        // publish the table only after it is complete
+        tables[name] = it
       }
   }
 
@@ -128,6 +138,32 @@ internal object DefaultResourceTableRegistry : ResourceTableRegistry {
     return getSingleLineEntry(platform, FEATURES)
   }
 
+  override fun updateResourceFile(name: String, file: File): Boolean {
+    val table = tables[name] ?: return false
+    val dir = file.parentFile ?: return false
+    val paths = setOf(file.path, file.absolutePath)
+
+    // Extract the resources without holding the lock
+    val extracted = ResourceTable()
+    if (dir.name == SdkConstants.FD_RES_VALUES) {
+      if (file.isFile) {
+        updateFromFile(file, extracted, getDefaultOptions(), BlameLogger(IDELogger))
+      }
+    } else if (!dir.name.startsWith(SdkConstants.FD_RES_VALUES)) {
+      if (file.isFile) {
+        addFileReference(extracted, name, dir, file)
+      }
+    } else {
+      return true
+    }
+
+    // The table is read without a lock (e.g. by the completion providers), so the affected groups
+    // are updated on a copy which is then published. The lock only serializes the writers.
+    synchronized(table) { table.replaceValuesFromSources(paths, extracted, name) }
+
+    return true
+  }
+
   override fun removeTable(packageName: String) {
     tables.remove(packageName)
   }
@@ -201,20 +237,30 @@ internal object DefaultResourceTableRegistry : ResourceTableRegistry {
       return null
     }
 
+    val valuesDirs = resDirs.map { File(it, SdkConstants.FD_RES_VALUES) }.filter { it.isDirectory }
+    val snapshots = this.snapshots
+    val key = snapshots?.computeKey(valuesDirs)
+    if (snapshots != null && key != null) {
+      snapshots.load(key)?.let { table ->
+        log.info("Loaded resource table for ${resDirs.size} resource directories from snapshot")
+        return table
+      }
+    }
+
     log.info("Creating resource table for ${resDirs.size} resource directories")
 
     val logger = BlameLogger(IDELogger)
     val table = ResourceTable()
     val options = getDefaultOptions()
 
-    for (resDir in resDirs) {
-      val values = File(resDir, "values")
-      if (!values.exists() || !values.isDirectory) {
-        continue
-      }
+    for (values in valuesDirs) {
       updateFromDirectory(values, table, options, logger)
     }
 
+    if (snapshots != null && key != null) {
+      snapshots.store(key, table)
+    }
+
     return table
   }
   
@@ -225,22 +271,26 @@ internal object DefaultResourceTableRegistry : ResourceTableRegistry {
       }
       
       dir.listFiles()?.forEach { file ->
-        var typeName = dir.name
-        if (typeName.contains('-')) {
-          typeName = typeName.substringBefore('-')
-        }
-  
-        val type = try {
-          AaptResourceType.valueOf(typeName.uppercase())
-        } catch (error: Exception) {
-          log.warn("Unknown resource type:", typeName.uppercase(), error.message)
-          AaptResourceType.UNKNOWN
-        }
-        val resName = ResourceName(pck, type, file.nameWithoutExtension)
-        table.addFileReference(resName, ConfigDescription(), Source(file.path), file.path)
+        addFileReference(table, pck, dir, file)
       }
     }
   }
+
+  private fun addFileReference(table: ResourceTable, pck: String, dir: File, file: File) {
+    var typeName = dir.name
+    if (typeName.contains('-')) {
+      typeName = typeName.substringBefore('-')
+    }
+
+    val type = try {
+      AaptResourceType.valueOf(typeName.uppercase())
+    } catch (error: Exception) {
+      log.warn("Unknown resource type:", typeName.uppercase(), error.message)
+      AaptResourceType.UNKNOWN
+    }
+    val resName = ResourceName(pck, type, file.nameWithoutExtension)
+    table.addFileReference(resName, ConfigDescription(), Source(file.path), file.path)
+  }
   
   private fun getDefaultOptions(): TableExtractorOptions {
     return TableExtractorOptions(translatable = true, errorOnPositionalArgs = false, visibility = PUBLIC)
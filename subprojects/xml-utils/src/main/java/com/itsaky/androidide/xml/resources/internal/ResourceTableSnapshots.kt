@@ -0,0 +1,151 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.xml.resources.internal
+
+import com.android.aapt.Resources
+import com.android.aaptcompiler.ResourceTable
+import com.android.aaptcompiler.proto.deserializeTableFromPb
+import com.android.aaptcompiler.proto.serializeTableToPb
+import com.itsaky.androidide.aapt.logging.IDELogger
+import com.itsaky.androidide.utils.ILogger
+import java.io.File
+import java.security.MessageDigest
+
+/**
+ * Stores the resource tables extracted from resource directories on disk in the aapt2 protobuf
+ * format.
+ *
+ * A snapshot is keyed by the hash of the paths and the contents of the `values` directories from
+ * which the table was extracted. The paths are part of the key as the values in the table refer to
+ * their source files. The snapshots of the framework and dependency resources are reused as long as
+ * these files do not change, while a module's table is extracted again only when its resources are
+ * modified.
+ *
+ * @param dir The directory where the snapshots are stored.
+ * @author Akash Yadav
+ */
+internal class ResourceTableSnapshots(private val dir: File) {
+
+  companion object {
+
+    /** Incremented when the extracted tables (or the format of the snapshots) change. */
+    private const val VERSION = 2
+
+    /** The maximum number of snapshots to keep. Least recently used snapshots are deleted. */
+    private const val MAX_SNAPSHOTS = 128
+
+    private const val EXTENSION = "pb"
+
+    private val log = ILogger.newInstance("ResourceTableSnapshots")
+  }
+
+  /**
+   * Computes the key of the snapshot for the given values directories.
+   *
+   * @param valuesDirs The `values` directories from which the resource table is extracted.
+   * @return The key of the snapshot.
+   */
+  fun computeKey(valuesDirs: List<File>): String {
+    val digest = MessageDigest.getInstance("SHA-256")
+    digest.update(VERSION.toByte())
+    for (valuesDir in valuesDirs) {
+      // the sources of the values are stored in the snapshot, the same resources in another
+      // directory (e.g. another project created from the same template) must not share it
+      digest.update(valuesDir.canonicalPath.toByteArray())
+      digest.update(0.toByte())
+
+      val files = valuesDir.listFiles { file -> file.isFile && file.extension == "xml" }
+      for (file in files?.sortedBy { it.name } ?: continue) {
+        digest.update(file.name.toByteArray())
+        digest.update(0.toByte())
+        digest.update(file.readBytes())
+        digest.update(0.toByte())
+      }
+      digest.update(1.toByte())
+    }
+
+    return digest.digest().joinToString(separator = "") { "%02x".format(it) }
+  }
+
+  /**
+   * Loads the snapshot with the given key.
+   *
+   * @return The resource table, or `null` if there is no (valid) snapshot for the key.
+   */
+  fun load(key: String): ResourceTable? {
+    val file = snapshotFile(key)
+    if (!file.isFile) {
+      return null
+    }
+
+    return try {
+      val pbTable = file.inputStream().buffered().use { Resources.ResourceTable.parseFrom(it) }
+      val table = ResourceTable()
+      if (!deserializeTableFromPb(pbTable, table, IDELogger)) {
+        log.warn("Invalid resource table snapshot", file)
+        file.delete()
+        return null
+      }
+
+      file.setLastModified(System.currentTimeMillis())
+      table
+    } catch (err: Throwable) {
+      log.error("Unable to read resource table snapshot", file, err)
+      file.delete()
+      null
+    }
+  }
+
+  /** Stores the snapshot of the given table with the given key. */
+  fun store(key: String, table: ResourceTable) {
+    try {
+      val pbTable = serializeTableToPb(table, IDELogger)
+      dir.mkdirs()
+      val file = snapshotFile(key)
+
+      // the same snapshot may be stored by multiple threads, each writes to its own file
+      val tmp = File.createTempFile("${file.name}.", ".tmp", dir)
+      try {
+        tmp.outputStream().buffered().use { pbTable.writeTo(it) }
+        if (!tmp.renameTo(file)) {
+          file.delete()
+          tmp.renameTo(file)
+        }
+      } finally {
+        tmp.delete()
+      }
+    } catch (err: Throwable) {
+      log.error("Unable to write resource table snapshot", err)
+      return
+    }
+
+    prune()
+  }
+
+  private fun prune() {
+    val snapshots = dir.listFiles { file -> file.extension == EXTENSION } ?: return
+    if (snapshots.size <= MAX_SNAPSHOTS) {
+      return
+    }
+
+    snapshots.sortedByDescending { it.lastModified() }.drop(MAX_SNAPSHOTS).forEach { it.delete() }
+  }
+
+  private fun snapshotFile(key: String) = File(dir, "$key.$EXTENSION")
+}
@@ -19,6 +19,7 @@ package com.itsaky.androidide.xml.versions
 
 import com.itsaky.androidide.xml.registry.XmlRegistry
 import com.itsaky.androidide.xml.versions.internal.DefaultApiVersionsRegistry
+import java.io.File
 
 /**
  * Registry that reads information about the API versions of classes, their fields and methods.
@@ -35,4 +36,11 @@ interface ApiVersionsRegistry : XmlRegistry<ApiVersions> {
     /** Get the default instance of [ApiVersionsRegistry]. */
     @JvmStatic fun getInstance(): ApiVersionsRegistry = DefaultApiVersionsRegistry
   }
+
+  /**
+   * The directory where the compiled indexes of the API versions are stored. The `api-versions.xml`
+   * of a platform is parsed only once and the index is memory-mapped afterwards. If this is `null`,
+   * the index is built in memory each time.
+   */
+  var indexDir: File?
 }
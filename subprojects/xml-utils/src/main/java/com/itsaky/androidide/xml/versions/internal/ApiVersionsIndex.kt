@@ -0,0 +1,201 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.xml.versions.internal
+
+import com.itsaky.androidide.utils.ILogger
+import com.itsaky.androidide.xml.versions.Info
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Compiles the API versions into a compact binary index which can be memory-mapped.
+ *
+ * The index has the following layout (all integers are big-endian) :
+ * - Header : magic, version, class count, offset of the member table, offset of the string table.
+ * - Class table : a record of [CLASS_SIZE] bytes for each class, sorted by name. A record contains
+ * the name, the packed versions and the ranges of the fields and the methods in the member table.
+ * - Member table : a record of [MEMBER_SIZE] bytes for each field and method, containing the name
+ * and the packed versions. The fields and the methods of a class are sorted by name.
+ * - String table : the interned names. Each name is stored as an unsigned 16-bit length followed by
+ * the UTF-8 encoded bytes. Names are referenced by their offset in the string table.
+ *
+ * Names are sorted by comparing their UTF-8 bytes, so that lookups can be performed on the index
+ * without decoding the names.
+ *
+ * @author Akash Yadav
+ */
+internal object ApiVersionsIndex {
+
+  private const val MAGIC = 0x41564958 // AVIX
+  private const val VERSION = 1
+
+  const val HEADER_SIZE = 20
+  const val CLASS_SIZE = 24
+  const val MEMBER_SIZE = 8
+
+  private val log = ILogger.newInstance("ApiVersionsIndex")
+
+  /** Compares byte arrays as unsigned bytes. */
+  private val BYTES_ORDER =
+    Comparator<ByteArray> { a, b ->
+      for (i in 0 until minOf(a.size, b.size)) {
+        val result = (a[i].toInt() and 0xff) - (b[i].toInt() and 0xff)
+        if (result != 0) {
+          return@Comparator result
+        }
+      }
+      a.size - b.size
+    }
+
+  /**
+   * Packs the versions of the given info into a single int. Each version takes one byte and is
+   * stored as `version + 1` so that `-1` (not specified) is stored as `0`.
+   */
+  fun packVersions(info: Info): Int {
+    return packVersion(info.since) or
+      (packVersion(info.removed) shl 8) or
+      (packVersion(info.deprecated) shl 16)
+  }
+
+  fun since(packed: Int) = (packed and 0xff) - 1
+
+  fun removed(packed: Int) = ((packed ushr 8) and 0xff) - 1
+
+  fun deprecated(packed: Int) = ((packed ushr 16) and 0xff) - 1
+
+  private fun packVersion(version: Int): Int {
+    require(version in -1..254) { "Invalid API version: $version" }
+    return version + 1
+  }
+
+  /**
+   * Builds the index for the given API versions.
+   *
+   * @param versions The API versions read from `api-versions.xml`.
+   * @return The index.
+   */
+  fun build(versions: DefaultApiVersions): ByteBuffer {
+    val blob = ByteArrayOutputStream()
+    val strings = DataOutputStream(blob)
+    val refs = HashMap<String, Int>()
+    fun intern(name: String): Int {
+      return refs.getOrPut(name) {
+        val bytes = name.toByteArray()
+        require(bytes.size <= 0xffff) { "Name too long: $name" }
+        val ref = strings.size()
+        strings.writeShort(bytes.size)
+        strings.write(bytes)
+        ref
+      }
+    }
+
+    val classes =
+      versions.classes.values
+        .filterIsInstance<DefaultClassInfo>()
+        .sortedWith(compareBy(BYTES_ORDER) { it.name.toByteArray() })
+
+    val classRecords = IntArray(classes.size * (CLASS_SIZE / 4))
+    val memberRecords = ArrayList<Int>()
+    classes.forEachIndexed { index, klass ->
+      val fields = klass.fields.values.sortedWith(compareBy(BYTES_ORDER) { it.name.toByteArray() })
+      val methods =
+        klass.methods.values.flatten().sortedWith(compareBy(BYTES_ORDER) { it.name.toByteArray() })
+
+      val record = index * (CLASS_SIZE / 4)
+      classRecords[record] = intern(klass.name)
+      classRecords[record + 1] = packVersions(klass)
+      classRecords[record + 2] = memberRecords.size / 2
+      classRecords[record + 3] = fields.size
+      classRecords[record + 4] = memberRecords.size / 2 + fields.size
+      classRecords[record + 5] = methods.size
+      for (member in fields + methods) {
+        memberRecords.add(intern(member.name))
+        memberRecords.add(packVersions(member))
+      }
+    }
+
+    val membersOffset = HEADER_SIZE + classes.size * CLASS_SIZE
+    val stringsOffset = membersOffset + memberRecords.size * 4
+    val buffer = ByteBuffer.allocate(stringsOffset + strings.size())
+    buffer.putInt(MAGIC)
+    buffer.putInt(VERSION)
+    buffer.putInt(classes.size)
+    buffer.putInt(membersOffset)
+    buffer.putInt(stringsOffset)
+    classRecords.forEach(buffer::putInt)
+    memberRecords.forEach(buffer::putInt)
+    buffer.put(blob.toByteArray())
+    buffer.flip()
+    return buffer
+  }
+
+  /** Writes the given index to the given file. */
+  fun write(index: ByteBuffer, file: File) {
+    try {
+      file.parentFile?.mkdirs()
+      val tmp = File(file.parentFile, "${file.name}.tmp")
+      RandomAccessFile(tmp, "rw").use { out ->
+        out.setLength(0)
+        val buffer = index.duplicate()
+        buffer.rewind()
+        while (buffer.hasRemaining()) {
+          out.channel.write(buffer)
+        }
+      }
+      if (!tmp.renameTo(file)) {
+        file.delete()
+        tmp.renameTo(file)
+      }
+    } catch (err: Throwable) {
+      log.error("Unable to write API versions index", file, err)
+    }
+  }
+
+  /**
+   * Memory-maps the index stored in the given file.
+   *
+   * @return The index, or `null` if the file is not a valid index.
+   */
+  fun read(file: File): ByteBuffer? {
+    return try {
+      val index =
+        RandomAccessFile(file, "r").use {
+          it.channel.map(FileChannel.MapMode.READ_ONLY, 0, it.length())
+        }
+      if (
+        index.limit() < HEADER_SIZE ||
+          index.getInt(0) != MAGIC ||
+          index.getInt(4) != VERSION ||
+          index.getInt(16) > index.limit()
+      ) {
+        log.warn("Invalid API versions index", file)
+        file.delete()
+        return null
+      }
+      index
+    } catch (err: Throwable) {
+      log.error("Unable to read API versions index", file, err)
+      null
+    }
+  }
+}
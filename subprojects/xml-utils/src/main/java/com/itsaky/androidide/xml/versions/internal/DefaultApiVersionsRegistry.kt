@@ -25,6 +25,7 @@ import com.itsaky.androidide.xml.versions.FieldInfo
 import com.itsaky.androidide.xml.versions.Info
 import com.itsaky.androidide.xml.versions.MethodInfo
 import java.io.File
+import java.security.MessageDigest
 import java.util.concurrent.ConcurrentHashMap
 import org.xmlpull.v1.XmlPullParser
 import org.xmlpull.v1.XmlPullParserFactory
@@ -39,6 +40,8 @@ internal object DefaultApiVersionsRegistry : ApiVersionsRegistry {
   private val log = ILogger.newInstance(javaClass.simpleName)
   private val versions = ConcurrentHashMap<String, ApiVersions>()
 
+  @Volatile override var indexDir: File? = null
+
   override fun forPlatformDir(platform: File): ApiVersions? {
     var version = versions[platform.path]
     if (version != null) {
@@ -56,7 +59,29 @@ internal object DefaultApiVersionsRegistry : ApiVersionsRegistry {
       return null
     }
 
+    val indexFile = indexDir?.let { File(it, indexName(versionsFile)) }
+    if (indexFile != null && indexFile.isFile) {
+      ApiVersionsIndex.read(indexFile)?.let {
+        return IndexedApiVersions(it)
+      }
+    }
+
     log.info("Creating API versions table for platform dir: $platform")
+    val parsed = parseApiVersions(versionsFile)
+    val index = ApiVersionsIndex.build(parsed)
+    if (indexFile != null) {
+      ApiVersionsIndex.write(index, indexFile)
+    }
+    return IndexedApiVersions(index)
+  }
+
+  private fun indexName(versionsFile: File): String {
+    val key = "${versionsFile.absolutePath}:${versionsFile.length()}:${versionsFile.lastModified()}"
+    val digest = MessageDigest.getInstance("SHA-256").digest(key.toByteArray())
+    return digest.joinToString(separator = "", postfix = ".idx") { "%02x".format(it) }
+  }
+
+  private fun parseApiVersions(versionsFile: File): DefaultApiVersions {
     return versionsFile.bufferedReader().use {
       val parser =
         XmlPullParserFactory.newInstance().run {
@@ -70,7 +95,7 @@ internal object DefaultApiVersionsRegistry : ApiVersionsRegistry {
     }
   }
 
-  private fun readApiVersions(parser: XmlPullParser): ApiVersions {
+  private fun readApiVersions(parser: XmlPullParser): DefaultApiVersions {
     val versions = DefaultApiVersions()
     var event = parser.eventType
     var apiEncountered = false
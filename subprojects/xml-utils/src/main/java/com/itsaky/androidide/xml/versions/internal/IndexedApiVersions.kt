@@ -0,0 +1,170 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.xml.versions.internal
+
+import com.itsaky.androidide.xml.versions.ApiVersions
+import com.itsaky.androidide.xml.versions.ClassInfo
+import com.itsaky.androidide.xml.versions.FieldInfo
+import com.itsaky.androidide.xml.versions.MethodInfo
+import com.itsaky.androidide.xml.versions.internal.ApiVersionsIndex.CLASS_SIZE
+import com.itsaky.androidide.xml.versions.internal.ApiVersionsIndex.HEADER_SIZE
+import com.itsaky.androidide.xml.versions.internal.ApiVersionsIndex.MEMBER_SIZE
+import java.nio.ByteBuffer
+import org.eclipse.jdt.core.Signature
+
+/**
+ * [ApiVersions] implementation which performs the lookups on an index built by
+ * [ApiVersionsIndex]. The info objects are created only for the elements which are looked up.
+ *
+ * Only the absolute methods of the buffer are used, so instances can be shared among threads.
+ *
+ * @author Akash Yadav
+ */
+internal class IndexedApiVersions(private val index: ByteBuffer) : ApiVersions {
+
+  private val classCount = index.getInt(8)
+  private val membersOffset = index.getInt(12)
+  private val stringsOffset = index.getInt(16)
+
+  override fun getClass(name: String): ClassInfo? {
+    val key = name.replace('.', '/').toByteArray()
+    val position = lowerBound(0, classCount, key, false, ::classOffset)
+    if (position == classCount || compare(index.getInt(classOffset(position)), key, false) != 0) {
+      return null
+    }
+
+    val offset = classOffset(position)
+    return IndexedClassInfo(offset, readString(index.getInt(offset)), index.getInt(offset + 4))
+  }
+
+  private fun classOffset(position: Int) = HEADER_SIZE + position * CLASS_SIZE
+
+  private fun memberOffset(position: Int) = membersOffset + position * MEMBER_SIZE
+
+  /**
+   * Finds the position of the first record in the given range whose name is not less than the
+   * given key. If [prefix] is `true`, names which start with the key are considered equal to it.
+   */
+  private inline fun lowerBound(
+    start: Int,
+    count: Int,
+    key: ByteArray,
+    prefix: Boolean,
+    offset: (Int) -> Int
+  ): Int {
+    var low = start
+    var high = start + count
+    while (low < high) {
+      val mid = (low + high) ushr 1
+      if (compare(index.getInt(offset(mid)), key, prefix) < 0) {
+        low = mid + 1
+      } else {
+        high = mid
+      }
+    }
+    return low
+  }
+
+  /** Compares the UTF-8 bytes of the name with the given reference to the key. */
+  private fun compare(ref: Int, key: ByteArray, prefix: Boolean): Int {
+    val offset = stringsOffset + ref
+    val length = index.getShort(offset).toInt() and 0xffff
+    for (i in 0 until minOf(length, key.size)) {
+      val result = (index.get(offset + 2 + i).toInt() and 0xff) - (key[i].toInt() and 0xff)
+      if (result != 0) {
+        return result
+      }
+    }
+    return if (prefix && length >= key.size) 0 else length - key.size
+  }
+
+  private fun readString(ref: Int): String {
+    val offset = stringsOffset + ref
+    val length = index.getShort(offset).toInt() and 0xffff
+    val bytes = ByteArray(length) { index.get(offset + 2 + it) }
+    return String(bytes)
+  }
+
+  private inner class IndexedClassInfo(private val offset: Int, name: String, versions: Int) :
+    DefaultInfo(
+      name,
+      ApiVersionsIndex.since(versions),
+      ApiVersionsIndex.removed(versions),
+      ApiVersionsIndex.deprecated(versions)
+    ),
+    ClassInfo {
+
+    override fun getField(name: String): FieldInfo? {
+      val start = index.getInt(offset + 8)
+      val count = index.getInt(offset + 12)
+      val key = name.toByteArray()
+      val position = lowerBound(start, count, key, false, ::memberOffset)
+      if (
+        position == start + count ||
+          compare(index.getInt(memberOffset(position)), key, false) != 0
+      ) {
+        return null
+      }
+
+      val versions = index.getInt(memberOffset(position) + 4)
+      return DefaultFieldInfo(
+        name = name,
+        since = ApiVersionsIndex.since(versions),
+        removed = ApiVersionsIndex.removed(versions),
+        deprecated = ApiVersionsIndex.deprecated(versions)
+      )
+    }
+
+    override fun getMethod(name: String, vararg params: String): MethodInfo? {
+      val start = index.getInt(offset + 16)
+      val end = start + index.getInt(offset + 20)
+      val key = "$name(".toByteArray()
+      val paramTypes = Array(size = params.size) { "" }
+      params.forEachIndexed { index, type ->
+        paramTypes[index] = Signature.createTypeSignature(type.replace('.', '/'), true)
+      }
+
+      var position = lowerBound(start, end - start, key, true, ::memberOffset)
+      while (position < end) {
+        val offset = memberOffset(position++)
+        val ref = index.getInt(offset)
+        if (compare(ref, key, true) != 0) {
+          break
+        }
+
+        val signature = readString(ref)
+        val methodParams = Signature.getParameterTypes(signature)
+        if (methodParams == null || !paramTypes.contentDeepEquals(methodParams)) {
+          continue
+        }
+
+        val versions = index.getInt(offset + 4)
+        return DefaultMethodInfo(
+          simpleName = name,
+          name = signature,
+          since = ApiVersionsIndex.since(versions),
+          removed = ApiVersionsIndex.removed(versions),
+          deprecated = ApiVersionsIndex.deprecated(versions)
+        )
+      }
+
+      return null
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.xml.resources
+
+import com.android.aaptcompiler.AaptResourceType
+import com.android.aaptcompiler.AaptResourceType.COLOR
+import com.android.aaptcompiler.AaptResourceType.DRAWABLE
+import com.android.aaptcompiler.AaptResourceType.STRING
+import com.android.aaptcompiler.BasicString
+import com.android.aaptcompiler.ResourceName
+import com.android.aaptcompiler.ResourceTable
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.aapt.findEntries
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.concurrent.thread
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+class IncrementalResourceTableTest {
+
+  private val pck = "com.itsaky.incremental"
+  private val registry = ResourceTableRegistry.getInstance()
+  private lateinit var resDir: File
+
+  @Before
+  fun setup() {
+    resDir = File(Files.createTempDirectory("res").toFile(), "res")
+    writeValues("strings.xml", """<string name="a">A</string><string name="b">B</string>""")
+    writeValues("colors.xml", """<color name="c">#ffffff</color>""")
+  }
+
+  @After
+  fun cleanup() {
+    registry.removeTable(pck)
+    resDir.parentFile!!.deleteRecursively()
+  }
+
+  @Test
+  fun `test values file is updated incrementally`() {
+    val table = registry.forPackage(pck, resDir)!!
+    assertThat(findString(table, "a")).isEqualTo("A")
+    assertThat(findString(table, "b")).isEqualTo("B")
+
+    val strings =
+      writeValues("strings.xml", """<string name="a">A2</string><string name="d">D</string>""")
+    assertThat(registry.updateResourceFile(pck, strings)).isTrue()
+
+    assertThat(registry.forPackage(pck, resDir)).isSameInstanceAs(table)
+    assertThat(findString(table, "a")).isEqualTo("A2")
+    assertThat(table.findResource(name(STRING, "b"))).isNull()
+    assertThat(findString(table, "d")).isEqualTo("D")
+    assertThat(table.findResource(name(COLOR, "c"))).isNotNull()
+  }
+
+  @Test
+  fun `test file references are updated incrementally`() {
+    val table = registry.forPackage(pck, resDir)!!
+    assertThat(table.findResource(name(DRAWABLE, "icon"))).isNull()
+
+    val drawable = File(resDir, "drawable/icon.xml")
+    drawable.parentFile!!.mkdirs()
+    drawable.writeText("<shape />")
+    assertThat(registry.updateResourceFile(pck, drawable)).isTrue()
+    assertThat(table.findResource(name(DRAWABLE, "icon"))).isNotNull()
+
+    drawable.delete()
+    assertThat(registry.updateResourceFile(pck, drawable)).isTrue()
+    assertThat(table.findResource(name(DRAWABLE, "icon"))).isNull()
+  }
+
+  @Test
+  fun `test table can be read while it is updated`() {
+    val table = registry.forPackage(pck, resDir)!!
+    val strings = table.findPackage(pck)!!.findGroup(STRING)!!
+    val stop = AtomicBoolean(false)
+    val failure = AtomicReference<Throwable>()
+    val readers =
+      List(4) {
+        thread {
+          try {
+            while (!stop.get()) {
+              // 'a' is defined in every version of the file, it must never be missing
+              val entries = strings.findEntries { true }
+              assertThat(entries.map { it.name }).contains("a")
+              entries.forEach { entry -> entry.values.forEach { it.value } }
+              assertThat(table.findResource(name(STRING, "a"))).isNotNull()
+            }
+          } catch (err: Throwable) {
+            failure.compareAndSet(null, err)
+          }
+        }
+      }
+
+    try {
+      for (i in 0 until 200) {
+        val content = """<string name="a">A$i</string><string name="b$i">B</string>"""
+        assertThat(registry.updateResourceFile(pck, writeValues("strings.xml", content))).isTrue()
+      }
+    } finally {
+      stop.set(true)
+      readers.forEach { it.join() }
+    }
+
+    assertThat(failure.get()).isNull()
+    assertThat(findString(table, "a")).isEqualTo("A199")
+    assertThat(table.findResource(name(STRING, "b198"))).isNull()
+    assertThat(findString(table, "b199")).isEqualTo("B")
+    assertThat(table.findResource(name(COLOR, "c"))).isNotNull()
+  }
+
+  @Test
+  fun `test update without table`() {
+    val strings = File(resDir, "values/strings.xml")
+    assertThat(registry.updateResourceFile(pck, strings)).isFalse()
+  }
+
+  private fun writeValues(name: String, content: String): File {
+    val file = File(resDir, "values/$name")
+    file.parentFile!!.mkdirs()
+    file.writeText("<resources>$content</resources>")
+    return file
+  }
+
+  private fun name(type: AaptResourceType, entry: String) = ResourceName(pck, type, entry)
+
+  private fun findString(table: ResourceTable, entry: String): String? {
+    val result = table.findResource(name(STRING, entry))
+    return (result?.entry?.values?.firstOrNull()?.value as? BasicString)?.toString()
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.xml.resources.internal
+
+import com.android.aaptcompiler.AaptResourceType.STRING
+import com.android.aaptcompiler.BasicString
+import com.android.aaptcompiler.ConfigDescription
+import com.android.aaptcompiler.ResourceName
+import com.android.aaptcompiler.ResourceTable
+import com.google.common.truth.Truth.assertThat
+import com.itsaky.androidide.xml.resources.ResourceTableRegistry
+import java.io.File
+import java.nio.file.Files
+import kotlin.concurrent.thread
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+class ResourceTableSnapshotsTest {
+
+  @Test
+  fun `test table is loaded from snapshot`() {
+    val root = Files.createTempDirectory("snapshots").toFile()
+    val resDir = createResDir(root, "Hello")
+    val snapshotsDir = File(root, "snapshots")
+    val registry = ResourceTableRegistry.getInstance()
+    registry.snapshotsDir = snapshotsDir
+
+    try {
+      val table = registry.forPackage("com.itsaky.test", resDir)
+      assertThat(table).isNotNull()
+      assertThat(snapshotsDir.listFiles()).hasLength(1)
+
+      val snapshots = ResourceTableSnapshots(snapshotsDir)
+      val key = snapshots.computeKey(listOf(File(resDir, "values")))
+      val snapshot = snapshots.load(key)
+      assertThat(snapshot).isNotNull()
+      assertThat(snapshot!!.packages).hasSize(1)
+
+      snapshot.packages.first().name = "com.itsaky.test"
+      assertThat(findString(snapshot, "hello")).isEqualTo("Hello")
+      assertThat(findString(snapshot, "world")).isEqualTo("World")
+
+      // tables for the same resources are loaded from the snapshot
+      registry.removeTable("com.itsaky.test")
+      assertThat(findString(registry.forPackage("com.itsaky.test", resDir)!!, "hello"))
+        .isEqualTo("Hello")
+      assertThat(snapshotsDir.listFiles()).hasLength(1)
+
+      // modified resources are extracted again
+      createResDir(root, "Hi")
+      registry.removeTable("com.itsaky.test")
+      assertThat(findString(registry.forPackage("com.itsaky.test", resDir)!!, "hello"))
+        .isEqualTo("Hi")
+      assertThat(snapshotsDir.listFiles()).hasLength(2)
+    } finally {
+      registry.removeTable("com.itsaky.test")
+      registry.snapshotsDir = null
+      root.deleteRecursively()
+    }
+  }
+
+  @Test
+  fun `test key changes with contents`() {
+    val root = Files.createTempDirectory("snapshots").toFile()
+    try {
+      val values = File(createResDir(root, "Hello"), "values")
+      val snapshots = ResourceTableSnapshots(File(root, "snapshots"))
+      val key = snapshots.computeKey(listOf(values))
+      assertThat(snapshots.computeKey(listOf(values))).isEqualTo(key)
+      assertThat(snapshots.load(key)).isNull()
+
+      createResDir(root, "Hi")
+      assertThat(snapshots.computeKey(listOf(values))).isNotEqualTo(key)
+    } finally {
+      root.deleteRecursively()
+    }
+  }
+
+  @Test
+  fun `test key changes with directory`() {
+    val first = Files.createTempDirectory("snapshots").toFile()
+    val second = Files.createTempDirectory("snapshots").toFile()
+    try {
+      val snapshots = ResourceTableSnapshots(File(first, "snapshots"))
+
+      // same contents, but the values refer to the files in their own directory
+      val key = snapshots.computeKey(listOf(File(createResDir(first, "Hello"), "values")))
+      assertThat(snapshots.computeKey(listOf(File(createResDir(second, "Hello"), "values"))))
+        .isNotEqualTo(key)
+    } finally {
+      first.deleteRecursively()
+      second.deleteRecursively()
+    }
+  }
+
+  @Test
+  fun `test concurrent stores of the same snapshot`() {
+    val root = Files.createTempDirectory("snapshots").toFile()
+    try {
+      val values = File(createResDir(root, "Hello"), "values")
+      val snapshots = ResourceTableSnapshots(File(root, "snapshots"))
+      val key = snapshots.computeKey(listOf(values))
+      val table = ResourceTable()
+      table.addResource(
+        ResourceName("com.itsaky.test", STRING, "hello"),
+        ConfigDescription(),
+        "",
+        BasicString(table.stringPool.makeRef("Hello"))
+      )
+
+      List(4) { thread { repeat(10) { snapshots.store(key, table) } } }.forEach { it.join() }
+
+      assertThat(File(root, "snapshots").list()).asList().containsExactly("$key.pb")
+      val snapshot = snapshots.load(key)!!
+      snapshot.packages.first().name = "com.itsaky.test"
+      assertThat(findString(snapshot, "hello")).isEqualTo("Hello")
+    } finally {
+      root.deleteRecursively()
+    }
+  }
+
+  private fun createResDir(root: File, hello: String): File {
+    val resDir = File(root, "res")
+    val values = File(resDir, "values")
+    values.mkdirs()
+    File(values, "strings.xml")
+      .writeText(
+        """
+        <resources>
+          <string name="hello">$hello</string>
+          <string name="world">World</string>
+        </resources>
+        """
+          .trimIndent()
+      )
+    return resDir
+  }
+
+  private fun findString(table: ResourceTable, name: String): String? {
+    val result = table.findResource(ResourceName("com.itsaky.test", STRING, name))
+    return (result?.entry?.values?.firstOrNull()?.value as? BasicString)?.toString()
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.itsaky.androidide.xml.versions.internal
+
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import java.nio.file.Files
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+/** @author Akash Yadav */
+@RunWith(RobolectricTestRunner::class)
+class ApiVersionsIndexTest {
+
+  @Test
+  fun `test lookups on memory-mapped index`() {
+    val dir = Files.createTempDirectory("api-versions").toFile()
+    try {
+      val file = File(dir, "index.idx")
+      ApiVersionsIndex.write(ApiVersionsIndex.build(createVersions()), file)
+      val versions = IndexedApiVersions(ApiVersionsIndex.read(file)!!)
+
+      assertThat(versions.getClass("a.b.Missing")).isNull()
+      assertThat(versions.getClass("a.b.C42")!!.since).isEqualTo(2)
+
+      val view = versions.getClass("android.view.View")!!
+      assertThat(view.name).isEqualTo("android/view/View")
+      assertThat(view.since).isEqualTo(1)
+
+      view.getField("SYSTEM_UI_FLAG_FULLSCREEN").apply {
+        assertThat(this).isNotNull()
+        assertThat(this!!.since).isEqualTo(16)
+        assertThat(this.removed).isEqualTo(-1)
+        assertThat(this.deprecated).isEqualTo(30)
+      }
+      assertThat(view.getField("SYSTEM_UI_FLAG")).isNull()
+
+      assertThat(view.getMethod("setAlpha", "float")!!.since).isEqualTo(11)
+      assertThat(view.getMethod("setAlpha", "android.view.View")!!.since).isEqualTo(12)
+      assertThat(view.getMethod("setAlphaValue", "float")!!.since).isEqualTo(13)
+      assertThat(view.getMethod("set", "float")!!.since).isEqualTo(14)
+      assertThat(view.getMethod("setAlpha", "int")).isNull()
+      assertThat(view.getMethod("<init>", "android.content.Context")!!.removed).isEqualTo(33)
+    } finally {
+      dir.deleteRecursively()
+    }
+  }
+
+  @Test
+  fun `test invalid index is not read`() {
+    val file = Files.createTempFile("api-versions", ".idx").toFile()
+    try {
+      file.writeText("not an index")
+      assertThat(ApiVersionsIndex.read(file)).isNull()
+    } finally {
+      file.delete()
+    }
+  }
+
+  private fun createVersions(): DefaultApiVersions {
+    val versions = DefaultApiVersions()
+    for (i in 0 until 100) {
+      versions.putClass("a/b/C$i", DefaultClassInfo("a/b/C$i", i % 5, -1, -1))
+    }
+
+    val view = DefaultClassInfo("android/view/View", 1, -1, -1)
+    view.fields["SYSTEM_UI_FLAG_FULLSCREEN"] =
+      DefaultFieldInfo("SYSTEM_UI_FLAG_FULLSCREEN", 16, -1, 30)
+    listOf(
+        DefaultMethodInfo("setAlpha", "setAlpha(F)V", 11, -1, -1),
+        DefaultMethodInfo("setAlpha", "setAlpha(Landroid/view/View;)V", 12, -1, -1),
+        DefaultMethodInfo("setAlphaValue", "setAlphaValue(F)V", 13, -1, -1),
+        DefaultMethodInfo("set", "set(F)V", 14, -1, -1),
+        DefaultMethodInfo("<init>", "<init>(Landroid/content/Context;)V", 1, 33, -1)
+      )
+      .forEach { view.methods.getOrPut(it.simpleName) { mutableListOf() }.add(it) }
+    versions.putClass(view.name, view)
+    return versions
+  }
+}